@@ -0,0 +1,75 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterBackend;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
+
+/*
+ * One counter shared by 16 threads, as ControllerCounters.packetIn is by the Netty workers,
+ * for each backend: increments only, and increments of 15 threads while one reads the value
+ * and last-modified time as the REST API does:
+ *   mvn -Pbenchmark test-compile exec:java -Dexec.args="DebugCounterBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DebugCounterBenchmark {
+
+    @Param({"ATOMIC", "STRIPED"})
+    public CounterBackend backend;
+
+    private DebugCounterImpl counter;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if (backend == CounterBackend.STRIPED) {
+            counter = new StripedDebugCounterImpl("bench", "counter", "Benchmark counter",
+                                                  Collections.<MetaData>emptyList());
+        } else {
+            counter = new DebugCounterImpl("bench", "counter", "Benchmark counter",
+                                           Collections.<MetaData>emptyList());
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void increment() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Group("incrementWhileRead")
+    @GroupThreads(15)
+    public void writer() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Group("incrementWhileRead")
+    @GroupThreads(1)
+    public long reader() {
+        return counter.getCounterValue() + counter.getLastModified();
+    }
+
+}
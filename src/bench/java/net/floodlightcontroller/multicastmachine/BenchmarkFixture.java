@@ -0,0 +1,249 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.Inet4Address;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.TableId;
+import org.projectfloodlight.openflow.types.U64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.packet.Data;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.routing.IRoutingService;
+import net.floodlightcontroller.topology.ITopologyService;
+
+/*
+ * Synthetic network of the benchmarks: 'members' hosts spread over SWITCHES switches,
+ * PORTS ports and GROUPS groups, one transmitter per (switch, group) on TRANSMITTER_PORT.
+ * Switches and services are stubbed by dynamic proxies instead of EasyMock mocks: a replayed
+ * EasyMock mock serialises every call, which would measure the mock at 32 threads.
+ */
+class BenchmarkFixture {
+
+	static final int SWITCHES = 16;
+	static final int PORTS = 48;
+	static final int GROUPS = 64;
+	static final OFPort TRANSMITTER_PORT = OFPort.of(100);
+	static final short IDLE_TIMEOUT = 180;
+	static final int LOCK_STRIPES = 256;
+	static final long FLOWMOD_WINDOW = 20;
+	static final MacAddress ROUTER_MAC = MacAddress.of("00:50:56:AA:AA:AA");
+	static final IPv4Address ROUTER_IP = IPv4Address.of("10.0.0.254");
+	static final IPv4Address LEAVE_DST = IPv4Address.of("224.0.0.2");
+	static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkFixture.class);
+
+	final OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+	final Map<DatapathId, IOFSwitch> switches = new HashMap<>();
+	final IOFSwitch[] switchArray = new IOFSwitch[SWITCHES];
+	FlowManager flowManager;
+	ListenerManager listenerManager;
+	TransmitterManager transmitterManager;
+
+	BenchmarkFixture() {
+		for(int i=0; i<SWITCHES; i++) {
+			DatapathId id = DatapathId.of(i+1);
+			IOFSwitch sw = stub(IOFSwitch.class, Collections.singletonMap("getId", args -> id));
+			switches.put(id, sw);
+			switchArray[i] = sw;
+		}
+	}
+
+	IOFSwitch switchOf(int member) {
+		return switchArray[member % SWITCHES];
+	}
+
+	static OFPort portOf(int member) {
+		return OFPort.of((member / SWITCHES) % PORTS + 1);
+	}
+
+	static MacAddress macOf(int member) {
+		return MacAddress.of(0x020000000000L + member);
+	}
+
+	static MacAddress transmitterMacOf(int group) {
+		return MacAddress.of(0x040000000000L + group);
+	}
+
+	static IPv4Address ipOf(int member) {
+		return IPv4Address.of(0x0a000000 + member + 1);
+	}
+
+	static IPv4Address groupOf(int member) {
+		return IPv4Address.of(0xef010000 + member % GROUPS);
+	}
+
+	/* a stub answering the given methods, writes succeed and everything else returns a default */
+	@SuppressWarnings("unchecked")
+	<T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			String name = method.getName();
+			Function<Object[], Object> answer = answers.get(name);
+			if(answer!=null) {
+				return answer.apply(args);
+			}
+			switch(name) {
+			case "equals":
+				return proxy==args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+			case "getOFFactory":
+				return factory;
+			case "write":
+				return method.getReturnType()==boolean.class ? true : Collections.emptyList();
+			case "writeRequest":
+			case "writeStatsRequest":
+				return SettableFuture.create();
+			default:
+				return defaultValue(method);
+			}
+		});
+	}
+
+	private static Object defaultValue(Method method) {
+		Class<?> type = method.getReturnType();
+		if(!type.isPrimitive() || type==void.class) {
+			return null;
+		}
+		if(type==boolean.class) {
+			return false;
+		} else if(type==long.class) {
+			return 0L;
+		} else if(type==int.class) {
+			return 0;
+		} else if(type==short.class) {
+			return (short) 0;
+		} else if(type==byte.class) {
+			return (byte) 0;
+		} else if(type==char.class) {
+			return (char) 0;
+		} else if(type==float.class) {
+			return 0f;
+		}
+		return 0d;
+	}
+
+	/* the managers wired as MulticastMachine.init does, their expiry wheels are not started */
+	void createManagers() throws Exception {
+		Map<String, Function<Object[], Object>> none = Collections.emptyMap();
+		flowManager = new FlowManager(IDLE_TIMEOUT, LOCK_STRIPES, FLOWMOD_WINDOW, true);
+		StripedLock locks = new StripedLock(LOCK_STRIPES);
+		transmitterManager = new TransmitterManager(ROUTER_MAC, ROUTER_IP, 300, LOGGER, flowManager, locks);
+		listenerManager = new ListenerManager(ROUTER_MAC, ROUTER_IP, 125, 10, 2, 2, 1, false, LOGGER, 
+				flowManager, locks);
+		transmitterManager.registerOtherManager(listenerManager);
+		listenerManager.registerOtherManager(transmitterManager);
+		MulticastTreeManager treeManager = new MulticastTreeManager(stub(IRoutingService.class, none),
+				stub(IOFSwitchService.class, Collections.singletonMap("getSwitch", args -> switches.get(args[0]))),
+				flowManager, LOGGER);
+		treeManager.registerManagers(listenerManager, transmitterManager);
+		transmitterManager.registerTreeManager(treeManager);
+		listenerManager.registerTreeManager(treeManager);
+	}
+
+	void stopManagers() {
+		listenerManager.stopMachine();
+		transmitterManager.stopMachine();
+		flowManager.stop();
+	}
+
+	/* MulticastMachine wired to stub services, every port is an attachment point, no inter-switch paths */
+	MulticastMachine createMachine() throws Exception {
+		MulticastMachine machine = new MulticastMachine();
+		FloodlightModuleContext context = new FloodlightModuleContext();
+		Map<String, Function<Object[], Object>> none = Collections.emptyMap();
+		context.addService(IFloodlightProviderService.class, stub(IFloodlightProviderService.class, none));
+		context.addService(IRestApiService.class, stub(IRestApiService.class, none));
+		context.addService(IRoutingService.class, stub(IRoutingService.class, none));
+		context.addService(ITopologyService.class, stub(ITopologyService.class,
+				Collections.singletonMap("isAttachmentPointPort", args -> true)));
+		context.addService(IOFSwitchService.class, stub(IOFSwitchService.class,
+				Collections.singletonMap("getSwitch", args -> switches.get(args[0]))));
+		context.addService(IMulticastService.class, machine);
+		context.addConfigParam(machine, "membershipSync", "false");
+		machine.init(context);
+		machine.startUp(context);
+		return machine;
+	}
+
+	OFPacketIn packetIn(OFPort inPort) {
+		return factory.buildPacketIn()
+				.setBufferId(OFBufferId.NO_BUFFER)
+				.setReason(OFPacketInReason.NO_MATCH)
+				.setTableId(TableId.ZERO)
+				.setCookie(U64.ZERO)
+				.setMatch(factory.buildMatch().setExact(MatchField.IN_PORT, inPort).build())
+				.setData(new byte[0])
+				.build();
+	}
+
+	static FloodlightContext context(MacAddress srcMac, IPv4Address srcIp, IPv4Address dstIp,
+			IpProtocol protocol, byte[] payload) {
+		byte[] dstMac = new byte[] { 0x01, 0x00, 0x5e, (byte) ((dstIp.getInt() >> 16) & 0x7f),
+				(byte) (dstIp.getInt() >> 8), (byte) dstIp.getInt() };
+		IPv4 ipv4 = new IPv4()
+				.setSourceAddress(srcIp)
+				.setDestinationAddress(dstIp)
+				.setProtocol(protocol)
+				.setTtl((byte) 1);
+		ipv4.setPayload(new Data(payload));
+		Ethernet eth = new Ethernet()
+				.setSourceMACAddress(srcMac)
+				.setDestinationMACAddress(MacAddress.of(dstMac))
+				.setEtherType(EthType.IPv4);
+		eth.setPayload(ipv4);
+		FloodlightContext cntx = new FloodlightContext();
+		IFloodlightProviderService.bcStore.put(cntx, IFloodlightProviderService.CONTEXT_PI_PAYLOAD, eth);
+		return cntx;
+	}
+
+	static byte[] igmpv2(Igmpv2Type type, IPv4Address group) throws Exception {
+		return new Igmpv2Builder(type, 0, (Inet4Address) Inet4Address.getByAddress(group.getBytes()))
+				.build().createByteArrayImage();
+	}
+
+	/* every (switch, group) gets its transmitter, so the listeners below build real flows */
+	void addTransmitters(HostManager transmitters) {
+		for(IOFSwitch sw : switchArray) {
+			for(int g=0; g<GROUPS; g++) {
+				transmitters.addOrRefreshHost(sw, TRANSMITTER_PORT, transmitterMacOf(g), ROUTER_IP, groupOf(g));
+			}
+		}
+	}
+
+	void addListeners(HostManager listeners, int members) {
+		for(int i=0; i<members; i++) {
+			listeners.addOrRefreshHost(switchOf(i), portOf(i), macOf(i), ipOf(i), groupOf(i));
+		}
+	}
+
+}
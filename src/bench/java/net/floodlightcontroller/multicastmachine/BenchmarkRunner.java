@@ -0,0 +1,46 @@
+package net.floodlightcontroller.multicastmachine;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Baseline of the module: every benchmark matching the regexp at each thread count, with the
+ * throughput, the sampled latency percentiles and the allocation rate of the GC profiler.
+ * The benchmarks of single threaded code run at one thread only. One JSON file per count:
+ *   mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=net.floodlightcontroller.multicastmachine.BenchmarkRunner
+ *       [-Dexec.args="<regexp> <threads,...>"]
+ */
+public class BenchmarkRunner {
+
+	private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+	private static final String SINGLE_THREADED = "ExpiryTickBenchmark|IgmpParserBenchmark|FlowIndexBenchmark";
+
+	public static void main(String[] args) throws RunnerException {
+		String include = (args.length>0) ? args[0] : BenchmarkRunner.class.getPackage().getName();
+		int[] threads = THREADS;
+		if(args.length>1) {
+			String[] counts = args[1].split(",");
+			threads = new int[counts.length];
+			for(int i=0; i<counts.length; i++) {
+				threads[i] = Integer.parseInt(counts[i].trim());
+			}
+		}
+		for(int count : threads) {
+			ChainedOptionsBuilder options = new OptionsBuilder()
+					.include(include)
+					.threads(count)
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result("target/jmh-" + count + "-threads.json");
+			if(count>1) {
+				options.exclude(SINGLE_THREADED);
+			}
+			new Runner(options.build()).run();
+		}
+	}
+
+}
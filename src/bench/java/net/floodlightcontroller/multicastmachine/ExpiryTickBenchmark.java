@@ -0,0 +1,75 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * One tick of the ListenerManager in which every member is due: the expiry handler runs under
+ * the stripe lock of each member and re-arms it, as the wheel does after a general query.
+ * The wheel is advanced by a single thread, so this benchmark is single threaded too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class ExpiryTickBenchmark {
+
+	@Param({"10", "1000", "10000", "100000"})
+	public int members;
+
+	private BenchmarkFixture fixture;
+	private List<HostEntry> entries;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		fixture = new BenchmarkFixture();
+		fixture.createManagers();
+		fixture.addTransmitters(fixture.transmitterManager);
+		fixture.addListeners(fixture.listenerManager, members);
+		entries = new ArrayList<>(fixture.listenerManager.getList());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.stopManagers();
+	}
+
+	@Benchmark
+	public long tick() {
+		ListenerManager manager = fixture.listenerManager;
+		long tick = manager.wheel.currentTick();
+		long result = 0;
+		for(HostEntry entry : entries) {
+			MembershipKey key = entry.getKey();
+			StampedLock lock = manager.locks.get(key.getSwitchId(), key.getGroup());
+			long stamp = lock.writeLock();
+			try {
+				result += manager.expire(entry, tick);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,92 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.easymock.EasyMock.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+/*
+ * Lookup of one active flow by (switch, group, in_port): the keyed FlowIndex against the
+ * former linear scan of a set of flows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowIndexBenchmark {
+
+	private static final int SWITCHES = 100;
+	private static final int SOURCES = 10;
+	private static final short IDLE_TIMEOUT = 30;
+
+	@Param({"1000", "10000", "100000"})
+	public int flows;
+
+	private final FlowIndex index = new FlowIndex();
+	private final Set<FlowEntry> set = new HashSet<>();
+	private final List<FlowEntry> entries = new ArrayList<>();
+
+	@Setup
+	public void setUp() {
+		int groups = Math.max(1, flows/(SWITCHES*SOURCES));
+		for(int i=1; i<=SWITCHES; i++) {
+			IOFSwitch sw = createMock(IOFSwitch.class);
+			expect(sw.getId()).andReturn(DatapathId.of(i)).anyTimes();
+			replay(sw);
+			for(int g=0; g<groups; g++) {
+				for(int p=1; p<=SOURCES; p++) {
+					FlowEntry flow = new FlowEntry(sw, IPv4Address.of(0xef000000 | g), OFPort.of(p),
+							OFPort.of(100), IDLE_TIMEOUT);
+					index.put(flow);
+					set.add(flow);
+					entries.add(flow);
+				}
+			}
+		}
+	}
+
+	private FlowEntry pick() {
+		return entries.get(ThreadLocalRandom.current().nextInt(entries.size()));
+	}
+
+	@Benchmark
+	public FlowEntry index() {
+		FlowEntry flow = pick();
+		return index.get(flow.getSwitch().getId(), flow.getGroup(), flow.getSrcPort());
+	}
+
+	@Benchmark
+	public FlowEntry scan() {
+		FlowEntry flow = pick();
+		DatapathId switchId = flow.getSwitch().getId();
+		return set.stream()
+				.filter(e -> e.getSwitch().getId().equals(switchId) && e.getGroup().equals(flow.getGroup())
+						&& e.getSrcPort().equals(flow.getSrcPort()))
+				.findAny()
+				.orElse(null);
+	}
+
+}
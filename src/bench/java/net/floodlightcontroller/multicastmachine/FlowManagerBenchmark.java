@@ -0,0 +1,83 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+/*
+ * FlowManager.addFlow on a table of 'flows' flows: a port the flow already forwards to, which
+ * is a lookup under the stripe lock, and a new port which is removed again, which coalesces
+ * a MODIFY_STRICT into the FlowModQueue of the switch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowManagerBenchmark {
+
+	private static final OFPort EXTRA_PORT = OFPort.of(200);
+
+	@Param({"10", "1000", "10000", "100000"})
+	public int flows;
+
+	private BenchmarkFixture fixture;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		fixture = new BenchmarkFixture();
+		fixture.createManagers();
+		for(int i=0; i<flows; i++) {
+			fixture.flowManager.addFlow(fixture.switchOf(i), srcPortOf(i), OFPort.of(1), groupOf(i));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.stopManagers();
+	}
+
+	/* (switch, in_port, group) is unique per flow up to 16 * 48 * 2^16 flows */
+	private static OFPort srcPortOf(int flow) {
+		return BenchmarkFixture.portOf(flow);
+	}
+
+	private static IPv4Address groupOf(int flow) {
+		return IPv4Address.of(0xef000000 + flow / (BenchmarkFixture.SWITCHES * BenchmarkFixture.PORTS));
+	}
+
+	@Benchmark
+	public void addKnownPort() {
+		int flow = ThreadLocalRandom.current().nextInt(flows);
+		fixture.flowManager.addFlow(fixture.switchOf(flow), srcPortOf(flow), OFPort.of(1), groupOf(flow));
+	}
+
+	@Benchmark
+	public void addAndRemovePort() {
+		int flow = ThreadLocalRandom.current().nextInt(flows);
+		IOFSwitch sw = fixture.switchOf(flow);
+		OFPort srcPort = srcPortOf(flow);
+		IPv4Address group = groupOf(flow);
+		fixture.flowManager.addFlow(sw, srcPort, EXTRA_PORT, group);
+		fixture.flowManager.removeFlow(sw, srcPort, EXTRA_PORT, group);
+	}
+
+}
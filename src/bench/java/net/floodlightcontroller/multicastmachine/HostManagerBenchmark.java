@@ -0,0 +1,88 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+/*
+ * HostManagerTemplate.addOrRefreshHost of the listeners: the refresh of a known member, which
+ * is the steady state of a querier, and the join and removal of a new member on a new port in
+ * a random (switch, group), which goes through the locks, the tree and the flows. Every thread
+ * churns its own port, so the threads contend on the stripe locks only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HostManagerBenchmark {
+
+	@Param({"10", "1000", "10000", "100000"})
+	public int members;
+
+	private final AtomicInteger threads = new AtomicInteger();
+	private BenchmarkFixture fixture;
+
+	@State(Scope.Thread)
+	public static class Churn {
+		private MacAddress mac;
+		private OFPort port;
+
+		@Setup
+		public void setUp(HostManagerBenchmark benchmark) {
+			int thread = benchmark.threads.incrementAndGet();
+			mac = MacAddress.of(0x060000000000L + thread);
+			port = OFPort.of(BenchmarkFixture.PORTS + thread);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		fixture = new BenchmarkFixture();
+		fixture.createManagers();
+		fixture.addTransmitters(fixture.transmitterManager);
+		fixture.addListeners(fixture.listenerManager, members);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.stopManagers();
+	}
+
+	@Benchmark
+	public boolean refresh() {
+		int member = ThreadLocalRandom.current().nextInt(members);
+		return fixture.listenerManager.addOrRefreshHost(fixture.switchOf(member), BenchmarkFixture.portOf(member),
+				BenchmarkFixture.macOf(member), BenchmarkFixture.ipOf(member), BenchmarkFixture.groupOf(member));
+	}
+
+	@Benchmark
+	public boolean joinAndRemove(Churn churn) {
+		int member = ThreadLocalRandom.current().nextInt(members);
+		IOFSwitch sw = fixture.switchOf(member);
+		IPv4Address group = BenchmarkFixture.groupOf(member);
+		fixture.listenerManager.addOrRefreshHost(sw, churn.port, churn.mac, BenchmarkFixture.ipOf(member), group);
+		return fixture.listenerManager.removeHost(sw, churn.port, churn.mac, group);
+	}
+
+}
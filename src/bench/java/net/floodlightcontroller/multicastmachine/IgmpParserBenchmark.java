@@ -0,0 +1,111 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.net.Inet4Address;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Compares the FlexBytes based Igmpv2Parser with the flyweight IgmpView on the messages
+ * MulticastMachine receives in packet-ins. Run with -prof gc to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IgmpParserBenchmark {
+
+	private static final int V3_RECORDS = 4;
+	private static final int V3_SOURCES = 2;
+
+	private final IgmpView view = new IgmpView();
+	private byte[] v2Report;
+	private byte[] v3Report;
+
+	@Setup
+	public void setUp() throws Exception {
+		v2Report = new Igmpv2Builder(Igmpv2Type.REPORT, 0,
+				(Inet4Address) Inet4Address.getByName("239.1.2.3")).build().createByteArrayImage();
+		v3Report = buildV3Report(V3_RECORDS, V3_SOURCES);
+	}
+
+	@Benchmark
+	public int flexBytesV2Report() throws Exception {
+		Igmpv2Parser parser = new Igmpv2Parser(new FlexBytes(v2Report));
+		if(parser.isValid() && parser.testChecksum() && parser.getType()==Igmpv2Type.REPORT) {
+			return parser.getGroupAddress().hashCode();
+		}
+		return 0;
+	}
+
+	@Benchmark
+	public int viewV2Report() {
+		IgmpView igmp = view.wrap(v2Report);
+		if(igmp.isValid() && igmp.testChecksum() && igmp.getType()==IgmpView.TYPE_V2_REPORT) {
+			return igmp.getGroupAddress();
+		}
+		return 0;
+	}
+
+	@Benchmark
+	public int viewV3Report() {
+		IgmpView igmp = view.wrap(v3Report);
+		int result = 0;
+		if(igmp.isValid() && igmp.testChecksum()) {
+			int record = igmp.firstRecord();
+			for(int i=igmp.getNumberOfRecords(); i>0; i--) {
+				result ^= igmp.getRecordGroup(record);
+				for(int j=igmp.getRecordSourceCount(record)-1; j>=0; j--) {
+					result ^= igmp.getRecordSource(record, j);
+				}
+				record = igmp.nextRecord(record);
+			}
+		}
+		return result;
+	}
+
+	private static byte[] buildV3Report(int records, int sources) {
+		int recordSize = IgmpView.RECORD_HEADER_SIZE+sources*4;
+		byte[] report = new byte[IgmpView.HEADER_SIZE+records*recordSize];
+		report[0] = (byte) IgmpView.TYPE_V3_REPORT;
+		report[7] = (byte) records;
+		for(int r=0; r<records; r++) {
+			int record = IgmpView.HEADER_SIZE+r*recordSize;
+			report[record] = (byte) IgmpView.RECORD_MODE_IS_INCLUDE;
+			report[record+3] = (byte) sources;
+			putInt(report, record+4, 0xEF010200+r);
+			for(int s=0; s<sources; s++) {
+				putInt(report, record+IgmpView.RECORD_HEADER_SIZE+s*4, 0x0A000001+s);
+			}
+		}
+		long sum = 0;
+		for(int i=0; i<report.length; i+=2) {
+			sum += ((report[i] & 0xff) << 8) | (report[i+1] & 0xff);
+		}
+		sum = (sum & 0xffff) + (sum >> 16);
+		sum = (sum & 0xffff) + (sum >> 16);
+		int checksum = (int) (~sum & 0xffff);
+		report[2] = (byte) (checksum >> 8);
+		report[3] = (byte) checksum;
+		return report;
+	}
+
+	private static void putInt(byte[] array, int index, int value) {
+		array[index] = (byte) (value >>> 24);
+		array[index+1] = (byte) (value >>> 16);
+		array[index+2] = (byte) (value >>> 8);
+		array[index+3] = (byte) value;
+	}
+
+}
@@ -0,0 +1,107 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.types.IpProtocol;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IListener.Command;
+
+/*
+ * MulticastMachine.receive end to end: IGMPv2 reports of known members, a leave followed by
+ * the report which cancels it, and multicast data of known transmitters. The packet-ins and
+ * their decoded payloads are built in the setup, so only the module itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketInBenchmark {
+
+	@Param({"10", "1000", "10000", "100000"})
+	public int members;
+
+	private BenchmarkFixture fixture;
+	private MulticastMachine machine;
+	private OFPacketIn[] packetIns;
+	private OFPacketIn transmitterPacketIn;
+	private FloodlightContext[] reports;
+	private FloodlightContext[] leaves;
+	private FloodlightContext[] data;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		fixture = new BenchmarkFixture();
+		machine = fixture.createMachine();
+		packetIns = new OFPacketIn[BenchmarkFixture.PORTS+1];
+		for(int p=1; p<=BenchmarkFixture.PORTS; p++) {
+			packetIns[p] = fixture.packetIn(BenchmarkFixture.portOf((p-1)*BenchmarkFixture.SWITCHES));
+		}
+		transmitterPacketIn = fixture.packetIn(BenchmarkFixture.TRANSMITTER_PORT);
+		data = new FloodlightContext[BenchmarkFixture.GROUPS];
+		for(int g=0; g<BenchmarkFixture.GROUPS; g++) {
+			data[g] = BenchmarkFixture.context(BenchmarkFixture.transmitterMacOf(g), BenchmarkFixture.ROUTER_IP,
+					BenchmarkFixture.groupOf(g), IpProtocol.UDP, new byte[64]);
+			for(int s=0; s<BenchmarkFixture.SWITCHES; s++) {
+				machine.receive(fixture.switchOf(s), transmitterPacketIn, data[g]);
+			}
+		}
+		reports = new FloodlightContext[members];
+		leaves = new FloodlightContext[members];
+		for(int i=0; i<members; i++) {
+			reports[i] = BenchmarkFixture.context(BenchmarkFixture.macOf(i), BenchmarkFixture.ipOf(i),
+					BenchmarkFixture.groupOf(i), IpProtocol.IGMP,
+					BenchmarkFixture.igmpv2(Igmpv2Type.REPORT, BenchmarkFixture.groupOf(i)));
+			leaves[i] = BenchmarkFixture.context(BenchmarkFixture.macOf(i), BenchmarkFixture.ipOf(i),
+					BenchmarkFixture.LEAVE_DST, IpProtocol.IGMP,
+					BenchmarkFixture.igmpv2(Igmpv2Type.LEAVE, BenchmarkFixture.groupOf(i)));
+			machine.receive(fixture.switchOf(i), packetInOf(i), reports[i]);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		machine.stopMachines();
+	}
+
+	private OFPacketIn packetInOf(int member) {
+		return packetIns[BenchmarkFixture.portOf(member).getPortNumber()];
+	}
+
+	@Benchmark
+	public Command report() {
+		int member = ThreadLocalRandom.current().nextInt(members);
+		return machine.receive(fixture.switchOf(member), packetInOf(member), reports[member]);
+	}
+
+	@Benchmark
+	public Command leaveAndReport() {
+		int member = ThreadLocalRandom.current().nextInt(members);
+		machine.receive(fixture.switchOf(member), packetInOf(member), leaves[member]);
+		return machine.receive(fixture.switchOf(member), packetInOf(member), reports[member]);
+	}
+
+	@Benchmark
+	public Command data() {
+		int member = ThreadLocalRandom.current().nextInt(members);
+		return machine.receive(fixture.switchOf(member), transmitterPacketIn, data[member % BenchmarkFixture.GROUPS]);
+	}
+
+}
@@ -19,12 +19,15 @@ package net.floodlightcontroller.core;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFRequest;
 import org.projectfloodlight.openflow.protocol.OFStatsReply;
 import org.projectfloodlight.openflow.protocol.OFStatsRequest;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 /**
@@ -76,4 +79,30 @@ public interface IOFMessageWriter{
      */
     <REPLY extends OFStatsReply> ListenableFuture<List<REPLY>> writeStatsRequest(
             OFStatsRequest<REPLY> request);
+
+    /** write a Stats (Multipart-) request and hand each reply message to the handler
+     * as it arrives, instead of keeping them all until the last one. The handler runs
+     * on the thread which reads the replies, so it should not block. Returns a Future
+     * object of the number of reply messages, done once the last one was handled.
+     *
+     * This default implementation hands over the replies once all have arrived.
+     *
+     * @param request stats request
+     * @param handler called once per reply message, in order
+     * @return Future object of the number of OFStatsReply messages
+     *         If the connection is not currently connected, will
+     *         return a Future that immediately fails with a @link{SwitchDisconnectedException}.
+     */
+    default <REPLY extends OFStatsReply> ListenableFuture<Integer> streamStatsRequest(
+            OFStatsRequest<REPLY> request, final Consumer<? super REPLY> handler) {
+        return Futures.transform(writeStatsRequest(request), new Function<List<REPLY>, Integer>() {
+            @Override
+            public Integer apply(List<REPLY> replies) {
+                for (REPLY reply : replies) {
+                    handler.accept(reply);
+                }
+                return replies.size();
+            }
+        });
+    }
 }
@@ -360,6 +360,7 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
         switch (m.getType()) {
             case PACKET_IN:
             	counters.packetIn.increment();
+            	counters.packetInRate.mark();
                 OFPacketIn pi = (OFPacketIn)m;
 
                 if (pi.getData().length <= 0) {
@@ -2,7 +2,9 @@ package net.floodlightcontroller.core.internal;
 
 import net.floodlightcontroller.core.IOFSwitchBackend;
 import net.floodlightcontroller.debugcounter.IDebugCounter;
+import net.floodlightcontroller.debugcounter.IDebugRate;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterBackend;
 import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -17,6 +19,7 @@ public class ControllerCounters {
     public final IDebugCounter dispatchMessageWhileStandby;
     public final IDebugCounter dispatchMessage;
     public final IDebugCounter packetIn;
+    public final IDebugRate packetInRate;
 
     public ControllerCounters(IDebugCounterService debugCounters) {
         debugCounters.registerModule(prefix);
@@ -33,7 +36,8 @@ public class ControllerCounters {
         dispatchMessage = debugCounters.registerCounter(prefix,
                                                         "dispatch-message",
                                                         "Number of times an OF message was dispatched "
-                                                                + "to registered modules");
+                                                                + "to registered modules",
+                                                        CounterBackend.STRIPED);
 
         // TODO: FIXME
         // Need a better way to handle these
@@ -43,6 +47,10 @@ public class ControllerCounters {
                                                                    + "encountered an error",
                                                            MetaData.ERROR);
         
-        packetIn = debugCounters.registerCounter(prefix, "packet-in", "Number of packet_in's seen");
+        /* updated on every message by every worker thread */
+        packetIn = debugCounters.registerCounter(prefix, "packet-in", "Number of packet_in's seen",
+                                                 CounterBackend.STRIPED);
+        packetInRate = debugCounters.registerRate(prefix, "packet-in-rate",
+                                                  "Packet_in's per second over the last minute", 60);
     }
 }
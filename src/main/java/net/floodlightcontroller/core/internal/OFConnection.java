@@ -27,6 +27,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
@@ -248,6 +249,63 @@ public class OFConnection implements IOFConnection, IOFConnectionBackend{
 		return future;
 	}
 
+	@Override
+	public <REPLY extends OFStatsReply> ListenableFuture<Integer> streamStatsRequest(
+			OFStatsRequest<REPLY> request, final Consumer<? super REPLY> handler) {
+		if (!isConnected()) {
+			return Futures.immediateFailedFuture(new SwitchDisconnectedException(getDatapathId()));
+		}
+
+		final DeliverableListenableFuture<Integer> future =
+				new DeliverableListenableFuture<Integer>(request);
+
+		Deliverable<REPLY> deliverable = new Deliverable<REPLY>() {
+			private int count;
+
+			@Override
+			public void deliver(REPLY reply) {
+				if (future.isDone()) {
+					return; /* cancelled; drop the remaining parts */
+				}
+				try {
+					handler.accept(reply);
+				} catch (RuntimeException e) {
+					future.deliverError(e);
+					return;
+				}
+				count++;
+				if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
+					// done
+					future.deliver(count);
+				}
+			}
+
+			@Override
+			public void deliverError(Throwable cause) {
+				future.deliverError(cause);
+			}
+
+			@Override
+			public boolean isDone() {
+				return future.isDone();
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return future.cancel(mayInterruptIfRunning);
+			}
+
+			@Override
+			public OFMessage getRequest() {
+				return future.getRequest();
+			}
+		};
+
+		registerDeliverable(request.getXid(), deliverable);
+		this.write(request);
+		return future;
+	}
+
 	public void disconnected() {
 		SwitchDisconnectedException exception = new SwitchDisconnectedException(getDatapathId());
 		for (Long xid : xidDeliverableMap.keySet()) {
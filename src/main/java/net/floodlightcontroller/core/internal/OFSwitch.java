@@ -36,6 +36,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
@@ -1071,6 +1072,15 @@ public class OFSwitch implements IOFSwitchBackend {
 		return addInternalStatsReplyListener(getConnection(category).writeStatsRequest(request), request);
 	}	
 
+	/**
+	 * The replies are not tapped by addInternalStatsReplyListener, which
+	 * needs the whole list.
+	 */
+	@Override
+	public <REPLY extends OFStatsReply> ListenableFuture<Integer> streamStatsRequest(OFStatsRequest<REPLY> request, Consumer<? super REPLY> handler) {
+		return connections.get(OFAuxId.MAIN).streamStatsRequest(request, handler);
+	}
+
 	/**
 	 * Append a listener to receive an OFStatsReply and update the 
 	 * internal OFSwitch data structures.
@@ -89,6 +89,21 @@ public class AppCookie {
         return U64.of((application << APP_ID_SHIFT) | user);
     }
 
+    /**
+     * The cookie of an application with no user data, which matches all
+     * flows of the application under the {@link #getAppFieldMask()}, e.g.
+     * in a flow stats request. Does <em>not</em> check whether the
+     * application id is registered.
+     * @param application
+     * @return
+     */
+    static public U64 getAppCookie(long application) {
+        if ((application & APP_ID_MASK) != application) {
+            throw new InvalidAppIDValueException(application);
+        }
+        return U64.of(application << APP_ID_SHIFT);
+    }
+
     /**
      * Extract the application id from a flow cookie. Does <em>not</em>
      * check whether the application id is registered. The app ID is 
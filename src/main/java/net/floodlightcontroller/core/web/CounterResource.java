@@ -19,10 +19,12 @@ package net.floodlightcontroller.core.web;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import net.floodlightcontroller.debugcounter.DebugCounterResource;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
 
 import org.restlet.resource.Get;
 
@@ -32,7 +34,6 @@ public class CounterResource extends CounterResourceBase {
         String counterTitle = (String) getRequestAttributes().get(CoreWebRoutable.STR_CTR_TITLE);
         String counterModule = (String) getRequestAttributes().get(CoreWebRoutable.STR_CTR_MODULE);
         Map<String, Object> model = new HashMap<String, Object>();
-        long dc;
         if (counterModule.equalsIgnoreCase(CoreWebRoutable.STR_ALL)) { // get all modules' counters
             List<DebugCounterResource> counters = this.debugCounterService.getAllCounterValues();
             if (counters != null) {
@@ -40,8 +41,7 @@ public class CounterResource extends CounterResourceBase {
                 while (it.hasNext()) {
                     DebugCounterResource dcr = it.next();
                     String counterName = dcr.getCounterHierarchy();
-                    dc = dcr.getCounterValue();
-                    model.put(counterName, dc);
+                    model.put(counterName, valueOf(dcr));
                 }   
             }   
         } else if (counterTitle.equalsIgnoreCase(CoreWebRoutable.STR_ALL)) { // get all counters for a specifc module
@@ -51,8 +51,7 @@ public class CounterResource extends CounterResourceBase {
                 while (it.hasNext()) {
                     DebugCounterResource dcr = it.next();
                     String counterName = dcr.getCounterHierarchy();
-                    dc = dcr.getCounterValue();
-                    model.put(counterName, dc);
+                    model.put(counterName, valueOf(dcr));
                 }   
             }   
         } else { // get a specific counter (or subset of counters) for a specific module
@@ -62,11 +61,22 @@ public class CounterResource extends CounterResourceBase {
                 while (it.hasNext()) {
                     DebugCounterResource dcr = it.next();
                     String counterName = dcr.getCounterHierarchy();
-                    dc = dcr.getCounterValue();
-                    model.put(counterName, dc);
+                    model.put(counterName, valueOf(dcr));
                 }   
             }   
         }
         return model;
     }
+
+    /* counters by their value; gauges, rates and histograms with their type and details */
+    private static Object valueOf(DebugCounterResource dcr) {
+        if (dcr.getCounterType() == CounterType.COUNTER) {
+            return dcr.getCounterValue();
+        }
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("type", dcr.getCounterType().toString().toLowerCase());
+        m.put("value", dcr.getCounterValue());
+        m.putAll(dcr.getCounterDetails());
+        return m;
+    }
 }
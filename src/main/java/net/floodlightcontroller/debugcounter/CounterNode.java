@@ -28,7 +28,7 @@ import com.google.common.collect.ImmutableList;
  *
  * @author gregor
  */
-class CounterNode implements Iterable<DebugCounterImpl> {
+class CounterNode implements Iterable<DebugValueImpl> {
     private static final String QUOTED_SEP = Pattern.quote("/");
     private static final Logger log = LoggerFactory.getLogger(CounterNode.class);
 
@@ -44,7 +44,7 @@ class CounterNode implements Iterable<DebugCounterImpl> {
      * The actual counter instance for this node. Can be null for
      * root level and module level.
      */
-    private final DebugCounterImpl counter;
+    private final DebugValueImpl counter;
     private final TreeMap<String, CounterNode> children = new TreeMap<>();
 
     /**
@@ -67,7 +67,7 @@ class CounterNode implements Iterable<DebugCounterImpl> {
         return ret;
     }
 
-    private CounterNode(List<String> hierarchyElements, DebugCounterImpl counter) {
+    private CounterNode(List<String> hierarchyElements, DebugValueImpl counter) {
         super();
         this.hierarchyElements = ImmutableList.copyOf(hierarchyElements);
         this.hierarchy = Joiner.on("/").join(hierarchyElements);
@@ -111,7 +111,7 @@ class CounterNode implements Iterable<DebugCounterImpl> {
      * @return this node's counters
      */
     @Nullable
-    DebugCounterImpl getCounter() {
+    DebugValueImpl getCounter() {
         return counter;
     }
 
@@ -119,18 +119,18 @@ class CounterNode implements Iterable<DebugCounterImpl> {
      * Reset this counter all counter below it in the hierarchy
      */
     void resetHierarchy() {
-        for (DebugCounterImpl cur: this) {
+        for (DebugValueImpl cur: this) {
             cur.reset();
         }
     }
 
     /**
-     * Return an Iterable over all DebugCounterImpls at and below this
-     * node. Note we return an Iterable<DebugCounterImpls> not
+     * Return an Iterable over all DebugValueImpls at and below this
+     * node. Note we return an Iterable<DebugValueImpls> not
      * Iterable<IDebugCounter> on purpose.
      * @return
      */
-    Iterable<DebugCounterImpl> getCountersInHierarchy() {
+    Iterable<DebugValueImpl> getCountersInHierarchy() {
         return this;
     }
 
@@ -222,15 +222,15 @@ class CounterNode implements Iterable<DebugCounterImpl> {
 
     /**
      * Add the given Counter to the hierarchy. If the counterHierarcy already
-     * exists, reset the hierarchy
+     * exists with a counter of the same type, reset the hierarchy
      * @param counter
      * @return null if the counterHierarchy is newly registered, otherwise
-     * returns the already registered DebugCounterImpl instance
+     * returns the already registered DebugValueImpl instance
      * @throws IllegalArgumentException if the parent of the counter does not
-     * yet exist
+     * yet exist, or if the counterHierarchy exists with another type
      */
     @Nullable
-    DebugCounterImpl addCounter(@Nonnull DebugCounterImpl counter) {
+    DebugValueImpl addCounter(@Nonnull DebugValueImpl counter) {
         verifyIsRoot();
         ArrayList<String> path = new ArrayList<>();
         path.add(counter.getModuleName());
@@ -247,6 +247,11 @@ class CounterNode implements Iterable<DebugCounterImpl> {
         }
         if (parent.children.containsKey(newCounterName)) {
             CounterNode old = parent.children.get(newCounterName);
+            if (old.counter.getCounterType() != counter.getCounterType()) {
+                throw new IllegalArgumentException("Counter " + counter.getModuleName()
+                        + " " + counter.getCounterHierarchy() + " already registered as "
+                        + old.counter.getCounterType());
+            }
             // FIXME: we should check that old and new has the same
             // description and meta-data, otherwise we should probably thrown
             // and exception and refuse the operation.
@@ -265,7 +270,7 @@ class CounterNode implements Iterable<DebugCounterImpl> {
      * visited in sorted order.
      * @author gregor
      */
-    private final static class CounterIterator implements Iterator<DebugCounterImpl> {
+    private final static class CounterIterator implements Iterator<DebugValueImpl> {
         // NOTE: since some counters
         ArrayDeque<CounterNode> stack = new ArrayDeque<>();
         CounterNode curNode = null;
@@ -296,11 +301,11 @@ class CounterNode implements Iterable<DebugCounterImpl> {
         }
 
         @Override
-        public DebugCounterImpl next() {
+        public DebugValueImpl next() {
             if (curNode == null) {
                 throw new NoSuchElementException();
             }
-            DebugCounterImpl ret = curNode.counter;
+            DebugValueImpl ret = curNode.counter;
             gotoNextNode();
             return ret;
         }
@@ -312,7 +317,7 @@ class CounterNode implements Iterable<DebugCounterImpl> {
     }
 
     @Override
-    public Iterator<DebugCounterImpl> iterator() {
+    public Iterator<DebugValueImpl> iterator() {
         return new CounterIterator(this);
     }
 
@@ -6,18 +6,11 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
 import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
 
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
-
-
-class DebugCounterImpl implements IDebugCounter {
-    private final String moduleName;
-    private final String counterHierarchy;
-    private final String description;
-    private final ImmutableSet<IDebugCounterService.MetaData> metaData;
 
+class DebugCounterImpl extends DebugValueImpl implements IDebugCounter {
     private final AtomicLong value = new AtomicLong();
 
     private final Date lastModified = new Date(); // should return long ms to ensure immutability
@@ -26,33 +19,14 @@ class DebugCounterImpl implements IDebugCounter {
                      @Nonnull String counterHierarchy,
                      @Nonnull String description,
                      @Nonnull Collection<MetaData> metaData) {
-        this.moduleName = moduleName;
-        this.counterHierarchy = counterHierarchy;
-        this.description = description;
-        this.metaData = Sets.immutableEnumSet(metaData);
+        super(moduleName, counterHierarchy, description, metaData);
         this.lastModified.setTime(System.currentTimeMillis());
     }
 
+    @Override
     @Nonnull
-    String getModuleName() {
-        return moduleName;
-    }
-
-
-    @Nonnull
-    String getCounterHierarchy() {
-        return counterHierarchy;
-    }
-
-
-    @Nonnull
-    String getDescription() {
-        return description;
-    }
-
-    @Nonnull
-    ImmutableSet<IDebugCounterService.MetaData> getMetaData() {
-        return metaData;
+    CounterType getCounterType() {
+        return CounterType.COUNTER;
     }
 
     @Override
@@ -81,69 +55,9 @@ class DebugCounterImpl implements IDebugCounter {
     public long getCounterValue() {
         return value.get();
     }
-    
+
 	@Override
 	public long getLastModified() {
 		return lastModified.getTime();
 	}
-
-    @Override
-    public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime
-                 * result
-                 + ((counterHierarchy == null) ? 0
-                                              : counterHierarchy.hashCode());
-        result = prime * result
-                 + ((description == null) ? 0 : description.hashCode());
-        result = prime * result
-                 + ((metaData == null) ? 0 : metaData.hashCode());
-        result = prime * result
-                 + ((moduleName == null) ? 0 : moduleName.hashCode());
-        result = prime * result + ((value == null) ? 0 : value.hashCode());
-        return result;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (obj == null) return false;
-        if (getClass() != obj.getClass()) return false;
-        DebugCounterImpl other = (DebugCounterImpl) obj;
-        if (counterHierarchy == null) {
-            if (other.counterHierarchy != null) return false;
-        } else if (!counterHierarchy.equals(other.counterHierarchy))
-                                                                    return false;
-        if (description == null) {
-            if (other.description != null) return false;
-        } else if (!description.equals(other.description)) return false;
-        if (metaData == null) {
-            if (other.metaData != null) return false;
-        } else if (!metaData.equals(other.metaData)) return false;
-        if (moduleName == null) {
-            if (other.moduleName != null) return false;
-        } else if (!moduleName.equals(other.moduleName)) return false;
-        if (value == null) {
-            if (other.value != null) return false;
-        } else if (value.get() != other.value.get()) return false;
-        return true;
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append("[");
-        builder.append(moduleName);
-        builder.append(" ");
-        builder.append(counterHierarchy);
-        builder.append(", description=");
-        builder.append(description);
-        builder.append(", metaData=");
-        builder.append(metaData);
-        builder.append(", value=");
-        builder.append(value);
-        builder.append("]");
-        return builder.toString();
-    }
 }
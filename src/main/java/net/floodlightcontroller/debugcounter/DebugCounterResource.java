@@ -1,9 +1,11 @@
 package net.floodlightcontroller.debugcounter;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.concurrent.Immutable;
 
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
 import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
 
 import com.google.common.base.Joiner;
@@ -28,8 +30,10 @@ public class DebugCounterResource {
     private final String moduleName;
     private final ImmutableSet<MetaData> metadata;
     private final String metadataString;
+    private final CounterType counterType;
+    private final Map<String, Object> counterDetails;
 
-    public DebugCounterResource(DebugCounterImpl counter) {
+    public DebugCounterResource(DebugValueImpl counter) {
         this.moduleName = counter.getModuleName();
         this.counterHierarchy = counter.getCounterHierarchy();
         this.counterDesc = counter.getDescription();
@@ -37,6 +41,8 @@ public class DebugCounterResource {
         this.counterValue = counter.getCounterValue();
         this.metadataString = joiner.join(metadata);
         this.lastModified = counter.getLastModified();
+        this.counterType = counter.getCounterType();
+        this.counterDetails = counter.getDetails();
     }
 
     public Long getCounterValue() {
@@ -47,6 +53,18 @@ public class DebugCounterResource {
         return lastModified;
     }
 
+    public CounterType getCounterType() {
+        return counterType;
+    }
+
+    /**
+     * The rate of a RATE or the percentiles of a HISTOGRAM, as of when
+     * the resource was created. Empty for counters and gauges.
+     */
+    public Map<String, Object> getCounterDetails() {
+        return counterDetails;
+    }
+
     public String getCounterDesc() {
         return counterDesc;
     }
@@ -79,6 +97,8 @@ public class DebugCounterResource {
                                               : counterHierarchy.hashCode());
         result = prime * result
                  + ((counterValue == null) ? 0 : counterValue.hashCode());
+        result = prime * result
+                 + ((counterType == null) ? 0 : counterType.hashCode());
         result = prime * result
                  + ((metadata == null) ? 0 : metadata.hashCode());
         result = prime
@@ -108,6 +128,7 @@ public class DebugCounterResource {
         if (counterValue == null) {
             if (other.counterValue != null) return false;
         } else if (!counterValue.equals(other.counterValue)) return false;
+        if (counterType != other.counterType) return false;
         if (metadata == null) {
             if (other.metadata != null) return false;
         } else if (!metadata.equals(other.metadata)) return false;
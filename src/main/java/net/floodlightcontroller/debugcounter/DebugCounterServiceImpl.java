@@ -37,6 +37,13 @@ public class DebugCounterServiceImpl implements IFloodlightModule, IDebugCounter
      */
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * The backend of the counters registered without one
+     */
+    private volatile CounterBackend defaultBackend = CounterBackend.ATOMIC;
+
+    private static final String COUNTER_BACKEND_STR = "counterBackend";
+
     static void verifyStringSanity(String str, String name) {
         if (str == null) {
             if (name == null) {
@@ -77,6 +84,67 @@ public class DebugCounterServiceImpl implements IFloodlightModule, IDebugCounter
                                          @Nonnull String counterHierarchy,
                                          @Nonnull String counterDescription,
                                          @Nonnull MetaData... metaData) {
+        return registerCounter(moduleName, counterHierarchy, counterDescription,
+                               defaultBackend, metaData);
+    }
+
+    @Override
+    public IDebugCounter registerCounter(@Nonnull String moduleName,
+                                         @Nonnull String counterHierarchy,
+                                         @Nonnull String counterDescription,
+                                         @Nonnull CounterBackend backend,
+                                         @Nonnull MetaData... metaData) {
+        verifyRegistration(moduleName, counterHierarchy, counterDescription, metaData);
+        if (backend == null) {
+            throw new NullPointerException("backend must not be null");
+        }
+        if (backend == CounterBackend.STRIPED) {
+            return (DebugCounterImpl) addCounter(new StripedDebugCounterImpl(moduleName,
+                                                          counterHierarchy, counterDescription,
+                                                          Arrays.asList(metaData)));
+        } else {
+            return (DebugCounterImpl) addCounter(new DebugCounterImpl(moduleName, counterHierarchy,
+                                                   counterDescription,
+                                                   Arrays.asList(metaData)));
+        }
+    }
+
+    @Override
+    public IDebugGauge registerGauge(@Nonnull String moduleName,
+                                     @Nonnull String counterHierarchy,
+                                     @Nonnull String counterDescription,
+                                     @Nonnull MetaData... metaData) {
+        verifyRegistration(moduleName, counterHierarchy, counterDescription, metaData);
+        return (DebugGaugeImpl) addCounter(new DebugGaugeImpl(moduleName, counterHierarchy,
+                                                              counterDescription,
+                                                              Arrays.asList(metaData)));
+    }
+
+    @Override
+    public IDebugRate registerRate(@Nonnull String moduleName,
+                                   @Nonnull String counterHierarchy,
+                                   @Nonnull String counterDescription,
+                                   long windowSeconds,
+                                   @Nonnull MetaData... metaData) {
+        verifyRegistration(moduleName, counterHierarchy, counterDescription, metaData);
+        return (DebugRateImpl) addCounter(new DebugRateImpl(moduleName, counterHierarchy,
+                                                            counterDescription, windowSeconds,
+                                                            Arrays.asList(metaData)));
+    }
+
+    @Override
+    public IDebugHistogram registerHistogram(@Nonnull String moduleName,
+                                             @Nonnull String counterHierarchy,
+                                             @Nonnull String counterDescription,
+                                             @Nonnull MetaData... metaData) {
+        verifyRegistration(moduleName, counterHierarchy, counterDescription, metaData);
+        return (DebugHistogramImpl) addCounter(new DebugHistogramImpl(moduleName, counterHierarchy,
+                                                                      counterDescription,
+                                                                      Arrays.asList(metaData)));
+    }
+
+    private void verifyRegistration(String moduleName, String counterHierarchy,
+                                    String counterDescription, MetaData[] metaData) {
         verifyModuleNameSanity(moduleName);
         verifyStringSanity(counterHierarchy, "counterHierarchy");
         if (counterDescription == null) {
@@ -91,30 +159,32 @@ public class DebugCounterServiceImpl implements IFloodlightModule, IDebugCounter
             // somebody passing in a null array. sigh.
             throw new NullPointerException("metaData must not be null");
         }
-        DebugCounterImpl counter =
-                new DebugCounterImpl(moduleName, counterHierarchy,
-                                     counterDescription,
-                                     Arrays.asList(metaData));
+    }
+
+    /**
+     * Adds the counter to the tree, or returns the counter of the same
+     * type already registered at its hierarchy
+     */
+    private DebugValueImpl addCounter(DebugValueImpl counter) {
         lock.writeLock().lock();
         try {
         	/* addCounter(counter) will return null if counter is accepted as a new counter
-        	 * or it will return a reference to the existing DebugCounterImpl if the counter
+        	 * or it will return a reference to the existing DebugValueImpl if the counter
         	 * is already present.
         	 */
-            DebugCounterImpl oldCounter = root.addCounter(counter);
+            DebugValueImpl oldCounter = root.addCounter(counter);
             if (oldCounter != null && logger.isDebugEnabled()) {
                 logger.debug("Counter {} {} already registered. Resetting hierarchy",
-                          moduleName, counterHierarchy);
+                          counter.getModuleName(), counter.getCounterHierarchy());
             }
             /* If addCounter(counter) returned null, counter is the new counter, else if
              * addCounter(counter) returned a non-null reference, then the reference is 
              * the existing counter, which has just been reset and should be reused.
              */
-            counter = (oldCounter == null ? counter : oldCounter);
+            return (oldCounter == null ? counter : oldCounter);
         } finally {
             lock.writeLock().unlock();
         }
-        return counter;
     }
 
     @GuardedBy("lock.readLock")
@@ -191,7 +261,7 @@ public class DebugCounterServiceImpl implements IFloodlightModule, IDebugCounter
             return Collections.emptyList();
         }
         List<DebugCounterResource> ret = new ArrayList<>();
-        for (DebugCounterImpl counter: node.getCountersInHierarchy()) {
+        for (DebugValueImpl counter: node.getCountersInHierarchy()) {
             ret.add(new DebugCounterResource(counter));
         }
         return ret;
@@ -276,6 +346,15 @@ public class DebugCounterServiceImpl implements IFloodlightModule, IDebugCounter
 
    @Override
    public void init(FloodlightModuleContext context) {
+       Map<String, String> config = context.getConfigParams(this);
+       if (config.containsKey(COUNTER_BACKEND_STR)) {
+           try {
+               defaultBackend = CounterBackend.valueOf(config.get(COUNTER_BACKEND_STR).trim().toUpperCase());
+           } catch (Exception e) {
+               logger.error("Could not parse '{}'. Using default of {}", COUNTER_BACKEND_STR, defaultBackend);
+           }
+       }
+       logger.info("Debug counters use the {} backend unless registered with another", defaultBackend);
    }
 
    @Override
@@ -0,0 +1,57 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
+
+/**
+ * An IDebugGauge in the counter hierarchy. Its counter value is the value
+ * of the gauge, held in an AtomicLong: a gauge is set rather than summed,
+ * so it is not striped. Its last-modified time is computed when read, as
+ * the time of the first read which sees a new value.
+ */
+class DebugGaugeImpl extends DebugValueImpl implements IDebugGauge {
+    private final AtomicLong value = new AtomicLong();
+
+    DebugGaugeImpl(@Nonnull String moduleName,
+                   @Nonnull String counterHierarchy,
+                   @Nonnull String description,
+                   @Nonnull Collection<MetaData> metaData) {
+        super(moduleName, counterHierarchy, description, metaData);
+    }
+
+    @Override
+    CounterType getCounterType() {
+        return CounterType.GAUGE;
+    }
+
+    @Override
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    @Override
+    public void adjust(long delta) {
+        value.addAndGet(delta);
+    }
+
+    @Override
+    public long getValue() {
+        return value.get();
+    }
+
+    @Override
+    public long getCounterValue() {
+        return value.get();
+    }
+
+    @Override
+    public void reset() {
+        value.set(0);
+        touchLastModified();
+    }
+}
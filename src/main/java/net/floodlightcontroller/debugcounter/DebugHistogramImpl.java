@@ -0,0 +1,65 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
+import net.floodlightcontroller.util.LogHistogram;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An IDebugHistogram in the counter hierarchy, over a LogHistogram whose
+ * recording is wait-free. Its counter value is the number of values and
+ * its last-modified time is computed when read, as the time of the first
+ * read which sees a new count. It has no increments: values are recorded.
+ */
+class DebugHistogramImpl extends DebugValueImpl implements IDebugHistogram {
+    private final LogHistogram histogram = new LogHistogram();
+
+    DebugHistogramImpl(@Nonnull String moduleName,
+                       @Nonnull String counterHierarchy,
+                       @Nonnull String description,
+                       @Nonnull Collection<MetaData> metaData) {
+        super(moduleName, counterHierarchy, description, metaData);
+    }
+
+    @Override
+    CounterType getCounterType() {
+        return CounterType.HISTOGRAM;
+    }
+
+    @Override
+    public void record(long value) {
+        histogram.record(value);
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getPercentile(double percentile) {
+        return histogram.getPercentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        touchLastModified();
+    }
+
+    @Override
+    public long getCounterValue() {
+        return histogram.getCount();
+    }
+
+    @Override
+    Map<String, Object> getDetails() {
+        return ImmutableMap.<String, Object>copyOf(histogram.getSummary());
+    }
+}
@@ -0,0 +1,100 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An IDebugRate in the counter hierarchy. Marking an event only adds to
+ * the striped counter; the moving average is brought up to date when read.
+ * The events since the previous read are spread evenly over the time since
+ * then, which weighs 1 - exp(-dt / window) against the previous average,
+ * so the average does not depend on how often it is read.
+ */
+class DebugRateImpl extends StripedDebugCounterImpl implements IDebugRate {
+    private static final double NANOS_PER_SEC = 1e9;
+
+    private final long windowSeconds;
+
+    @GuardedBy("this")
+    private long lastCount;
+    @GuardedBy("this")
+    private long lastTick = System.nanoTime();
+    @GuardedBy("this")
+    private double rate = -1; /* no average yet */
+
+    DebugRateImpl(@Nonnull String moduleName,
+                  @Nonnull String counterHierarchy,
+                  @Nonnull String description,
+                  long windowSeconds,
+                  @Nonnull Collection<MetaData> metaData) {
+        super(moduleName, counterHierarchy, description, metaData);
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("windowSeconds must be > 0. Was "
+                    + windowSeconds);
+        }
+        this.windowSeconds = windowSeconds;
+    }
+
+    @Override
+    CounterType getCounterType() {
+        return CounterType.RATE;
+    }
+
+    @Override
+    public void mark() {
+        increment();
+    }
+
+    @Override
+    public void mark(long events) {
+        add(events);
+    }
+
+    @Override
+    public long getCount() {
+        return getCounterValue();
+    }
+
+    @Override
+    public synchronized double getRate() {
+        long now = System.nanoTime();
+        long count = getCounterValue();
+        double dt = (now - lastTick) / NANOS_PER_SEC;
+        if (dt <= 0) {
+            return Math.max(rate, 0);
+        }
+        double instant = Math.max(count - lastCount, 0) / dt;
+        if (rate < 0) {
+            rate = instant;
+        } else {
+            rate += (1 - Math.exp(-dt / windowSeconds)) * (instant - rate);
+        }
+        lastCount = count;
+        lastTick = now;
+        return rate;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        synchronized (this) {
+            lastCount = 0;
+            lastTick = System.nanoTime();
+            rate = -1;
+        }
+    }
+
+    @Override
+    Map<String, Object> getDetails() {
+        return ImmutableMap.<String, Object>of("rate-per-second", getRate(),
+                                               "window-seconds", windowSeconds);
+    }
+}
@@ -0,0 +1,162 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * A value in the counter hierarchy: a counter, a gauge, a rate or a
+ * histogram. It has the name and the counter value every type shows, but
+ * not the mutators, which only counters have (see DebugCounterImpl).
+ */
+abstract class DebugValueImpl {
+    private final String moduleName;
+    private final String counterHierarchy;
+    private final String description;
+    private final ImmutableSet<IDebugCounterService.MetaData> metaData;
+
+    @GuardedBy("this")
+    private long lastSeen;
+    @GuardedBy("this")
+    private long lastModifiedTime;
+
+    DebugValueImpl(@Nonnull String moduleName,
+                   @Nonnull String counterHierarchy,
+                   @Nonnull String description,
+                   @Nonnull Collection<MetaData> metaData) {
+        this.moduleName = moduleName;
+        this.counterHierarchy = counterHierarchy;
+        this.description = description;
+        this.metaData = Sets.immutableEnumSet(metaData);
+        this.lastModifiedTime = System.currentTimeMillis();
+    }
+
+    @Nonnull
+    String getModuleName() {
+        return moduleName;
+    }
+
+    @Nonnull
+    String getCounterHierarchy() {
+        return counterHierarchy;
+    }
+
+    @Nonnull
+    String getDescription() {
+        return description;
+    }
+
+    @Nonnull
+    ImmutableSet<IDebugCounterService.MetaData> getMetaData() {
+        return metaData;
+    }
+
+    @Nonnull
+    abstract CounterType getCounterType();
+
+    /**
+     * The values of the counter type besides the counter value, e.g. the
+     * rate of a RATE or the percentiles of a HISTOGRAM. Empty for counters.
+     */
+    @Nonnull
+    Map<String, Object> getDetails() {
+        return ImmutableMap.of();
+    }
+
+    public abstract long getCounterValue();
+
+    public abstract void reset();
+
+    /**
+     * The last-modified time by default is computed when read, as the time
+     * of the first read which sees a new counter value, so updates neither
+     * read the clock nor write a shared time. It lags the update by up to
+     * the time between reads.
+     */
+    public long getLastModified() {
+        return getLastModifiedOnRead();
+    }
+
+    protected final synchronized long getLastModifiedOnRead() {
+        long value = getCounterValue();
+        if (value != lastSeen) {
+            lastSeen = value;
+            lastModifiedTime = System.currentTimeMillis();
+        }
+        return lastModifiedTime;
+    }
+
+    /**
+     * Moves the last-modified time to now, for a reset, which may leave
+     * the counter value as the previous read saw it.
+     */
+    protected final synchronized void touchLastModified() {
+        lastSeen = getCounterValue();
+        lastModifiedTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime
+                 * result
+                 + ((counterHierarchy == null) ? 0
+                                              : counterHierarchy.hashCode());
+        result = prime * result
+                 + ((description == null) ? 0 : description.hashCode());
+        result = prime * result
+                 + ((metaData == null) ? 0 : metaData.hashCode());
+        result = prime * result
+                 + ((moduleName == null) ? 0 : moduleName.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        DebugValueImpl other = (DebugValueImpl) obj;
+        if (counterHierarchy == null) {
+            if (other.counterHierarchy != null) return false;
+        } else if (!counterHierarchy.equals(other.counterHierarchy))
+                                                                    return false;
+        if (description == null) {
+            if (other.description != null) return false;
+        } else if (!description.equals(other.description)) return false;
+        if (metaData == null) {
+            if (other.metaData != null) return false;
+        } else if (!metaData.equals(other.metaData)) return false;
+        if (moduleName == null) {
+            if (other.moduleName != null) return false;
+        } else if (!moduleName.equals(other.moduleName)) return false;
+        return getCounterValue() == other.getCounterValue();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        builder.append(moduleName);
+        builder.append(" ");
+        builder.append(counterHierarchy);
+        builder.append(", description=");
+        builder.append(description);
+        builder.append(", metaData=");
+        builder.append(metaData);
+        builder.append(", value=");
+        builder.append(getCounterValue());
+        builder.append("]");
+        return builder.toString();
+    }
+}
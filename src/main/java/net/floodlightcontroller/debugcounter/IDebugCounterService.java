@@ -11,6 +11,30 @@ public interface IDebugCounterService extends IFloodlightService {
         ERROR
     }
 
+    /**
+     * How a counter stores its value. ATOMIC counters update one AtomicLong
+     * and their last-modified time on every update. STRIPED counters spread
+     * concurrent updates over the cells of a LongAdder and compute their
+     * last-modified time when read; they suit counters updated by many
+     * threads at once, at the cost of slower reads.
+     */
+    public enum CounterBackend {
+        ATOMIC,
+        STRIPED
+    }
+
+    /**
+     * The kinds of counters in the hierarchy: monotonic counters, gauges,
+     * rates and histograms. A counterHierarchy keeps the type it was first
+     * registered with.
+     */
+    public enum CounterType {
+        COUNTER,
+        GAUGE,
+        RATE,
+        HISTOGRAM
+    }
+
     /**
      * All modules that wish to have the DebugCounterService count for them, must
      * register themselves. If a module is registered multiple times subsequent
@@ -52,6 +76,52 @@ public interface IDebugCounterService extends IFloodlightService {
     registerCounter(String moduleName, String counterHierarchy,
                     String counterDescription, MetaData... metaData);
 
+    /**
+     * Registers a counter like {@link #registerCounter(String, String, String, MetaData...)},
+     * with the given backend rather than the configured default one. A counter
+     * which is already registered keeps its backend.
+     */
+    public IDebugCounter
+    registerCounter(String moduleName, String counterHierarchy,
+                    String counterDescription, CounterBackend backend,
+                    MetaData... metaData);
+
+    /**
+     * Registers a gauge at a counterHierarchy, like
+     * {@link #registerCounter(String, String, String, MetaData...)}. Its
+     * counter value is the value of the gauge.
+     * @throws IllegalArgumentException if another type of counter is
+     * registered at the counterHierarchy
+     */
+    public IDebugGauge
+    registerGauge(String moduleName, String counterHierarchy,
+                  String counterDescription, MetaData... metaData);
+
+    /**
+     * Registers a rate at a counterHierarchy, like
+     * {@link #registerCounter(String, String, String, MetaData...)}. Its
+     * counter value is the number of events; the events per second are
+     * averaged over windowSeconds. Marking an event is as cheap as
+     * incrementing a STRIPED counter.
+     * @throws IllegalArgumentException if windowSeconds is not positive or
+     * another type of counter is registered at the counterHierarchy
+     */
+    public IDebugRate
+    registerRate(String moduleName, String counterHierarchy,
+                 String counterDescription, long windowSeconds,
+                 MetaData... metaData);
+
+    /**
+     * Registers a histogram, e.g. of latencies, at a counterHierarchy, like
+     * {@link #registerCounter(String, String, String, MetaData...)}. Its
+     * counter value is the number of recorded values. Recording is wait-free.
+     * @throws IllegalArgumentException if another type of counter is
+     * registered at the counterHierarchy
+     */
+    public IDebugHistogram
+    registerHistogram(String moduleName, String counterHierarchy,
+                      String counterDescription, MetaData... metaData);
+
 
     /**
      * Resets the value of counters in the hierarchy to zero. Note that the reset
@@ -0,0 +1,24 @@
+package net.floodlightcontroller.debugcounter;
+
+/**
+ * A gauge registered in the counter hierarchy: a value which goes up and
+ * down, e.g. the depth of a queue, rather than a count of events.
+ */
+public interface IDebugGauge {
+    /**
+     * Set the value of this gauge.
+     * @param value
+     */
+    void set(long value);
+
+    /**
+     * Add the given delta, which may be negative, to this gauge
+     * @param delta
+     */
+    void adjust(long delta);
+
+    /**
+     * Retrieve the value of the gauge.
+     */
+    long getValue();
+}
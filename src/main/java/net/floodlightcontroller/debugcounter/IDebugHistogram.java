@@ -0,0 +1,23 @@
+package net.floodlightcontroller.debugcounter;
+
+/**
+ * A histogram registered in the counter hierarchy, e.g. of latencies. The
+ * percentiles have a relative error below 12.5% (see LogHistogram).
+ */
+public interface IDebugHistogram {
+    /**
+     * Record one value; negative values are counted as 0.
+     * @param value
+     */
+    void record(long value);
+
+    /**
+     * Retrieve the number of recorded values.
+     */
+    long getCount();
+
+    /**
+     * @param percentile in the range (0, 100]
+     */
+    long getPercentile(double percentile);
+}
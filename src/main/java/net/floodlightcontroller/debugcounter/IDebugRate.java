@@ -0,0 +1,29 @@
+package net.floodlightcontroller.debugcounter;
+
+/**
+ * A rate registered in the counter hierarchy: counts events like an
+ * IDebugCounter and reports them per second, as an exponentially
+ * weighted moving average over the window of the rate.
+ */
+public interface IDebugRate {
+    /**
+     * Count one event.
+     */
+    void mark();
+
+    /**
+     * Count the given number of events
+     * @param events
+     */
+    void mark(long events);
+
+    /**
+     * Retrieve the moving average of the events per second.
+     */
+    double getRate();
+
+    /**
+     * Retrieve the number of events since the rate was registered or reset.
+     */
+    long getCount();
+}
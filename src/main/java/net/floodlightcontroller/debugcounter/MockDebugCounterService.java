@@ -65,6 +65,40 @@ public class MockDebugCounterService implements IFloodlightModule, IDebugCounter
         return new MockCounterImpl();
     }
 
+    @Override
+    public IDebugCounter registerCounter(String moduleName,
+                                         String counterHierarchy,
+                                         String counterDescription,
+                                         CounterBackend backend,
+                                         MetaData... metaData) {
+        return new MockCounterImpl();
+    }
+
+    @Override
+    public IDebugGauge registerGauge(String moduleName,
+                                     String counterHierarchy,
+                                     String counterDescription,
+                                     MetaData... metaData) {
+        return new MockCounterImpl();
+    }
+
+    @Override
+    public IDebugRate registerRate(String moduleName,
+                                   String counterHierarchy,
+                                   String counterDescription,
+                                   long windowSeconds,
+                                   MetaData... metaData) {
+        return new MockCounterImpl();
+    }
+
+    @Override
+    public IDebugHistogram registerHistogram(String moduleName,
+                                             String counterHierarchy,
+                                             String counterDescription,
+                                             MetaData... metaData) {
+        return new MockCounterImpl();
+    }
+
     @Override
     public boolean
     resetCounterHierarchy(String moduleName, String counterHierarchy) {
@@ -97,7 +131,8 @@ public class MockDebugCounterService implements IFloodlightModule, IDebugCounter
         return Collections.emptyList();
     }
 
-    public static class MockCounterImpl implements IDebugCounter {
+    public static class MockCounterImpl implements IDebugCounter, IDebugGauge,
+            IDebugRate, IDebugHistogram {
         @Override
         public void increment() {
         }
@@ -119,6 +154,46 @@ public class MockDebugCounterService implements IFloodlightModule, IDebugCounter
 		@Override
 		public void reset() {			
 		}
+
+        @Override
+        public void set(long value) {
+        }
+
+        @Override
+        public void adjust(long delta) {
+        }
+
+        @Override
+        public long getValue() {
+            return -1;
+        }
+
+        @Override
+        public void mark() {
+        }
+
+        @Override
+        public void mark(long events) {
+        }
+
+        @Override
+        public double getRate() {
+            return -1;
+        }
+
+        @Override
+        public long getCount() {
+            return -1;
+        }
+
+        @Override
+        public void record(long value) {
+        }
+
+        @Override
+        public long getPercentile(double percentile) {
+            return -1;
+        }
     }
 
 	@Override
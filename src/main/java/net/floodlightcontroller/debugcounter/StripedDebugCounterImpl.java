@@ -0,0 +1,60 @@
+package net.floodlightcontroller.debugcounter;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
+
+/**
+ * A DebugCounterImpl for counters updated by many threads at once, e.g. on
+ * every message from every switch. The value is a LongAdder: concurrent
+ * updates go to different cells instead of contending on a single CAS,
+ * and are summed when the value is read.
+ *
+ * Updates do not read the clock nor write the last-modified time. It is
+ * computed when read instead, as the time of the first read that sees a
+ * new value, so it lags the actual update by up to the time between reads
+ * (see DebugValueImpl). The atomic value of DebugCounterImpl is not used.
+ */
+class StripedDebugCounterImpl extends DebugCounterImpl {
+    private final LongAdder adder = new LongAdder();
+
+    StripedDebugCounterImpl(@Nonnull String moduleName,
+                            @Nonnull String counterHierarchy,
+                            @Nonnull String description,
+                            @Nonnull Collection<MetaData> metaData) {
+        super(moduleName, counterHierarchy, description, metaData);
+    }
+
+    @Override
+    public void reset() {
+        adder.reset();
+        touchLastModified();
+    }
+
+    @Override
+    public void increment() {
+        adder.increment();
+    }
+
+    @Override
+    public void add(long increment) {
+        if (increment < 0) {
+            throw new IllegalArgumentException("increment must be > 0. Was "
+                    + increment);
+        }
+        adder.add(increment);
+    }
+
+    @Override
+    public long getCounterValue() {
+        return adder.sum();
+    }
+
+    @Override
+    public long getLastModified() {
+        return getLastModifiedOnRead();
+    }
+}
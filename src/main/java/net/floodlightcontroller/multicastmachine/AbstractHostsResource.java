@@ -0,0 +1,97 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Iterator;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.restlet.data.Form;
+import org.restlet.data.Status;
+import org.restlet.resource.ServerResource;
+
+/*
+ * Paged host query: ?group=&switch=&port=&cursor=&limit=. Each filter is optional, the cursor
+ * is the 'next' field of the previous page.
+ */
+public abstract class AbstractHostsResource extends ServerResource {
+
+	public static final int DEFAULT_LIMIT = 100;
+	public static final int MAX_LIMIT = 1000;
+	public static final String GROUP_ERROR = "Invalid group: must be a multicast IPv4 address, e.g. 239.1.1.1";
+	public static final String DPID_ERROR = "Invalid switch DPID: must be a 64-bit quantity, e.g. 00:00:00:00:00:00:00:01";
+	public static final String PORT_ERROR = "Invalid port: must be a positive integer";
+	public static final String CURSOR_ERROR = "Invalid cursor: must be the 'next' field of a previous page";
+	public static final String LIMIT_ERROR = "Invalid limit: must be an integer in the range 1-" + MAX_LIMIT;
+
+	protected abstract Iterator<HostEntry> query(IMulticastService service, IPv4Address group, 
+			DatapathId switchId, OFPort port, MembershipKey after);
+
+	protected HostPage getPage() {
+		IMulticastService service =
+                (IMulticastService)getContext().getAttributes().
+                    get(IMulticastService.class.getCanonicalName());
+		Form form = getQuery();
+		String groupStr = form.getFirstValue("group", true);
+		String switchStr = form.getFirstValue("switch", true);
+		String portStr = form.getFirstValue("port", true);
+		String cursorStr = form.getFirstValue("cursor", true);
+		String limitStr = form.getFirstValue("limit", true);
+		
+		IPv4Address group = null;
+		DatapathId switchId = null;
+		OFPort port = null;
+		MembershipKey after = null;
+		int limit = DEFAULT_LIMIT;
+		if(groupStr!=null) {
+			try {
+				group = IPv4Address.of(groupStr);
+			} catch(Exception e) {
+				group = null;
+			}
+			if(group==null || !group.isMulticast()) {
+				setStatus(Status.CLIENT_ERROR_BAD_REQUEST, GROUP_ERROR);
+				return null;
+			}
+		}
+		if(switchStr!=null) {
+			try {
+				switchId = DatapathId.of(switchStr);
+			} catch(Exception e) {
+				setStatus(Status.CLIENT_ERROR_BAD_REQUEST, DPID_ERROR);
+				return null;
+			}
+		}
+		if(portStr!=null) {
+			try {
+				port = OFPort.of(Integer.parseInt(portStr));
+			} catch(Exception e) {
+				port = null;
+			}
+			if(port==null || port.getPortNumber()<=0) {
+				setStatus(Status.CLIENT_ERROR_BAD_REQUEST, PORT_ERROR);
+				return null;
+			}
+		}
+		if(cursorStr!=null) {
+			try {
+				after = HostPage.parseCursor(cursorStr);
+			} catch(IllegalArgumentException e) {
+				setStatus(Status.CLIENT_ERROR_BAD_REQUEST, CURSOR_ERROR);
+				return null;
+			}
+		}
+		if(limitStr!=null) {
+			try {
+				limit = Integer.parseInt(limitStr);
+			} catch(NumberFormatException e) {
+				limit = 0;
+			}
+			if(limit<=0 || limit>MAX_LIMIT) {
+				setStatus(Status.CLIENT_ERROR_BAD_REQUEST, LIMIT_ERROR);
+				return null;
+			}
+		}
+		return new HostPage(query(service, group, switchId, port, after), limit);
+	}
+
+}
@@ -0,0 +1,89 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.projectfloodlight.openflow.protocol.OFFlowModFlags;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+/*
+ * Negative cache entry of a transmitter without receivers: (in_port, group) is dropped by the
+ * switch instead of being punted packet by packet. The hard timeout hands the stream back to
+ * the controller once per interval, which refreshes the transmitter, and the idle timeout
+ * frees the entry as soon as the stream stops. The entry has the match and the priority of
+ * the FlowEntry of the transmitter, so the first forwarding flow simply overwrites it.
+ */
+class DropFlow implements QueuedChange {
+
+	public static final short IDLE_TIMEOUT = 5;
+	public static final short HARD_TIMEOUT = 60;
+
+	private IOFSwitch sw;
+	private IPv4Address group;
+	private OFPort srcPort;
+
+	public DropFlow(IOFSwitch sw, IPv4Address group, OFPort srcPort) {
+		this.sw = sw;
+		this.group = group;
+		this.srcPort = srcPort;
+	}
+
+	@Override
+	public IOFSwitch getSwitch() {
+		return sw;
+	}
+
+	@Override
+	public IPv4Address getGroup() {
+		return group;
+	}
+
+	public OFPort getSrcPort() {
+		return srcPort;
+	}
+
+	@Override
+	public MembershipKey getKey() {
+		return new MembershipKey(sw.getId(), srcPort, null, group);
+	}
+
+	/* the entry is never tracked once written, a FlowEntry replacing it in the queue is added */
+	@Override
+	public boolean isInstalled() {
+		return false;
+	}
+
+	@Override
+	public void setInstalled(boolean installed) {
+	}
+
+	@Override
+	public OFMessage buildPendingMessage() {
+		Set<OFFlowModFlags> sfmf = new HashSet<OFFlowModFlags>();
+		return sw.getOFFactory().buildFlowAdd()
+				.setMatch(sw.getOFFactory().buildMatch()
+						.setExact(MatchField.IN_PORT,srcPort)
+						.setExact(MatchField.ETH_TYPE,EthType.IPv4)
+						.setExact(MatchField.IPV4_DST,group)
+						.build())
+				.setCookie(U64.of(FlowEntry.COOKIE))
+				.setIdleTimeout(IDLE_TIMEOUT)
+				.setHardTimeout(HARD_TIMEOUT)
+				.setPriority(FlowEntry.DEF_PRIORITY)
+				.setBufferId(OFBufferId.NO_BUFFER)
+				.setFlags(sfmf)
+				.setActions(Collections.<OFAction>emptyList())
+				.build();
+	}
+
+}
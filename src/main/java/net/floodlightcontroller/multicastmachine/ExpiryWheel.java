@@ -0,0 +1,137 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Hashed timing wheel. Every element is kept in the slot of its deadline tick and only the
+ * elements of the slots which are passed by advance() are touched. The handler decides what
+ * happens with an element whose deadline is reached and returns its next deadline, so a refresh
+ * of an element does not need to touch the wheel at all - the handler simply re-arms it later.
+ * Elements may be scheduled from any thread, the wheel itself is advanced by a single thread.
+ */
+class ExpiryWheel<T> {
+
+	public static final long NONE = -1;
+
+	private static final String WRONG_SLOTS = "The number of the wheel slots must be a power of two.";
+	private static final String WRONG_TICK = "The tick length must be a positive integer.";
+
+	public interface Handler<T> {
+		public long expire(T element, long tick);
+	}
+
+	private static class Node<T> {
+		private final T element;
+		private long deadline;
+
+		private Node(T element, long deadline) {
+			this.element = element;
+			this.deadline = deadline;
+		}
+	}
+
+	private final ArrayDeque<Node<T>>[] slots;
+	private final int mask;
+	private final long tickNanos;
+	private final long origin = System.nanoTime();
+	private final Handler<T> handler;
+	private final ConcurrentLinkedQueue<Node<T>> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicLong scheduled = new AtomicLong(0);
+	private volatile long processedTick = 0;
+	private volatile long expired = 0;
+	private volatile long rearmed = 0;
+	private volatile long lastDue = 0;
+	private volatile long lastAdvanceNanos = 0;
+
+	@SuppressWarnings("unchecked")
+	public ExpiryWheel(int numberOfSlots, long tickLength, TimeUnit unit, Handler<T> handler)
+			throws IllegalArgumentException {
+		if(numberOfSlots<=0 || Integer.bitCount(numberOfSlots)!=1) {
+			throw new IllegalArgumentException("'" + numberOfSlots + "': " + WRONG_SLOTS);
+		}
+		if(tickLength<=0) {
+			throw new IllegalArgumentException("'" + tickLength + "': " + WRONG_TICK);
+		}
+		this.slots = new ArrayDeque[numberOfSlots];
+		for(int i=0; i<numberOfSlots; i++) {
+			slots[i] = new ArrayDeque<>();
+		}
+		this.mask = numberOfSlots-1;
+		this.tickNanos = unit.toNanos(tickLength);
+		this.handler = handler;
+	}
+
+	public long tickOf(long nanoTime) {
+		return (nanoTime-origin)/tickNanos;
+	}
+
+	public long currentTick() {
+		return tickOf(System.nanoTime());
+	}
+
+	public void schedule(T element, long deadline) {
+		pending.add(new Node<>(element, deadline));
+		scheduled.incrementAndGet();
+	}
+
+	private void drainPending() {
+		Node<T> node;
+		while((node = pending.poll())!=null) {
+			node.deadline = Math.max(node.deadline, processedTick+1);
+			slots[(int)(node.deadline & mask)].addLast(node);
+		}
+	}
+
+	public void advance() {
+		long start = System.nanoTime();
+		long now = tickOf(start);
+		long due = 0;
+		drainPending();
+		while(processedTick<now) {
+			long tick = processedTick+1;
+			processedTick = tick;
+			ArrayDeque<Node<T>> slot = slots[(int)(tick & mask)];
+			for(int i=slot.size(); i>0; i--) {
+				Node<T> node = slot.pollFirst();
+				if(node.deadline>tick) {
+					slot.addLast(node);
+					continue;
+				}
+				due++;
+				long next = handler.expire(node.element, tick);
+				if(next==NONE) {
+					scheduled.decrementAndGet();
+					expired++;
+				} else {
+					node.deadline = Math.max(next, tick+1);
+					slots[(int)(node.deadline & mask)].addLast(node);
+					rearmed++;
+				}
+			}
+		}
+		lastDue = due;
+		lastAdvanceNanos = System.nanoTime()-start;
+	}
+
+	public long size() {
+		return scheduled.get();
+	}
+
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("backlog", scheduled.get());
+		stats.put("pending", (long) pending.size());
+		stats.put("due_last_tick", lastDue);
+		stats.put("expired_total", expired);
+		stats.put("rearmed_total", rearmed);
+		stats.put("last_advance_us", TimeUnit.NANOSECONDS.toMicros(lastAdvanceNanos));
+		stats.put("tick", processedTick);
+		return stats;
+	}
+
+}
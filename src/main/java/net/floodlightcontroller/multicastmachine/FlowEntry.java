@@ -3,6 +3,7 @@ package net.floodlightcontroller.multicastmachine;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
@@ -18,34 +19,51 @@ import org.projectfloodlight.openflow.types.U64;
 
 import net.floodlightcontroller.core.IOFSwitch;
 
-public class FlowEntry {
+public class FlowEntry implements QueuedChange {
 
 	private static final int APP_ID = 10;
 	private static final int APP_ID_BITS = 12;
 	private static final int APP_ID_SHIFT = (64 - APP_ID_BITS);
-	private static final long COOKIE = (long) (APP_ID & ((1 << APP_ID_BITS) - 1)) << APP_ID_SHIFT;
+	static final long COOKIE = (long) (APP_ID & ((1 << APP_ID_BITS) - 1)) << APP_ID_SHIFT;
 	private static final short FLOWMOD_DEFAULT_HARD_TIMEOUT = 0;
-	private static final short DEF_PRIORITY = 20;
+	static final short DEF_PRIORITY = 20;
+	static final short SOURCE_PRIORITY = 21;
 	
 	private IOFSwitch sw;
 	private IPv4Address group;
 	private OFPort srcPort;	
+	private IPv4Address source;
+	private boolean dropWhenEmpty = false;
 	private short idleTimeout;
 	private final List<OFPort> dstPorts = new ArrayList<>();
+	private boolean installed = false;
+	private ReplicationGroup replicationGroup;
 	
 	public FlowEntry(IOFSwitch sw, IPv4Address group, OFPort srcPort, OFPort dstPort, short idleTimeout) {
+		this(sw, group, srcPort, dstPort, idleTimeout, null);
+	}
+	
+	public FlowEntry(IOFSwitch sw, IPv4Address group, OFPort srcPort, OFPort dstPort, short idleTimeout,
+			ReplicationGroup replicationGroup) {
 		this.sw = sw;
 		this.group = group;
 		this.srcPort = srcPort;
 		this.idleTimeout = idleTimeout;
-		dstPorts.add(dstPort);
+		this.replicationGroup = replicationGroup;
+		addDstPort(dstPort);
 	}
 	
-	public boolean compareSwitchAndGroup(IOFSwitch sw, IPv4Address group) {
-		if(this.sw.getId().equals(sw.getId()) && this.group.equals(group)) {
-			return true;
-		}
-		return false;
+	/*
+	 * (S,G) flow of one in_port; it stays installed without destination ports and drops the
+	 * source arriving on that port until it is retired
+	 */
+	public FlowEntry(IOFSwitch sw, IPv4Address group, OFPort srcPort, IPv4Address source, short idleTimeout) {
+		this.sw = sw;
+		this.group = group;
+		this.srcPort = srcPort;
+		this.source = source;
+		this.idleTimeout = idleTimeout;
+		this.dropWhenEmpty = true;
 	}
 	
 	public boolean findDstPort(OFPort port) {
@@ -58,102 +76,151 @@ public class FlowEntry {
 	public boolean addDstPort(OFPort port) {
 		if(!dstPorts.contains(port)) {
 			dstPorts.add(port);
+			if(replicationGroup!=null) {
+				replicationGroup.addPort(port);
+			}
 			return true;
 		}
 		return false;
 	}
 	
 	public boolean isAlive() {
-		return dstPorts.size()!=0 ? true : false;
+		return !dstPorts.isEmpty() || dropWhenEmpty;
+	}
+	
+	public void retire() {
+		clearDstPorts();
+		dropWhenEmpty = false;
+	}
+	
+	public List<OFPort> getDstPorts() {
+		return new ArrayList<>(dstPorts);
 	}
 	
 	public boolean removeDstPort(OFPort port) {
-		return dstPorts.remove(port);
+		boolean removed = dstPorts.remove(port);
+		if(removed && replicationGroup!=null) {
+			replicationGroup.removePort(port);
+		}
+		return removed;
 	}
 	
-	public void removeActualFlowEntry() {
-		try {
-		OFFlowMod.Builder fmb = sw.getOFFactory().buildFlowDelete();
-		Set<OFFlowModFlags> sfmf = new HashSet<OFFlowModFlags>();
-		Match.Builder mb = sw.getOFFactory().buildMatch();
-		mb	.setExact(MatchField.IN_PORT,srcPort)
-			.setExact(MatchField.ETH_TYPE,EthType.IPv4)
-			.setExact(MatchField.IPV4_DST,group);
-		fmb	.setMatch(mb.build())
-			.setCookie((U64.of(COOKIE)))
-			.setIdleTimeout(idleTimeout)
-			.setHardTimeout(FLOWMOD_DEFAULT_HARD_TIMEOUT)
-			.setPriority(DEF_PRIORITY)
-			.setBufferId(OFBufferId.NO_BUFFER)
-			.setFlags(sfmf);
-		sw.write(fmb.build());
-		} catch(Exception e) {
-			e.printStackTrace();
+	public void clearDstPorts() {
+		if(replicationGroup!=null) {
+			dstPorts.forEach(replicationGroup::removePort);
 		}
+		dstPorts.clear();
 	}
 	
-	public void insertActualFlowEntry() {
-		try {
-		OFFlowMod.Builder fmb = sw.getOFFactory().buildFlowAdd();
-		Set<OFFlowModFlags> sfmf = new HashSet<OFFlowModFlags>();
-		Match.Builder mb = sw.getOFFactory().buildMatch();
-		mb	.setExact(MatchField.IN_PORT,srcPort)
-			.setExact(MatchField.ETH_TYPE,EthType.IPv4)
-			.setExact(MatchField.IPV4_DST,group);
-		List<OFAction> al = new ArrayList<OFAction>();
-		
-		dstPorts.forEach(port -> {
-			al.add(sw.getOFFactory()
-				.actions()
-				.buildOutput()
-				.setPort(port)
-				.setMaxLen(0xffFFffFF)
-				.build());
-		});
-		fmb	.setMatch(mb.build())
-			.setCookie((U64.of(COOKIE)))
-			.setIdleTimeout(idleTimeout)
-			.setHardTimeout(FLOWMOD_DEFAULT_HARD_TIMEOUT)
-			.setPriority(DEF_PRIORITY)
-			.setBufferId(OFBufferId.NO_BUFFER)
-			.setFlags(sfmf)
-			.setActions(al);
-		sw.write(fmb.build());
-		} catch(Exception e) {
-			e.printStackTrace();
+	public ReplicationGroup getReplicationGroup() {
+		return replicationGroup;
+	}
+	
+	@Override
+	public IOFSwitch getSwitch() {
+		return sw;
+	}
+	
+	/* binds the flow to the connection of a reconnected switch */
+	public void setSwitch(IOFSwitch sw) {
+		this.sw = sw;
+	}
+	
+	@Override
+	public IPv4Address getGroup() {
+		return group;
+	}
+	
+	public OFPort getSrcPort() {
+		return srcPort;
+	}
+	
+	public IPv4Address getSource() {
+		return source;
+	}
+	
+	@Override
+	public MembershipKey getKey() {
+		return new MembershipKey(sw.getId(), srcPort, null, group, source);
+	}
+	
+	@Override
+	public boolean isInstalled() {
+		return installed;
+	}
+	
+	@Override
+	public void setInstalled(boolean installed) {
+		this.installed = installed;
+	}
+	
+	@Override
+	public OFFlowMod buildPendingMessage() {
+		OFFlowMod flowMod = null;
+		if(isAlive()) {
+			if(!installed) {
+				flowMod = buildFlowMod(sw.getOFFactory().buildFlowAdd(), true);
+			} else if(replicationGroup==null) {
+				flowMod = buildFlowMod(sw.getOFFactory().buildFlowModifyStrict(), true);
+			}
+			installed = true;
+		} else if(installed) {
+			flowMod = buildFlowMod(sw.getOFFactory().buildFlowDeleteStrict(), false);
+			installed = false;
 		}
+		return flowMod;
 	}
 	
-	public void modifyToActualFlowEntry() {
-		try {
-		OFFlowMod.Builder fmb = sw.getOFFactory().buildFlowModify();
+	/* full state of the flow for a switch without it, null for a flow being removed */
+	public OFFlowMod buildResyncMessage() {
+		if(!isAlive()) {
+			return null;
+		}
+		installed = true;
+		return buildFlowMod(sw.getOFFactory().buildFlowAdd(), true);
+	}
+	
+	private OFFlowMod buildFlowMod(OFFlowMod.Builder fmb, boolean withActions) {
 		Set<OFFlowModFlags> sfmf = new HashSet<OFFlowModFlags>();
+		/* a flow which idles out is reported, so that it is not modified as if still installed */
+		if(idleTimeout!=0) {
+			sfmf.add(OFFlowModFlags.SEND_FLOW_REM);
+		}
 		Match.Builder mb = sw.getOFFactory().buildMatch();
-		mb	.setExact(MatchField.IN_PORT,srcPort)
-			.setExact(MatchField.ETH_TYPE,EthType.IPv4)
+		if(srcPort!=null) {
+			mb.setExact(MatchField.IN_PORT,srcPort);
+		}
+		mb	.setExact(MatchField.ETH_TYPE,EthType.IPv4)
 			.setExact(MatchField.IPV4_DST,group);
-		List<OFAction> al = new ArrayList<OFAction>();
-		
-		dstPorts.forEach(port -> {
-			al.add(sw.getOFFactory()
-				.actions()
-				.buildOutput()
-				.setPort(port)
-				.setMaxLen(0xffFFffFF)
-				.build());
-		});
+		if(source!=null) {
+			mb.setExact(MatchField.IPV4_SRC,source);
+		}
 		fmb	.setMatch(mb.build())
 			.setCookie((U64.of(COOKIE)))
 			.setIdleTimeout(idleTimeout)
 			.setHardTimeout(FLOWMOD_DEFAULT_HARD_TIMEOUT)
-			.setPriority(DEF_PRIORITY)
+			.setPriority(source!=null ? SOURCE_PRIORITY : DEF_PRIORITY)
 			.setBufferId(OFBufferId.NO_BUFFER)
-			.setFlags(sfmf)
-			.setActions(al);
-		sw.write(fmb.build());
-		} catch(Exception e) {
-			e.printStackTrace();
+			.setFlags(sfmf);
+		if(withActions && replicationGroup!=null) {
+			List<OFAction> al = new ArrayList<OFAction>();
+			al.add(sw.getOFFactory()
+				.actions()
+				.group(replicationGroup.getGroupId()));
+			fmb.setActions(al);
+		} else if(withActions) {
+			List<OFAction> al = new ArrayList<OFAction>();
+			dstPorts.forEach(port -> {
+				al.add(sw.getOFFactory()
+					.actions()
+					.buildOutput()
+					.setPort(port)
+					.setMaxLen(0xffFFffFF)
+					.build());
+			});
+			fmb.setActions(al);
 		}
+		return fmb.build();
 	}
 	
 	@Override
@@ -162,7 +229,8 @@ public class FlowEntry {
 		int result = 1;
 		result = prime * result + ((group == null) ? 0 : group.hashCode());
 		result = prime * result + ((srcPort == null) ? 0 : srcPort.hashCode());
-		result = prime * result + ((sw == null) ? 0 : sw.hashCode());
+		result = prime * result + ((source == null) ? 0 : source.hashCode());
+		result = prime * result + ((sw == null) ? 0 : sw.getId().hashCode());
 		return result;
 	}
 	
@@ -175,10 +243,10 @@ public class FlowEntry {
 		if (getClass() != obj.getClass())
 			return false;
 		FlowEntry other = (FlowEntry) obj;
-		if(this.hashCode()==other.hashCode()) {
-			return true;
-		}
-		return false;
+		return Objects.equals(group, other.group)
+				&& Objects.equals(srcPort, other.srcPort)
+				&& Objects.equals(source, other.source)
+				&& Objects.equals(sw==null ? null : sw.getId(), other.sw==null ? null : other.sw.getId());
 	}
 	
 }
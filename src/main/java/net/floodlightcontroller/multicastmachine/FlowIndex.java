@@ -0,0 +1,103 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/*
+ * Index of the multicast flows: DPID -> group (int) -> in_port -> FlowEntry. Every transmitter
+ * port of a group on a switch has its own flow. The group level of a switch is guarded by the
+ * switch record itself; the in_port level of one (switch, group) must be accessed under the
+ * FlowManager stripe lock of that pair.
+ */
+class FlowIndex {
+
+	private static class SwitchFlows {
+		private final IntObjectMap<Map<OFPort, FlowEntry>> groups = new IntObjectMap<>();
+	}
+
+	private final ConcurrentHashMap<DatapathId, SwitchFlows> switches = new ConcurrentHashMap<>();
+	private final AtomicInteger size = new AtomicInteger(0);
+
+	private Map<OFPort, FlowEntry> getSources(DatapathId switchId, IPv4Address group) {
+		SwitchFlows switchFlows = switches.get(switchId);
+		if(switchFlows==null) {
+			return null;
+		}
+		synchronized(switchFlows) {
+			return switchFlows.groups.get(group.getInt());
+		}
+	}
+
+	public FlowEntry get(DatapathId switchId, IPv4Address group, OFPort srcPort) {
+		Map<OFPort, FlowEntry> sources = getSources(switchId, group);
+		return (sources==null) ? null : sources.get(srcPort);
+	}
+
+	public Collection<FlowEntry> get(DatapathId switchId, IPv4Address group) {
+		Map<OFPort, FlowEntry> sources = getSources(switchId, group);
+		return (sources==null) ? Collections.emptyList() : new ArrayList<>(sources.values());
+	}
+
+	public List<IPv4Address> getGroups(DatapathId switchId) {
+		SwitchFlows switchFlows = switches.get(switchId);
+		List<IPv4Address> groups = new ArrayList<>();
+		if(switchFlows!=null) {
+			synchronized(switchFlows) {
+				switchFlows.groups.keys().forEach(group -> groups.add(IPv4Address.of(group)));
+			}
+		}
+		return groups;
+	}
+
+	public boolean put(FlowEntry flow) {
+		SwitchFlows switchFlows = switches.computeIfAbsent(flow.getSwitch().getId(), id -> new SwitchFlows());
+		Map<OFPort, FlowEntry> sources;
+		synchronized(switchFlows) {
+			int group = flow.getGroup().getInt();
+			sources = switchFlows.groups.get(group);
+			if(sources==null) {
+				sources = new LinkedHashMap<>();
+				switchFlows.groups.put(group, sources);
+			}
+		}
+		if(sources.putIfAbsent(flow.getSrcPort(), flow)!=null) {
+			return false;
+		}
+		size.incrementAndGet();
+		return true;
+	}
+
+	public boolean remove(FlowEntry flow) {
+		SwitchFlows switchFlows = switches.get(flow.getSwitch().getId());
+		if(switchFlows==null) {
+			return false;
+		}
+		synchronized(switchFlows) {
+			int group = flow.getGroup().getInt();
+			Map<OFPort, FlowEntry> sources = switchFlows.groups.get(group);
+			if(sources==null || !sources.remove(flow.getSrcPort(), flow)) {
+				return false;
+			}
+			if(sources.isEmpty()) {
+				switchFlows.groups.remove(group);
+			}
+		}
+		size.decrementAndGet();
+		return true;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+}
@@ -1,81 +1,456 @@
 package net.floodlightcontroller.multicastmachine;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.StampedLock;
 
+import org.projectfloodlight.openflow.protocol.OFBarrierReply;
+import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
+import org.projectfloodlight.openflow.protocol.OFFlowRemovedReason;
+import org.projectfloodlight.openflow.protocol.OFGroupType;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.TableId;
+import org.projectfloodlight.openflow.types.U64;
+
+import com.google.common.util.concurrent.ListenableFuture;
 
 import net.floodlightcontroller.core.IOFSwitch;
 
 public class FlowManager {
 
-	private final HashSet<FlowEntry> flows = new HashSet<>();
-	private final StampedLock lock = new StampedLock();
+	private static final short SOURCE_IDLE_TIMEOUT = 0;
+	private static final long DROP_RESUBMIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private final FlowIndex flows = new FlowIndex();
+	private final Map<MembershipKey, ReplicationGroup> replicationGroups = new ConcurrentHashMap<>();
+	private final Map<MembershipKey, Map<MembershipKey, FlowEntry>> sourceFlows = new ConcurrentHashMap<>();
+	private final Map<MembershipKey, Long> dropFlows = new ConcurrentHashMap<>();
+	private final LongAdder dropFlowsWritten = new LongAdder();
+	private final LongAdder resyncs = new LongAdder();
+	private final LongAdder resyncedFlows = new LongAdder();
+	private final LongAdder timedOutFlows = new LongAdder();
+	private final StripedLock locks;
+	private final FlowModQueue flowModQueue;
+	private final boolean groupReplication;
 	private short idleTimeout;
 	
-	public FlowManager(short idleTimeout) {
+	public FlowManager(short idleTimeout, int concurrencyLevel, long flowModWindow) 
+			throws IllegalArgumentException {
+		this(idleTimeout, concurrencyLevel, flowModWindow, false);
+	}
+	
+	public FlowManager(short idleTimeout, int concurrencyLevel, long flowModWindow, boolean groupReplication) 
+			throws IllegalArgumentException {
 		this.idleTimeout = idleTimeout;
+		this.groupReplication = groupReplication;
+		this.locks = new StripedLock(concurrencyLevel);
+		this.flowModQueue = new FlowModQueue(flowModWindow, locks);
+	}
+	
+	private ReplicationGroup getReplicationGroup(IOFSwitch sw, IPv4Address group) {
+		if(!groupReplication || !ReplicationGroup.isSupported(sw)) {
+			return null;
+		}
+		return replicationGroups.computeIfAbsent(MembershipTable.switchGroupKey(sw.getId(), group), 
+				key -> new ReplicationGroup(sw, group));
+	}
+	
+	private void submit(FlowEntry flow, int equivalentFlowMods) {
+		ReplicationGroup replicationGroup = flow.getReplicationGroup();
+		if(replicationGroup==null) {
+			flowModQueue.submit(flow, equivalentFlowMods);
+			return;
+		}
+		if(!replicationGroup.isAlive()) {
+			replicationGroups.remove(replicationGroup.getKey(), replicationGroup);
+		}
+		flowModQueue.submit(replicationGroup, 1);
+		flowModQueue.submit(flow, flow.isAlive() && flow.isInstalled() ? 0 : 1);
 	}
 	
 	public void addFlow(IOFSwitch sw, OFPort srcPort, OFPort dstPort, IPv4Address group) {
+		addFlow(sw, srcPort, dstPort, group, true);
+	}
+	
+	/* flows of the inter-switch tree ports never share the replication group of the switch */
+	public void addTreeFlow(IOFSwitch sw, OFPort srcPort, OFPort dstPort, IPv4Address group) {
+		addFlow(sw, srcPort, dstPort, group, false);
+	}
+	
+	private void addFlow(IOFSwitch sw, OFPort srcPort, OFPort dstPort, IPv4Address group, boolean replicated) {
+		StampedLock lock = locks.get(sw.getId(), group);
 		long stamp = lock.writeLock();
 		try {
-			Optional<FlowEntry> optFlow = flows.stream()
-					.filter(e -> e.compareSwitchAndGroup(sw, group))
-					.findAny();
-			if(optFlow.isPresent()) {
-				FlowEntry flow = optFlow.get();
-				if(!flow.findDstPort(dstPort)) {
-					flow.removeActualFlowEntry();
-					flow.addDstPort(dstPort);
-					flow.insertActualFlowEntry();
-				}				
+			FlowEntry flow = flows.get(sw.getId(), group, srcPort);
+			if(flow!=null) {
+				if(flow.addDstPort(dstPort)) {
+					submit(flow, 2);
+				} else if(!flow.isInstalled()) {
+					/* timed out on the switch, or still queued, in which case it coalesces */
+					flowModQueue.submit(flow, 0);
+				}
 			} else {
-				FlowEntry newEntry = new FlowEntry(sw, group, srcPort, dstPort, idleTimeout);
-				newEntry.insertActualFlowEntry();
-				flows.add(newEntry);
-			}			
+				FlowEntry newEntry = new FlowEntry(sw, group, srcPort, dstPort, idleTimeout, 
+						replicated ? getReplicationGroup(sw, group) : null);
+				flows.put(newEntry);
+				dropFlows.remove(newEntry.getKey());
+				submit(newEntry, 1);
+			}
 		} finally {
-			lock.unlock(stamp);
+			lock.unlockWrite(stamp);
 		}
 	}
 	
 	public void removeFlow(IOFSwitch sw, OFPort dstPort, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			for(FlowEntry flow : flows.get(sw.getId(), group)) {
+				if(flow.removeDstPort(dstPort)) {
+					if(flow.isAlive()) {
+						submit(flow, 2);
+					} else {
+						flows.remove(flow);
+						submit(flow, 1);
+					}
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	public void removeFlow(IOFSwitch sw, OFPort srcPort, OFPort dstPort, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			FlowEntry flow = flows.get(sw.getId(), group, srcPort);
+			if(flow!=null && flow.removeDstPort(dstPort)) {
+				if(flow.isAlive()) {
+					submit(flow, 2);
+				} else {
+					flows.remove(flow);
+					submit(flow, 1);
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	public void removeAllFlows(IOFSwitch sw, OFPort srcPort, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			dropFlows.remove(new MembershipKey(sw.getId(), srcPort, null, group));
+			FlowEntry flow = flows.get(sw.getId(), group, srcPort);
+			if(flow!=null) {
+				flow.clearDstPorts();
+				flows.remove(flow);
+				submit(flow, 1);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/*
+	 * A flow which timed out on the switch is no longer installed: its next change goes out as
+	 * an add, since a modify does not add a missing flow, and the next punt of its transmitter
+	 * takes the slow path, which adds it again.
+	 */
+	public void flowRemoved(IOFSwitch sw, OFFlowRemoved removed) {
+		if(removed.getCookie().getValue()!=FlowEntry.COOKIE 
+				|| (removed.getReason()!=OFFlowRemovedReason.IDLE_TIMEOUT 
+				&& removed.getReason()!=OFFlowRemovedReason.HARD_TIMEOUT)) {
+			return;
+		}
+		Match match = removed.getMatch();
+		OFPort srcPort = match.get(MatchField.IN_PORT);
+		IPv4Address group = match.get(MatchField.IPV4_DST);
+		if(srcPort==null || group==null || match.get(MatchField.IPV4_SRC)!=null) {
+			return;
+		}
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			FlowEntry flow = flows.get(sw.getId(), group, srcPort);
+			if(flow!=null && flow.isInstalled()) {
+				flow.setInstalled(false);
+				timedOutFlows.increment();
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/*
+	 * Installs the negative cache entry of a transmitter port without destination ports. The
+	 * punts already in flight while the entry is being installed do not submit it again; a
+	 * punt after that means the entry has timed out on the switch.
+	 */
+	public boolean addDropFlow(IOFSwitch sw, OFPort srcPort, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			if(flows.get(sw.getId(), group, srcPort)!=null || isDropCached(sw, srcPort, group)) {
+				return false;
+			}
+			DropFlow drop = new DropFlow(sw, group, srcPort);
+			dropFlows.put(drop.getKey(), System.nanoTime());
+			flowModQueue.submit(drop, 1);
+			dropFlowsWritten.increment();
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	public boolean isDropCached(IOFSwitch sw, OFPort srcPort, IPv4Address group) {
+		Long submitted = dropFlows.get(new MembershipKey(sw.getId(), srcPort, null, group));
+		return submitted!=null && System.nanoTime()-submitted<DROP_RESUBMIT_NANOS;
+	}
+	
+	/* in_port -> destination ports of the (*,G) flows of the group on the switch */
+	public Map<OFPort, List<OFPort>> getFlowPorts(IOFSwitch sw, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.readLock();
+		try {
+			Map<OFPort, List<OFPort>> ports = new HashMap<>();
+			for(FlowEntry flow : flows.get(sw.getId(), group)) {
+				ports.put(flow.getSrcPort(), flow.getDstPorts());
+			}
+			return ports;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/*
+	 * Sets the destination ports of the (S,G) flow of the in_port; an empty set keeps the flow
+	 * installed as a drop rule, null retires the flow.
+	 */
+	public void setSourceFlow(IOFSwitch sw, OFPort srcPort, IPv4Address source, IPv4Address group, 
+			Collection<OFPort> ports) {
+		StampedLock lock = locks.get(sw.getId(), group);
 		long stamp = lock.writeLock();
 		try {
-			Optional<FlowEntry> optFlow = flows.stream()
-					.filter(e -> e.compareSwitchAndGroup(sw, group))
-					.findAny();
-			if(optFlow.isPresent()) {
-				FlowEntry flow = optFlow.get();
-				if(flow.findDstPort(dstPort)) {
-					flow.removeActualFlowEntry();
-					boolean removed = flow.removeDstPort(dstPort);
-					if(removed) {
-						if(flow.isAlive()) {
-							flow.insertActualFlowEntry();
-						} else {
-							flows.remove(flow);
-						}
-					}					
+			MembershipKey key = MembershipTable.switchGroupKey(sw.getId(), group);
+			MembershipKey flowKey = new MembershipKey(sw.getId(), srcPort, null, group, source);
+			Map<MembershipKey, FlowEntry> flowsOfGroup = sourceFlows.get(key);
+			FlowEntry flow = (flowsOfGroup==null) ? null : flowsOfGroup.get(flowKey);
+			if(ports==null) {
+				if(flow!=null) {
+					flow.retire();
+					flowsOfGroup.remove(flowKey);
+					if(flowsOfGroup.isEmpty()) {
+						sourceFlows.remove(key);
+					}
+					submit(flow, 1);
+				}
+				return;
+			}
+			boolean changed = false;
+			if(flow==null) {
+				flow = new FlowEntry(sw, group, srcPort, source, SOURCE_IDLE_TIMEOUT);
+				sourceFlows.computeIfAbsent(key, k -> new HashMap<>()).put(flowKey, flow);
+				changed = true;
+			}
+			for(OFPort port : flow.getDstPorts()) {
+				if(!ports.contains(port)) {
+					changed |= flow.removeDstPort(port);
+				}
+			}
+			for(OFPort port : ports) {
+				changed |= flow.addDstPort(port);
+			}
+			if(changed) {
+				submit(flow, flow.isInstalled() ? 2 : 1);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/*
+	 * Keys (switch, in_port, group, source) of the (S,G) flows of the group on the switch. Most
+	 * groups have none, so the read is optimistic like in isFlowInstalled.
+	 */
+	public Set<MembershipKey> getSourceFlowKeys(IOFSwitch sw, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		MembershipKey key = MembershipTable.switchGroupKey(sw.getId(), group);
+		long stamp = lock.tryOptimisticRead();
+		if(stamp!=0) {
+			try {
+				Map<MembershipKey, FlowEntry> flowsOfGroup = sourceFlows.get(key);
+				Set<MembershipKey> keys = (flowsOfGroup==null) ? new HashSet<>() 
+						: new HashSet<>(flowsOfGroup.keySet());
+				if(lock.validate(stamp)) {
+					return keys;
+				}
+			} catch(RuntimeException e) {
+				if(lock.validate(stamp)) {
+					throw e;
+				}
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			Map<MembershipKey, FlowEntry> flowsOfGroup = sourceFlows.get(key);
+			return (flowsOfGroup==null) ? new HashSet<>() : new HashSet<>(flowsOfGroup.keySet());
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/*
+	 * Rewrites the multicast state of a (re)connected switch in one batch. The flows of the
+	 * previous connection (cookie of the application) and the known replication groups are
+	 * deleted, then the default entries, the groups and the flows are added again from the
+	 * state of the manager. A barrier separates the deletes from the adds; the returned future
+	 * completes with the barrier closing the batch.
+	 */
+	public ListenableFuture<OFBarrierReply> resync(IOFSwitch sw, List<OFMessage> defaultEntries) {
+		DatapathId switchId = sw.getId();
+		List<OFMessage> deletes = new ArrayList<>();
+		List<OFMessage> groupAdds = new ArrayList<>();
+		List<OFMessage> flowAdds = new ArrayList<>();
+		if(sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10)>0) {
+			deletes.add(sw.getOFFactory().buildFlowDelete()
+					.setTableId(TableId.ALL)
+					.setCookie(U64.of(FlowEntry.COOKIE))
+					.setCookieMask(U64.NO_MASK)
+					.build());
+		}
+		dropFlows.keySet().removeIf(key -> key.getSwitchId().equals(switchId));
+		flowModQueue.setSwitch(sw);
+		for(ReplicationGroup replicationGroup : replicationGroups.values()) {
+			if(!replicationGroup.getSwitch().getId().equals(switchId)) {
+				continue;
+			}
+			StampedLock lock = locks.get(switchId, replicationGroup.getGroup());
+			long stamp = lock.writeLock();
+			try {
+				replicationGroup.setSwitch(sw);
+				deletes.add(sw.getOFFactory().buildGroupDelete()
+						.setGroup(replicationGroup.getGroupId())
+						.setGroupType(OFGroupType.ALL)
+						.build());
+				OFMessage groupAdd = replicationGroup.buildResyncMessage();
+				if(groupAdd!=null) {
+					groupAdds.add(groupAdd);
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		for(IPv4Address group : flows.getGroups(switchId)) {
+			StampedLock lock = locks.get(switchId, group);
+			long stamp = lock.writeLock();
+			try {
+				for(FlowEntry flow : flows.get(switchId, group)) {
+					flow.setSwitch(sw);
+					OFMessage flowAdd = flow.buildResyncMessage();
+					if(flowAdd!=null) {
+						flowAdds.add(flowAdd);
+					}
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		for(Map.Entry<MembershipKey, Map<MembershipKey, FlowEntry>> entry : sourceFlows.entrySet()) {
+			if(!entry.getKey().getSwitchId().equals(switchId)) {
+				continue;
+			}
+			StampedLock lock = locks.get(switchId, entry.getKey().getGroup());
+			long stamp = lock.writeLock();
+			try {
+				for(FlowEntry flow : entry.getValue().values()) {
+					flow.setSwitch(sw);
+					OFMessage flowAdd = flow.buildResyncMessage();
+					if(flowAdd!=null) {
+						flowAdds.add(flowAdd);
+					}
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		List<OFMessage> batch = new ArrayList<>(deletes.size()+defaultEntries.size()+groupAdds.size()
+				+flowAdds.size()+1);
+		batch.addAll(deletes);
+		batch.add(sw.getOFFactory().buildBarrierRequest().build());
+		batch.addAll(defaultEntries);
+		batch.addAll(groupAdds);
+		batch.addAll(flowAdds);
+		sw.write(batch);
+		resyncs.increment();
+		resyncedFlows.add(flowAdds.size());
+		return sw.writeRequest(sw.getOFFactory().buildBarrierRequest().build());
+	}
+	
+	/*
+	 * Whether the flow of the transmitter port has been written and has not timed out since.
+	 * Called on every punt of a known transmitter, it reads the in_port level of the index
+	 * without the lock of the stripe and validates the stamp afterwards. A read racing a write
+	 * may see the plain map in any state, so its result or exception is dropped and it runs
+	 * again under the read lock; it must not be called with the stripe lock held.
+	 */
+	public boolean isFlowInstalled(IOFSwitch sw, OFPort srcPort, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.tryOptimisticRead();
+		if(stamp!=0) {
+			try {
+				FlowEntry flow = flows.get(sw.getId(), group, srcPort);
+				boolean installed = flow!=null && flow.isInstalled();
+				if(lock.validate(stamp)) {
+					return installed;
+				}
+			} catch(RuntimeException e) {
+				if(lock.validate(stamp)) {
+					throw e;
 				}
 			}
+		}
+		stamp = lock.readLock();
+		try {
+			FlowEntry flow = flows.get(sw.getId(), group, srcPort);
+			return flow!=null && flow.isInstalled();
 		} finally {
-			lock.unlock(stamp);
+			lock.unlockRead(stamp);
 		}
 	}
 	
-	public void removeAllFlows(IOFSwitch sw, IPv4Address group) {
-		Optional<FlowEntry> specificFlowPresention = flows.stream()
-			.filter(e -> e.compareSwitchAndGroup(sw, group))
-			.findAny();
-		if(specificFlowPresention.isPresent()) {
-			FlowEntry specificFlow = specificFlowPresention.get();
-			specificFlow.removeActualFlowEntry();
-			flows.remove(specificFlow);
-		}	
+	public int getNumberOfFlows() {
+		return flows.size();
+	}
+	
+	public Map<String, Long> getFlowModStatistics() {
+		Map<String, Long> stats = flowModQueue.getStatistics();
+		stats.put("drop_flows", (long) dropFlows.size());
+		stats.put("drop_flows_written", dropFlowsWritten.sum());
+		stats.put("resyncs", resyncs.sum());
+		stats.put("resynced_flows", resyncedFlows.sum());
+		stats.put("timed_out_flows", timedOutFlows.sum());
+		return stats;
+	}
+	
+	public void stop() {
+		flowModQueue.stop();
 	}
 	
 }
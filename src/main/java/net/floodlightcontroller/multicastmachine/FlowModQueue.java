@@ -0,0 +1,146 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+import org.projectfloodlight.openflow.protocol.OFGroupDelete;
+import org.projectfloodlight.openflow.protocol.OFGroupMod;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+/*
+ * Per-switch coalescing queue of flow changes. All changes of one (switch, in_port, group)
+ * flow which arrive inside the window are merged and only the final state of the flow is
+ * written: ADD for a new flow or a flow which timed out on the switch, MODIFY_STRICT for a
+ * changed port set and DELETE_STRICT for a flow without destination ports. The messages of one switch are written as one batch;
+ * group entries are added/modified before and deleted after the flows which use them.
+ */
+class FlowModQueue {
+
+	private static final Logger log = LoggerFactory.getLogger(FlowModQueue.class);
+	private static final String WRONG_WINDOW = "The coalescing window must be a non-negative integer.";
+
+	private static class SwitchQueue {
+		private final Map<MembershipKey, QueuedChange> changes = new LinkedHashMap<>();
+		private IOFSwitch sw;
+		private boolean scheduled = false;
+	}
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+	private final ConcurrentHashMap<DatapathId, SwitchQueue> queues = new ConcurrentHashMap<>();
+	private final AtomicLong requested = new AtomicLong(0);
+	private final AtomicLong written = new AtomicLong(0);
+	private final AtomicLong batches = new AtomicLong(0);
+	private final StripedLock locks;
+	private final long windowMillis;
+
+	public FlowModQueue(long windowMillis, StripedLock locks) throws IllegalArgumentException {
+		if(windowMillis<0) {
+			throw new IllegalArgumentException("'" + windowMillis + "': " + WRONG_WINDOW);
+		}
+		this.windowMillis = windowMillis;
+		this.locks = locks;
+	}
+
+	/*
+	 * Registers a change of the flow; equivalentFlowMods is the number of messages the change
+	 * would cost if it was written to the switch directly.
+	 */
+	public void submit(QueuedChange change, int equivalentFlowMods) {
+		requested.addAndGet(equivalentFlowMods);
+		SwitchQueue queue = queues.computeIfAbsent(change.getSwitch().getId(), id -> new SwitchQueue());
+		boolean schedule = false;
+		synchronized(queue) {
+			queue.sw = change.getSwitch();
+			QueuedChange previous = queue.changes.put(change.getKey(), change);
+			if(previous!=null && previous!=change) {
+				change.setInstalled(previous.isInstalled());
+			}
+			if(!queue.scheduled) {
+				queue.scheduled = true;
+				schedule = true;
+			}
+		}
+		if(schedule) {
+			executor.schedule(() -> flush(queue), windowMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/* the pending changes of a reconnected switch are written to its new connection */
+	public void setSwitch(IOFSwitch sw) {
+		SwitchQueue queue = queues.get(sw.getId());
+		if(queue!=null) {
+			synchronized(queue) {
+				queue.sw = sw;
+			}
+		}
+	}
+
+	private void flush(SwitchQueue queue) {
+		List<QueuedChange> changes;
+		IOFSwitch sw;
+		synchronized(queue) {
+			sw = queue.sw;
+			changes = new ArrayList<>(queue.changes.values());
+			queue.changes.clear();
+			queue.scheduled = false;
+		}
+		List<OFMessage> groupMods = new ArrayList<>();
+		List<OFMessage> flowMods = new ArrayList<>(changes.size());
+		List<OFMessage> groupDeletes = new ArrayList<>();
+		for(QueuedChange change : changes) {
+			StampedLock lock = locks.get(change.getSwitch().getId(), change.getGroup());
+			long stamp = lock.writeLock();
+			try {
+				OFMessage message = change.buildPendingMessage();
+				if(message instanceof OFGroupDelete) {
+					groupDeletes.add(message);
+				} else if(message instanceof OFGroupMod) {
+					groupMods.add(message);
+				} else if(message!=null) {
+					flowMods.add(message);
+				}
+			} catch(RuntimeException e) {
+				log.error(e.getMessage());
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		List<OFMessage> messages = new ArrayList<>(groupMods.size()+flowMods.size()+groupDeletes.size());
+		messages.addAll(groupMods);
+		messages.addAll(flowMods);
+		messages.addAll(groupDeletes);
+		if(!messages.isEmpty()) {
+			sw.write(messages);
+			written.addAndGet(messages.size());
+			batches.incrementAndGet();
+		}
+	}
+
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		long sent = written.get();
+		stats.put("requested", requested.get());
+		stats.put("written", sent);
+		stats.put("saved", Math.max(0, requested.get()-sent));
+		stats.put("batches", batches.get());
+		return stats;
+	}
+
+	public void stop() {
+		executor.shutdown();
+	}
+
+}
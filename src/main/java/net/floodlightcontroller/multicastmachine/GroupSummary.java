@@ -0,0 +1,44 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+/*
+ * Snapshot of the counters of one multicast group: hosts and ports per switch.
+ */
+public class GroupSummary {
+
+	private final String group;
+	private final int members;
+	private final Map<String, Integer> switches = new TreeMap<>();
+	private int ports;
+
+	public GroupSummary(IPv4Address group, int members, Map<DatapathId, Integer> portsPerSwitch) {
+		this.group = group.toString();
+		this.members = members;
+		portsPerSwitch.forEach((switchId, count) -> {
+			switches.put(switchId.toString(), count);
+			ports += count;
+		});
+	}
+
+	public String getGroup() {
+		return group;
+	}
+
+	public int getMembers() {
+		return members;
+	}
+
+	public int getPorts() {
+		return ports;
+	}
+
+	public Map<String, Integer> getSwitches() {
+		return switches;
+	}
+
+}
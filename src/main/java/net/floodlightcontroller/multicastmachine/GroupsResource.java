@@ -0,0 +1,48 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.List;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.restlet.data.Status;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Per-group aggregates of listeners or transmitters, served from the counters of the
+ * membership table: ?group= restricts the output to one group.
+ */
+public class GroupsResource extends ServerResource {
+
+	protected static Logger log = LoggerFactory.getLogger(GroupsResource.class);
+	
+	@Get("json")
+	public List<GroupSummary> retrieve() {
+		IMulticastService service =
+                (IMulticastService)getContext().getAttributes().
+                    get(IMulticastService.class.getCanonicalName());
+		String role = (String) getRequestAttributes().get("role");
+		String groupStr = getQuery().getFirstValue("group", true);
+		IPv4Address group = null;
+		if(groupStr!=null) {
+			try {
+				group = IPv4Address.of(groupStr);
+			} catch(Exception e) {
+				group = null;
+			}
+			if(group==null || !group.isMulticast()) {
+				setStatus(Status.CLIENT_ERROR_BAD_REQUEST, AbstractHostsResource.GROUP_ERROR);
+				return null;
+			}
+		}
+		if("listeners".equals(role)) {
+			return service.getListenerGroups(group);
+		} else if("transmitters".equals(role)) {
+			return service.getTransmitterGroups(group);
+		}
+		setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+		return null;
+	}
+	
+}
@@ -1,6 +1,8 @@
 package net.floodlightcontroller.multicastmachine;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFPort;
@@ -12,16 +14,23 @@ import net.floodlightcontroller.core.IOFSwitch;
 @JsonSerialize(using=HostSerialiser.class)
 public class HostEntry {
 	
-	private final AtomicInteger activeTime = new AtomicInteger(0);	
+	/* the refresh time of an expired entry; a refresh cannot bring it back */
+	private static final long EXPIRED = Long.MIN_VALUE;
+	private static final AtomicLongFieldUpdater<HostEntry> REFRESH_TIME = 
+			AtomicLongFieldUpdater.newUpdater(HostEntry.class, "refreshTime");
+	private volatile long refreshTime = System.nanoTime();
 	private MacAddress srcMac;
-	private IPv4Address srcIp;
+	private volatile IPv4Address srcIp;
+	private volatile SourceFilter filter = SourceFilter.ANY;
 	private QueryEntry queryEntry;
+	private MembershipKey key;
 	
 	public HostEntry(IOFSwitch sw, OFPort port, MacAddress srcMac, 
 			IPv4Address srcIp, IPv4Address group) {
 		this.srcMac = srcMac;
 		this.srcIp = srcIp;
 		queryEntry = new QueryEntry(group, sw, port);
+		key = new MembershipKey(sw.getId(), port, srcMac, group);
 	}
 	
 	public String printSrcMac() {
@@ -32,8 +41,12 @@ public class HostEntry {
 		return srcIp.toString();
 	}
 	
+	public IPv4Address getSrcIp() {
+		return srcIp;
+	}
+	
 	public int printActiveTime() {
-		return activeTime.get();
+		return (int) TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()-refreshTime);
 	}
 	
 	public String printGroupAddress() {
@@ -48,20 +61,31 @@ public class HostEntry {
 		return queryEntry.printPortId();
 	}
 	
-	public Integer incrementAndGet() {
-		return activeTime.incrementAndGet();
+	public long getRefreshTime() {
+		return refreshTime;
 	}
 	
-	public boolean compareAndUpdateEntry(IOFSwitch sw, OFPort port, MacAddress srcMac, 
-			IPv4Address srcIp, IPv4Address group) {
-		if(compareEntry(sw, port, srcMac, group)) {
-			if(!this.srcIp.equals(srcIp)) {
-				this.srcIp = srcIp;
+	/* returns false if the entry has already been expired */
+	public boolean refresh(IPv4Address srcIp) {
+		long seen;
+		do {
+			seen = refreshTime;
+			if(seen==EXPIRED) {
+				return false;
 			}
-			activeTime.set(0);
-			return true;
+		} while(!REFRESH_TIME.compareAndSet(this, seen, System.nanoTime()));
+		if(!this.srcIp.equals(srcIp)) {
+			this.srcIp = srcIp;
 		}
-		return false;
+		return true;
+	}
+	
+	/* 
+	 * Expires the entry unless it has been refreshed since its refresh time was read, as a
+	 * refresh without the stripe lock may land between the age check and the removal.
+	 */
+	public boolean expire(long seenRefreshTime) {
+		return REFRESH_TIME.compareAndSet(this, seenRefreshTime, EXPIRED);
 	}
 	
 	public boolean compareEntry(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address group) {
@@ -75,15 +99,22 @@ public class HostEntry {
 	public QueryEntry getQueryEntry() {
 		return queryEntry;
 	}
+	
+	public MembershipKey getKey() {
+		return key;
+	}
+	
+	public SourceFilter getFilter() {
+		return filter;
+	}
+	
+	public void setFilter(SourceFilter filter) {
+		this.filter = filter;
+	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((queryEntry == null) ? 0 : queryEntry.hashCode());
-		result = prime * result + ((srcIp == null) ? 0 : srcIp.hashCode());
-		result = prime * result + ((srcMac == null) ? 0 : srcMac.hashCode());
-		return result;
+		return key.hashCode();
 	}
 
 	@Override
@@ -95,10 +126,7 @@ public class HostEntry {
 		if (getClass() != obj.getClass())
 			return false;
 		HostEntry other = (HostEntry) obj;
-		if(this.hashCode()==other.hashCode()) {
-			return true;
-		}
-		return false;
+		return key.equals(other.key);
 	}	
 	
 }
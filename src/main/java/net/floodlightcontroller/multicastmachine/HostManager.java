@@ -1,8 +1,11 @@
 package net.floodlightcontroller.multicastmachine;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFPort;
@@ -12,13 +15,22 @@ import net.floodlightcontroller.core.IOFSwitch;
 public interface HostManager {
 	
 	public void registerOtherManager(HostManager other);
+	public void registerTreeManager(MulticastTreeManager treeManager);
 	public void manageFlowTableAdd(IOFSwitch sw, OFPort port, IPv4Address group);
 	public void manageFlowTableRemove(IOFSwitch sw, OFPort port, IPv4Address group);
+	public void updateSourceFlows(IOFSwitch sw, IPv4Address group);
 	public boolean addOrRefreshHost(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address srcIp, IPv4Address group);
 	public boolean removeHost(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address group);
 	public List<OFPort> getPortsForMulticastGroup(IOFSwitch sw, IPv4Address group);
-	public HashSet<HostEntry> getSetOfHostsByGroup(IPv4Address group);	
-	public HashSet<HostEntry> getList();
+	public Collection<HostEntry> getSetOfHostsByGroup(IPv4Address group);	
+	public Collection<HostEntry> getList();
+	public Iterator<HostEntry> query(IPv4Address group, DatapathId switchId, OFPort port, MembershipKey after);
+	public List<GroupSummary> getGroupSummaries(IPv4Address group);
+	public Map<String, Long> getExpiryStatistics();
+	public void setSwitch(IOFSwitch sw);
+	public void setStore(MembershipStore store);
+	public boolean restoreHost(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address srcIp, IPv4Address group, 
+			SourceFilter filter);
 	public void startMachine();
 	public void stopMachine();
 		
@@ -1,13 +1,17 @@
 package net.floodlightcontroller.multicastmachine;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.StampedLock;
-import java.util.stream.Collectors;
 
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFPort;
@@ -20,76 +24,221 @@ abstract class HostManagerTemplate implements HostManager {
 	protected static final int SCHEDULED_START = 0;
 	protected static final int AWAIT_TERMINATION = 5;
 	protected static final int DELAY = 1;	
+	protected static final int WHEEL_SLOTS = 512;
 	protected final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-	protected final HashSet<HostEntry> list = new HashSet<>();
-	protected final StampedLock lock = new StampedLock();
+	protected final MembershipTable table = new MembershipTable();
+	protected final ExpiryWheel<HostEntry> wheel = 
+			new ExpiryWheel<>(WHEEL_SLOTS, DELAY, TimeUnit.SECONDS, this::expireLocked);
+	protected final StripedLock locks;
+	protected final LongAdder fastRefreshes = new LongAdder();
 	protected IPv4Address routerIp;
 	protected MacAddress routerMac;
 	protected Logger logger;
 	protected HostManager other;
+	protected MulticastTreeManager treeManager;
+	protected MembershipStore store;
 	protected FlowManager flowManager;
 	
 	public HostManagerTemplate(MacAddress routerMac, IPv4Address routerIp, Logger logger, 
-			FlowManager flowManager) {
+			FlowManager flowManager, StripedLock locks) {
 		this.routerMac = routerMac;
 		this.routerIp = routerIp;
 		this.logger = logger;		
 		this.flowManager = flowManager;
+		this.locks = locks;
 	}
 	
 	public void registerOtherManager(HostManager other) {
 		this.other = other;
 	}
 	
+	public void registerTreeManager(MulticastTreeManager treeManager) {
+		this.treeManager = treeManager;
+	}
+	
+	protected abstract long firstDeadline(HostEntry entry);
+	
+	protected abstract long expire(HostEntry entry, long tick);
+	
+	private long expireLocked(HostEntry entry, long tick) {
+		MembershipKey key = entry.getKey();
+		StampedLock lock = locks.get(key.getSwitchId(), key.getGroup());
+		long stamp = lock.writeLock();
+		try {
+			return expire(entry, tick);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	protected long ageOf(long refreshTime, long tick) {
+		return tick - wheel.tickOf(refreshTime);
+	}
+	
+	protected boolean isStored(HostEntry entry) {
+		return table.get(entry.getKey())==entry;
+	}
+	
+	@Override
+	public void setStore(MembershipStore store) {
+		this.store = store;
+	}
+	
+	/* a new membership or a new filter of a membership, a refresh is never passed here */
+	protected void onUpdated(HostEntry entry) {
+		if(store!=null) {
+			store.put(entry);
+		}
+	}
+	
+	protected void onRemoved(HostEntry entry) {
+		if(store!=null) {
+			store.remove(entry.getKey());
+		}
+	}
+	
+	protected void restoreFilter(HostEntry entry, SourceFilter filter) {
+	}
+	
+	@Override
+	public void startMachine() {
+		executor.scheduleAtFixedRate(() -> {
+			try {
+				wheel.advance();
+			} catch(RuntimeException e) {
+				logger.error(e.getMessage());
+			}
+		}, SCHEDULED_START, DELAY, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public Map<String, Long> getExpiryStatistics() {
+		Map<String, Long> stats = wheel.getStatistics();
+		stats.put("fast_refreshes", fastRefreshes.sum());
+		return stats;
+	}
+	
+	/* binds the hosts of a reconnected switch to its new connection */
+	@Override
+	public void setSwitch(IOFSwitch sw) {
+		table.values().forEach(host -> {
+			if(host.getKey().getSwitchId().equals(sw.getId())) {
+				host.getQueryEntry().setSwitch(sw);
+			}
+		});
+	}
+	
 	@Override
 	public List<OFPort> getPortsForMulticastGroup(IOFSwitch sw, IPv4Address group) {
-		List<OFPort> output = list.stream()
-			.map(e -> e.getPortForGroupAddress(sw,group))
-			.filter(e -> e!=null)
-			.collect(Collectors.toList());
-		return output;
+		return table.getPorts(sw.getId(), group);
 	}
 	
 	@Override
-	public HashSet<HostEntry> getSetOfHostsByGroup(IPv4Address group) {
-		return list.stream()
-			.filter(listener -> listener.getQueryEntry().getGroupAddress().equals(group))
-			.collect(Collectors.toCollection(HashSet::new));
+	public Collection<HostEntry> getSetOfHostsByGroup(IPv4Address group) {
+		return new ArrayList<>(table.getHostsByGroup(group));
 	}
 	
 	@Override
-	public HashSet<HostEntry> getList() {
-		return list;
+	public Collection<HostEntry> getList() {
+		return new ArrayList<>(table.values());
+	}
+	
+	@Override
+	public Iterator<HostEntry> query(IPv4Address group, DatapathId switchId, OFPort port, MembershipKey after) {
+		return table.query(group, switchId, port, after);
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummaries(IPv4Address group) {
+		return table.getSummaries(group);
 	}
 	
 	@Override
 	public boolean addOrRefreshHost(IOFSwitch sw, OFPort port, MacAddress srcMac, 
 			IPv4Address srcIp, IPv4Address group) {
+		if(tryFastRefresh(new MembershipKey(sw.getId(), port, srcMac, group), srcIp)) {
+			return false;
+		}
+		StampedLock lock = locks.get(sw.getId(), group);
 		long stamp = lock.writeLock();
 		try {
-			boolean addNewEntry = list.stream()
-					.allMatch(e -> !e.compareAndUpdateEntry(sw, port, srcMac, srcIp, group));
+			boolean addNewEntry = refreshOrInsert(sw, port, srcMac, srcIp, group);
 			if(addNewEntry) {
-				list.add(new HostEntry(sw, port, srcMac, srcIp, group));
 				manageFlowTableAdd(sw, port, group);
 			}
 			return addNewEntry;
 		} finally {
-			lock.unlock(stamp);
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/*
+	 * Refresh of an active membership only moves its timestamp, so it is done without the
+	 * stripe lock. The refresh and the expiry agree on the timestamp by compare-and-set: a
+	 * refresh of an expired entry fails, and an expiry of a refreshed entry fails. If the entry
+	 * has been expired or removed in the meantime, the caller takes the slow path and inserts
+	 * it again.
+	 */
+	protected boolean tryFastRefresh(MembershipKey key, IPv4Address srcIp) {
+		HostEntry entry = table.get(key);
+		if(entry==null) {
+			return false;
+		}
+		if(!entry.refresh(srcIp) || !isStored(entry)) {
+			return false;
+		}
+		fastRefreshes.increment();
+		return true;
+	}
+	
+	protected boolean refreshOrInsert(IOFSwitch sw, OFPort port, MacAddress srcMac, 
+			IPv4Address srcIp, IPv4Address group) {
+		HostEntry entry = table.get(new MembershipKey(sw.getId(), port, srcMac, group));
+		if(entry!=null) {
+			entry.refresh(srcIp);
+			return false;
+		}
+		HostEntry newEntry = new HostEntry(sw, port, srcMac, srcIp, group);
+		table.put(newEntry);
+		wheel.schedule(newEntry, firstDeadline(newEntry));
+		onUpdated(newEntry);
+		return true;
+	}
+	
+	/* inserts a replicated membership; it is already in the store and it is not written back */
+	@Override
+	public boolean restoreHost(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address srcIp, 
+			IPv4Address group, SourceFilter filter) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			if(table.get(new MembershipKey(sw.getId(), port, srcMac, group))!=null) {
+				return false;
+			}
+			HostEntry entry = new HostEntry(sw, port, srcMac, srcIp, group);
+			table.put(entry);
+			wheel.schedule(entry, firstDeadline(entry));
+			restoreFilter(entry, filter);
+			manageFlowTableAdd(sw, port, group);
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 	
 	@Override
 	public boolean removeHost(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address group) {
+		StampedLock lock = locks.get(sw.getId(), group);
 		long stamp = lock.writeLock();
 		try {
-			boolean removed = list.removeIf(e -> e.compareEntry(sw, port, srcMac, group));
-			if(removed) {
+			HostEntry removed = table.remove(new MembershipKey(sw.getId(), port, srcMac, group));
+			if(removed!=null) {
+				onRemoved(removed);
 				manageFlowTableRemove(sw, port, group);
 			}
-			return removed;
+			return removed!=null;
 		} finally {
-			lock.unlock(stamp);
+			lock.unlockWrite(stamp);
 		}
 	}
 	
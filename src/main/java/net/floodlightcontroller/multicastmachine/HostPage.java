@@ -0,0 +1,47 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Base64;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*
+ * One page of a host query. The hosts are not copied: the serialiser pulls at most 'limit'
+ * entries from the weakly consistent iterator of the table straight into the response, and
+ * the key of the last one becomes the cursor of the next page.
+ */
+@JsonSerialize(using=HostPageSerialiser.class)
+public class HostPage {
+
+	private final Iterator<HostEntry> hosts;
+	private final int limit;
+
+	public HostPage(Iterator<HostEntry> hosts, int limit) throws IllegalArgumentException {
+		if(limit<=0) {
+			throw new IllegalArgumentException("'" + limit + "': The page limit must be positive.");
+		}
+		this.hosts = hosts;
+		this.limit = limit;
+	}
+
+	public Iterator<HostEntry> getHosts() {
+		return hosts;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public static String printCursor(MembershipKey key) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(MembershipStore.encode(key));
+	}
+
+	public static MembershipKey parseCursor(String cursor) throws IllegalArgumentException {
+		byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+		if(bytes.length!=MembershipStore.KEY_SIZE) {
+			throw new IllegalArgumentException("'" + cursor + "': Invalid cursor.");
+		}
+		return MembershipStore.decode(bytes);
+	}
+
+}
@@ -0,0 +1,38 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+public class HostPageSerialiser extends JsonSerializer<HostPage> {
+
+	@Override
+	public void serialize(HostPage page, JsonGenerator jGen, SerializerProvider serializer)
+			throws IOException, JsonProcessingException {
+
+		Iterator<HostEntry> hosts = page.getHosts();
+		HostEntry last = null;
+		int count = 0;
+		jGen.writeStartObject();
+		jGen.writeArrayFieldStart("hosts");
+		while(count<page.getLimit() && hosts.hasNext()) {
+			last = hosts.next();
+			serializer.defaultSerializeValue(last, jGen);
+			count++;
+		}
+		jGen.writeEndArray();
+		jGen.writeNumberField("count", count);
+		if(last!=null && hosts.hasNext()) {
+			jGen.writeStringField("next", HostPage.printCursor(last.getKey()));
+		} else {
+			jGen.writeNullField("next");
+		}
+		jGen.writeEndObject();
+
+	}
+
+}
@@ -1,11 +1,26 @@
 package net.floodlightcontroller.multicastmachine;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
 import net.floodlightcontroller.core.module.IFloodlightService;
 
 public interface IMulticastService extends IFloodlightService  {
 
 	public Collection<HostEntry> listTransmitters();
 	public Collection<HostEntry> listListeners();
+	public Iterator<HostEntry> queryTransmitters(IPv4Address group, DatapathId switchId, OFPort port, 
+			MembershipKey after);
+	public Iterator<HostEntry> queryListeners(IPv4Address group, DatapathId switchId, OFPort port, 
+			MembershipKey after);
+	public List<GroupSummary> getTransmitterGroups(IPv4Address group);
+	public List<GroupSummary> getListenerGroups(IPv4Address group);
+	public Map<String, Map<String, Long>> getStatistics();
 	
 }
@@ -0,0 +1,198 @@
+package net.floodlightcontroller.multicastmachine;
+
+import io.netty.buffer.ByteBuf;
+
+/*
+ * Flyweight view of an IGMP message (RFC 1112, RFC 2236, RFC 3376). The view reads the fields
+ * straight from the wrapped buffer and can be re-wrapped for every packet, so parsing does not
+ * allocate anything. Offsets of the IGMPv3 group records are plain integers relative to the
+ * start of the message: firstRecord() -> nextRecord(record) -> ...
+ */
+public class IgmpView {
+
+	public static final int TYPE_QUERY = 0x11;
+	public static final int TYPE_V1_REPORT = 0x12;
+	public static final int TYPE_V2_REPORT = 0x16;
+	public static final int TYPE_LEAVE = 0x17;
+	public static final int TYPE_V3_REPORT = 0x22;
+
+	public static final int RECORD_MODE_IS_INCLUDE = 1;
+	public static final int RECORD_MODE_IS_EXCLUDE = 2;
+	public static final int RECORD_CHANGE_TO_INCLUDE = 3;
+	public static final int RECORD_CHANGE_TO_EXCLUDE = 4;
+	public static final int RECORD_ALLOW_NEW_SOURCES = 5;
+	public static final int RECORD_BLOCK_OLD_SOURCES = 6;
+
+	public static final int HEADER_SIZE = 8;
+	public static final int V3_QUERY_HEADER_SIZE = 12;
+	public static final int RECORD_HEADER_SIZE = 8;
+
+	private static final String WRONG_BOUNDS = "The IGMP view does not fit to the bounds of the buffer.";
+
+	private byte[] array;
+	private ByteBuf byteBuf;
+	private int offset;
+	private int length;
+
+	public IgmpView wrap(byte[] buffer, int offset, int length) throws IllegalArgumentException {
+		if(offset<0 || length<0 || offset+length>buffer.length) {
+			throw new IllegalArgumentException("'" + offset + "," + length + "': " + WRONG_BOUNDS);
+		}
+		this.array = buffer;
+		this.byteBuf = null;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	public IgmpView wrap(byte[] buffer) {
+		return wrap(buffer, 0, buffer.length);
+	}
+
+	public IgmpView wrap(ByteBuf buffer, int offset, int length) throws IllegalArgumentException {
+		if(offset<0 || length<0 || offset+length>buffer.capacity()) {
+			throw new IllegalArgumentException("'" + offset + "," + length + "': " + WRONG_BOUNDS);
+		}
+		if(buffer.hasArray()) {
+			return wrap(buffer.array(), buffer.arrayOffset()+offset, length);
+		}
+		this.array = null;
+		this.byteBuf = buffer;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	public IgmpView wrap(ByteBuf buffer) {
+		return wrap(buffer, buffer.readerIndex(), buffer.readableBytes());
+	}
+
+	private int u8(int index) {
+		return (array!=null) ? array[offset+index] & 0xff : byteBuf.getUnsignedByte(offset+index);
+	}
+
+	private int u16(int index) {
+		return (u8(index) << 8) | u8(index+1);
+	}
+
+	private int u32(int index) {
+		return (u8(index) << 24) | (u8(index+1) << 16) | (u8(index+2) << 8) | u8(index+3);
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public boolean isValid() {
+		if(length<HEADER_SIZE) {
+			return false;
+		}
+		switch(getType()) {
+		case TYPE_V3_REPORT:
+			return isReportValid();
+		case TYPE_QUERY:
+			return !isV3Query() || V3_QUERY_HEADER_SIZE+getQuerySourceCount()*4<=length;
+		default:
+			return true;
+		}
+	}
+
+	public int getType() {
+		return u8(0);
+	}
+
+	public int getMaxResponseCode() {
+		return u8(1);
+	}
+
+	public int getChecksum() {
+		return u16(2);
+	}
+
+	public boolean testChecksum() {
+		long sum = 0;
+		int i = 0;
+		for(; i+1<length; i+=2) {
+			sum += u16(i);
+		}
+		if(i<length) {
+			sum += u8(i) << 8;
+		}
+		while((sum >> 16)!=0) {
+			sum = (sum & 0xffff) + (sum >> 16);
+		}
+		return sum==0xffff;
+	}
+
+	public int getGroupAddress() {
+		return u32(4);
+	}
+
+	public boolean isV3Query() {
+		return getType()==TYPE_QUERY && length>=V3_QUERY_HEADER_SIZE;
+	}
+
+	public int getQueryRobustness() {
+		return u8(8) & 0x07;
+	}
+
+	public boolean getQuerySuppressFlag() {
+		return (u8(8) & 0x08)!=0;
+	}
+
+	public int getQueryIntervalCode() {
+		return u8(9);
+	}
+
+	public int getQuerySourceCount() {
+		return u16(10);
+	}
+
+	public int getQuerySource(int index) {
+		return u32(V3_QUERY_HEADER_SIZE+index*4);
+	}
+
+	public int getNumberOfRecords() {
+		return u16(6);
+	}
+
+	public int firstRecord() {
+		return HEADER_SIZE;
+	}
+
+	public int nextRecord(int record) {
+		return record+RECORD_HEADER_SIZE+getRecordAuxLength(record)*4+getRecordSourceCount(record)*4;
+	}
+
+	public int getRecordType(int record) {
+		return u8(record);
+	}
+
+	public int getRecordAuxLength(int record) {
+		return u8(record+1);
+	}
+
+	public int getRecordSourceCount(int record) {
+		return u16(record+2);
+	}
+
+	public int getRecordGroup(int record) {
+		return u32(record+4);
+	}
+
+	public int getRecordSource(int record, int index) {
+		return u32(record+RECORD_HEADER_SIZE+index*4);
+	}
+
+	private boolean isReportValid() {
+		int record = firstRecord();
+		for(int i=getNumberOfRecords(); i>0; i--) {
+			if(record+RECORD_HEADER_SIZE>length) {
+				return false;
+			}
+			record = nextRecord(record);
+		}
+		return record<=length;
+	}
+
+}
@@ -0,0 +1,156 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Open addressing hash map with primitive int keys (linear probing, backward shift deletion).
+ * A slot is empty when its value is null, so null values are not allowed. Not thread-safe.
+ */
+class IntObjectMap<V> {
+
+	private static final int MIN_CAPACITY = 8;
+	private static final String NULL_VALUE = "The map does not accept null values.";
+
+	private int[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int mask;
+
+	public IntObjectMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public IntObjectMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while(capacity<expectedSize*2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity-1;
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	private int indexOf(int key) {
+		int i = mix(key) & mask;
+		while(values[i]!=null) {
+			if(keys[i]==key) {
+				return i;
+			}
+			i = (i+1) & mask;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int i = indexOf(key);
+		return (i<0) ? null : (V) values[i];
+	}
+
+	public boolean containsKey(int key) {
+		return indexOf(key)>=0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) throws IllegalArgumentException {
+		if(value==null) {
+			throw new IllegalArgumentException(NULL_VALUE);
+		}
+		int i = mix(key) & mask;
+		while(values[i]!=null) {
+			if(keys[i]==key) {
+				V previous = (V) values[i];
+				values[i] = value;
+				return previous;
+			}
+			i = (i+1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if(++size*2>keys.length) {
+			resize(keys.length << 1);
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i = indexOf(key);
+		if(i<0) {
+			return null;
+		}
+		V previous = (V) values[i];
+		values[i] = null;
+		size--;
+		int j = i;
+		while(true) {
+			j = (j+1) & mask;
+			if(values[j]==null) {
+				return previous;
+			}
+			int home = mix(keys[j]) & mask;
+			if((j>i && (home<=i || home>j)) || (j<i && home<=i && home>j)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				values[j] = null;
+				i = j;
+			}
+		}
+	}
+
+	public List<Integer> keys() {
+		List<Integer> list = new ArrayList<>(size);
+		for(int i=0; i<values.length; i++) {
+			if(values[i]!=null) {
+				list.add(keys[i]);
+			}
+		}
+		return list;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> list = new ArrayList<>(size);
+		for(Object value : values) {
+			if(value!=null) {
+				list.add((V) value);
+			}
+		}
+		return list;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for(int i=0; i<oldKeys.length; i++) {
+			if(oldValues[i]!=null) {
+				int j = mix(oldKeys[i]) & mask;
+				while(values[j]!=null) {
+					j = (j+1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+}
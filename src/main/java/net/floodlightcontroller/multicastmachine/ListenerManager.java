@@ -1,30 +1,85 @@
 package net.floodlightcontroller.multicastmachine;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFPort;
 import org.slf4j.Logger;
 
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.util.LogHistogram;
 
+/*
+ * IGMP querier of the listeners (RFC 2236, 7). Every query interval one general query is sent
+ * to each port with listeners, so the query traffic grows with the ports and not with the
+ * hosts; a listener not refreshed within the group membership interval expires. A leave of
+ * the last host of a port starts the last member queries of the port: unless a report arrives
+ * within lastMemberQueryCount * lastMemberQueryInterval, the port leaves the group. With the
+ * fast leave, or if other hosts stay on the port, the leaving host is removed at once.
+ */
 public class ListenerManager extends HostManagerTemplate {
 
+	private static class PendingLeave {
+		private final QueryEntry queryEntry;
+		private final MacAddress srcMac;
+		private final long leaveTime;
+		private int queriesSent = 1;
+		private ScheduledFuture<?> task;
+		
+		public PendingLeave(QueryEntry queryEntry, MacAddress srcMac, long leaveTime) {
+			this.queryEntry = queryEntry;
+			this.srcMac = srcMac;
+			this.leaveTime = leaveTime;
+		}
+	}
+
 	private final ExceptionBuffer excBuffer = new ExceptionBuffer();
 	private int queryInterval;
 	private int maxResponseTime;
-	private int queryFrequency;
+	private int robustness;
+	private int lastMemberQueryCount;
+	private int lastMemberQueryInterval;
+	private int membershipInterval;
+	private final boolean fastLeave;
+	private QueryTemplate queryTemplate;
+	private QueryTemplate lastMemberTemplate;
+	private final ConcurrentHashMap<IPv4Address, Integer> filteredHosts = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<MembershipKey, PendingLeave> pendingLeaves = new ConcurrentHashMap<>();
+	/* from the leave report to the removal of the port by the last member queries */
+	private final LogHistogram leaveLatency = new LogHistogram();
+	private final LongAdder immediateLeaves = new LongAdder();
+	private final LongAdder generalQueries = new LongAdder();
+	private final LongAdder groupQueries = new LongAdder();
+	private final LongAdder leavesCancelled = new LongAdder();
 	
 	public ListenerManager(MacAddress routerMac, IPv4Address routerIp, int queryInterval, int maxResponseTime,
-			int queryFrequency, Logger logger, FlowManager flowManager)
-			throws ExceptionBuffer {
-		super(routerMac, routerIp, logger, flowManager);
+			int robustness, int lastMemberQueryCount, int lastMemberQueryInterval, boolean fastLeave,
+			Logger logger, FlowManager flowManager, StripedLock locks) throws ExceptionBuffer {
+		super(routerMac, routerIp, logger, flowManager, locks);
 		setQueryInteval(queryInterval);
 		setMaxResponseTime(maxResponseTime);
-		setQueryFrequency(queryFrequency);
+		setRobustness(robustness);
+		setLastMemberQueryCount(lastMemberQueryCount);
+		setLastMemberQueryInterval(lastMemberQueryInterval);
 		excBuffer.throwIfItIsNeeded();
+		this.fastLeave = fastLeave;
+		membershipInterval = robustness*queryInterval+maxResponseTime;
+		queryTemplate = new QueryTemplate(routerMac, routerIp, maxResponseTime);
+		lastMemberTemplate = new QueryTemplate(routerMac, routerIp, lastMemberQueryInterval);
 	}
 	
 	private void setQueryInteval(int queryInterval) {
@@ -43,57 +98,419 @@ public class ListenerManager extends HostManagerTemplate {
 		}
 	}
 	
-	private void setQueryFrequency(int queryFrequency) {
-		if(queryFrequency>0) {
-			this.queryFrequency = queryFrequency;
+	private void setRobustness(int robustness) {
+		if(robustness>0) {
+			this.robustness = robustness;
 		} else {
 			excBuffer.addException(new IllegalArgumentException());
 		}
 	}
 	
+	private void setLastMemberQueryCount(int lastMemberQueryCount) {
+		if(lastMemberQueryCount>0) {
+			this.lastMemberQueryCount = lastMemberQueryCount;
+		} else {
+			excBuffer.addException(new IllegalArgumentException());
+		}
+	}
+	
+	private void setLastMemberQueryInterval(int lastMemberQueryInterval) {
+		if(lastMemberQueryInterval>0) {
+			this.lastMemberQueryInterval = lastMemberQueryInterval;
+		} else {
+			excBuffer.addException(new IllegalArgumentException());
+		}
+	}
+	
+	@Override
+	protected long firstDeadline(HostEntry listener) {
+		return wheel.tickOf(listener.getRefreshTime())+membershipInterval;
+	}
+	
+	@Override
+	protected long expire(HostEntry listener, long tick) {
+		if(!isStored(listener)) {
+			return ExpiryWheel.NONE;
+		}
+		long refreshTime = listener.getRefreshTime();
+		long age = ageOf(refreshTime, tick);
+		if(age<membershipInterval) {
+			return tick+membershipInterval-age;
+		}
+		if(!listener.expire(refreshTime)) {
+			return tick+membershipInterval;
+		}
+		QueryEntry queryEntry = listener.getQueryEntry();
+		table.remove(listener.getKey());
+		onRemoved(listener);
+		manageFlowTableRemove(queryEntry.getSwitch(), queryEntry.getSourcePort(), 
+				queryEntry.getGroupAddress());
+		return ExpiryWheel.NONE;
+	}
+	
 	@Override
 	public void startMachine() {
+		super.startMachine();
 		executor.scheduleAtFixedRate(() -> {
+			try {
+				sendGeneralQueries();
+			} catch(RuntimeException e) {
+				logger.error(e.getMessage());
+			}
+		}, queryInterval, queryInterval, TimeUnit.SECONDS);
+	}
+	
+	/* the reports to one general query refresh every group of every host behind the port */
+	private void sendGeneralQueries() {
+		Map<MembershipKey, QueryEntry> ports = new HashMap<>();
+		table.values().forEach(host -> {
+			MembershipKey key = host.getKey();
+			ports.putIfAbsent(new MembershipKey(key.getSwitchId(), key.getPort(), null, null), 
+					host.getQueryEntry());
+		});
+		ports.values().forEach(queryEntry -> queryEntry.generateGeneralQuery(queryTemplate));
+		generalQueries.add(ports.size());
+	}
+	
+	@Override
+	public boolean addOrRefreshHost(IOFSwitch sw, OFPort port, MacAddress srcMac, 
+			IPv4Address srcIp, IPv4Address group) {
+		boolean addNewEntry = super.addOrRefreshHost(sw, port, srcMac, srcIp, group);
+		if(!pendingLeaves.isEmpty()) {
+			StampedLock lock = locks.get(sw.getId(), group);
 			long stamp = lock.writeLock();
 			try {
-				HashSet<HostEntry> forRemoval = new HashSet<>();
-				HashSet<HostEntry> forQuery = new HashSet<>();
-				list.forEach(listener -> {
-					int actualAge = listener.incrementAndGet();
-					if(actualAge==queryInterval+maxResponseTime) {
-						forRemoval.add(listener);
-						IOFSwitch sw = listener.getQueryEntry().getSwitch();
-						IPv4Address group = listener.getQueryEntry().getGroupAddress();
-						OFPort dstPort = listener.getQueryEntry().getSourcePort();
-						manageFlowTableRemove(sw, dstPort, group);
-					} else if(actualAge>=queryInterval && 
-							(actualAge-queryInterval)%queryFrequency==0) {
-						forQuery.add(listener);
+				cancelLeave(sw.getId(), port, srcMac, group);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		return addNewEntry;
+	}
+	
+	public boolean leaveGroup(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address group) {
+		long leaveTime = System.nanoTime();
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			HostEntry entry = table.get(new MembershipKey(sw.getId(), port, srcMac, group));
+			return entry!=null && leave(entry, leaveTime);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/* returns true if the host has been removed at once; the stripe lock is held */
+	private boolean leave(HostEntry entry, long leaveTime) {
+		MembershipKey key = entry.getKey();
+		QueryEntry queryEntry = entry.getQueryEntry();
+		if(fastLeave || getHostsOnPort(key.getSwitchId(), key.getPort(), key.getGroup()).size()>1) {
+			table.remove(key);
+			onRemoved(entry);
+			manageFlowTableRemove(queryEntry.getSwitch(), key.getPort(), key.getGroup());
+			/* counted apart, their latency would only be the wait for the stripe lock */
+			immediateLeaves.increment();
+			return true;
+		}
+		MembershipKey portKey = new MembershipKey(key.getSwitchId(), key.getPort(), null, key.getGroup());
+		if(pendingLeaves.containsKey(portKey)) {
+			return false;
+		}
+		PendingLeave pending = new PendingLeave(queryEntry, key.getSrcMac(), leaveTime);
+		pendingLeaves.put(portKey, pending);
+		queryEntry.generateIgmpQuery(lastMemberTemplate);
+		groupQueries.increment();
+		pending.task = executor.scheduleAtFixedRate(() -> {
+			try {
+				lastMemberQuery(portKey, pending);
+			} catch(RuntimeException e) {
+				logger.error(e.getMessage());
+			}
+		}, lastMemberQueryInterval, lastMemberQueryInterval, TimeUnit.SECONDS);
+		return false;
+	}
+	
+	private void lastMemberQuery(MembershipKey portKey, PendingLeave pending) {
+		StampedLock lock = locks.get(portKey.getSwitchId(), portKey.getGroup());
+		long stamp = lock.writeLock();
+		try {
+			if(pendingLeaves.get(portKey)!=pending) {
+				pending.task.cancel(false);
+				return;
+			}
+			QueryEntry queryEntry = pending.queryEntry;
+			if(pending.queriesSent<lastMemberQueryCount) {
+				queryEntry.generateIgmpQuery(lastMemberTemplate);
+				groupQueries.increment();
+				pending.queriesSent++;
+				return;
+			}
+			pendingLeaves.remove(portKey);
+			pending.task.cancel(false);
+			List<HostEntry> hosts = getHostsOnPort(portKey.getSwitchId(), portKey.getPort(), portKey.getGroup());
+			hosts.forEach(host -> {
+				table.remove(host.getKey());
+				onRemoved(host);
+			});
+			if(!hosts.isEmpty()) {
+				manageFlowTableRemove(queryEntry.getSwitch(), portKey.getPort(), portKey.getGroup());
+			}
+			leaveLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-pending.leaveTime));
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/* a report on the port answers the last member query; the stripe lock is held */
+	private void cancelLeave(DatapathId switchId, OFPort port, MacAddress srcMac, IPv4Address group) {
+		PendingLeave pending = pendingLeaves.remove(new MembershipKey(switchId, port, null, group));
+		if(pending==null) {
+			return;
+		}
+		pending.task.cancel(false);
+		leavesCancelled.increment();
+		if(!pending.srcMac.equals(srcMac)) {
+			HostEntry left = table.remove(new MembershipKey(switchId, port, pending.srcMac, group));
+			if(left!=null) {
+				onRemoved(left);
+				manageFlowTableRemove(pending.queryEntry.getSwitch(), port, group);
+			}
+		}
+	}
+	
+	public Map<String, Long> getLeaveLatency() {
+		return leaveLatency.getSummary();
+	}
+	
+	@Override
+	public Map<String, Long> getExpiryStatistics() {
+		Map<String, Long> stats = super.getExpiryStatistics();
+		stats.put("general_queries", generalQueries.sum());
+		stats.put("group_queries", groupQueries.sum());
+		stats.put("pending_leaves", (long) pendingLeaves.size());
+		stats.put("leaves_cancelled", leavesCancelled.sum());
+		stats.put("immediate_leaves", immediateLeaves.sum());
+		return stats;
+	}
+	
+	/*
+	 * Applies one group record of an IGMPv3 report. A record leaving the membership with
+	 * INCLUDE {} is a leave; any other record inserts or refreshes it with the new filter.
+	 */
+	public boolean updateSourceFilter(IOFSwitch sw, OFPort port, MacAddress srcMac, IPv4Address srcIp,
+			IPv4Address group, int recordType, Collection<IPv4Address> sources) {
+		StampedLock lock = locks.get(sw.getId(), group);
+		long stamp = lock.writeLock();
+		try {
+			MembershipKey key = new MembershipKey(sw.getId(), port, srcMac, group);
+			HostEntry entry = table.get(key);
+			SourceFilter filter = ((entry==null) ? SourceFilter.NONE : entry.getFilter())
+					.apply(recordType, sources);
+			if(filter.isNone()) {
+				if(entry!=null) {
+					leave(entry, System.nanoTime());
+				}
+				return false;
+			}
+			boolean wasExclude = isExcludeMode(sw, port, group);
+			boolean addNewEntry = refreshOrInsert(sw, port, srcMac, srcIp, group);
+			HostEntry stored = table.get(key);
+			if(!filter.equals(stored.getFilter())) {
+				setFilter(stored, filter);
+				onUpdated(stored);
+			}
+			if(!pendingLeaves.isEmpty()) {
+				cancelLeave(sw.getId(), port, srcMac, group);
+			}
+			if(addNewEntry) {
+				manageFlowTableAdd(sw, port, group);
+				return true;
+			}
+			boolean isExclude = isExcludeMode(sw, port, group);
+			if(wasExclude && !isExclude) {
+				flowManager.removeFlow(sw, port, group);
+			} else if(!wasExclude && isExclude) {
+				addToGroupFlows(sw, port, group);
+			}
+			updateSourceFlows(sw, group);
+			return false;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	private void setFilter(HostEntry entry, SourceFilter filter) {
+		boolean wasAny = entry.getFilter().isAny();
+		entry.setFilter(filter);
+		if(wasAny!=filter.isAny()) {
+			filteredHosts.merge(entry.getKey().getGroup(), filter.isAny() ? -1 : 1, 
+					(a, b) -> (a+b==0) ? null : a+b);
+		}
+	}
+	
+	@Override
+	protected void restoreFilter(HostEntry entry, SourceFilter filter) {
+		setFilter(entry, filter);
+	}
+	
+	@Override
+	protected void onRemoved(HostEntry entry) {
+		super.onRemoved(entry);
+		if(!entry.getFilter().isAny()) {
+			filteredHosts.merge(entry.getKey().getGroup(), -1, (a, b) -> (a+b==0) ? null : a+b);
+		}
+	}
+	
+	private boolean hasFilters(IPv4Address group) {
+		return filteredHosts.containsKey(group);
+	}
+	
+	private List<HostEntry> getHostsOnPort(DatapathId switchId, OFPort port, IPv4Address group) {
+		List<HostEntry> hosts = new ArrayList<>();
+		table.getHostsByGroup(group).forEach(host -> {
+			if(host.getKey().getSwitchId().equals(switchId) && host.getKey().getPort().equals(port)) {
+				hosts.add(host);
+			}
+		});
+		return hosts;
+	}
+	
+	private List<HostEntry> getHostsOnSwitch(IOFSwitch sw, IPv4Address group) {
+		List<HostEntry> hosts = new ArrayList<>();
+		table.getHostsByGroup(group).forEach(host -> {
+			if(host.getKey().getSwitchId().equals(sw.getId())) {
+				hosts.add(host);
+			}
+		});
+		return hosts;
+	}
+	
+	/* a port in the EXCLUDE mode receives every source through the (*,G) flows */
+	private boolean isExcludeMode(IOFSwitch sw, OFPort port, IPv4Address group) {
+		if(!hasFilters(group)) {
+			return table.containsPort(sw.getId(), group, port);
+		}
+		for(HostEntry host : getHostsOnSwitch(sw, group)) {
+			if(host.getKey().getPort().equals(port) 
+					&& host.getFilter().getMode()==SourceFilter.Mode.EXCLUDE) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public List<OFPort> getPortsForMulticastGroup(IOFSwitch sw, IPv4Address group) {
+		if(!hasFilters(group)) {
+			return super.getPortsForMulticastGroup(sw, group);
+		}
+		Set<OFPort> ports = new LinkedHashSet<>();
+		getHostsOnSwitch(sw, group).forEach(host -> {
+			if(host.getFilter().getMode()==SourceFilter.Mode.EXCLUDE) {
+				ports.add(host.getKey().getPort());
+			}
+		});
+		return new ArrayList<>(ports);
+	}
+	
+	/*
+	 * Every source named by a filter on the switch gets an (S,G) flow per in_port of the group,
+	 * i.e. per transmitter port and per port of the tree, so the INCLUDE ports never see other
+	 * sources and the EXCLUDE ports never see the excluded ones. Called again whenever the
+	 * transmitters or the tree of the group change on the switch.
+	 */
+	@Override
+	public void updateSourceFlows(IOFSwitch sw, IPv4Address group) {
+		Set<MembershipKey> installed = flowManager.getSourceFlowKeys(sw, group);
+		if(!hasFilters(group) && installed.isEmpty()) {
+			return;
+		}
+		Map<OFPort, List<OFPort>> inPorts = flowManager.getFlowPorts(sw, group);
+		other.getPortsForMulticastGroup(sw, group).forEach(p -> inPorts.putIfAbsent(p, new ArrayList<>()));
+		if(treeManager!=null) {
+			treeManager.getIngressPorts(sw, group).forEach(p -> inPorts.putIfAbsent(p, new ArrayList<>()));
+		}
+		Map<MembershipKey, Set<OFPort>> sourceFlows = getSourceFlows(sw.getId(), group, 
+				getHostsOnSwitch(sw, group), inPorts);
+		installed.removeAll(sourceFlows.keySet());
+		installed.forEach(key -> flowManager.setSourceFlow(sw, key.getPort(), key.getSource(), group, null));
+		sourceFlows.forEach((key, ports) -> 
+				flowManager.setSourceFlow(sw, key.getPort(), key.getSource(), group, ports));
+	}
+	
+	/*
+	 * The (S,G) flow of an in_port forwards what the (*,G) flow of that in_port forwards to the
+	 * tree, plus the listener ports accepting the source. It never adds a port of the tree the
+	 * (*,G) flow does not have, so a source is not sent back towards the switch it came from.
+	 */
+	static Map<MembershipKey, Set<OFPort>> getSourceFlows(DatapathId switchId, IPv4Address group, 
+			List<HostEntry> hosts, Map<OFPort, List<OFPort>> inPorts) {
+		Map<MembershipKey, Set<OFPort>> sourceFlows = new HashMap<>();
+		Set<IPv4Address> named = new HashSet<>();
+		Set<OFPort> listenerPorts = new HashSet<>();
+		hosts.forEach(host -> {
+			named.addAll(host.getFilter().getSources());
+			listenerPorts.add(host.getKey().getPort());
+		});
+		for(IPv4Address source : named) {
+			Set<OFPort> accepting = new LinkedHashSet<>();
+			hosts.forEach(host -> {
+				if(host.getFilter().accepts(source)) {
+					accepting.add(host.getKey().getPort());
+				}
+			});
+			inPorts.forEach((inPort, flowPorts) -> {
+				Set<OFPort> ports = new LinkedHashSet<>();
+				flowPorts.forEach(p -> {
+					if(!listenerPorts.contains(p)) {
+						ports.add(p);
 					}
 				});
-				list.removeAll(forRemoval);
-				forQuery.forEach(entry -> {
-					try {
-						entry.getQueryEntry().generateIgmpQuery(maxResponseTime, routerMac, routerIp);
-					} catch (ExceptionBuffer e1) {
-						logger.error(e1.getMessage());
+				accepting.forEach(p -> {
+					if(!p.equals(inPort)) {
+						ports.add(p);
 					}
 				});
-			} finally {
-				lock.unlock(stamp);
-			}		
-		}, SCHEDULED_START, DELAY, TimeUnit.SECONDS);
+				sourceFlows.put(new MembershipKey(switchId, inPort, null, group, source), ports);
+			});
+		}
+		return sourceFlows;
 	}
 	
-	@Override
-	public void manageFlowTableAdd(IOFSwitch sw, OFPort port, IPv4Address group) {
+	private void addToGroupFlows(IOFSwitch sw, OFPort port, IPv4Address group) {
 		List<OFPort> listOfPorts = other.getPortsForMulticastGroup(sw,group);
 		listOfPorts.forEach(p -> flowManager.addFlow(sw, p, port, group));
+		if(treeManager!=null) {
+			List<OFPort> treePorts = treeManager.addReceiver(sw, group);
+			treePorts.forEach(p -> flowManager.addTreeFlow(sw, p, port, group));
+		}
+	}
+	
+	@Override
+	public void manageFlowTableAdd(IOFSwitch sw, OFPort port, IPv4Address group) {
+		if(isExcludeMode(sw, port, group)) {
+			addToGroupFlows(sw, port, group);
+		} else if(treeManager!=null) {
+			treeManager.addReceiver(sw, group);
+		}
+		updateSourceFlows(sw, group);
 	}
 
 	@Override
 	public void manageFlowTableRemove(IOFSwitch sw, OFPort port, IPv4Address group) {
-		flowManager.removeFlow(sw, port, group);
+		if(!isExcludeMode(sw, port, group)) {
+			flowManager.removeFlow(sw, port, group);
+		}
+		updateSourceFlows(sw, group);
+		if(table.containsPort(sw.getId(), group, port)) {
+			return;
+		}
+		if(treeManager!=null && table.getPorts(sw.getId(), group).isEmpty()) {
+			treeManager.removeReceiver(sw, group);
+		}
+		if(table.getHostsByGroup(group).isEmpty()) {
+			lastMemberTemplate.evict(group);
+		}
 	}
 	
 }
@@ -1,22 +1,27 @@
 package net.floodlightcontroller.multicastmachine;
 
-import java.util.Collection;
+import java.util.Iterator;
 
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
 import org.restlet.resource.Get;
-import org.restlet.resource.ServerResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ListenersResource extends ServerResource {
+public class ListenersResource extends AbstractHostsResource {
 
 	protected static Logger log = LoggerFactory.getLogger(ListenersResource.class);
 	
 	@Get("json")
-	public Collection <HostEntry> retrieve() {
-		IMulticastService service =
-                (IMulticastService)getContext().getAttributes().
-                    get(IMulticastService.class.getCanonicalName());
-		return service.listListeners();
+	public HostPage retrieve() {
+		return getPage();
+	}
+
+	@Override
+	protected Iterator<HostEntry> query(IMulticastService service, IPv4Address group, DatapathId switchId,
+			OFPort port, MembershipKey after) {
+		return service.queryListeners(group, switchId, port, after);
 	}
 	
 }
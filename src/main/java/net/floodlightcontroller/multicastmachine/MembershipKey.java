@@ -0,0 +1,98 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Comparator;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+
+public class MembershipKey {
+
+	/* switch, port, group, MAC; a null field sorts first, so a partial key is the lower bound of a range */
+	public static final Comparator<MembershipKey> ORDER = Comparator
+			.comparing(MembershipKey::getSwitchId, Comparator.nullsFirst(Comparator.<DatapathId>naturalOrder()))
+			.thenComparing(MembershipKey::getPort, Comparator.nullsFirst(Comparator.<OFPort>naturalOrder()))
+			.thenComparing(MembershipKey::getGroup, Comparator.nullsFirst(Comparator.<IPv4Address>naturalOrder()))
+			.thenComparing(MembershipKey::getSrcMac, Comparator.nullsFirst(Comparator.<MacAddress>naturalOrder()))
+			.thenComparing(MembershipKey::getSource, Comparator.nullsFirst(Comparator.<IPv4Address>naturalOrder()));
+
+	private final DatapathId switchId;
+	private final OFPort port;
+	private final MacAddress srcMac;
+	private final IPv4Address group;
+	private final IPv4Address source;
+	private final int hash;
+
+	public MembershipKey(DatapathId switchId, OFPort port, MacAddress srcMac, IPv4Address group) {
+		this(switchId, port, srcMac, group, null);
+	}
+
+	public MembershipKey(DatapathId switchId, OFPort port, MacAddress srcMac, IPv4Address group,
+			IPv4Address source) {
+		this.switchId = switchId;
+		this.port = port;
+		this.srcMac = srcMac;
+		this.group = group;
+		this.source = source;
+		this.hash = computeHash();
+	}
+
+	public DatapathId getSwitchId() {
+		return switchId;
+	}
+
+	public OFPort getPort() {
+		return port;
+	}
+
+	public MacAddress getSrcMac() {
+		return srcMac;
+	}
+
+	public IPv4Address getGroup() {
+		return group;
+	}
+
+	public IPv4Address getSource() {
+		return source;
+	}
+
+	private int computeHash() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((group == null) ? 0 : group.hashCode());
+		result = prime * result + ((source == null) ? 0 : source.hashCode());
+		result = prime * result + ((port == null) ? 0 : port.hashCode());
+		result = prime * result + ((srcMac == null) ? 0 : srcMac.hashCode());
+		result = prime * result + ((switchId == null) ? 0 : switchId.hashCode());
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		MembershipKey other = (MembershipKey) obj;
+		return hash == other.hash &&
+			   equalsOrNull(switchId, other.switchId) &&
+			   equalsOrNull(port, other.port) &&
+			   equalsOrNull(srcMac, other.srcMac) &&
+			   equalsOrNull(group, other.group) &&
+			   equalsOrNull(source, other.source);
+	}
+
+	private static boolean equalsOrNull(Object o0, Object o1) {
+		return (o0 == null) ? o1 == null : o0.equals(o1);
+	}
+
+}
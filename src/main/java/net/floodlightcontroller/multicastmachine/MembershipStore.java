@@ -0,0 +1,196 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.sdnplatform.sync.IClosableIterator;
+import org.sdnplatform.sync.IStoreClient;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.error.SyncException;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/*
+ * Replicates the memberships of one HostManager through ISyncService, so a standby controller
+ * takes over with warm state. Only the changes of a membership are written: an insert, a
+ * removal and a new IGMPv3 filter. A refresh only moves the timestamp of an entry and is never
+ * replicated; a restored entry starts with a fresh timestamp and expires unless its host
+ * answers the queries of the new active controller. The changes are coalesced per key and
+ * written in batches, so a flapping membership costs one write per batch at most.
+ * Key: DPID (8 B) | port (4 B) | MAC (6 B) | group (4 B).
+ */
+class MembershipStore {
+
+	public static class Record {
+		@JsonProperty
+		public int srcIp;
+		@JsonProperty
+		public boolean exclude = true;
+		@JsonProperty
+		public int[] sources = new int[0];
+
+		public Record() {
+		}
+
+		public Record(HostEntry entry) {
+			SourceFilter filter = entry.getFilter();
+			srcIp = entry.getSrcIp().getInt();
+			exclude = filter.getMode()==SourceFilter.Mode.EXCLUDE;
+			sources = new int[filter.getSources().size()];
+			int i = 0;
+			for(IPv4Address source : filter.getSources()) {
+				sources[i++] = source.getInt();
+			}
+		}
+
+		public SourceFilter asFilter() {
+			List<IPv4Address> list = new ArrayList<>(sources.length);
+			for(int source : sources) {
+				list.add(IPv4Address.of(source));
+			}
+			return SourceFilter.of(exclude ? SourceFilter.Mode.EXCLUDE : SourceFilter.Mode.INCLUDE, list);
+		}
+	}
+
+	static final int KEY_SIZE = 22;
+	private static final Record DELETED = new Record();
+
+	private final ConcurrentHashMap<MembershipKey, Record> pending = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+	private final IStoreClient<byte[], Record> storeClient;
+	private final long batchMillis;
+	private final Logger logger;
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder deletes = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	public MembershipStore(IStoreClient<byte[], Record> storeClient, long batchMillis, Logger logger)
+			throws IllegalArgumentException {
+		if(batchMillis<=0) {
+			throw new IllegalArgumentException("'" + batchMillis + "': The batch interval must be positive.");
+		}
+		this.storeClient = storeClient;
+		this.batchMillis = batchMillis;
+		this.logger = logger;
+	}
+
+	public void start() {
+		executor.scheduleWithFixedDelay(() -> {
+			try {
+				flush();
+			} catch(RuntimeException e) {
+				logger.error(e.getMessage());
+			}
+		}, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		executor.shutdown();
+	}
+
+	public void put(HostEntry entry) {
+		pending.put(entry.getKey(), new Record(entry));
+	}
+
+	public void remove(MembershipKey key) {
+		pending.put(key, DELETED);
+	}
+
+	/* a change replaced while being written stays pending for the next batch */
+	void flush() {
+		if(pending.isEmpty()) {
+			return;
+		}
+		for(Map.Entry<MembershipKey, Record> change : pending.entrySet()) {
+			MembershipKey key = change.getKey();
+			Record record = change.getValue();
+			if(!pending.remove(key, record)) {
+				continue;
+			}
+			try {
+				if(record==DELETED) {
+					storeClient.delete(encode(key));
+					deletes.increment();
+				} else {
+					storeClient.put(encode(key), record);
+					puts.increment();
+				}
+			} catch(SyncException e) {
+				errors.increment();
+				logger.error("Could not replicate membership of {} on {}: {}", 
+						new Object[] {key.getGroup(), key.getSwitchId(), e.getMessage()});
+			}
+		}
+		batches.increment();
+	}
+
+	/* reads the replicated memberships, e.g. after the transition to the active role */
+	public int restore(BiConsumer<MembershipKey, Record> consumer) {
+		int restored = 0;
+		IClosableIterator<Map.Entry<byte[], Versioned<Record>>> iter = null;
+		try {
+			iter = storeClient.entries();
+			while(iter.hasNext()) {
+				Map.Entry<byte[], Versioned<Record>> entry = iter.next();
+				Record record = entry.getValue().getValue();
+				if(record==null || entry.getKey().length!=KEY_SIZE) {
+					continue;
+				}
+				consumer.accept(decode(entry.getKey()), record);
+				restored++;
+			}
+		} catch(SyncException e) {
+			errors.increment();
+			logger.error("Could not read the replicated memberships: {}", e.getMessage());
+		} finally {
+			if(iter!=null) {
+				iter.close();
+			}
+		}
+		return restored;
+	}
+
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("pending", (long) pending.size());
+		stats.put("puts", puts.sum());
+		stats.put("deletes", deletes.sum());
+		stats.put("batches", batches.sum());
+		stats.put("errors", errors.sum());
+		return stats;
+	}
+
+	static byte[] encode(MembershipKey key) {
+		ByteBuffer buffer = ByteBuffer.allocate(KEY_SIZE);
+		buffer.putLong(key.getSwitchId().getLong());
+		buffer.putInt(key.getPort().getPortNumber());
+		buffer.put(key.getSrcMac().getBytes());
+		buffer.putInt(key.getGroup().getInt());
+		return buffer.array();
+	}
+
+	static MembershipKey decode(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		DatapathId switchId = DatapathId.of(buffer.getLong());
+		OFPort port = OFPort.of(buffer.getInt());
+		byte[] mac = new byte[6];
+		buffer.get(mac);
+		return new MembershipKey(switchId, port, MacAddress.of(mac), IPv4Address.of(buffer.getInt()));
+	}
+
+}
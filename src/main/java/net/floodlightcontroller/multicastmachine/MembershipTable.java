@@ -0,0 +1,185 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import com.google.common.collect.AbstractIterator;
+
+/*
+ * Multi-key index over the host entries of one manager:
+ *  (switch, port, MAC, group) -> host entry
+ *  (switch, group)            -> port -> number of hosts behind the port
+ *  group                      -> host entries, sorted
+ *  group                      -> number of hosts, switch -> number of ports
+ * Lookups are O(1), the sorted indexes serve filtered pages in O(log n + page) and
+ * the counters serve per-group aggregates without walking the hosts. Writers of one
+ * (switch, group) pair are serialised by the caller, readers never block.
+ */
+class MembershipTable {
+
+	static class GroupCounters {
+		volatile int members;
+		final Map<DatapathId, Integer> ports = new ConcurrentHashMap<>();
+	}
+
+	private final Map<MembershipKey, HostEntry> hosts = new ConcurrentHashMap<>();
+	private final NavigableMap<MembershipKey, HostEntry> ordered = new ConcurrentSkipListMap<>(MembershipKey.ORDER);
+	private final Map<MembershipKey, Map<OFPort, Integer>> ports = new ConcurrentHashMap<>();
+	private final Map<IPv4Address, NavigableMap<MembershipKey, HostEntry>> groups = new ConcurrentHashMap<>();
+	private final Map<IPv4Address, GroupCounters> counters = new ConcurrentHashMap<>();
+
+	public static MembershipKey switchGroupKey(DatapathId switchId, IPv4Address group) {
+		return new MembershipKey(switchId, null, null, group);
+	}
+
+	public HostEntry get(MembershipKey key) {
+		return hosts.get(key);
+	}
+
+	public boolean put(HostEntry entry) {
+		MembershipKey key = entry.getKey();
+		if(hosts.putIfAbsent(key, entry)!=null) {
+			return false;
+		}
+		ordered.put(key, entry);
+		Map<OFPort, Integer> portCounts = ports.compute(switchGroupKey(key.getSwitchId(), key.getGroup()),
+				(k, counts) -> {
+			Map<OFPort, Integer> merged = (counts==null) ? new ConcurrentHashMap<>() : counts;
+			merged.merge(key.getPort(), 1, Integer::sum);
+			return merged;
+		});
+		boolean newPort = portCounts.get(key.getPort())==1;
+		groups.compute(key.getGroup(), (k, members) -> {
+			NavigableMap<MembershipKey, HostEntry> hostsOfGroup =
+					(members==null) ? new ConcurrentSkipListMap<>(MembershipKey.ORDER) : members;
+			hostsOfGroup.put(key, entry);
+			return hostsOfGroup;
+		});
+		counters.compute(key.getGroup(), (k, c) -> {
+			GroupCounters groupCounters = (c==null) ? new GroupCounters() : c;
+			groupCounters.members++;
+			if(newPort) {
+				groupCounters.ports.merge(key.getSwitchId(), 1, Integer::sum);
+			}
+			return groupCounters;
+		});
+		return true;
+	}
+
+	public HostEntry remove(MembershipKey key) {
+		HostEntry entry = hosts.remove(key);
+		if(entry!=null) {
+			ordered.remove(key);
+			ports.computeIfPresent(switchGroupKey(key.getSwitchId(), key.getGroup()), (k, portCounts) -> {
+				portCounts.computeIfPresent(key.getPort(), (p, count) -> count>1 ? count-1 : null);
+				return portCounts.isEmpty() ? null : portCounts;
+			});
+			boolean lastOnPort = !containsPort(key.getSwitchId(), key.getGroup(), key.getPort());
+			groups.computeIfPresent(key.getGroup(), (k, members) -> {
+				members.remove(key);
+				return members.isEmpty() ? null : members;
+			});
+			counters.computeIfPresent(key.getGroup(), (k, groupCounters) -> {
+				groupCounters.members--;
+				if(lastOnPort) {
+					groupCounters.ports.computeIfPresent(key.getSwitchId(), (s, count) -> count>1 ? count-1 : null);
+				}
+				return groupCounters.members>0 ? groupCounters : null;
+			});
+		}
+		return entry;
+	}
+
+	public List<OFPort> getPorts(DatapathId switchId, IPv4Address group) {
+		Map<OFPort, Integer> portCounts = ports.get(switchGroupKey(switchId, group));
+		if(portCounts==null) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(portCounts.keySet());
+	}
+
+	public boolean containsPort(DatapathId switchId, IPv4Address group, OFPort port) {
+		Map<OFPort, Integer> portCounts = ports.get(switchGroupKey(switchId, group));
+		return portCounts!=null && portCounts.containsKey(port);
+	}
+
+	public Collection<HostEntry> getHostsByGroup(IPv4Address group) {
+		Map<MembershipKey, HostEntry> members = groups.get(group);
+		if(members==null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableCollection(members.values());
+	}
+
+	/*
+	 * Hosts in key order, starting after the given key; any filter may be null. The switch and
+	 * the port lead the order, so their range is entered directly and left at its end.
+	 */
+	public Iterator<HostEntry> query(IPv4Address group, DatapathId switchId, OFPort port, MembershipKey after) {
+		NavigableMap<MembershipKey, HostEntry> index = (group==null) ? ordered : groups.get(group);
+		if(index==null) {
+			return Collections.emptyIterator();
+		}
+		MembershipKey start = (switchId==null) ? null : new MembershipKey(switchId, port, null, null);
+		NavigableMap<MembershipKey, HostEntry> range;
+		if(after!=null && (start==null || MembershipKey.ORDER.compare(after, start)>=0)) {
+			range = index.tailMap(after, false);
+		} else {
+			range = (start==null) ? index : index.tailMap(start, true);
+		}
+		Iterator<HostEntry> iter = range.values().iterator();
+		return new AbstractIterator<HostEntry>() {
+			@Override
+			protected HostEntry computeNext() {
+				while(iter.hasNext()) {
+					HostEntry entry = iter.next();
+					MembershipKey key = entry.getKey();
+					if(switchId!=null && !switchId.equals(key.getSwitchId())) {
+						return endOfData();
+					}
+					if(port==null || port.equals(key.getPort())) {
+						return entry;
+					}
+					if(switchId!=null) {
+						return endOfData();
+					}
+				}
+				return endOfData();
+			}
+		};
+	}
+
+	public List<GroupSummary> getSummaries(IPv4Address group) {
+		List<GroupSummary> summaries = new ArrayList<>();
+		if(group!=null) {
+			GroupCounters groupCounters = counters.get(group);
+			if(groupCounters!=null) {
+				summaries.add(new GroupSummary(group, groupCounters.members, groupCounters.ports));
+			}
+			return summaries;
+		}
+		counters.forEach((g, groupCounters) ->
+				summaries.add(new GroupSummary(g, groupCounters.members, groupCounters.ports)));
+		return summaries;
+	}
+
+	public Collection<HostEntry> values() {
+		return Collections.unmodifiableCollection(hosts.values());
+	}
+
+	public int size() {
+		return hosts.size();
+	}
+
+}
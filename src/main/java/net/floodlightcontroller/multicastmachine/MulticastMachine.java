@@ -1,21 +1,30 @@
 package net.floodlightcontroller.multicastmachine;
 
-import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.StampedLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.protocol.OFFlowModFlags;
+import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
 import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFMeterFlags;
+import org.projectfloodlight.openflow.protocol.OFMeterModCommand;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
 import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.instruction.OFInstruction;
+import org.projectfloodlight.openflow.protocol.meterband.OFMeterBand;
 import org.projectfloodlight.openflow.protocol.match.Match;
 import org.projectfloodlight.openflow.protocol.match.MatchField;
 import org.projectfloodlight.openflow.types.DatapathId;
@@ -27,12 +36,23 @@ import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFBufferId;
 import org.projectfloodlight.openflow.types.OFPort;
 import org.projectfloodlight.openflow.types.U64;
+import org.sdnplatform.sync.ISyncService;
+import org.sdnplatform.sync.ISyncService.Scope;
+import org.sdnplatform.sync.error.SyncException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
 import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.HAListenerTypeMarker;
 import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IHAListener;
 import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IOFSwitchListener;
+import net.floodlightcontroller.core.PortChangeType;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
@@ -41,14 +61,27 @@ import net.floodlightcontroller.packet.Data;
 import net.floodlightcontroller.packet.Ethernet;
 import net.floodlightcontroller.packet.IPv4;
 import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.routing.IRoutingService;
+import net.floodlightcontroller.topology.ITopologyService;
 
-public class MulticastMachine implements IOFMessageListener, IFloodlightModule, IMulticastService {
+public class MulticastMachine implements IOFMessageListener, IOFSwitchListener, IFloodlightModule, IMulticastService {
 	
 	private static final int MAX_TRANSMITTER_AGE = 300;
 	private static final short FLOW_IDLE_TIMEOUT = 180;
 	private static final int QUERY_INTERVAL = 125;
 	private static final int MAX_RESPONSE_TIME = 10;
-	private static final int QUERY_FREQUENCY = 1;	
+	private static final int ROBUSTNESS = 2;
+	private static final int LAST_MEMBER_QUERY_COUNT = 2;
+	private static final int LAST_MEMBER_QUERY_INTERVAL = 1;
+	private static final int LOCK_STRIPES = 256;
+	private static final long FLOWMOD_WINDOW = 20;
+	private static final String GROUP_REPLICATION_STR = "groupReplication";
+	private static final String HOST_TRACKING_STR = "hostTracking";
+	private static final String FAST_LEAVE_STR = "fastLeave";
+	private static final String MEMBERSHIP_SYNC_STR = "membershipSync";
+	private static final String LISTENER_STORE = MulticastMachine.class.getName() + ".listeners";
+	private static final String TRANSMITTER_STORE = MulticastMachine.class.getName() + ".transmitters";
+	private static final long SYNC_BATCH_MILLIS = 200;
 	
 	private static final int APP_ID = 10;
 	private static final int APP_ID_BITS = 12;
@@ -57,24 +90,37 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 	
 	private static final short FLOWMOD_DEFAULT_IDLE_TIMEOUT = 0;
 	private static final short FLOWMOD_DEFAULT_HARD_TIMEOUT = 0;
-	private static final short DEF_IGMP_PRIOTITY = 10;
+	/* above every forwarding and drop flow, IGMP messages sent to a group are always punted */
+	static final short DEF_IGMP_PRIOTITY = FlowEntry.SOURCE_PRIORITY + 1;
 	private static final short DEF_MULTICAST_PRIORITY = 10;
+	private static final long PUNT_METER_ID = 1;
+	private static final long PUNT_RATE_PPS = 1000;
+	private static final long PUNT_BURST = 100;
 	
 	private final IPv4AddressWithMask MULTICAST_NET = IPv4AddressWithMask.of("224.0.0.0/4");
 	private final IPv4Address IGMP_LEAVE_DST = IPv4Address.of("224.0.0.2");
 	private final MacAddress ROUTER_MAC = MacAddress.of("00:50:56:AA:AA:AA");
 	private final IPv4Address ROUTER_IP = IPv4Address.of("10.0.0.254");
-	private final StampedLock confSwitchesLock = new StampedLock();
+	private final ThreadLocal<IgmpView> igmpViews = ThreadLocal.withInitial(IgmpView::new);
 	
 	private IRestApiService restApiService;
 	@SuppressWarnings("unused")
 	private IMulticastService multicastService;
 	private static Logger logger;
 	private IFloodlightProviderService floodlightProvider;	
+	private ITopologyService topologyService;
+	private IRoutingService routingService;
+	private IOFSwitchService switchService;
 	private HostManager transmitterManager;
-	private HostManager listenerManager;
+	private ListenerManager listenerManager;
 	private FlowManager flowManager;
-	private HashSet<DatapathId> configuredSwitches;
+	private MulticastTreeManager treeManager;
+	private Set<DatapathId> configuredSwitches;
+	private boolean hostTracking = true;
+	private boolean membershipSync = true;
+	private ISyncService syncService;
+	private MembershipStore listenerStore;
+	private MembershipStore transmitterStore;
 	
 	@Override
 	public String getName() {
@@ -111,6 +157,10 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 		Collection<Class<? extends IFloodlightService>> l = new ArrayList<Class<? extends IFloodlightService>>();
 		l.add(IFloodlightProviderService.class);
 		l.add(IRestApiService.class);
+		l.add(ITopologyService.class);
+		l.add(IRoutingService.class);
+		l.add(IOFSwitchService.class);
+		l.add(ISyncService.class);
 		return l;
 	}
 
@@ -120,16 +170,58 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 			floodlightProvider = context.getServiceImpl(IFloodlightProviderService.class);
 			restApiService = context.getServiceImpl(IRestApiService.class);
 			multicastService = context.getServiceImpl(IMulticastService.class);
+			topologyService = context.getServiceImpl(ITopologyService.class);
+			routingService = context.getServiceImpl(IRoutingService.class);
+			switchService = context.getServiceImpl(IOFSwitchService.class);
+			syncService = context.getServiceImpl(ISyncService.class);
 			
 		    logger = LoggerFactory.getLogger(MulticastMachine.class);
-		    flowManager = new FlowManager(FLOW_IDLE_TIMEOUT);
+		    boolean groupReplication = true;
+		    Map<String, String> config = context.getConfigParams(this);
+		    if(config.containsKey(GROUP_REPLICATION_STR)) {
+		    	try {
+		    		groupReplication = Boolean.parseBoolean(config.get(GROUP_REPLICATION_STR).trim());
+		    	} catch(Exception e) {
+		    		logger.error("Could not parse '{}'. Using default of {}", GROUP_REPLICATION_STR, groupReplication);
+		    	}
+		    }
+		    if(config.containsKey(HOST_TRACKING_STR)) {
+		    	try {
+		    		hostTracking = Boolean.parseBoolean(config.get(HOST_TRACKING_STR).trim());
+		    	} catch(Exception e) {
+		    		logger.error("Could not parse '{}'. Using default of {}", HOST_TRACKING_STR, hostTracking);
+		    	}
+		    }
+		    logger.info("IGMP listeners tracked per {}", hostTracking ? "host" : "port (proxy mode)");
+		    boolean fastLeave = false;
+		    if(config.containsKey(FAST_LEAVE_STR)) {
+		    	try {
+		    		fastLeave = Boolean.parseBoolean(config.get(FAST_LEAVE_STR).trim());
+		    	} catch(Exception e) {
+		    		logger.error("Could not parse '{}'. Using default of {}", FAST_LEAVE_STR, fastLeave);
+		    	}
+		    }
+		    if(config.containsKey(MEMBERSHIP_SYNC_STR)) {
+		    	try {
+		    		membershipSync = Boolean.parseBoolean(config.get(MEMBERSHIP_SYNC_STR).trim());
+		    	} catch(Exception e) {
+		    		logger.error("Could not parse '{}'. Using default of {}", MEMBERSHIP_SYNC_STR, membershipSync);
+		    	}
+		    }
+		    flowManager = new FlowManager(FLOW_IDLE_TIMEOUT, LOCK_STRIPES, FLOWMOD_WINDOW, groupReplication);
+		    StripedLock groupLocks = new StripedLock(LOCK_STRIPES);
 		    transmitterManager = new TransmitterManager(ROUTER_MAC, ROUTER_IP, 
-		    		MAX_TRANSMITTER_AGE, logger, flowManager);
+		    		MAX_TRANSMITTER_AGE, logger, flowManager, groupLocks);
 		    listenerManager = new ListenerManager(ROUTER_MAC, ROUTER_IP, QUERY_INTERVAL, MAX_RESPONSE_TIME, 
-		    		QUERY_FREQUENCY, logger, flowManager);
+		    		ROBUSTNESS, LAST_MEMBER_QUERY_COUNT, LAST_MEMBER_QUERY_INTERVAL, fastLeave, 
+		    		logger, flowManager, groupLocks);
 		    transmitterManager.registerOtherManager(listenerManager);
 		    listenerManager.registerOtherManager(transmitterManager);
-		    configuredSwitches = new HashSet<>();
+		    treeManager = new MulticastTreeManager(routingService, switchService, flowManager, logger);
+		    treeManager.registerManagers(listenerManager, transmitterManager);
+		    transmitterManager.registerTreeManager(treeManager);
+		    listenerManager.registerTreeManager(treeManager);
+		    configuredSwitches = ConcurrentHashMap.newKeySet();
 		    transmitterManager.startMachine();
 		    listenerManager.startMachine();
 		} catch(ExceptionBuffer | IllegalArgumentException exc) {
@@ -140,7 +232,89 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 	@Override
 	public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
 		floodlightProvider.addOFMessageListener(OFType.PACKET_IN, this);
+		floodlightProvider.addOFMessageListener(OFType.FLOW_REMOVED, this);
+		switchService.addOFSwitchListener(this);
 		restApiService.addRestletRoutable(new MulticastMachineWebRoutable());
+		topologyService.addListener(treeManager);
+		if(membershipSync) {
+			startMembershipSync();
+		}
+	}
+	
+	private void startMembershipSync() throws FloodlightModuleException {
+		try {
+			syncService.registerStore(LISTENER_STORE, Scope.LOCAL);
+			syncService.registerStore(TRANSMITTER_STORE, Scope.LOCAL);
+			listenerStore = new MembershipStore(syncService.getStoreClient(LISTENER_STORE, 
+					byte[].class, MembershipStore.Record.class), SYNC_BATCH_MILLIS, logger);
+			transmitterStore = new MembershipStore(syncService.getStoreClient(TRANSMITTER_STORE, 
+					byte[].class, MembershipStore.Record.class), SYNC_BATCH_MILLIS, logger);
+		} catch(SyncException e) {
+			throw new FloodlightModuleException("Error while setting up the membership stores", e);
+		}
+		listenerManager.setStore(listenerStore);
+		transmitterManager.setStore(transmitterStore);
+		listenerStore.start();
+		transmitterStore.start();
+		floodlightProvider.addHAListener(new HAListenerDelegate());
+	}
+	
+	/*
+	 * The memberships replicated by the former active controller are restored on the switches
+	 * connected to this one; the transmitters first, so every listener finds its flows.
+	 */
+	private void restoreMemberships(MembershipStore store, HostManager manager) {
+		int restored = store.restore((key, record) -> {
+			IOFSwitch sw = switchService.getSwitch(key.getSwitchId());
+			if(sw!=null) {
+				manager.restoreHost(sw, key.getPort(), key.getSrcMac(), IPv4Address.of(record.srcIp), 
+						key.getGroup(), record.asFilter());
+			}
+		});
+		logger.info("{} memberships read from the sync store", restored);
+	}
+	
+	protected class HAListenerDelegate implements IHAListener {
+		@Override
+		public void transitionToActive() {
+			restoreMemberships(transmitterStore, transmitterManager);
+			restoreMemberships(listenerStore, listenerManager);
+		}
+
+		@Override
+		public void transitionToStandby() {
+		}
+
+		@Override
+		public void controllerNodeIPsChanged(Map<String, String> curControllerNodeIPs,
+				Map<String, String> addedControllerNodeIPs, Map<String, String> removedControllerNodeIPs) {
+		}
+
+		@Override
+		public String getName() {
+			return MulticastMachine.this.getName();
+		}
+
+		@Override
+		public boolean isCallbackOrderingPrereq(HAListenerTypeMarker type, String name) {
+			return false;
+		}
+
+		@Override
+		public boolean isCallbackOrderingPostreq(HAListenerTypeMarker type, String name) {
+			return false;
+		}
+	}
+
+	/* stops the timers of the managers and the stores, e.g. when the module is torn down in a benchmark */
+	void stopMachines() {
+		listenerManager.stopMachine();
+		transmitterManager.stopMachine();
+		flowManager.stop();
+		if(listenerStore!=null) {
+			listenerStore.stop();
+			transmitterStore.stop();
+		}
 	}
 
 	@Override
@@ -148,15 +322,19 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 			FloodlightContext cntx) {
 		try {
 			scanSwitch(sw);
+			if(msg.getType()==OFType.FLOW_REMOVED) {
+				flowManager.flowRemoved(sw, (OFFlowRemoved) msg);
+				return Command.CONTINUE;
+			}
 			return processPacket(sw, msg, cntx);
-		} catch (UnknownHostException | IllegalArgumentException e) {
+		} catch (IllegalArgumentException e) {
 			logger.error(e.getMessage());
 			return Command.CONTINUE;
 		}		
 	}
 	
 	private net.floodlightcontroller.core.IListener.Command processPacket(IOFSwitch sw, OFMessage msg, 
-			FloodlightContext cntx) throws UnknownHostException, IllegalArgumentException {
+			FloodlightContext cntx) throws IllegalArgumentException {
 		if(msg.getType()==OFType.PACKET_IN) {
 			OFPacketIn msgCasted = (OFPacketIn) msg;
 			Ethernet eth = IFloodlightProviderService.bcStore.get(cntx, 
@@ -174,8 +352,11 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 					processIgmpMessage(sw, msgCasted, data, srcMac, srcIp, dstIp);
 					return Command.STOP;
 				} else if(dstIp.isMulticast()) {
-					boolean added = transmitterManager.addOrRefreshHost(sw, msgCasted.getMatch().get(MatchField.IN_PORT),
-							srcMac, srcIp, dstIp);
+					OFPort inPort = msgCasted.getMatch().get(MatchField.IN_PORT);
+					if(!topologyService.isAttachmentPointPort(sw.getId(), inPort)) {
+						return Command.STOP;
+					}
+					boolean added = transmitterManager.addOrRefreshHost(sw, inPort, srcMac, srcIp, dstIp);
 					return (added==true) ? Command.CONTINUE : Command.STOP;
 				}
 			}
@@ -184,37 +365,104 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 	}
 	
 	private void processIgmpMessage(IOFSwitch sw, OFPacketIn msg, Data data, MacAddress srcMac, 
-			IPv4Address srcIp, IPv4Address dstIp) throws UnknownHostException, IllegalArgumentException {		
-		 Igmpv2Parser igmpParser = new Igmpv2Parser(new FlexBytes(data.getData()));
-		 if(igmpParser.isValid() && igmpParser.testChecksum()) {
-			 if(igmpParser.getType()==Igmpv2Type.REPORT) {			 
-				 IPv4Address group = IPv4Address.of(igmpParser.getGroupAddress());
+			IPv4Address srcIp, IPv4Address dstIp) throws IllegalArgumentException {		
+		 IgmpView igmpView = igmpViews.get().wrap(data.getData());
+		 /* in the proxy mode all hosts behind one port share a single membership */
+		 MacAddress member = hostTracking ? srcMac : MacAddress.NONE;
+		 if(igmpView.isValid() && igmpView.testChecksum()) {
+			 if(igmpView.getType()==IgmpView.TYPE_V3_REPORT) {
+				 processIgmpv3Report(sw, msg.getMatch().get(MatchField.IN_PORT), igmpView, member, srcIp);
+				 return;
+			 }
+			 Igmpv2Type type = Igmpv2Type.parseType(igmpView.getType());
+			 if(type==Igmpv2Type.REPORT) {			 
+				 IPv4Address group = IPv4Address.of(igmpView.getGroupAddress());
 				 listenerManager.addOrRefreshHost(sw, msg.getMatch().get(MatchField.IN_PORT),
-						 srcMac, srcIp, group);
-			 } else if(igmpParser.getType()==Igmpv2Type.LEAVE 
+						 member, srcIp, group);
+			 } else if(type==Igmpv2Type.LEAVE 
 					 && dstIp.equals(IGMP_LEAVE_DST)) {
-				 IPv4Address group = IPv4Address.of(igmpParser.getGroupAddress());
-				 listenerManager.removeHost(sw, msg.getMatch().get(MatchField.IN_PORT),
-						 srcMac, group);
+				 IPv4Address group = IPv4Address.of(igmpView.getGroupAddress());
+				 listenerManager.leaveGroup(sw, msg.getMatch().get(MatchField.IN_PORT),
+						 member, group);
 			 }
 		 }
 	}
 	
-	private void scanSwitch(IOFSwitch sw) {
-		long stamp = confSwitchesLock.writeLock();
-		try {
-			DatapathId id = sw.getId();
-			if(!configuredSwitches.contains(id)) {
-				buildDefaultEntryIgmp(sw);
-				buildDefaultEntryMulticast(sw);
-				configuredSwitches.add(id);
+	private void processIgmpv3Report(IOFSwitch sw, OFPort inPort, IgmpView igmpView, MacAddress member, 
+			IPv4Address srcIp) throws IllegalArgumentException {
+		int record = igmpView.firstRecord();
+		for(int i=igmpView.getNumberOfRecords(); i>0; i--) {
+			IPv4Address group = IPv4Address.of(igmpView.getRecordGroup(record));
+			if(group.isMulticast()) {
+				List<IPv4Address> sources = new ArrayList<>(igmpView.getRecordSourceCount(record));
+				for(int j=0; j<igmpView.getRecordSourceCount(record); j++) {
+					sources.add(IPv4Address.of(igmpView.getRecordSource(record, j)));
+				}
+				listenerManager.updateSourceFilter(sw, inPort, member, srcIp, group, 
+						igmpView.getRecordType(record), sources);
 			}
-		} finally {
-			confSwitchesLock.unlock(stamp);
+			record = igmpView.nextRecord(record);
+		}
+	}
+	
+	/* fallback for a switch activated before the module; a lookup in a concurrent set only */
+	private void scanSwitch(IOFSwitch sw) {
+		if(!configuredSwitches.contains(sw.getId())) {
+			configureSwitch(sw);
+		}
+	}
+	
+	/*
+	 * Installs the default entries of an activated switch and resynchronises its multicast
+	 * flows, so a reconnected switch forwards the active groups again without waiting for
+	 * the hosts to be refreshed.
+	 */
+	private void configureSwitch(IOFSwitch sw) {
+		DatapathId id = sw.getId();
+		if(!configuredSwitches.add(id)) {
+			return;
+		}
+		long start = System.nanoTime();
+		List<OFMessage> defaultEntries = new ArrayList<OFMessage>();
+		defaultEntries.add(buildDefaultEntryIgmp(sw));
+		defaultEntries.addAll(buildDefaultEntryMulticast(sw));
+		transmitterManager.setSwitch(sw);
+		listenerManager.setSwitch(sw);
+		flowManager.resync(sw, defaultEntries).addListener(() -> logger.debug("Switch {} resynchronised in {} ms", 
+				id, TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start)), MoreExecutors.sameThreadExecutor());
+	}
+	
+	@Override
+	public void switchActivated(DatapathId switchId) {
+		IOFSwitch sw = switchService.getSwitch(switchId);
+		if(sw!=null) {
+			configureSwitch(sw);
 		}
 	}
 	
-	private void buildDefaultEntryIgmp(IOFSwitch sw) {
+	@Override
+	public void switchAdded(DatapathId switchId) {
+	}
+	
+	@Override
+	public void switchRemoved(DatapathId switchId) {
+		configuredSwitches.remove(switchId);
+	}
+	
+	@Override
+	public void switchDeactivated(DatapathId switchId) {
+		configuredSwitches.remove(switchId);
+	}
+	
+	@Override
+	public void switchPortChanged(DatapathId switchId, OFPortDesc port, PortChangeType type) {
+	}
+	
+	@Override
+	public void switchChanged(DatapathId switchId) {
+	}
+	
+	static OFMessage buildDefaultEntryIgmp(IOFSwitch sw) {
 		Set<OFFlowModFlags> sfmf = new HashSet<OFFlowModFlags>();
 		Match.Builder mb = sw.getOFFactory().buildMatch();
 		mb	//.setExact(MatchField.IN_PORT,OFPort.ALL)
@@ -237,10 +485,10 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 			.setOutPort(OFPort.CONTROLLER)
 			.setFlags(sfmf)
 			.setActions(al);
-		sw.write(fmb.build());	
+		return fmb.build();
 	}
 	
-	private void buildDefaultEntryMulticast(IOFSwitch sw) {
+	private List<OFMessage> buildDefaultEntryMulticast(IOFSwitch sw) {
 		Set<OFFlowModFlags> sfmf = new HashSet<OFFlowModFlags>();
 		Match.Builder mb = sw.getOFFactory().buildMatch();
 		mb	//.setExact(MatchField.IN_PORT,OFPort.ALL)
@@ -261,9 +509,50 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 			.setPriority(DEF_MULTICAST_PRIORITY)
 			.setBufferId(OFBufferId.NO_BUFFER)
 			.setOutPort(OFPort.CONTROLLER)
-			.setFlags(sfmf)
-			.setActions(al);
-		sw.write(fmb.build());
+			.setFlags(sfmf);
+		List<OFMessage> messages = new ArrayList<OFMessage>();
+		if(isMeterSupported(sw)) {
+			messages.add(sw.getOFFactory().buildMeterMod()
+					.setCommand(OFMeterModCommand.DELETE)
+					.setMeterId(PUNT_METER_ID)
+					.build());
+			messages.add(buildPuntMeter(sw));
+			List<OFInstruction> il = new ArrayList<OFInstruction>();
+			il.add(sw.getOFFactory().instructions().buildMeter().setMeterId(PUNT_METER_ID).build());
+			il.add(sw.getOFFactory().instructions().applyActions(al));
+			fmb.setInstructions(il);
+		} else {
+			fmb.setActions(al);
+		}
+		messages.add(fmb.build());
+		return messages;
+	}
+	
+	/* the meter instruction exists in OpenFlow 1.3 and 1.4 only */
+	private boolean isMeterSupported(IOFSwitch sw) {
+		OFVersion version = sw.getOFFactory().getVersion();
+		return version.compareTo(OFVersion.OF_13)>=0 && version.compareTo(OFVersion.OF_15)<0;
+	}
+	
+	/*
+	 * Bounds the multicast data punted by the switch before the flows or the negative cache
+	 * entries of the streams are installed; IGMP has its own entry and is never metered.
+	 */
+	private OFMessage buildPuntMeter(IOFSwitch sw) {
+		Set<OFMeterFlags> flags = new HashSet<OFMeterFlags>();
+		flags.add(OFMeterFlags.PKTPS);
+		flags.add(OFMeterFlags.BURST);
+		List<OFMeterBand> bands = new ArrayList<OFMeterBand>();
+		bands.add(sw.getOFFactory().meterBands().buildDrop()
+				.setRate(PUNT_RATE_PPS)
+				.setBurstSize(PUNT_BURST)
+				.build());
+		return sw.getOFFactory().buildMeterMod()
+				.setCommand(OFMeterModCommand.ADD)
+				.setMeterId(PUNT_METER_ID)
+				.setFlags(flags)
+				.setMeters(bands)
+				.build();
 	}
 
 	@Override
@@ -275,5 +564,42 @@ public class MulticastMachine implements IOFMessageListener, IFloodlightModule,
 	public Collection<HostEntry> listListeners() {
 		return listenerManager.getList();
 	}
+
+	@Override
+	public Iterator<HostEntry> queryTransmitters(IPv4Address group, DatapathId switchId, OFPort port, 
+			MembershipKey after) {
+		return transmitterManager.query(group, switchId, port, after);
+	}
+
+	@Override
+	public Iterator<HostEntry> queryListeners(IPv4Address group, DatapathId switchId, OFPort port, 
+			MembershipKey after) {
+		return listenerManager.query(group, switchId, port, after);
+	}
+
+	@Override
+	public List<GroupSummary> getTransmitterGroups(IPv4Address group) {
+		return transmitterManager.getGroupSummaries(group);
+	}
+
+	@Override
+	public List<GroupSummary> getListenerGroups(IPv4Address group) {
+		return listenerManager.getGroupSummaries(group);
+	}
+
+	@Override
+	public Map<String, Map<String, Long>> getStatistics() {
+		Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+		stats.put("listeners", listenerManager.getExpiryStatistics());
+		stats.put("leave_latency_ms", listenerManager.getLeaveLatency());
+		stats.put("transmitters", transmitterManager.getExpiryStatistics());
+		stats.put("flowmods", flowManager.getFlowModStatistics());
+		stats.put("trees", treeManager.getStatistics());
+		if(listenerStore!=null) {
+			stats.put("listener_sync", listenerStore.getStatistics());
+			stats.put("transmitter_sync", transmitterStore.getStatistics());
+		}
+		return stats;
+	}
 	
 }
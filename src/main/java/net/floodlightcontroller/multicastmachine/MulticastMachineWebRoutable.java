@@ -11,8 +11,10 @@ public class MulticastMachineWebRoutable implements RestletRoutable {
 	@Override
 	public Restlet getRestlet(Context context) {
 		Router router = new Router(context);
+		router.attach("/json/{role}/groups", GroupsResource.class);
 		router.attach("/json/transmitters", TransmittersResource.class);
 		router.attach("/json/listeners", ListenersResource.class);
+		router.attach("/json/statistics", StatisticsResource.class);
 		return router;
 	}
 
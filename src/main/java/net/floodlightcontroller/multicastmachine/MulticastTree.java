@@ -0,0 +1,141 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.routing.PathId;
+
+/*
+ * Distribution tree of one multicast group across switches. The tree is the union of the
+ * branches (shortest paths) from every source switch to every receiver switch. Each branch
+ * contributes one egress port on its source switch, one (in_port -> out_port) hop on every
+ * transit switch and one ingress port on its receiver switch; all of them are reference
+ * counted, so a branch is added or removed without touching the rest of the tree. Not
+ * thread-safe, guarded by the MulticastTreeManager.
+ */
+class MulticastTree {
+
+	private final IPv4Address group;
+	private final Set<DatapathId> sources = new HashSet<>();
+	private final Set<DatapathId> receivers = new HashSet<>();
+	private final Map<PathId, List<NodePortTuple>> branches = new HashMap<>();
+	private final Map<NodePortTuple, Integer> egress = new HashMap<>();
+	private final Map<NodePortTuple, Integer> ingress = new HashMap<>();
+	private final Map<NodePortTuple, Map<OFPort, Integer>> transit = new HashMap<>();
+	private boolean released = false;
+
+	public MulticastTree(IPv4Address group) {
+		this.group = group;
+	}
+
+	public IPv4Address getGroup() {
+		return group;
+	}
+
+	public Set<DatapathId> getSources() {
+		return sources;
+	}
+
+	public Set<DatapathId> getReceivers() {
+		return receivers;
+	}
+
+	public boolean isEmpty() {
+		return sources.isEmpty() && receivers.isEmpty();
+	}
+
+	/* an empty tree is released from the MulticastTreeManager and must not be used anymore */
+	public boolean isReleased() {
+		return released;
+	}
+
+	public void release() {
+		released = true;
+	}
+
+	public Map<PathId, List<NodePortTuple>> getBranches() {
+		return Collections.unmodifiableMap(branches);
+	}
+
+	public void putBranch(PathId id, List<NodePortTuple> path) {
+		branches.put(id, path);
+	}
+
+	public List<NodePortTuple> removeBranch(PathId id) {
+		return branches.remove(id);
+	}
+
+	public List<OFPort> getEgressPorts(DatapathId sw) {
+		return portsOf(egress, sw);
+	}
+
+	public List<OFPort> getIngressPorts(DatapathId sw) {
+		return portsOf(ingress, sw);
+	}
+
+	public boolean addEgress(NodePortTuple npt) {
+		return increment(egress, npt);
+	}
+
+	public boolean removeEgress(NodePortTuple npt) {
+		return decrement(egress, npt);
+	}
+
+	public boolean addIngress(NodePortTuple npt) {
+		return increment(ingress, npt);
+	}
+
+	public boolean removeIngress(NodePortTuple npt) {
+		return decrement(ingress, npt);
+	}
+
+	public boolean addTransit(NodePortTuple in, OFPort out) {
+		return increment(transit.computeIfAbsent(in, k -> new HashMap<>()), out);
+	}
+
+	public boolean removeTransit(NodePortTuple in, OFPort out) {
+		Map<OFPort, Integer> outs = transit.get(in);
+		if(outs==null) {
+			return false;
+		}
+		boolean removed = decrement(outs, out);
+		if(outs.isEmpty()) {
+			transit.remove(in);
+		}
+		return removed;
+	}
+
+	private static List<OFPort> portsOf(Map<NodePortTuple, Integer> counts, DatapathId sw) {
+		List<OFPort> ports = new ArrayList<>();
+		counts.keySet().forEach(npt -> {
+			if(npt.getNodeId().equals(sw)) {
+				ports.add(npt.getPortId());
+			}
+		});
+		return ports;
+	}
+
+	/* true if the key has been added to the tree */
+	private static <K> boolean increment(Map<K, Integer> counts, K key) {
+		return counts.merge(key, 1, Integer::sum)==1;
+	}
+
+	/* true if the key has left the tree */
+	private static <K> boolean decrement(Map<K, Integer> counts, K key) {
+		if(!counts.containsKey(key)) {
+			return false;
+		}
+		return counts.computeIfPresent(key, (k, count) -> count>1 ? count-1 : null)==null;
+	}
+
+}
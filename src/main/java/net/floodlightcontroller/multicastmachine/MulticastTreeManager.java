@@ -0,0 +1,297 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.slf4j.Logger;
+
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.ILinkDiscovery.LDUpdate;
+import net.floodlightcontroller.routing.IRoutingService;
+import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathId;
+import net.floodlightcontroller.topology.ITopologyListener;
+
+/*
+ * Builds the distribution trees of the multicast groups across switches. A switch joins the
+ * tree of a group as a source with its first transmitter and as a receiver with its first
+ * listener; only the branches between the joining switch and the opposite end are added.
+ * Branches are the shortest paths of IRoutingService and they are cached per (source switch,
+ * receiver switch), so all groups sharing a source switch reuse them. After a topology change
+ * only the branches crossing a removed link, port or switch are rerouted and the unreachable
+ * branches are retried.
+ * Lock order: HostManager stripe -> tree -> FlowManager stripe.
+ */
+public class MulticastTreeManager implements ITopologyListener {
+
+	private final ConcurrentHashMap<IPv4Address, MulticastTree> trees = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<PathId, List<NodePortTuple>> branchCache = new ConcurrentHashMap<>();
+	private final IRoutingService routingService;
+	private final IOFSwitchService switchService;
+	private final FlowManager flowManager;
+	private final Logger logger;
+	private HostManager listenerManager;
+	private HostManager transmitterManager;
+
+	public MulticastTreeManager(IRoutingService routingService, IOFSwitchService switchService,
+			FlowManager flowManager, Logger logger) {
+		this.routingService = routingService;
+		this.switchService = switchService;
+		this.flowManager = flowManager;
+		this.logger = logger;
+	}
+
+	public void registerManagers(HostManager listenerManager, HostManager transmitterManager) {
+		this.listenerManager = listenerManager;
+		this.transmitterManager = transmitterManager;
+	}
+
+	/* returns the egress ports of the tree on the source switch */
+	public List<OFPort> addSource(IOFSwitch sw, IPv4Address group) {
+		return withTree(group, tree -> {
+			if(tree.getSources().add(sw.getId())) {
+				new ArrayList<>(tree.getReceivers()).forEach(r -> addBranch(tree, sw.getId(), r));
+			}
+			return tree.getEgressPorts(sw.getId());
+		});
+	}
+
+	/* returns the ingress ports of the tree on the receiver switch */
+	public List<OFPort> addReceiver(IOFSwitch sw, IPv4Address group) {
+		return withTree(group, tree -> {
+			if(tree.getReceivers().add(sw.getId())) {
+				new ArrayList<>(tree.getSources()).forEach(s -> addBranch(tree, s, sw.getId()));
+			}
+			return tree.getIngressPorts(sw.getId());
+		});
+	}
+
+	public List<OFPort> getEgressPorts(IOFSwitch sw, IPv4Address group) {
+		MulticastTree tree = trees.get(group);
+		if(tree==null) {
+			return new ArrayList<>();
+		}
+		synchronized(tree) {
+			return tree.getEgressPorts(sw.getId());
+		}
+	}
+
+	public List<OFPort> getIngressPorts(IOFSwitch sw, IPv4Address group) {
+		MulticastTree tree = trees.get(group);
+		if(tree==null) {
+			return new ArrayList<>();
+		}
+		synchronized(tree) {
+			return tree.getIngressPorts(sw.getId());
+		}
+	}
+
+	public void removeSource(IOFSwitch sw, IPv4Address group) {
+		MulticastTree tree = trees.get(group);
+		if(tree!=null) {
+			synchronized(tree) {
+				if(tree.getSources().remove(sw.getId())) {
+					tree.getReceivers().forEach(r -> removeBranch(tree, new PathId(sw.getId(), r)));
+				}
+				releaseIfEmpty(tree);
+			}
+		}
+	}
+
+	public void removeReceiver(IOFSwitch sw, IPv4Address group) {
+		MulticastTree tree = trees.get(group);
+		if(tree!=null) {
+			synchronized(tree) {
+				if(tree.getReceivers().remove(sw.getId())) {
+					tree.getSources().forEach(s -> removeBranch(tree, new PathId(s, sw.getId())));
+				}
+				releaseIfEmpty(tree);
+			}
+		}
+	}
+
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("trees", (long) trees.size());
+		stats.put("cached_branches", (long) branchCache.size());
+		return stats;
+	}
+
+	@Override
+	public void topologyChanged(List<LDUpdate> linkUpdates) {
+		Set<NodePortTuple> downPorts = new HashSet<>();
+		Set<DatapathId> downSwitches = new HashSet<>();
+		boolean grown = false;
+		for(LDUpdate update : linkUpdates) {
+			switch(update.getOperation()) {
+			case LINK_REMOVED:
+				downPorts.add(new NodePortTuple(update.getSrc(), update.getSrcPort()));
+				downPorts.add(new NodePortTuple(update.getDst(), update.getDstPort()));
+				break;
+			case PORT_DOWN:
+				downPorts.add(new NodePortTuple(update.getSrc(), update.getSrcPort()));
+				break;
+			case SWITCH_REMOVED:
+				downSwitches.add(update.getSrc());
+				break;
+			case LINK_UPDATED:
+			case PORT_UP:
+			case SWITCH_UPDATED:
+				grown = true;
+				break;
+			default:
+				break;
+			}
+		}
+		final boolean retryUnreachable = grown;
+		branchCache.values().removeIf(path -> (retryUnreachable && path.isEmpty())
+				|| crosses(path, downPorts, downSwitches));
+		for(MulticastTree tree : trees.values()) {
+			synchronized(tree) {
+				List<PathId> stale = new ArrayList<>();
+				tree.getBranches().forEach((id, path) -> {
+					if((retryUnreachable && path.isEmpty()) || crosses(path, downPorts, downSwitches)) {
+						stale.add(id);
+					}
+				});
+				for(PathId id : stale) {
+					removeBranch(tree, id);
+					addBranch(tree, id.getSrc(), id.getDst());
+				}
+			}
+		}
+	}
+
+	private <T> T withTree(IPv4Address group, Function<MulticastTree, T> action) {
+		while(true) {
+			MulticastTree tree = trees.computeIfAbsent(group, MulticastTree::new);
+			synchronized(tree) {
+				if(!tree.isReleased()) {
+					return action.apply(tree);
+				}
+			}
+		}
+	}
+
+	private void releaseIfEmpty(MulticastTree tree) {
+		if(tree.isEmpty()) {
+			tree.release();
+			trees.remove(tree.getGroup(), tree);
+		}
+	}
+
+	private static boolean crosses(List<NodePortTuple> path, Set<NodePortTuple> downPorts,
+			Set<DatapathId> downSwitches) {
+		for(NodePortTuple npt : path) {
+			if(downPorts.contains(npt) || downSwitches.contains(npt.getNodeId())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private List<NodePortTuple> getBranchPath(DatapathId src, DatapathId dst) {
+		return branchCache.computeIfAbsent(new PathId(src, dst), id -> {
+			Path path = routingService.getPath(src, dst);
+			return (path==null || path.getPath()==null) ? Collections.emptyList()
+					: Collections.unmodifiableList(new ArrayList<>(path.getPath()));
+		});
+	}
+
+	/*
+	 * path: (src, out) (transit, in) (transit, out) ... (dst, in); an empty path means the
+	 * receiver switch is unreachable at the moment
+	 */
+	private void addBranch(MulticastTree tree, DatapathId src, DatapathId dst) {
+		if(src.equals(dst)) {
+			return;
+		}
+		PathId id = new PathId(src, dst);
+		List<NodePortTuple> path = getBranchPath(src, dst);
+		tree.putBranch(id, path);
+		if(path.isEmpty()) {
+			logger.debug("No path from {} to {} for group {}", new Object[] {src, dst, tree.getGroup()});
+			return;
+		}
+		IPv4Address group = tree.getGroup();
+		NodePortTuple out = path.get(0);
+		if(tree.addEgress(out)) {
+			IOFSwitch sw = switchService.getSwitch(src);
+			if(sw!=null) {
+				transmitterManager.getPortsForMulticastGroup(sw, group)
+					.forEach(t -> flowManager.addFlow(sw, t, out.getPortId(), group));
+				listenerManager.updateSourceFlows(sw, group);
+			}
+		}
+		for(int i=1; i<path.size()-1; i+=2) {
+			NodePortTuple in = path.get(i);
+			OFPort next = path.get(i+1).getPortId();
+			if(tree.addTransit(in, next)) {
+				IOFSwitch sw = switchService.getSwitch(in.getNodeId());
+				if(sw!=null) {
+					flowManager.addTreeFlow(sw, in.getPortId(), next, group);
+					listenerManager.updateSourceFlows(sw, group);
+				}
+			}
+		}
+		NodePortTuple in = path.get(path.size()-1);
+		if(tree.addIngress(in)) {
+			IOFSwitch sw = switchService.getSwitch(dst);
+			if(sw!=null) {
+				listenerManager.getPortsForMulticastGroup(sw, group)
+					.forEach(l -> flowManager.addTreeFlow(sw, in.getPortId(), l, group));
+				listenerManager.updateSourceFlows(sw, group);
+			}
+		}
+	}
+
+	private void removeBranch(MulticastTree tree, PathId id) {
+		List<NodePortTuple> path = tree.removeBranch(id);
+		if(path==null || path.isEmpty()) {
+			return;
+		}
+		IPv4Address group = tree.getGroup();
+		NodePortTuple out = path.get(0);
+		if(tree.removeEgress(out)) {
+			IOFSwitch sw = switchService.getSwitch(out.getNodeId());
+			if(sw!=null) {
+				transmitterManager.getPortsForMulticastGroup(sw, group)
+					.forEach(t -> flowManager.removeFlow(sw, t, out.getPortId(), group));
+				listenerManager.updateSourceFlows(sw, group);
+			}
+		}
+		for(int i=1; i<path.size()-1; i+=2) {
+			NodePortTuple in = path.get(i);
+			OFPort next = path.get(i+1).getPortId();
+			if(tree.removeTransit(in, next)) {
+				IOFSwitch sw = switchService.getSwitch(in.getNodeId());
+				if(sw!=null) {
+					flowManager.removeFlow(sw, in.getPortId(), next, group);
+					listenerManager.updateSourceFlows(sw, group);
+				}
+			}
+		}
+		NodePortTuple in = path.get(path.size()-1);
+		if(tree.removeIngress(in)) {
+			IOFSwitch sw = switchService.getSwitch(in.getNodeId());
+			if(sw!=null) {
+				listenerManager.getPortsForMulticastGroup(sw, group)
+					.forEach(l -> flowManager.removeFlow(sw, in.getPortId(), l, group));
+				listenerManager.updateSourceFlows(sw, group);
+			}
+		}
+	}
+
+}
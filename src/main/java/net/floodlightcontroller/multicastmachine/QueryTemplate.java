@@ -0,0 +1,136 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.MacAddress;
+
+import net.floodlightcontroller.packet.Data;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.packet.IPv4;
+
+/*
+ * Pre-serialized Ethernet/IPv4/IGMPv2 queries. The frame is built once with an empty group
+ * and, for the general query and every group-specific query, only the destination MAC, the
+ * destination IP, the group field and both checksums are patched. The checksums are
+ * completed from partial sums of the group independent words, so a frame of a new group
+ * costs one copy of the base frame. Frames are cached per group and must not be modified
+ * by the callers.
+ */
+public class QueryTemplate {
+
+	private static final byte QUERY_TTL = 1;
+	private static final int ALL_SYSTEMS = IPv4Address.of("224.0.0.1").getInt();
+	private static final int IP_OFFSET = 14;
+	private static final int IP_HEADER_SIZE = 20;
+	private static final int IP_CHECKSUM = IP_OFFSET+10;
+	private static final int IP_DST = IP_OFFSET+16;
+	private static final int IGMP_OFFSET = IP_OFFSET+IP_HEADER_SIZE;
+	private static final int IGMP_SIZE = 8;
+	private static final int IGMP_CHECKSUM = IGMP_OFFSET+2;
+	private static final int IGMP_GROUP = IGMP_OFFSET+4;
+
+	private final ConcurrentHashMap<IPv4Address, byte[]> frames = new ConcurrentHashMap<>();
+	private final byte[] base;
+	private final byte[] generalQuery;
+	private final int ipPartialSum;
+	private final int igmpPartialSum;
+
+	public QueryTemplate(MacAddress routerMac, IPv4Address routerIp, int maxResponseTime)
+			throws ExceptionBuffer {
+		Igmpv2Builder igmpBuilder = new Igmpv2Builder(
+				Igmpv2Type.QUERY,
+				maxResponseTime,
+				IPv4Address.NONE.toInetAddress());
+		Data igmpStructure = new Data();
+		igmpStructure.setData(igmpBuilder.build().createByteArrayImage());
+
+		IPv4 l3 = new IPv4();
+		l3.setSourceAddress(routerIp);
+		l3.setDestinationAddress(IPv4Address.NONE);
+		l3.setTtl(QUERY_TTL);
+		l3.setProtocol(IpProtocol.IGMP);
+		l3.setPayload(igmpStructure);
+
+		Ethernet l2 = new Ethernet();
+		l2.setSourceMACAddress(routerMac);
+		l2.setDestinationMACAddress(MacAddress.NONE);
+		l2.setEtherType(EthType.IPv4);
+		l2.setPayload(l3);
+
+		base = l2.serialize();
+		ipPartialSum = partialSum(base, IP_OFFSET, IP_HEADER_SIZE, IP_CHECKSUM);
+		igmpPartialSum = partialSum(base, IGMP_OFFSET, IGMP_SIZE, IGMP_CHECKSUM);
+		generalQuery = buildFrame(ALL_SYSTEMS, 0);
+	}
+
+	/* general query to 224.0.0.1 with the group field 0.0.0.0 */
+	public byte[] getGeneralQueryFrame() {
+		return generalQuery;
+	}
+
+	public byte[] getFrame(IPv4Address group) {
+		return frames.computeIfAbsent(group, g -> buildFrame(g.getInt(), g.getInt()));
+	}
+
+	public void evict(IPv4Address group) {
+		frames.remove(group);
+	}
+
+	public int size() {
+		return frames.size();
+	}
+
+	private byte[] buildFrame(int destination, int groupField) {
+		byte[] frame = base.clone();
+		frame[0] = 0x01;
+		frame[1] = 0x00;
+		frame[2] = 0x5e;
+		frame[3] = (byte) ((destination >>> 16) & 0x7f);
+		frame[4] = (byte) (destination >>> 8);
+		frame[5] = (byte) destination;
+		putInt(frame, IP_DST, destination);
+		putInt(frame, IGMP_GROUP, groupField);
+		putShort(frame, IP_CHECKSUM, complement(ipPartialSum+wordSum(destination)));
+		putShort(frame, IGMP_CHECKSUM, complement(igmpPartialSum+wordSum(groupField)));
+		return frame;
+	}
+
+	private static int wordSum(int address) {
+		return (address >>> 16) + (address & 0xffff);
+	}
+
+	/* one's complement sum of the words which do not depend on the group */
+	private static int partialSum(byte[] frame, int offset, int length, int checksumIndex) {
+		int sum = 0;
+		for(int i=offset; i<offset+length; i+=2) {
+			if(i==checksumIndex || i==IP_DST || i==IP_DST+2 || i==IGMP_GROUP || i==IGMP_GROUP+2) {
+				continue;
+			}
+			sum += ((frame[i] & 0xff) << 8) | (frame[i+1] & 0xff);
+		}
+		return sum;
+	}
+
+	private static int complement(int sum) {
+		while((sum >>> 16)!=0) {
+			sum = (sum & 0xffff) + (sum >>> 16);
+		}
+		return ~sum & 0xffff;
+	}
+
+	private static void putShort(byte[] frame, int index, int value) {
+		frame[index] = (byte) (value >>> 8);
+		frame[index+1] = (byte) value;
+	}
+
+	private static void putInt(byte[] frame, int index, int value) {
+		frame[index] = (byte) (value >>> 24);
+		frame[index+1] = (byte) (value >>> 16);
+		frame[index+2] = (byte) (value >>> 8);
+		frame[index+3] = (byte) value;
+	}
+
+}
@@ -0,0 +1,17 @@
+package net.floodlightcontroller.multicastmachine;
+
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+public interface QueuedChange {
+
+	public IOFSwitch getSwitch();
+	public IPv4Address getGroup();
+	public MembershipKey getKey();
+	public boolean isInstalled();
+	public void setInstalled(boolean installed);
+	public OFMessage buildPendingMessage();
+	
+}
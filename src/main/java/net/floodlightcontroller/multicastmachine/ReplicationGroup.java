@@ -0,0 +1,152 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.projectfloodlight.openflow.protocol.OFBucket;
+import org.projectfloodlight.openflow.protocol.OFGroupType;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFGroup;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+/*
+ * OFPGT_ALL group entry replicating one multicast group on one switch. The flows of the
+ * group only point at the group entry, so a join or a leave changes a bucket of the group
+ * instead of rewriting the flows. The group id is the group address itself: all multicast
+ * addresses lie below OFPG_MAX and the id is unique per switch without any allocation.
+ */
+public class ReplicationGroup implements QueuedChange {
+
+	private final Map<OFPort, Integer> ports = new LinkedHashMap<>();
+	private IOFSwitch sw;
+	private IPv4Address group;
+	private boolean installed = false;
+	private boolean dirty = true;
+	
+	public ReplicationGroup(IOFSwitch sw, IPv4Address group) {
+		this.sw = sw;
+		this.group = group;
+	}
+	
+	public static boolean isSupported(IOFSwitch sw) {
+		return sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13)>=0;
+	}
+	
+	public OFGroup getGroupId() {
+		return OFGroup.of(group.getInt());
+	}
+	
+	public void addPort(OFPort port) {
+		if(ports.merge(port, 1, Integer::sum)==1) {
+			dirty = true;
+		}
+	}
+	
+	public void removePort(OFPort port) {
+		if(ports.containsKey(port) 
+				&& ports.computeIfPresent(port, (p, count) -> count>1 ? count-1 : null)==null) {
+			dirty = true;
+		}
+	}
+	
+	public boolean isAlive() {
+		return !ports.isEmpty();
+	}
+	
+	@Override
+	public IOFSwitch getSwitch() {
+		return sw;
+	}
+	
+	public void setSwitch(IOFSwitch sw) {
+		this.sw = sw;
+	}
+	
+	@Override
+	public IPv4Address getGroup() {
+		return group;
+	}
+	
+	@Override
+	public MembershipKey getKey() {
+		return MembershipTable.switchGroupKey(sw.getId(), group);
+	}
+	
+	@Override
+	public boolean isInstalled() {
+		return installed;
+	}
+	
+	@Override
+	public void setInstalled(boolean installed) {
+		this.installed = installed;
+	}
+	
+	@Override
+	public OFMessage buildPendingMessage() {
+		OFMessage groupMod = null;
+		if(isAlive()) {
+			if(!installed) {
+				groupMod = sw.getOFFactory().buildGroupAdd()
+						.setGroup(getGroupId())
+						.setGroupType(OFGroupType.ALL)
+						.setBuckets(buildBuckets())
+						.build();
+				installed = true;
+			} else if(dirty) {
+				groupMod = sw.getOFFactory().buildGroupModify()
+						.setGroup(getGroupId())
+						.setGroupType(OFGroupType.ALL)
+						.setBuckets(buildBuckets())
+						.build();
+			}
+		} else if(installed) {
+			groupMod = sw.getOFFactory().buildGroupDelete()
+					.setGroup(getGroupId())
+					.setGroupType(OFGroupType.ALL)
+					.build();
+			installed = false;
+		}
+		dirty = false;
+		return groupMod;
+	}
+	
+	/* full state of the group for a switch without it, null for a group being removed */
+	public OFMessage buildResyncMessage() {
+		if(!isAlive()) {
+			return null;
+		}
+		installed = true;
+		dirty = false;
+		return sw.getOFFactory().buildGroupAdd()
+				.setGroup(getGroupId())
+				.setGroupType(OFGroupType.ALL)
+				.setBuckets(buildBuckets())
+				.build();
+	}
+	
+	private List<OFBucket> buildBuckets() {
+		List<OFBucket> buckets = new ArrayList<>(ports.size());
+		ports.keySet().forEach(port -> {
+			List<OFAction> al = new ArrayList<OFAction>();
+			al.add(sw.getOFFactory()
+				.actions()
+				.buildOutput()
+				.setPort(port)
+				.setMaxLen(0xffFFffFF)
+				.build());
+			buckets.add(sw.getOFFactory().buildBucket()
+				.setActions(al)
+				.build());
+		});
+		return buckets;
+	}
+	
+}
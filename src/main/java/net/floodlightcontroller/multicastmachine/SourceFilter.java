@@ -0,0 +1,112 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+/*
+ * Immutable IGMPv3 source filter of one membership (RFC 3376, 3.2). INCLUDE accepts only the
+ * listed sources, EXCLUDE accepts all sources but the listed ones; an IGMPv2 membership is
+ * EXCLUDE {}. The group records of a v3 report are applied with apply().
+ */
+public class SourceFilter {
+
+	public enum Mode {
+		INCLUDE,
+		EXCLUDE
+	}
+
+	public static final SourceFilter ANY = new SourceFilter(Mode.EXCLUDE, Collections.emptySet());
+	public static final SourceFilter NONE = new SourceFilter(Mode.INCLUDE, Collections.emptySet());
+
+	private final Mode mode;
+	private final Set<IPv4Address> sources;
+
+	private SourceFilter(Mode mode, Set<IPv4Address> sources) {
+		this.mode = mode;
+		this.sources = sources;
+	}
+
+	public static SourceFilter of(Mode mode, Collection<IPv4Address> sources) {
+		if(sources.isEmpty()) {
+			return (mode==Mode.INCLUDE) ? NONE : ANY;
+		}
+		return new SourceFilter(mode, Collections.unmodifiableSet(new HashSet<>(sources)));
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public Set<IPv4Address> getSources() {
+		return sources;
+	}
+
+	/* accepts all sources, the filter of an any-source membership */
+	public boolean isAny() {
+		return mode==Mode.EXCLUDE && sources.isEmpty();
+	}
+
+	/* accepts no source, the membership has been left */
+	public boolean isNone() {
+		return mode==Mode.INCLUDE && sources.isEmpty();
+	}
+
+	public boolean accepts(IPv4Address source) {
+		return (mode==Mode.INCLUDE) == sources.contains(source);
+	}
+
+	public SourceFilter apply(int recordType, Collection<IPv4Address> recordSources) {
+		Set<IPv4Address> result = new HashSet<>(sources);
+		switch(recordType) {
+		case IgmpView.RECORD_MODE_IS_INCLUDE:
+		case IgmpView.RECORD_CHANGE_TO_INCLUDE:
+			return of(Mode.INCLUDE, recordSources);
+		case IgmpView.RECORD_MODE_IS_EXCLUDE:
+		case IgmpView.RECORD_CHANGE_TO_EXCLUDE:
+			return of(Mode.EXCLUDE, recordSources);
+		case IgmpView.RECORD_ALLOW_NEW_SOURCES:
+			if(mode==Mode.INCLUDE) {
+				result.addAll(recordSources);
+			} else {
+				result.removeAll(recordSources);
+			}
+			return of(mode, result);
+		case IgmpView.RECORD_BLOCK_OLD_SOURCES:
+			if(mode==Mode.INCLUDE) {
+				result.removeAll(recordSources);
+			} else {
+				result.addAll(recordSources);
+			}
+			return of(mode, result);
+		default:
+			return this;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * mode.hashCode() + sources.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SourceFilter other = (SourceFilter) obj;
+		return mode==other.mode && sources.equals(other.sources);
+	}
+
+	@Override
+	public String toString() {
+		return mode + " " + sources;
+	}
+
+}
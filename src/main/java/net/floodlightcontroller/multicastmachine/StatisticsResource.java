@@ -0,0 +1,22 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.Map;
+
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class StatisticsResource extends ServerResource {
+
+	protected static Logger log = LoggerFactory.getLogger(StatisticsResource.class);
+	
+	@Get("json")
+	public Map<String, Map<String, Long>> retrieve() {
+		IMulticastService service =
+                (IMulticastService)getContext().getAttributes().
+                    get(IMulticastService.class.getCanonicalName());
+		return service.getStatistics();
+	}
+	
+}
@@ -0,0 +1,44 @@
+package net.floodlightcontroller.multicastmachine;
+
+import java.util.concurrent.locks.StampedLock;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+/*
+ * Fixed set of locks shared by all (switch, group) pairs. Operations on unrelated
+ * groups or switches very likely end up on different stripes and run in parallel.
+ */
+class StripedLock {
+
+	private static final String WRONG_STRIPES = "The number of the lock stripes must be a positive integer.";
+
+	private final StampedLock[] stripes;
+	private final int mask;
+
+	public StripedLock(int concurrencyLevel) throws IllegalArgumentException {
+		if(concurrencyLevel<=0) {
+			throw new IllegalArgumentException("'" + concurrencyLevel + "': " + WRONG_STRIPES);
+		}
+		int size = Integer.highestOneBit(concurrencyLevel);
+		if(size<concurrencyLevel) {
+			size <<= 1;
+		}
+		stripes = new StampedLock[size];
+		for(int i=0; i<size; i++) {
+			stripes[i] = new StampedLock();
+		}
+		mask = size-1;
+	}
+
+	public StampedLock get(DatapathId switchId, IPv4Address group) {
+		int h = 31 * switchId.hashCode() + group.hashCode();
+		h ^= (h >>> 16);
+		return stripes[h & mask];
+	}
+
+	public int size() {
+		return stripes.length;
+	}
+
+}
@@ -1,8 +1,8 @@
 package net.floodlightcontroller.multicastmachine;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFPort;
@@ -16,8 +16,8 @@ public class TransmitterManager extends HostManagerTemplate {
 	private int maxAge;
 	
 	public TransmitterManager(MacAddress routerMac, IPv4Address routerIp, int maxAge, Logger logger, 
-			FlowManager flowManager) throws IllegalArgumentException {
-		super(routerMac, routerIp, logger, flowManager);
+			FlowManager flowManager, StripedLock locks) throws IllegalArgumentException {
+		super(routerMac, routerIp, logger, flowManager, locks);
 		setMaxIdleTime(maxAge);
 	}
 	
@@ -30,53 +30,87 @@ public class TransmitterManager extends HostManagerTemplate {
 	}
 	
 	@Override
-	public void startMachine() {
-		executor.scheduleAtFixedRate(() -> {
-			long stamp = lock.writeLock();
-			try {
-				HashSet<HostEntry> forRemoval = new HashSet<>();
-				list.forEach(transmitter -> {
-					int actualAge = transmitter.incrementAndGet();
-					if(actualAge==maxAge) {						
-						forRemoval.add(transmitter);
-						IOFSwitch sw = transmitter.getQueryEntry().getSwitch();
-						IPv4Address group = transmitter.getQueryEntry().getGroupAddress();
-						manageFlowTableRemove(sw, null, group);
-					}
-				});
-				list.removeAll(forRemoval);
-			} finally {
-				lock.unlock(stamp);
-			}			
-		}, SCHEDULED_START, DELAY, TimeUnit.SECONDS);
+	protected long firstDeadline(HostEntry transmitter) {
+		return wheel.tickOf(transmitter.getRefreshTime())+maxAge;
 	}
 	
+	@Override
+	protected long expire(HostEntry transmitter, long tick) {
+		if(!isStored(transmitter)) {
+			return ExpiryWheel.NONE;
+		}
+		long refreshTime = transmitter.getRefreshTime();
+		long age = ageOf(refreshTime, tick);
+		if(age<maxAge) {
+			return tick+maxAge-age;
+		}
+		if(!transmitter.expire(refreshTime)) {
+			return tick+maxAge;
+		}
+		table.remove(transmitter.getKey());
+		onRemoved(transmitter);
+		IOFSwitch sw = transmitter.getQueryEntry().getSwitch();
+		IPv4Address group = transmitter.getQueryEntry().getGroupAddress();
+		manageFlowTableRemove(sw, transmitter.getKey().getPort(), group);
+		return ExpiryWheel.NONE;
+	}
+	
+	/*
+	 * A data packet of a known transmitter is punted only until its flow or its negative cache
+	 * entry reaches the switch, and once per DropFlow.HARD_TIMEOUT afterwards; such a punt
+	 * just refreshes the transmitter without the stripe write lock. The flow is looked up
+	 * with an optimistic read of the stripe, since the index is written under its write lock;
+	 * a flow which timed out on the switch is not installed, so its punt takes the slow path,
+	 * which writes it again.
+	 */
 	@Override
 	public boolean addOrRefreshHost(IOFSwitch sw, OFPort port, MacAddress srcMac, 
 			IPv4Address srcIp, IPv4Address group) {
+		if(tryFastRefresh(new MembershipKey(sw.getId(), port, srcMac, group), srcIp)
+				&& (flowManager.isFlowInstalled(sw, port, group) 
+						|| flowManager.isDropCached(sw, port, group))) {
+			return false;
+		}
+		StampedLock lock = locks.get(sw.getId(), group);
 		long stamp = lock.writeLock();
 		try {
-			boolean addNewEntry = list.stream()
-					.allMatch(e -> !e.compareAndUpdateEntry(sw, port, srcMac, srcIp, group));
-			if(addNewEntry) {
-				list.add(new HostEntry(sw, port, srcMac, srcIp, group));
-			}			
+			boolean addNewEntry = refreshOrInsert(sw, port, srcMac, srcIp, group);
 			manageFlowTableAdd(sw, port, group);
 			return addNewEntry;
 		} finally {
-			lock.unlock(stamp);
+			lock.unlockWrite(stamp);
 		}
 	}
 	
 	@Override
 	public void manageFlowTableAdd(IOFSwitch sw, OFPort port, IPv4Address group) {
-		List<OFPort> listOfDstPorts = other.getPortsForMulticastGroup(sw, group);
-		listOfDstPorts.forEach(dstPort -> flowManager.addFlow(sw, port, dstPort, group));
+		/* copied, the ports of the tree are added to the local ones */
+		List<OFPort> listOfDstPorts = new ArrayList<OFPort>(other.getPortsForMulticastGroup(sw, group));
+		if(treeManager!=null) {
+			listOfDstPorts.addAll(treeManager.addSource(sw, group));
+		}
+		if(listOfDstPorts.isEmpty()) {
+			flowManager.addDropFlow(sw, port, group);
+		} else {
+			listOfDstPorts.forEach(dstPort -> flowManager.addFlow(sw, port, dstPort, group));
+		}
+		other.updateSourceFlows(sw, group);
 	}
 
 	@Override
 	public void manageFlowTableRemove(IOFSwitch sw, OFPort port, IPv4Address group) {
-		flowManager.removeAllFlows(sw, group);
+		if(!table.containsPort(sw.getId(), group, port)) {
+			flowManager.removeAllFlows(sw, port, group);
+		}
+		if(treeManager!=null && table.getPorts(sw.getId(), group).isEmpty()) {
+			treeManager.removeSource(sw, group);
+		}
+		other.updateSourceFlows(sw, group);
+	}
+	
+	/* the (S,G) flows follow the filters of the listeners */
+	@Override
+	public void updateSourceFlows(IOFSwitch sw, IPv4Address group) {
 	}
 	
 }
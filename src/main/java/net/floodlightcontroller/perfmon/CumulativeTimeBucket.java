@@ -19,46 +19,59 @@ package net.floodlightcontroller.perfmon;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.projectfloodlight.openflow.types.DatapathId;
+
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.util.LogHistogram;
 
+/**
+ * Packet-in processing times since the last reset: one histogram for the
+ * whole listener chain, one per listener and one per switch. The chain and
+ * the listeners are recorded per thread; a switch is served by a single
+ * I/O thread, so its histogram is not contended. Call computeAverages()
+ * before reading, it merges the per-thread histograms.
+ */
 @JsonSerialize(using=CumulativeTimeBucketJSONSerializer.class)
 public class CumulativeTimeBucket {
     private long startTime_ns; // First pkt time-stamp in this bucket
+    private final List<IOFMessageListener> listeners;
     private Map<Integer, OneComponentTime> compStats;
-    private long totalPktCnt;
-    private long totalProcTimeNs; // total processing time for one pkt in
-    private long sumSquaredProcTimeNs2;
-    private long maxTotalProcTimeNs;
-    private long minTotalProcTimeNs;
-    private long avgTotalProcTimeNs;
-    private long sigmaTotalProcTimeNs; // std. deviation
+    private final PerThreadHistogram totalProcTimes = new PerThreadHistogram();
+    private final Map<DatapathId, LogHistogram> switchProcTimes =
+            new ConcurrentHashMap<DatapathId, LogHistogram>();
+    private volatile LogHistogram snapshot = new LogHistogram();
 
     public long getStartTimeNs() {
         return startTime_ns;
     }
 
     public long getTotalPktCnt() {
-        return totalPktCnt;
+        return snapshot.getCount();
     }
     
     public long getAverageProcTimeNs() {
-        return avgTotalProcTimeNs;
+        return snapshot.getMean();
     }
 
     public long getMinTotalProcTimeNs() {
-        return minTotalProcTimeNs;
+        return snapshot.getMin();
     }
     
     public long getMaxTotalProcTimeNs() {
-        return maxTotalProcTimeNs;
+        return snapshot.getMax();
     }
     
     public long getTotalSigmaProcTimeNs() {
-        return sigmaTotalProcTimeNs;
+        return snapshot.getStdDev();
+    }
+
+    public long getTotalPercentileNs(double percentile) {
+        return snapshot.getPercentile(percentile);
     }
     
     public int getNumComps() {
@@ -69,7 +82,20 @@ public class CumulativeTimeBucket {
         return compStats.values();
     }
 
+    /**
+     * @return processing time summary of the whole chain per switch
+     */
+    public Map<String, Map<String, Long>> getSwitches() {
+        Map<String, Map<String, Long>> switches =
+                new TreeMap<String, Map<String, Long>>();
+        for (Map.Entry<DatapathId, LogHistogram> e : switchProcTimes.entrySet()) {
+            switches.put(e.getKey().toString(), e.getValue().getSummary());
+        }
+        return switches;
+    }
+
     public CumulativeTimeBucket(List<IOFMessageListener> listeners) {
+        this.listeners = listeners;
         compStats = new ConcurrentHashMap<Integer, OneComponentTime>(listeners.size());
         for (IOFMessageListener l : listeners) {
             OneComponentTime oct = new OneComponentTime(l);
@@ -78,8 +104,11 @@ public class CumulativeTimeBucket {
         startTime_ns = System.nanoTime();
     }
 
-    private void updateSquaredProcessingTime(long curTimeNs) {
-        sumSquaredProcTimeNs2 += (Math.pow(curTimeNs, 2));
+    /**
+     * @return true if the bucket was created for this listener chain
+     */
+    public boolean isBucketOf(List<IOFMessageListener> listeners) {
+        return this.listeners == listeners;
     }
     
     /**
@@ -87,52 +116,41 @@ public class CumulativeTimeBucket {
      */
     public void reset() {
         startTime_ns = System.nanoTime();
-        totalPktCnt = 0;
-        totalProcTimeNs = 0;
-        avgTotalProcTimeNs = 0;
-        sumSquaredProcTimeNs2 = 0;
-        maxTotalProcTimeNs = Long.MIN_VALUE;
-        minTotalProcTimeNs = Long.MAX_VALUE;
-        sigmaTotalProcTimeNs = 0;
+        totalProcTimes.reset();
+        switchProcTimes.clear();
+        snapshot = new LogHistogram();
         for (OneComponentTime oct : compStats.values()) {
             oct.resetAllCounters();
         }
     }
     
-    private void computeSigma() {
-        // Computes std. deviation from the sum of count numbers and from
-        // the sum of the squares of count numbers
-        double temp = totalProcTimeNs;
-        temp = Math.pow(temp, 2) / totalPktCnt;
-        temp = (sumSquaredProcTimeNs2 - temp) / totalPktCnt;
-        sigmaTotalProcTimeNs = (long) Math.sqrt(temp);
-    }
-    
     public void computeAverages() {
         // Must be called last to, needs latest info
-        computeSigma();
+        snapshot = totalProcTimes.snapshot();
         
         for (OneComponentTime oct : compStats.values()) {
-            oct.computeSigma();
+            oct.computeSnapshot();
         }
     }
     
     public void updatePerPacketCounters(long procTimeNs) {
-        totalPktCnt++;
-        totalProcTimeNs += procTimeNs;
-        avgTotalProcTimeNs = totalProcTimeNs / totalPktCnt;
-        updateSquaredProcessingTime(procTimeNs);
-        
-        if (procTimeNs > maxTotalProcTimeNs) {
-            maxTotalProcTimeNs = procTimeNs;
-        }
-        
-        if (procTimeNs < minTotalProcTimeNs) {
-            minTotalProcTimeNs = procTimeNs;
+        totalProcTimes.record(procTimeNs);
+    }
+
+    public void updatePerSwitchCounters(DatapathId switchId, long procTimeNs) {
+        LogHistogram histogram = switchProcTimes.get(switchId);
+        if (histogram == null) {
+            histogram = switchProcTimes.computeIfAbsent(switchId,
+                    id -> new LogHistogram());
         }
+        histogram.record(procTimeNs);
     }
     
     public void updateOneComponent(IOFMessageListener l, long procTimeNs) {
-        compStats.get(l.hashCode()).updatePerPacketCounters(procTimeNs);
+        OneComponentTime oct = compStats.get(l.hashCode());
+        // a listener added after the bucket was created is not tracked
+        if (oct != null) {
+            oct.updatePerPacketCounters(procTimeNs);
+        }
     }
-}
\ No newline at end of file
+}
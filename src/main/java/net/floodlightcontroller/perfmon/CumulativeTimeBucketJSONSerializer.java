@@ -45,11 +45,15 @@ public class CumulativeTimeBucketJSONSerializer
        jGen.writeNumberField("min", ctb.getMinTotalProcTimeNs());
        jGen.writeNumberField("max", ctb.getMaxTotalProcTimeNs());
        jGen.writeNumberField("std-dev", ctb.getTotalSigmaProcTimeNs());
+       jGen.writeNumberField("p50", ctb.getTotalPercentileNs(50));
+       jGen.writeNumberField("p99", ctb.getTotalPercentileNs(99));
+       jGen.writeNumberField("p999", ctb.getTotalPercentileNs(99.9));
        jGen.writeArrayFieldStart("modules");
        for (OneComponentTime oct : ctb.getModules()) {
            serializer.defaultSerializeValue(oct, jGen);
        }
        jGen.writeEndArray();
+       jGen.writeObjectField("switches", ctb.getSwitches());
        jGen.writeEndObject();
    }
 
@@ -19,6 +19,7 @@ package net.floodlightcontroller.perfmon;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.util.LogHistogram;
 
 /**
  * Holds OF message processing time information for one IFloodlightModule.
@@ -27,29 +28,18 @@ import net.floodlightcontroller.core.IOFMessageListener;
 public class OneComponentTime {
     private int compId; // hascode of IOFMessageListener
     private String compName;
-    private int pktCnt;
-    // all times in nanoseconds
-    private long totalProcTimeNs;
-    private long sumSquaredProcTimeNs2; // squared
-    private long maxProcTimeNs;
-    private long minProcTimeNs;
-    private long avgProcTimeNs;
-    private long sigmaProcTimeNs;  // std. deviation
+    private final PerThreadHistogram procTimes = new PerThreadHistogram();
+    // snapshot of all threads, taken by computeSnapshot(); times in nanoseconds
+    private volatile LogHistogram snapshot = new LogHistogram();
 
     public OneComponentTime(IOFMessageListener module) {
         compId = module.hashCode();
         compName = module.getClass().getCanonicalName();
-        resetAllCounters();
     }
     
     public void resetAllCounters() {
-        maxProcTimeNs = Long.MIN_VALUE;
-        minProcTimeNs = Long.MAX_VALUE;
-        pktCnt = 0;
-        totalProcTimeNs = 0;
-        sumSquaredProcTimeNs2 = 0;
-        avgProcTimeNs = 0;
-        sigmaProcTimeNs = 0;
+        procTimes.reset();
+        snapshot = new LogHistogram();
     }
     
     @JsonProperty("module-name")
@@ -58,88 +48,63 @@ public class OneComponentTime {
     }
 
     @JsonProperty("num-packets")
-    public int getPktCnt() {
-        return pktCnt;
+    public long getPktCnt() {
+        return snapshot.getCount();
     }
 
     @JsonProperty("total")
     public long getSumProcTimeNs() {
-        return totalProcTimeNs;
+        return snapshot.getSum();
     }
 
     @JsonProperty("max")
     public long getMaxProcTimeNs() {
-        return maxProcTimeNs;
+        return snapshot.getMax();
     }
 
     @JsonProperty("min")
     public long getMinProcTimeNs() {
-        return minProcTimeNs;
+        return snapshot.getMin();
     }
 
     @JsonProperty("average")
     public long getAvgProcTimeNs() {
-        return avgProcTimeNs;
+        return snapshot.getMean();
     }
 
     @JsonProperty("std-dev")
     public long getSigmaProcTimeNs() {
-        return sigmaProcTimeNs;
-    }
-    
-    @JsonProperty("average-squared")
-    public long getSumSquaredProcTimeNs() {
-        return sumSquaredProcTimeNs2;
+        return snapshot.getStdDev();
     }
 
-    // Methods used to update the counters
-    
-    private void increasePktCount() {
-        pktCnt++;
-    }
-    
-    private void updateTotalProcessingTime(long procTimeNs) {
-        totalProcTimeNs += procTimeNs;
-    }
-    
-    private void updateAvgProcessTime() {
-        avgProcTimeNs = totalProcTimeNs / pktCnt;
+    @JsonProperty("p50")
+    public long getP50ProcTimeNs() {
+        return snapshot.getPercentile(50);
     }
-    
-    private void updateSquaredProcessingTime(long procTimeNs) {
-        sumSquaredProcTimeNs2 += (Math.pow(procTimeNs, 2));
-    }
-    
-    private void calculateMinProcTime(long curTimeNs) {
-        if (curTimeNs < minProcTimeNs)
-            minProcTimeNs = curTimeNs;
+
+    @JsonProperty("p99")
+    public long getP99ProcTimeNs() {
+        return snapshot.getPercentile(99);
     }
-    
-    private void calculateMaxProcTime(long curTimeNs) {
-        if (curTimeNs > maxProcTimeNs)
-            maxProcTimeNs = curTimeNs;
+
+    @JsonProperty("p999")
+    public long getP999ProcTimeNs() {
+        return snapshot.getPercentile(99.9);
     }
-    
-    public void computeSigma() {
-        // Computes std. deviation from the sum of count numbers and from
-        // the sum of the squares of count numbers
-        double temp = totalProcTimeNs;
-        temp = Math.pow(temp, 2) / pktCnt;
-        temp = (sumSquaredProcTimeNs2 - temp) / pktCnt;
-        sigmaProcTimeNs = (long) Math.sqrt(temp);
+
+    /**
+     * Merges the histograms of all threads for the getters
+     */
+    public void computeSnapshot() {
+        snapshot = procTimes.snapshot();
     }
     
     public void updatePerPacketCounters(long procTimeNs) {
-        increasePktCount();
-        updateTotalProcessingTime(procTimeNs);
-        calculateMinProcTime(procTimeNs);
-        calculateMaxProcTime(procTimeNs);
-        updateAvgProcessTime();
-        updateSquaredProcessingTime(procTimeNs);
+        procTimes.record(procTimeNs);
     }
     
     @Override
     public int hashCode() {
         return compId;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+/**
+ *    Copyright 2013, Big Switch Networks, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License"); you may
+ *    not use this file except in compliance with the License. You may obtain
+ *    a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ **/
+
+package net.floodlightcontroller.perfmon;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.floodlightcontroller.util.LogHistogram;
+
+/**
+ * Latency histogram written by many threads: every thread records into a
+ * LogHistogram of its own, so the packet-in path never contends with other
+ * threads, and a reader merges the per-thread histograms into a snapshot.
+ */
+public class PerThreadHistogram {
+    private final Queue<LogHistogram> histograms =
+            new ConcurrentLinkedQueue<LogHistogram>();
+    private final ThreadLocal<LogHistogram> local =
+            ThreadLocal.withInitial(() -> {
+                LogHistogram histogram = new LogHistogram();
+                histograms.add(histogram);
+                return histogram;
+            });
+
+    public void record(long valueNs) {
+        local.get().record(valueNs);
+    }
+
+    /**
+     * @return a new histogram holding the values of all threads
+     */
+    public LogHistogram snapshot() {
+        LogHistogram merged = new LogHistogram();
+        for (LogHistogram histogram : histograms) {
+            merged.add(histogram);
+        }
+        return merged;
+    }
+
+    /**
+     * Resets the histogram of every thread; a value recorded at the same
+     * time may survive the reset.
+     */
+    public void reset() {
+        for (LogHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+}
@@ -82,11 +82,11 @@ public class PktInProcessingTime
     protected static  Logger  logger = 
         LoggerFactory.getLogger(PktInProcessingTime.class);
     
-    protected boolean isEnabled = false;
+    protected volatile boolean isEnabled = false;
     protected boolean isInited = false;
     // Maintains the time when the last packet was processed
     protected long lastPktTime_ns;
-    private CumulativeTimeBucket ctb = null;
+    private volatile CumulativeTimeBucket ctb = null;
 
     
     /***
@@ -99,7 +99,12 @@ public class PktInProcessingTime
     
     @Override
     public void bootstrap(List<IOFMessageListener> listeners) {
+        // called for every packet-in, the bucket is only replaced when the
+        // listener chain changes
+        CumulativeTimeBucket bucket = ctb;
+        if (bucket == null || !bucket.isBucketOf(listeners)) {
             ctb = new CumulativeTimeBucket(listeners);
+        }
     }
     
     @Override
@@ -110,7 +115,8 @@ public class PktInProcessingTime
     @Override
     public void setEnabled(boolean enabled) {
     	if(enabled){
-    		bootstrap(floodlightProvider.getListeners().get(OFType.PACKET_IN));
+    		// a new bucket: enabling starts a new measurement
+    		ctb = new CumulativeTimeBucket(floodlightProvider.getListeners().get(OFType.PACKET_IN));
     	}
         this.isEnabled = enabled;
         logger.debug("Setting module to " + isEnabled);
@@ -121,19 +127,30 @@ public class PktInProcessingTime
         return ctb;
     }
     
-    private long startTimePktNs;
-    private long startTimeCompNs;
+    // Start times of the packet-in and of the listener being called, per
+    // thread: all I/O threads process packet-ins at the same time
+    private final ThreadLocal<long[]> startTimesNs =
+            ThreadLocal.withInitial(() -> new long[2]);
+    private static final int PKT = 0;
+    private static final int COMP = 1;
+
     @Override
     public void recordStartTimeComp(IOFMessageListener listener) {
         if (isEnabled()) {
-            startTimeCompNs = System.nanoTime();
+            startTimesNs.get()[COMP] = System.nanoTime();
         }
     }
     
     @Override
     public void recordEndTimeComp(IOFMessageListener listener) {
         if (isEnabled()) {
-            long procTime = System.nanoTime() - startTimeCompNs;
+            long[] startTimes = startTimesNs.get();
+            // enabled while the listener was running
+            if (startTimes[COMP] == 0) {
+                return;
+            }
+            long procTime = System.nanoTime() - startTimes[COMP];
+            startTimes[COMP] = 0;
             ctb.updateOneComponent(listener, procTime);
         }
     }
@@ -141,15 +158,22 @@ public class PktInProcessingTime
     @Override
     public void recordStartTimePktIn() {
         if (isEnabled()) {
-            startTimePktNs = System.nanoTime();
+            startTimesNs.get()[PKT] = System.nanoTime();
         }
     }
     
     @Override
     public void recordEndTimePktIn(IOFSwitch sw, OFMessage m, FloodlightContext cntx) {
         if (isEnabled()) {
-            long procTimeNs = System.nanoTime() - startTimePktNs;
-            ctb.updatePerPacketCounters(procTimeNs);
+            long[] startTimes = startTimesNs.get();
+            if (startTimes[PKT] == 0) {
+                return;
+            }
+            long procTimeNs = System.nanoTime() - startTimes[PKT];
+            startTimes[PKT] = 0;
+            CumulativeTimeBucket bucket = ctb;
+            bucket.updatePerPacketCounters(procTimeNs);
+            bucket.updatePerSwitchCounters(sw.getId(), procTimeNs);
             
             if (ptWarningThresholdInNano > 0 && 
                     procTimeNs > ptWarningThresholdInNano) {
@@ -0,0 +1,238 @@
+package net.floodlightcontroller.statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * The port statistics samples of one switch port in a ring buffer of
+ * primitive longs: the time of each sample, the RX/TX byte counters and
+ * the RX/TX rates in bits per second since the previous sample. The oldest
+ * sample is overwritten once the buffer is full.
+ *
+ * A single collector thread records the samples of a port at a time, which
+ * allocates nothing. The queries may run on any thread; the rate and EWMA
+ * queries read under an optimistic stamp and only lock if a sample was
+ * recorded meanwhile. Rates over fewer than two samples are -1.
+ */
+public class BandwidthHistory {
+
+	public enum Direction {
+		RX, TX
+	}
+
+	private static final long BITS_PER_BYTE = 8;
+	private static final long MILLIS_PER_SEC = 1000;
+
+	private final StampedLock lock = new StampedLock();
+	private final long[] times;
+	private final long[] rxBytes;
+	private final long[] txBytes;
+	private final long[] rxRates;
+	private final long[] txRates;
+	private int next; /* index of the next sample */
+	private int count;
+	private long speed;
+
+	public BandwidthHistory(int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2 samples");
+		}
+		times = new long[capacity];
+		rxBytes = new long[capacity];
+		txBytes = new long[capacity];
+		rxRates = new long[capacity];
+		txRates = new long[capacity];
+	}
+
+	/**
+	 * Records a sample. The counters are unsigned; a counter below the
+	 * previous one means the switch reset it, so the rate counts from zero.
+	 * @param time in milliseconds
+	 * @param rx RX bytes counter
+	 * @param tx TX bytes counter
+	 * @param speed current speed of the port
+	 */
+	public void record(long time, long rx, long tx, long speed) {
+		long stamp = lock.writeLock();
+		try {
+			long rxRate = -1;
+			long txRate = -1;
+			if (count > 0) {
+				int last = index(0);
+				long elapsed = Math.max(time - times[last], 1);
+				rxRate = delta(rxBytes[last], rx) * BITS_PER_BYTE * MILLIS_PER_SEC / elapsed;
+				txRate = delta(txBytes[last], tx) * BITS_PER_BYTE * MILLIS_PER_SEC / elapsed;
+			}
+			times[next] = time;
+			rxBytes[next] = rx;
+			txBytes[next] = tx;
+			rxRates[next] = rxRate;
+			txRates[next] = txRate;
+			next = (next + 1) % times.length;
+			if (count < times.length) {
+				count++;
+			}
+			this.speed = speed;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private static long delta(long previous, long current) {
+		return Long.compareUnsigned(current, previous) >= 0 ? current - previous : current;
+	}
+
+	/* the i-th most recent sample, 0 being the latest */
+	private int index(int i) {
+		return (next - 1 - i + 2 * times.length) % times.length;
+	}
+
+	public int getCapacity() {
+		return times.length;
+	}
+
+	public int getCount() {
+		long stamp = lock.readLock();
+		try {
+			return count;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the latest sample as a SwitchPortBandwidth, or null if there
+	 * are fewer than two samples.
+	 */
+	public SwitchPortBandwidth getLatest(DatapathId d, OFPort p) {
+		long stamp = lock.readLock();
+		try {
+			if (count < 2) {
+				return null;
+			}
+			int last = index(0);
+			return SwitchPortBandwidth.of(d, p, speed,
+					rxRates[last], txRates[last], rxBytes[last], txBytes[last], times[last]);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Average rate in bits per second over the last windowMs: the counter
+	 * difference b/t the latest sample and the latest one at least windowMs
+	 * older, or the oldest one kept.
+	 */
+	public long getRate(Direction direction, long windowMs) {
+		long stamp = lock.tryOptimisticRead();
+		long rate = rate(direction, windowMs);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				rate = rate(direction, windowMs);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return rate;
+	}
+
+	private long rate(Direction direction, long windowMs) {
+		int n = count;
+		if (n < 2) {
+			return -1;
+		}
+		long[] bytes = (direction == Direction.RX) ? rxBytes : txBytes;
+		int last = index(0);
+		int first = index(n - 1);
+		for (int i = 1; i < n; i++) {
+			int j = index(i);
+			if (times[last] - times[j] >= windowMs) {
+				first = j;
+				break;
+			}
+		}
+		long elapsed = times[last] - times[first];
+		if (elapsed <= 0) {
+			return -1;
+		}
+		long total = 0;
+		for (int i = 0; index(i) != first && i < n - 1; i++) {
+			total += delta(bytes[index(i + 1)], bytes[index(i)]);
+		}
+		return total * BITS_PER_BYTE * MILLIS_PER_SEC / elapsed;
+	}
+
+	/**
+	 * Exponentially weighted moving average of the rate in bits per second
+	 * with a time constant of windowMs, over all samples kept. A sample which
+	 * follows the previous one by dt weighs 1 - exp(-dt / windowMs).
+	 */
+	public long getEwma(Direction direction, long windowMs) {
+		long stamp = lock.tryOptimisticRead();
+		long ewma = ewma(direction, windowMs);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				ewma = ewma(direction, windowMs);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return ewma;
+	}
+
+	private long ewma(Direction direction, long windowMs) {
+		int n = count;
+		if (n < 2 || windowMs <= 0) {
+			return -1;
+		}
+		long[] rates = (direction == Direction.RX) ? rxRates : txRates;
+		double ewma = rates[index(n - 2)];
+		for (int i = n - 3; i >= 0; i--) {
+			int j = index(i);
+			double dt = times[j] - times[index(i + 1)];
+			ewma += (1 - Math.exp(-dt / windowMs)) * (rates[j] - ewma);
+		}
+		return (long) ewma;
+	}
+
+	/**
+	 * Percentile (0 to 100, nearest rank) of the rates in bits per second
+	 * of the samples of the last windowMs. This copies the rates of the window.
+	 */
+	public long getPercentile(Direction direction, long windowMs, double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be in [0, 100]");
+		}
+		long[] window;
+		long stamp = lock.readLock();
+		try {
+			window = window(direction, windowMs);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		if (window.length == 0) {
+			return -1;
+		}
+		Arrays.sort(window);
+		int rank = (int) Math.ceil(percentile / 100 * window.length);
+		return window[Math.max(rank - 1, 0)];
+	}
+
+	private long[] window(Direction direction, long windowMs) {
+		long[] rates = (direction == Direction.RX) ? rxRates : txRates;
+		int n = 0;
+		while (n < count - 1 && times[index(0)] - times[index(n)] < windowMs) {
+			n++;
+		}
+		long[] window = new long[n];
+		for (int i = 0; i < n; i++) {
+			window[i] = rates[index(i)];
+		}
+		return window;
+	}
+}
@@ -0,0 +1,95 @@
+package net.floodlightcontroller.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * The BandwidthHistory of every polled port, by switch then port, so that
+ * recording a sample of a known port looks up the DatapathId and OFPort
+ * of the reply without allocating a key.
+ */
+public class BandwidthStore {
+	private final ConcurrentMap<DatapathId, ConcurrentMap<OFPort, BandwidthHistory>> histories;
+	private final int capacity;
+
+	/**
+	 * @param capacity samples kept per port
+	 */
+	public BandwidthStore(int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2 samples");
+		}
+		this.histories = new ConcurrentHashMap<DatapathId, ConcurrentMap<OFPort, BandwidthHistory>>();
+		this.capacity = capacity;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void record(DatapathId d, OFPort p, long time, long rx, long tx, long speed) {
+		ConcurrentMap<OFPort, BandwidthHistory> ports = histories.get(d);
+		if (ports == null) {
+			ports = new ConcurrentHashMap<OFPort, BandwidthHistory>();
+			ConcurrentMap<OFPort, BandwidthHistory> raced = histories.putIfAbsent(d, ports);
+			if (raced != null) {
+				ports = raced;
+			}
+		}
+		BandwidthHistory history = ports.get(p);
+		if (history == null) {
+			history = new BandwidthHistory(capacity);
+			BandwidthHistory raced = ports.putIfAbsent(p, history);
+			if (raced != null) {
+				history = raced;
+			}
+		}
+		history.record(time, rx, tx, speed);
+	}
+
+	public BandwidthHistory getHistory(DatapathId d, OFPort p) {
+		ConcurrentMap<OFPort, BandwidthHistory> ports = histories.get(d);
+		return (ports == null) ? null : ports.get(p);
+	}
+
+	public SwitchPortBandwidth getLatest(DatapathId d, OFPort p) {
+		BandwidthHistory history = getHistory(d, p);
+		return (history == null) ? null : history.getLatest(d, p);
+	}
+
+	/**
+	 * Returns the latest sample of every port with at least two samples
+	 */
+	public Map<NodePortTuple, SwitchPortBandwidth> getAllLatest() {
+		Map<NodePortTuple, SwitchPortBandwidth> all = new HashMap<NodePortTuple, SwitchPortBandwidth>();
+		for (Entry<DatapathId, ConcurrentMap<OFPort, BandwidthHistory>> s : histories.entrySet()) {
+			for (Entry<OFPort, BandwidthHistory> p : s.getValue().entrySet()) {
+				SwitchPortBandwidth spb = p.getValue().getLatest(s.getKey(), p.getKey());
+				if (spb != null) {
+					all.put(new NodePortTuple(s.getKey(), p.getKey()), spb);
+				}
+			}
+		}
+		return all;
+	}
+
+	/**
+	 * Removes the ports of the switches which are not in the set
+	 */
+	public void retainSwitches(Set<DatapathId> dpids) {
+		histories.keySet().retainAll(dpids);
+	}
+
+	public void clear() {
+		histories.clear();
+	}
+}
@@ -0,0 +1,125 @@
+package net.floodlightcontroller.statistics;
+
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.TableId;
+import org.projectfloodlight.openflow.types.U64;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import net.floodlightcontroller.statistics.web.FlowStatsDeltaSerializer;
+
+/**
+ * The counters of a flow at its latest poll and their increase since the
+ * previous poll. A flow first seen counts from its installation, so its
+ * delta is the counters themselves and its interval is its duration; it
+ * has no delta between two polls until the next one. The counters are
+ * unsigned.
+ */
+@JsonSerialize(using=FlowStatsDeltaSerializer.class)
+public class FlowStatsDelta {
+	private static final long BITS_PER_BYTE = 8;
+	private static final long MILLIS_PER_SEC = 1000;
+
+	private final DatapathId id;
+	private final TableId tableId;
+	private final int priority;
+	private final U64 cookie;
+	private final Match match;
+	private final long packetCount;
+	private final long byteCount;
+	private final long packetDelta;
+	private final long byteDelta;
+	private final long interval;
+	private final long duration;
+	private final long time;
+	private final boolean firstSeen;
+
+	FlowStatsDelta(DatapathId d, TableId tableId, int priority, U64 cookie, Match match,
+			long packetCount, long byteCount, long packetDelta, long byteDelta,
+			long interval, long duration, long time, boolean firstSeen) {
+		this.id = d;
+		this.tableId = tableId;
+		this.priority = priority;
+		this.cookie = cookie;
+		this.match = match;
+		this.packetCount = packetCount;
+		this.byteCount = byteCount;
+		this.packetDelta = packetDelta;
+		this.byteDelta = byteDelta;
+		this.interval = Math.max(interval, 1);
+		this.duration = duration;
+		this.time = time;
+		this.firstSeen = firstSeen;
+	}
+
+	public DatapathId getSwitchId() {
+		return id;
+	}
+
+	public TableId getTableId() {
+		return tableId;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public U64 getCookie() {
+		return cookie;
+	}
+
+	public Match getMatch() {
+		return match;
+	}
+
+	public long getPacketCount() {
+		return packetCount;
+	}
+
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	public long getPacketDelta() {
+		return packetDelta;
+	}
+
+	public long getByteDelta() {
+		return byteDelta;
+	}
+
+	/**
+	 * Milliseconds the deltas were counted over
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Milliseconds since the flow was installed
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	public long getUpdateTime() {
+		return time;
+	}
+
+	/**
+	 * Whether the flow was first seen, or reinstalled, at its latest poll:
+	 * its deltas are counted since its installation
+	 */
+	public boolean isFirstSeen() {
+		return firstSeen;
+	}
+
+	public long getPacketsPerSecond() {
+		return packetDelta * MILLIS_PER_SEC / interval;
+	}
+
+	public long getBitsPerSecond() {
+		return byteDelta * BITS_PER_BYTE * MILLIS_PER_SEC / interval;
+	}
+}
@@ -0,0 +1,287 @@
+package net.floodlightcontroller.statistics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.floodlightcontroller.core.util.AppCookie;
+
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
+import org.projectfloodlight.openflow.protocol.OFGroupStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFGroupStatsReply;
+import org.projectfloodlight.openflow.protocol.OFTableStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFTableStatsReply;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFGroup;
+import org.projectfloodlight.openflow.types.TableId;
+import org.projectfloodlight.openflow.types.U64;
+
+/**
+ * The latest FlowStatsDelta, TableStatsDelta and GroupStatsDelta of every
+ * polled switch. Only the latest poll is kept: it holds the counters the
+ * next poll's deltas are computed from. The replies are recorded one part
+ * at a time as they arrive; once all parts of a poll arrived, the flows and
+ * groups it did not report are removed.
+ */
+public class FlowStatsStore {
+	/* app ID of the polls of all flows */
+	public static final long ALL_APPS = -1;
+
+	private static final Comparator<FlowStatsDelta> BY_RATE = new Comparator<FlowStatsDelta>() {
+		@Override
+		public int compare(FlowStatsDelta a, FlowStatsDelta b) {
+			int c = Long.compare(a.getBitsPerSecond(), b.getBitsPerSecond());
+			return (c != 0) ? c : Long.compare(a.getByteDelta(), b.getByteDelta());
+		}
+	};
+
+	private final ConcurrentMap<DatapathId, ConcurrentMap<FlowKey, FlowStatsDelta>> flows;
+	private final ConcurrentMap<DatapathId, ConcurrentMap<TableId, TableStatsDelta>> tables;
+	private final ConcurrentMap<DatapathId, ConcurrentMap<OFGroup, GroupStatsDelta>> groups;
+
+	/* a flow is identified by its table, priority, cookie and match */
+	private static final class FlowKey {
+		private final TableId tableId;
+		private final int priority;
+		private final U64 cookie;
+		private final Match match;
+
+		FlowKey(OFFlowStatsEntry e) {
+			tableId = e.getTableId();
+			priority = e.getPriority();
+			cookie = e.getCookie();
+			match = e.getMatch();
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + tableId.hashCode();
+			result = prime * result + priority;
+			result = prime * result + cookie.hashCode();
+			result = prime * result + match.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof FlowKey))
+				return false;
+			FlowKey other = (FlowKey) obj;
+			return priority == other.priority && tableId.equals(other.tableId)
+					&& cookie.equals(other.cookie) && match.equals(other.match);
+		}
+	}
+
+	public FlowStatsStore() {
+		flows = new ConcurrentHashMap<DatapathId, ConcurrentMap<FlowKey, FlowStatsDelta>>();
+		tables = new ConcurrentHashMap<DatapathId, ConcurrentMap<TableId, TableStatsDelta>>();
+		groups = new ConcurrentHashMap<DatapathId, ConcurrentMap<OFGroup, GroupStatsDelta>>();
+	}
+
+	private static <K, V> ConcurrentMap<K, V> of(ConcurrentMap<DatapathId, ConcurrentMap<K, V>> all, DatapathId d) {
+		ConcurrentMap<K, V> m = all.get(d);
+		if (m == null) {
+			m = new ConcurrentHashMap<K, V>();
+			ConcurrentMap<K, V> raced = all.putIfAbsent(d, m);
+			if (raced != null) {
+				m = raced;
+			}
+		}
+		return m;
+	}
+
+	/* the increase of an unsigned counter, or -1 if it was reset */
+	private static long delta(long previous, long current) {
+		return Long.compareUnsigned(current, previous) >= 0 ? current - previous : -1;
+	}
+
+	private static boolean isOfApp(U64 cookie, long appId) {
+		return appId == ALL_APPS || AppCookie.extractApp(cookie) == appId;
+	}
+
+	/**
+	 * Records a part of the flow stats reply of a poll of the flows of an
+	 * app, or of ALL_APPS. Flows of other apps are skipped, since switches
+	 * before OpenFlow 1.1 do not filter by cookie.
+	 * @param time in milliseconds
+	 */
+	public void recordFlows(DatapathId d, OFFlowStatsReply reply, long appId, long time) {
+		ConcurrentMap<FlowKey, FlowStatsDelta> m = of(flows, d);
+		for (OFFlowStatsEntry e : reply.getEntries()) {
+			if (!isOfApp(e.getCookie(), appId)) {
+				continue;
+			}
+			FlowKey key = new FlowKey(e);
+			long packets = e.getPacketCount().getValue();
+			long bytes = e.getByteCount().getValue();
+			long duration = e.getDurationSec() * 1000 + e.getDurationNsec() / 1000000;
+			FlowStatsDelta previous = m.get(key);
+			long packetDelta = -1;
+			long byteDelta = -1;
+			if (previous != null && duration >= previous.getDuration()) {
+				packetDelta = delta(previous.getPacketCount(), packets);
+				byteDelta = delta(previous.getByteCount(), bytes);
+			}
+			if (packetDelta < 0 || byteDelta < 0) { /* new or reinstalled: counts since installation */
+				m.put(key, new FlowStatsDelta(d, key.tableId, key.priority, key.cookie, key.match,
+						packets, bytes, packets, bytes, duration, duration, time, true));
+			} else {
+				m.put(key, new FlowStatsDelta(d, key.tableId, key.priority, key.cookie, key.match,
+						packets, bytes, packetDelta, byteDelta, time - previous.getUpdateTime(), duration, time, false));
+			}
+		}
+	}
+
+	/**
+	 * Removes the flows of an app, or of ALL_APPS, last reported before
+	 * time: those which a complete poll sent at time did not report.
+	 */
+	public void removeFlowsBefore(DatapathId d, long appId, long time) {
+		ConcurrentMap<FlowKey, FlowStatsDelta> m = flows.get(d);
+		if (m == null) {
+			return;
+		}
+		Iterator<FlowStatsDelta> it = m.values().iterator();
+		while (it.hasNext()) {
+			FlowStatsDelta f = it.next();
+			if (f.getUpdateTime() < time && isOfApp(f.getCookie(), appId)) {
+				it.remove();
+			}
+		}
+	}
+
+	public void recordTables(DatapathId d, OFTableStatsReply reply, long time) {
+		ConcurrentMap<TableId, TableStatsDelta> m = of(tables, d);
+		for (OFTableStatsEntry e : reply.getEntries()) {
+			long lookups = e.getLookupCount().getValue();
+			long matches = e.getMatchedCount().getValue();
+			TableStatsDelta previous = m.get(e.getTableId());
+			long lookupDelta = -1;
+			long matchedDelta = -1;
+			long interval = -1;
+			if (previous != null) {
+				lookupDelta = delta(previous.getLookupCount(), lookups);
+				matchedDelta = delta(previous.getMatchedCount(), matches);
+				interval = time - previous.getUpdateTime();
+			}
+			m.put(e.getTableId(), new TableStatsDelta(d, e.getTableId(), e.getActiveCount(),
+					lookups, matches, lookupDelta, matchedDelta, interval, time));
+		}
+	}
+
+	public void recordGroups(DatapathId d, OFGroupStatsReply reply, long time) {
+		ConcurrentMap<OFGroup, GroupStatsDelta> m = of(groups, d);
+		for (OFGroupStatsEntry e : reply.getEntries()) {
+			long packets = e.getPacketCount().getValue();
+			long bytes = e.getByteCount().getValue();
+			GroupStatsDelta previous = m.get(e.getGroup());
+			long packetDelta = -1;
+			long byteDelta = -1;
+			long interval = -1;
+			if (previous != null) {
+				packetDelta = delta(previous.getPacketCount(), packets);
+				byteDelta = delta(previous.getByteCount(), bytes);
+				interval = time - previous.getUpdateTime();
+			}
+			m.put(e.getGroup(), new GroupStatsDelta(d, e.getGroup(), e.getRefCount(),
+					packets, bytes, packetDelta, byteDelta, interval, time));
+		}
+	}
+
+	/**
+	 * Removes the groups which a complete poll sent at time did not report
+	 */
+	public void removeGroupsBefore(DatapathId d, long time) {
+		ConcurrentMap<OFGroup, GroupStatsDelta> m = groups.get(d);
+		if (m == null) {
+			return;
+		}
+		Iterator<GroupStatsDelta> it = m.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().getUpdateTime() < time) {
+				it.remove();
+			}
+		}
+	}
+
+	public Collection<FlowStatsDelta> getFlows(DatapathId d) {
+		ConcurrentMap<FlowKey, FlowStatsDelta> m = flows.get(d);
+		return (m == null) ? Collections.<FlowStatsDelta>emptyList() : Collections.unmodifiableCollection(m.values());
+	}
+
+	public Collection<TableStatsDelta> getTables(DatapathId d) {
+		ConcurrentMap<TableId, TableStatsDelta> m = tables.get(d);
+		return (m == null) ? Collections.<TableStatsDelta>emptyList() : Collections.unmodifiableCollection(m.values());
+	}
+
+	public Collection<GroupStatsDelta> getGroups(DatapathId d) {
+		ConcurrentMap<OFGroup, GroupStatsDelta> m = groups.get(d);
+		return (m == null) ? Collections.<GroupStatsDelta>emptyList() : Collections.unmodifiableCollection(m.values());
+	}
+
+	/**
+	 * Returns the n flows of the highest rate in bits per second over
+	 * their latest delta, highest first, in a bounded heap. Flows first
+	 * seen at the latest poll are left out until they have a delta between
+	 * two polls: a flow installed just before the poll has a duration of
+	 * about 0 ms, over which its first packets would make it a heavy hitter.
+	 * @param d the switch, or null for all switches
+	 */
+	public List<FlowStatsDelta> getHeavyHitters(DatapathId d, int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Number of flows cannot be negative");
+		}
+		if (n == 0) {
+			return Collections.emptyList();
+		}
+		PriorityQueue<FlowStatsDelta> top = new PriorityQueue<FlowStatsDelta>(n + 1, BY_RATE);
+		Collection<ConcurrentMap<FlowKey, FlowStatsDelta>> switches = flows.values();
+		if (d != null) {
+			ConcurrentMap<FlowKey, FlowStatsDelta> m = flows.get(d);
+			switches = (m == null) ? Collections.<ConcurrentMap<FlowKey, FlowStatsDelta>>emptyList()
+					: Collections.singleton(m);
+		}
+		for (ConcurrentMap<FlowKey, FlowStatsDelta> m : switches) {
+			for (FlowStatsDelta f : m.values()) {
+				if (f.isFirstSeen()) {
+					continue;
+				}
+				top.add(f);
+				if (top.size() > n) {
+					top.poll();
+				}
+			}
+		}
+		List<FlowStatsDelta> list = new ArrayList<FlowStatsDelta>(top);
+		Collections.sort(list, Collections.reverseOrder(BY_RATE));
+		return list;
+	}
+
+	/**
+	 * Removes the flows, tables and groups of the switches which are not in the set
+	 */
+	public void retainSwitches(Set<DatapathId> dpids) {
+		flows.keySet().retainAll(dpids);
+		tables.keySet().retainAll(dpids);
+		groups.keySet().retainAll(dpids);
+	}
+
+	public void clear() {
+		flows.clear();
+		tables.clear();
+		groups.clear();
+	}
+}
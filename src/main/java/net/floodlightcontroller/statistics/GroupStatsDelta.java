@@ -0,0 +1,76 @@
+package net.floodlightcontroller.statistics;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFGroup;
+
+/**
+ * The counters of a group at its latest poll and their increase since the
+ * previous poll. A group first seen has no delta yet (-1). The counters
+ * are unsigned.
+ */
+public class GroupStatsDelta {
+	private final DatapathId id;
+	private final OFGroup group;
+	private final long refCount;
+	private final long packetCount;
+	private final long byteCount;
+	private final long packetDelta;
+	private final long byteDelta;
+	private final long interval;
+	private final long time;
+
+	GroupStatsDelta(DatapathId d, OFGroup group, long refCount, long packetCount, long byteCount,
+			long packetDelta, long byteDelta, long interval, long time) {
+		this.id = d;
+		this.group = group;
+		this.refCount = refCount;
+		this.packetCount = packetCount;
+		this.byteCount = byteCount;
+		this.packetDelta = packetDelta;
+		this.byteDelta = byteDelta;
+		this.interval = interval;
+		this.time = time;
+	}
+
+	public DatapathId getSwitchId() {
+		return id;
+	}
+
+	public OFGroup getGroup() {
+		return group;
+	}
+
+	/**
+	 * Flows and groups which forward to the group
+	 */
+	public long getRefCount() {
+		return refCount;
+	}
+
+	public long getPacketCount() {
+		return packetCount;
+	}
+
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	public long getPacketDelta() {
+		return packetDelta;
+	}
+
+	public long getByteDelta() {
+		return byteDelta;
+	}
+
+	/**
+	 * Milliseconds the deltas were counted over, or -1
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	public long getUpdateTime() {
+		return time;
+	}
+}
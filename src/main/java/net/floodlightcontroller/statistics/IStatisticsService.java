@@ -5,6 +5,8 @@ import net.floodlightcontroller.core.types.NodePortTuple;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.OFPort;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 public interface IStatisticsService extends IFloodlightService {
@@ -12,6 +14,25 @@ public interface IStatisticsService extends IFloodlightService {
 	public SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort p);
 		
 	public Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption();
+
+	/**
+	 * The sampled history of a port, for rate, EWMA and percentile
+	 * queries over time windows. Null if the port was never polled.
+	 */
+	public BandwidthHistory getBandwidthHistory(DatapathId dpid, OFPort p);
+
+	/**
+	 * The n flows of the highest rate over their latest poll, highest
+	 * first. Only the flows of the polled apps are collected.
+	 * @param dpid the switch, or null for all switches
+	 */
+	public List<FlowStatsDelta> getHeavyHitters(DatapathId dpid, int n);
+
+	public Collection<FlowStatsDelta> getFlowStats(DatapathId dpid);
+
+	public Collection<TableStatsDelta> getTableStats(DatapathId dpid);
+
+	public Collection<GroupStatsDelta> getGroupStats(DatapathId dpid);
 	
 	public void collectStatistics(boolean collect);
 }
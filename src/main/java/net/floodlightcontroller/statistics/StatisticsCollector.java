@@ -1,6 +1,8 @@
 package net.floodlightcontroller.statistics;
 
 import com.google.common.primitives.UnsignedLong;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
@@ -9,6 +11,7 @@ import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.core.util.AppCookie;
 import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.statistics.web.SwitchStatisticsWebRoutable;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
@@ -18,15 +21,17 @@ import org.projectfloodlight.openflow.protocol.ver13.OFMeterSerializerVer13;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.OFPort;
 import org.projectfloodlight.openflow.types.TableId;
-import org.projectfloodlight.openflow.types.U64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.Thread.State;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class StatisticsCollector implements IFloodlightModule, IStatisticsService {
 	private static final Logger log = LoggerFactory.getLogger(StatisticsCollector.class);
@@ -35,19 +40,79 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	private static IThreadPoolService threadPoolService;
 	private static IRestApiService restApiService;
 
-	private static boolean isEnabled = false;
+	private static volatile boolean isEnabled = false;
 	
 	private static int portStatsInterval = 10; /* could be set by REST API, so not final */
+	private static int requestTimeout = -1; /* seconds; half the interval unless configured */
+	private static int maxPendingRequests = 64;
 	private static ScheduledFuture<?> portStatsCollector;
 
-	private static final long BITS_PER_BYTE = 8;
-	private static final long MILLIS_PER_SEC = 1000;
+	private static int bandwidthHistory = 3600; /* seconds of samples kept per port */
 	
 	private static final String INTERVAL_PORT_STATS_STR = "collectionIntervalPortStatsSeconds";
 	private static final String ENABLED_STR = "enable";
+	private static final String REQUEST_TIMEOUT_STR = "statsRequestTimeoutSeconds";
+	private static final String MAX_PENDING_REQUESTS_STR = "maxPendingStatsRequests";
+	private static final String BANDWIDTH_HISTORY_STR = "bandwidthHistorySeconds";
 
-	private static final HashMap<NodePortTuple, SwitchPortBandwidth> portStats = new HashMap<NodePortTuple, SwitchPortBandwidth>();
-	private static final HashMap<NodePortTuple, SwitchPortBandwidth> tentativePortStats = new HashMap<NodePortTuple, SwitchPortBandwidth>();
+	private static BandwidthStore bandwidthStore;
+
+	private static int flowStatsInterval = 0; /* seconds; flow, table and group stats are not collected if 0 */
+	private static long[] flowStatsApps = { FlowStatsStore.ALL_APPS }; /* AppCookie app IDs of the polled flows */
+	private static ScheduledFuture<?> flowStatsCollector;
+
+	private static final String INTERVAL_FLOW_STATS_STR = "collectionIntervalFlowStatsSeconds";
+	private static final String FLOW_STATS_APPS_STR = "flowStatsAppIds";
+
+	private static final FlowStatsStore flowStatsStore = new FlowStatsStore();
+
+	/*
+	 * Each switch is polled at its own random phase of the interval. At most
+	 * maxPendingRequests requests are outstanding; the polls due meanwhile
+	 * wait in order, once each, and a poll is never sent twice at a time.
+	 */
+	private static final Map<DatapathId, Long> phases = new ConcurrentHashMap<DatapathId, Long>();
+	private static final Queue<StatsPoll> waiting = new ConcurrentLinkedQueue<StatsPoll>();
+	private static final Set<StatsPoll> waitingOrPending = Collections.newSetFromMap(new ConcurrentHashMap<StatsPoll, Boolean>());
+	private static Semaphore pendingRequests;
+
+	/* A stats request of a switch: its type and, for flows, the app ID of the cookies */
+	private static final class StatsPoll {
+		private final DatapathId dpid;
+		private final OFStatsType type;
+		private final long appId;
+
+		private StatsPoll(DatapathId dpid, OFStatsType type, long appId) {
+			this.dpid = dpid;
+			this.type = type;
+			this.appId = appId;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + dpid.hashCode();
+			result = prime * result + type.hashCode();
+			result = prime * result + Long.hashCode(appId);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof StatsPoll))
+				return false;
+			StatsPoll other = (StatsPoll) obj;
+			return appId == other.appId && type == other.type && dpid.equals(other.dpid);
+		}
+
+		@Override
+		public String toString() {
+			return type.toString().toLowerCase() + " stats of switch " + dpid;
+		}
+	}
 
 	/**
 	 * Run periodically to collect all port statistics. This only collects
@@ -65,6 +130,10 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	 * for a single switch's reply. This must happen to compare the byte 
 	 * counts and to get an elapsed time.
 	 * 
+	 * Each run only schedules the request of every switch at the switch's
+	 * phase within the interval. The replies are handled by the callbacks
+	 * of the request futures, so no thread waits for a switch.
+	 * 
 	 * @author Ryan Izard, ryan.izard@bigswitch.com, rizard@g.clemson.edu
 	 *
 	 */
@@ -72,92 +141,200 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 
 		@Override
 		public void run() {
-			Map<DatapathId, List<OFStatsReply>> replies = getSwitchStatistics(switchService.getAllSwitchDpids(), OFStatsType.PORT);
-			for (Entry<DatapathId, List<OFStatsReply>> e : replies.entrySet()) {
-				for (OFStatsReply r : e.getValue()) {
-					OFPortStatsReply psr = (OFPortStatsReply) r;
-					for (OFPortStatsEntry pse : psr.getEntries()) {
-						NodePortTuple npt = new NodePortTuple(e.getKey(), pse.getPortNo());
-						SwitchPortBandwidth spb;
-						if (portStats.containsKey(npt) || tentativePortStats.containsKey(npt)) {
-							if (portStats.containsKey(npt)) { /* update */
-								spb = portStats.get(npt);
-							} else if (tentativePortStats.containsKey(npt)) { /* finish */
-								spb = tentativePortStats.get(npt);
-								tentativePortStats.remove(npt);
-							} else {
-								log.error("Inconsistent state between tentative and official port stats lists.");
-								return;
-							}
-
-							/* Get counted bytes over the elapsed period. Check for counter overflow. */
-							U64 rxBytesCounted;
-							U64 txBytesCounted;
-							if (spb.getPriorByteValueRx().compareTo(pse.getRxBytes()) > 0) { /* overflow */
-								U64 upper = U64.NO_MASK.subtract(spb.getPriorByteValueRx());
-								U64 lower = pse.getRxBytes();
-								rxBytesCounted = upper.add(lower);
-							} else {
-								rxBytesCounted = pse.getRxBytes().subtract(spb.getPriorByteValueRx());
-							}
-							if (spb.getPriorByteValueTx().compareTo(pse.getTxBytes()) > 0) { /* overflow */
-								U64 upper = U64.NO_MASK.subtract(spb.getPriorByteValueTx());
-								U64 lower = pse.getTxBytes();
-								txBytesCounted = upper.add(lower);
-							} else {
-								txBytesCounted = pse.getTxBytes().subtract(spb.getPriorByteValueTx());
-							}
-							IOFSwitch sw = switchService.getSwitch(npt.getNodeId());
-							long speed = 0;
-							if (sw != null) { /* could have disconnected; we'll assume zero-speed then */
-								speed = sw.getPort(npt.getPortId()).getCurrSpeed();
-							}
-							long timeDifSec = (System.currentTimeMillis() - spb.getUpdateTime()) / MILLIS_PER_SEC;
-							portStats.put(npt, SwitchPortBandwidth.of(npt.getNodeId(), npt.getPortId(), 
-									U64.ofRaw(speed),
-									U64.ofRaw((rxBytesCounted.getValue() * BITS_PER_BYTE) / timeDifSec), 
-									U64.ofRaw((txBytesCounted.getValue() * BITS_PER_BYTE) / timeDifSec), 
-									pse.getRxBytes(), pse.getTxBytes())
-									);
-							
-						} else { /* initialize */
-							tentativePortStats.put(npt, SwitchPortBandwidth.of(npt.getNodeId(), npt.getPortId(), U64.ZERO, U64.ZERO, U64.ZERO, pse.getRxBytes(), pse.getTxBytes()));
-						}
-					}
+			Set<DatapathId> dpids = switchService.getAllSwitchDpids();
+			phases.keySet().retainAll(dpids);
+			bandwidthStore.retainSwitches(dpids);
+			for (DatapathId d : dpids) {
+				schedulePoll(new StatsPoll(d, OFStatsType.PORT, FlowStatsStore.ALL_APPS), portStatsInterval);
+			}
+		}
+	}
+
+	/**
+	 * Run periodically to collect the flow, table and group statistics.
+	 * The flows are polled once per app of flowStatsApps, with the cookie
+	 * of the app, so that the switch only reports the flows of the app
+	 * rather than dumping its whole tables. The replies are recorded one
+	 * part at a time as they stream in, and only the latest counters and
+	 * their deltas since the previous poll are kept (see FlowStatsStore).
+	 */
+	private class FlowStatsCollector implements Runnable {
+
+		@Override
+		public void run() {
+			Set<DatapathId> dpids = switchService.getAllSwitchDpids();
+			flowStatsStore.retainSwitches(dpids);
+			for (DatapathId d : dpids) {
+				for (long appId : flowStatsApps) {
+					schedulePoll(new StatsPoll(d, OFStatsType.FLOW, appId), flowStatsInterval);
 				}
+				schedulePoll(new StatsPoll(d, OFStatsType.TABLE, FlowStatsStore.ALL_APPS), flowStatsInterval);
+				schedulePoll(new StatsPoll(d, OFStatsType.GROUP, FlowStatsStore.ALL_APPS), flowStatsInterval);
 			}
 		}
 	}
 
 	/**
-	 * Single thread for collecting switch statistics and
-	 * containing the reply.
-	 * 
-	 * @author Ryan Izard, ryan.izard@bigswitch.com, rizard@g.clemson.edu
-	 *
+	 * Schedules a poll at the phase of its switch within the interval
 	 */
-	private class GetStatisticsThread extends Thread {
-		private List<OFStatsReply> statsReply;
-		private DatapathId switchId;
-		private OFStatsType statType;
+	private void schedulePoll(final StatsPoll poll, int interval) {
+		Long phase = phases.get(poll.dpid);
+		if (phase == null) {
+			phase = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+			phases.put(poll.dpid, phase);
+		}
+		long intervalMs = Math.max(TimeUnit.SECONDS.toMillis(interval), 1);
+		threadPoolService.getScheduledExecutor().schedule(new Runnable() {
+			@Override
+			public void run() {
+				requestStats(poll);
+			}
+		}, phase % intervalMs, TimeUnit.MILLISECONDS);
+	}
 
-		public GetStatisticsThread(DatapathId switchId, OFStatsType statType) {
-			this.switchId = switchId;
-			this.statType = statType;
-			this.statsReply = null;
+	/**
+	 * Queues a poll unless the same one is already waiting or pending,
+	 * then sends as many as the bound allows.
+	 */
+	private void requestStats(StatsPoll poll) {
+		if (!isEnabled) {
+			return;
 		}
+		if (waitingOrPending.add(poll)) {
+			waiting.add(poll);
+		} else {
+			log.debug("Request of {} still pending. Skipping this interval", poll);
+		}
+		sendWaitingRequests();
+	}
 
-		public List<OFStatsReply> getStatisticsReply() {
-			return statsReply;
+	private void sendWaitingRequests() {
+		while (!waiting.isEmpty() && pendingRequests.tryAcquire()) {
+			StatsPoll poll = waiting.poll();
+			if (poll == null) {
+				pendingRequests.release();
+			} else {
+				sendStatsRequest(poll);
+			}
 		}
+	}
 
-		public DatapathId getSwitchId() {
-			return switchId;
+	private void requestDone(StatsPoll poll) {
+		waitingOrPending.remove(poll);
+		pendingRequests.release();
+		sendWaitingRequests();
+	}
+
+	/**
+	 * Sends the request of a poll holding a pending permit. Each part of
+	 * the reply is recorded as it arrives; the callback completes the poll
+	 * and returns the permit, also if the request fails or is cancelled by
+	 * its timeout.
+	 */
+	@SuppressWarnings("unchecked")
+	private void sendStatsRequest(final StatsPoll poll) {
+		IOFSwitch sw = switchService.getSwitch(poll.dpid);
+		OFStatsRequest<?> req = (sw == null) ? null : buildStatsRequest(sw, poll);
+		if (req == null) {
+			requestDone(poll);
+			return;
 		}
 
-		@Override
-		public void run() {
-			statsReply = getSwitchStatistics(switchId, statType);
+		final long time = System.currentTimeMillis();
+		final ListenableFuture<Integer> future;
+		try {
+			future = sw.streamStatsRequest((OFStatsRequest<OFStatsReply>) req, new Consumer<OFStatsReply>() {
+				@Override
+				public void accept(OFStatsReply reply) {
+					updateStats(poll, reply);
+				}
+			});
+		} catch (Exception e) {
+			log.error("Failure requesting statistics from switch {}. {}", sw, e);
+			requestDone(poll);
+			return;
+		}
+		final ScheduledFuture<?> timeout = threadPoolService.getScheduledExecutor().schedule(new Runnable() {
+			@Override
+			public void run() {
+				future.cancel(false);
+			}
+		}, requestTimeout, TimeUnit.SECONDS);
+
+		Futures.addCallback(future, new FutureCallback<Integer>() {
+			@Override
+			public void onSuccess(Integer parts) {
+				timeout.cancel(false);
+				try {
+					completeStats(poll, time);
+				} finally {
+					requestDone(poll);
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				timeout.cancel(false);
+				if (future.isCancelled()) {
+					log.warn("No complete reply of {} within {}s", poll, requestTimeout);
+				} else {
+					log.error("Failure retrieving {}. {}", poll, t);
+				}
+				requestDone(poll);
+			}
+		});
+	}
+
+	/**
+	 * Records a part of the reply of a poll
+	 */
+	private void updateStats(StatsPoll poll, OFStatsReply reply) {
+		switch (reply.getStatsType()) {
+		case PORT:
+			updatePortStats(poll.dpid, (OFPortStatsReply) reply);
+			break;
+		case FLOW:
+			flowStatsStore.recordFlows(poll.dpid, (OFFlowStatsReply) reply, poll.appId, System.currentTimeMillis());
+			break;
+		case TABLE:
+			flowStatsStore.recordTables(poll.dpid, (OFTableStatsReply) reply, System.currentTimeMillis());
+			break;
+		case GROUP:
+			flowStatsStore.recordGroups(poll.dpid, (OFGroupStatsReply) reply, System.currentTimeMillis());
+			break;
+		default:
+			log.warn("Unexpected {} stats reply to the request of {}", reply.getStatsType(), poll);
+			break;
+		}
+	}
+
+	/**
+	 * Removes what the complete reply of a poll sent at time did not report
+	 */
+	private void completeStats(StatsPoll poll, long time) {
+		switch (poll.type) {
+		case FLOW:
+			flowStatsStore.removeFlowsBefore(poll.dpid, poll.appId, time);
+			break;
+		case GROUP:
+			flowStatsStore.removeGroupsBefore(poll.dpid, time);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void updatePortStats(DatapathId d, OFPortStatsReply psr) {
+		IOFSwitch sw = switchService.getSwitch(d);
+		long time = System.currentTimeMillis();
+		for (OFPortStatsEntry pse : psr.getEntries()) {
+			long speed = 0;
+			OFPortDesc pd = (sw == null) ? null : sw.getPort(pse.getPortNo());
+			if (pd != null) { /* could have disconnected; we'll assume zero-speed then */
+				speed = pd.getCurrSpeed();
+			}
+			bandwidthStore.record(d, pse.getPortNo(), time,
+					pse.getRxBytes().getValue(), pse.getTxBytes().getValue(), speed);
 		}
 	}
 	
@@ -216,6 +393,72 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 			}
 		}
 		log.info("Port statistics collection interval set to {}s", portStatsInterval);
+
+		if (config.containsKey(REQUEST_TIMEOUT_STR)) {
+			try {
+				requestTimeout = Integer.parseInt(config.get(REQUEST_TIMEOUT_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of half the interval", REQUEST_TIMEOUT_STR);
+			}
+		}
+		if (requestTimeout < 1) {
+			requestTimeout = Math.max(portStatsInterval / 2, 1);
+		}
+		log.info("Statistics request timeout set to {}s", requestTimeout);
+
+		if (config.containsKey(MAX_PENDING_REQUESTS_STR)) {
+			try {
+				maxPendingRequests = Integer.parseInt(config.get(MAX_PENDING_REQUESTS_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", MAX_PENDING_REQUESTS_STR, maxPendingRequests);
+			}
+		}
+		if (maxPendingRequests < 1) {
+			log.error("Invalid '{}' {}. Using 1", MAX_PENDING_REQUESTS_STR, maxPendingRequests);
+			maxPendingRequests = 1;
+		}
+		pendingRequests = new Semaphore(maxPendingRequests);
+		log.info("At most {} statistics requests will be pending", maxPendingRequests);
+
+		if (config.containsKey(BANDWIDTH_HISTORY_STR)) {
+			try {
+				bandwidthHistory = Integer.parseInt(config.get(BANDWIDTH_HISTORY_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", BANDWIDTH_HISTORY_STR, bandwidthHistory);
+			}
+		}
+		if (config.containsKey(INTERVAL_FLOW_STATS_STR)) {
+			try {
+				flowStatsInterval = Integer.parseInt(config.get(INTERVAL_FLOW_STATS_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", INTERVAL_FLOW_STATS_STR, flowStatsInterval);
+			}
+		}
+		if (flowStatsInterval > 0) {
+			log.info("Flow, table and group statistics collection interval set to {}s", flowStatsInterval);
+		} else {
+			log.info("Flow, table and group statistics collection disabled");
+		}
+
+		if (config.containsKey(FLOW_STATS_APPS_STR) && !config.get(FLOW_STATS_APPS_STR).trim().isEmpty()) {
+			try {
+				String[] ids = config.get(FLOW_STATS_APPS_STR).split(",");
+				long[] apps = new long[ids.length];
+				for (int i = 0; i < ids.length; i++) {
+					apps[i] = Long.parseLong(ids[i].trim());
+					AppCookie.getAppCookie(apps[i]); /* validates the ID */
+				}
+				flowStatsApps = apps;
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Polling the flows of all apps", FLOW_STATS_APPS_STR);
+			}
+		}
+		if (flowStatsApps[0] != FlowStatsStore.ALL_APPS) {
+			log.info("Polling the flows of app IDs {}", Arrays.toString(flowStatsApps));
+		}
+
+		bandwidthStore = new BandwidthStore(Math.max(bandwidthHistory / Math.max(portStatsInterval, 1), 1) + 1);
+		log.info("Keeping {}s of port bandwidth, {} samples per port", bandwidthHistory, bandwidthStore.getCapacity());
 	}
 
 	@Override
@@ -233,13 +476,38 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	
 	@Override
 	public SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort p) {
-		return portStats.get(new NodePortTuple(dpid, p));
+		return bandwidthStore.getLatest(dpid, p);
 	}
 	
 
 	@Override
 	public Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption() {
-		return Collections.unmodifiableMap(portStats);
+		return Collections.unmodifiableMap(bandwidthStore.getAllLatest());
+	}
+
+	@Override
+	public BandwidthHistory getBandwidthHistory(DatapathId dpid, OFPort p) {
+		return bandwidthStore.getHistory(dpid, p);
+	}
+
+	@Override
+	public List<FlowStatsDelta> getHeavyHitters(DatapathId dpid, int n) {
+		return flowStatsStore.getHeavyHitters(dpid, n);
+	}
+
+	@Override
+	public Collection<FlowStatsDelta> getFlowStats(DatapathId dpid) {
+		return flowStatsStore.getFlows(dpid);
+	}
+
+	@Override
+	public Collection<TableStatsDelta> getTableStats(DatapathId dpid) {
+		return flowStatsStore.getTables(dpid);
+	}
+
+	@Override
+	public Collection<GroupStatsDelta> getGroupStats(DatapathId dpid) {
+		return flowStatsStore.getGroups(dpid);
 	}
 
 	@Override
@@ -263,7 +531,11 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	 */
 	private void startStatisticsCollection() {
 		portStatsCollector = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new PortStatsCollector(), portStatsInterval, portStatsInterval, TimeUnit.SECONDS);
-		tentativePortStats.clear(); /* must clear out, otherwise might have huge BW result if present and wait a long time before re-enabling stats */
+		bandwidthStore.clear(); /* must clear out, otherwise might have huge BW result if present and wait a long time before re-enabling stats */
+		if (flowStatsInterval > 0) {
+			flowStatsCollector = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new FlowStatsCollector(), flowStatsInterval, flowStatsInterval, TimeUnit.SECONDS);
+			flowStatsStore.clear();
+		}
 		log.warn("Statistics collection thread(s) started");
 	}
 	
@@ -271,6 +543,12 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	 * Stop all stats threads.
 	 */
 	private void stopStatisticsCollection() {
+		for (StatsPoll poll = waiting.poll(); poll != null; poll = waiting.poll()) {
+			waitingOrPending.remove(poll);
+		}
+		if (flowStatsCollector != null && !flowStatsCollector.cancel(false)) {
+			log.error("Could not cancel flow stats thread");
+		}
 		if (!portStatsCollector.cancel(false)) {
 			log.error("Could not cancel port stats thread");
 		} else {
@@ -279,182 +557,133 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	}
 
 	/**
-	 * Retrieve the statistics from all switches in parallel.
-	 * @param dpids
-	 * @param statsType
-	 * @return
+	 * Build the statistics request of a poll. The flows of an app are
+	 * requested by the cookie of the app; switches before OpenFlow 1.1
+	 * report all flows, which the FlowStatsStore filters instead.
 	 */
-	private Map<DatapathId, List<OFStatsReply>> getSwitchStatistics(Set<DatapathId> dpids, OFStatsType statsType) {
-		HashMap<DatapathId, List<OFStatsReply>> model = new HashMap<DatapathId, List<OFStatsReply>>();
-
-		List<GetStatisticsThread> activeThreads = new ArrayList<GetStatisticsThread>(dpids.size());
-		List<GetStatisticsThread> pendingRemovalThreads = new ArrayList<GetStatisticsThread>();
-		GetStatisticsThread t;
-		for (DatapathId d : dpids) {
-			t = new GetStatisticsThread(d, statsType);
-			activeThreads.add(t);
-			t.start();
-		}
-
-		/* Join all the threads after the timeout. Set a hard timeout
-		 * of 12 seconds for the threads to finish. If the thread has not
-		 * finished the switch has not replied yet and therefore we won't
-		 * add the switch's stats to the reply.
-		 */
-		for (int iSleepCycles = 0; iSleepCycles < portStatsInterval; iSleepCycles++) {
-			for (GetStatisticsThread curThread : activeThreads) {
-				if (curThread.getState() == State.TERMINATED) {
-					model.put(curThread.getSwitchId(), curThread.getStatisticsReply());
-					pendingRemovalThreads.add(curThread);
-				}
-			}
-
-			/* remove the threads that have completed the queries to the switches */
-			for (GetStatisticsThread curThread : pendingRemovalThreads) {
-				activeThreads.remove(curThread);
-			}
-			
-			/* clear the list so we don't try to double remove them */
-			pendingRemovalThreads.clear();
-
-			/* if we are done finish early */
-			if (activeThreads.isEmpty()) {
-				break;
-			}
-
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				log.error("Interrupted while waiting for statistics", e);
-			}
+	private OFStatsRequest<?> buildStatsRequest(IOFSwitch sw, StatsPoll poll) {
+		if (poll.type == OFStatsType.FLOW && poll.appId != FlowStatsStore.ALL_APPS
+				&& sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+			return sw.getOFFactory().buildFlowStatsRequest()
+					.setMatch(sw.getOFFactory().buildMatch().build())
+					.setOutPort(OFPort.ANY)
+					.setTableId(TableId.ALL)
+					.setCookie(AppCookie.getAppCookie(poll.appId))
+					.setCookieMask(AppCookie.getAppFieldMask())
+					.build();
 		}
-
-		return model;
+		return buildStatsRequest(sw, poll.type);
 	}
 
 	/**
-	 * Get statistics from a switch.
-	 * @param switchId
+	 * Build the statistics request of a type for a switch.
+	 * @param sw
 	 * @param statsType
-	 * @return
+	 * @return the request, or null if the switch does not support the type
 	 */
-	@SuppressWarnings("unchecked")
-	protected List<OFStatsReply> getSwitchStatistics(DatapathId switchId, OFStatsType statsType) {
-		IOFSwitch sw = switchService.getSwitch(switchId);
-		ListenableFuture<?> future;
-		List<OFStatsReply> values = null;
+	private OFStatsRequest<?> buildStatsRequest(IOFSwitch sw, OFStatsType statsType) {
+		OFStatsRequest<?> req = null;
 		Match match;
-		if (sw != null) {
-			OFStatsRequest<?> req = null;
-			switch (statsType) {
-			case FLOW:
-				match = sw.getOFFactory().buildMatch().build();
-				req = sw.getOFFactory().buildFlowStatsRequest()
-						.setMatch(match)
-						.setOutPort(OFPort.ANY)
-						.setTableId(TableId.ALL)
+		switch (statsType) {
+		case FLOW:
+			match = sw.getOFFactory().buildMatch().build();
+			req = sw.getOFFactory().buildFlowStatsRequest()
+					.setMatch(match)
+					.setOutPort(OFPort.ANY)
+					.setTableId(TableId.ALL)
+					.build();
+			break;
+		case AGGREGATE:
+			match = sw.getOFFactory().buildMatch().build();
+			req = sw.getOFFactory().buildAggregateStatsRequest()
+					.setMatch(match)
+					.setOutPort(OFPort.ANY)
+					.setTableId(TableId.ALL)
+					.build();
+			break;
+		case PORT:
+			req = sw.getOFFactory().buildPortStatsRequest()
+			.setPortNo(OFPort.ANY)
+			.build();
+			break;
+		case QUEUE:
+			req = sw.getOFFactory().buildQueueStatsRequest()
+			.setPortNo(OFPort.ANY)
+			.setQueueId(UnsignedLong.MAX_VALUE.longValue())
+			.build();
+			break;
+		case DESC:
+			req = sw.getOFFactory().buildDescStatsRequest()
+			.build();
+			break;
+		case GROUP:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildGroupStatsRequest()				
 						.build();
-				break;
-			case AGGREGATE:
-				match = sw.getOFFactory().buildMatch().build();
-				req = sw.getOFFactory().buildAggregateStatsRequest()
-						.setMatch(match)
-						.setOutPort(OFPort.ANY)
-						.setTableId(TableId.ALL)
-						.build();
-				break;
-			case PORT:
-				req = sw.getOFFactory().buildPortStatsRequest()
-				.setPortNo(OFPort.ANY)
-				.build();
-				break;
-			case QUEUE:
-				req = sw.getOFFactory().buildQueueStatsRequest()
-				.setPortNo(OFPort.ANY)
-				.setQueueId(UnsignedLong.MAX_VALUE.longValue())
-				.build();
-				break;
-			case DESC:
-				req = sw.getOFFactory().buildDescStatsRequest()
-				.build();
-				break;
-			case GROUP:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildGroupStatsRequest()				
-							.build();
-				}
-				break;
-
-			case METER:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildMeterStatsRequest()
-							.setMeterId(OFMeterSerializerVer13.ALL_VAL)
-							.build();
-				}
-				break;
+			}
+			break;
 
-			case GROUP_DESC:			
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildGroupDescStatsRequest()			
-							.build();
-				}
-				break;
+		case METER:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildMeterStatsRequest()
+						.setMeterId(OFMeterSerializerVer13.ALL_VAL)
+						.build();
+			}
+			break;
 
-			case GROUP_FEATURES:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildGroupFeaturesStatsRequest()
-							.build();
-				}
-				break;
+		case GROUP_DESC:			
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildGroupDescStatsRequest()			
+						.build();
+			}
+			break;
 
-			case METER_CONFIG:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildMeterConfigStatsRequest()
-							.build();
-				}
-				break;
+		case GROUP_FEATURES:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildGroupFeaturesStatsRequest()
+						.build();
+			}
+			break;
 
-			case METER_FEATURES:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildMeterFeaturesStatsRequest()
-							.build();
-				}
-				break;
+		case METER_CONFIG:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildMeterConfigStatsRequest()
+						.build();
+			}
+			break;
 
-			case TABLE:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildTableStatsRequest()
-							.build();
-				}
-				break;
+		case METER_FEATURES:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildMeterFeaturesStatsRequest()
+						.build();
+			}
+			break;
 
-			case TABLE_FEATURES:	
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildTableFeaturesStatsRequest()
-							.build();		
-				}
-				break;
-			case PORT_DESC:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildPortDescStatsRequest()
-							.build();
-				}
-				break;
-			case EXPERIMENTER:		
-			default:
-				log.error("Stats Request Type {} not implemented yet", statsType.name());
-				break;
+		case TABLE:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildTableStatsRequest()
+						.build();
 			}
+			break;
 
-			try {
-				if (req != null) {
-					future = sw.writeStatsRequest(req); 
-					values = (List<OFStatsReply>) future.get(portStatsInterval / 2, TimeUnit.SECONDS);
-				}
-			} catch (Exception e) {
-				log.error("Failure retrieving statistics from switch {}. {}", sw, e);
+		case TABLE_FEATURES:	
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildTableFeaturesStatsRequest()
+						.build();		
+			}
+			break;
+		case PORT_DESC:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildPortDescStatsRequest()
+						.build();
 			}
+			break;
+		case EXPERIMENTER:		
+		default:
+			log.error("Stats Request Type {} not implemented yet", statsType.name());
+			break;
 		}
-		return values;
+
+		return req;
 	}
-}
\ No newline at end of file
+}
@@ -22,18 +22,27 @@ public class SwitchPortBandwidth {
 	private U64 txValue;
 	
 	private SwitchPortBandwidth() {}
-	private SwitchPortBandwidth(DatapathId d, OFPort p, U64 s, U64 rx, U64 tx, U64 rxValue, U64 txValue) {
+	private SwitchPortBandwidth(DatapathId d, OFPort p, U64 s, U64 rx, U64 tx, U64 rxValue, U64 txValue, Date time) {
 		id = d;
 		pt = p;
 		speed = s;
 		this.rx = rx;
 		this.tx = tx;
-		time = new Date();
+		this.time = time;
 		this.rxValue = rxValue;
 		this.txValue = txValue;
 	}
 	
 	public static SwitchPortBandwidth of(DatapathId d, OFPort p, U64 s, U64 rx, U64 tx, U64 rxValue, U64 txValue) {
+		return of(d, p, s, rx, tx, rxValue, txValue, new Date());
+	}
+
+	/* A sample of a BandwidthHistory, taken at time */
+	static SwitchPortBandwidth of(DatapathId d, OFPort p, long s, long rx, long tx, long rxValue, long txValue, long time) {
+		return of(d, p, U64.ofRaw(s), U64.ofRaw(rx), U64.ofRaw(tx), U64.ofRaw(rxValue), U64.ofRaw(txValue), new Date(time));
+	}
+
+	private static SwitchPortBandwidth of(DatapathId d, OFPort p, U64 s, U64 rx, U64 tx, U64 rxValue, U64 txValue, Date time) {
 		if (d == null) {
 			throw new IllegalArgumentException("Datapath ID cannot be null");
 		}
@@ -55,7 +64,7 @@ public class SwitchPortBandwidth {
 		if (txValue == null) {
 			throw new IllegalArgumentException("TX value cannot be null");
 		}
-		return new SwitchPortBandwidth(d, p, s, rx, tx, rxValue, txValue);
+		return new SwitchPortBandwidth(d, p, s, rx, tx, rxValue, txValue, time);
 	}
 	
 	public DatapathId getSwitchId() {
@@ -0,0 +1,73 @@
+package net.floodlightcontroller.statistics;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.TableId;
+
+/**
+ * The counters of a flow table at its latest poll and the increase of the
+ * lookup and matched counters since the previous poll. A table first seen
+ * has no delta yet (-1). The counters are unsigned.
+ */
+public class TableStatsDelta {
+	private final DatapathId id;
+	private final TableId tableId;
+	private final long activeCount;
+	private final long lookupCount;
+	private final long matchedCount;
+	private final long lookupDelta;
+	private final long matchedDelta;
+	private final long interval;
+	private final long time;
+
+	TableStatsDelta(DatapathId d, TableId tableId, long activeCount, long lookupCount, long matchedCount,
+			long lookupDelta, long matchedDelta, long interval, long time) {
+		this.id = d;
+		this.tableId = tableId;
+		this.activeCount = activeCount;
+		this.lookupCount = lookupCount;
+		this.matchedCount = matchedCount;
+		this.lookupDelta = lookupDelta;
+		this.matchedDelta = matchedDelta;
+		this.interval = interval;
+		this.time = time;
+	}
+
+	public DatapathId getSwitchId() {
+		return id;
+	}
+
+	public TableId getTableId() {
+		return tableId;
+	}
+
+	public long getActiveCount() {
+		return activeCount;
+	}
+
+	public long getLookupCount() {
+		return lookupCount;
+	}
+
+	public long getMatchedCount() {
+		return matchedCount;
+	}
+
+	public long getLookupDelta() {
+		return lookupDelta;
+	}
+
+	public long getMatchedDelta() {
+		return matchedDelta;
+	}
+
+	/**
+	 * Milliseconds the deltas were counted over, or -1
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	public long getUpdateTime() {
+		return time;
+	}
+}
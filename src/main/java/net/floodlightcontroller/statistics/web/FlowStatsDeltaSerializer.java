@@ -0,0 +1,38 @@
+package net.floodlightcontroller.statistics.web;
+
+import java.io.IOException;
+import java.util.Date;
+
+import net.floodlightcontroller.core.web.serializers.MatchSerializer;
+import net.floodlightcontroller.statistics.FlowStatsDelta;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator.Feature;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+public class FlowStatsDeltaSerializer extends JsonSerializer<FlowStatsDelta> {
+
+	@Override
+	public void serialize(FlowStatsDelta fsd, JsonGenerator jGen, SerializerProvider serializer) throws IOException, JsonProcessingException {
+		jGen.configure(Feature.WRITE_NUMBERS_AS_STRINGS, true);
+
+		jGen.writeStartObject();
+		jGen.writeStringField("dpid", fsd.getSwitchId().toString());
+		jGen.writeStringField("table-id", fsd.getTableId().toString());
+		jGen.writeNumberField("priority", fsd.getPriority());
+		jGen.writeStringField("cookie", fsd.getCookie().toString());
+		MatchSerializer.serializeMatch(jGen, fsd.getMatch());
+		jGen.writeStringField("updated", new Date(fsd.getUpdateTime()).toString());
+		jGen.writeStringField("packet-count", Long.toUnsignedString(fsd.getPacketCount()));
+		jGen.writeStringField("byte-count", Long.toUnsignedString(fsd.getByteCount()));
+		jGen.writeStringField("packet-delta", Long.toUnsignedString(fsd.getPacketDelta()));
+		jGen.writeStringField("byte-delta", Long.toUnsignedString(fsd.getByteDelta()));
+		jGen.writeNumberField("interval-ms", fsd.getInterval());
+		jGen.writeNumberField("bits-per-second", fsd.getBitsPerSecond());
+		jGen.writeNumberField("packets-per-second", fsd.getPacketsPerSecond());
+		jGen.writeEndObject();
+	}
+
+}
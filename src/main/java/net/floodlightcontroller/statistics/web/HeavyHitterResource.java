@@ -0,0 +1,49 @@
+package net.floodlightcontroller.statistics.web;
+
+import java.util.Collections;
+
+import net.floodlightcontroller.statistics.IStatisticsService;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The top flows by rate over their latest poll, of a switch or of all
+ */
+public class HeavyHitterResource extends ServerResource {
+    private static final Logger log = LoggerFactory.getLogger(HeavyHitterResource.class);
+
+    @Get("json")
+    public Object retrieve() {
+        IStatisticsService statisticsService = (IStatisticsService) getContext().getAttributes().get(IStatisticsService.class.getCanonicalName());
+
+        String d = (String) getRequestAttributes().get(SwitchStatisticsWebRoutable.DPID_STR);
+        String c = (String) getRequestAttributes().get(SwitchStatisticsWebRoutable.COUNT_STR);
+
+        DatapathId dpid = null;
+        if (!d.trim().equalsIgnoreCase("all")) {
+            try {
+                dpid = DatapathId.of(d);
+            } catch (Exception e) {
+                log.error("Could not parse DPID {}", d);
+                return Collections.singletonMap("ERROR", "Could not parse DPID " + d);
+            }
+        } /* else assume it's all */
+
+        int count;
+        try {
+            count = Integer.parseInt(c.trim());
+        } catch (Exception e) {
+            log.error("Could not parse count {}", c);
+            return Collections.singletonMap("ERROR", "Could not parse count " + c);
+        }
+        if (count < 0) {
+            return Collections.singletonMap("ERROR", "Count cannot be negative: " + count);
+        }
+
+        return statisticsService.getHeavyHitters(dpid, count);
+    }
+}
@@ -9,6 +9,7 @@ import org.restlet.routing.Router;
 public class SwitchStatisticsWebRoutable implements RestletRoutable {
 	protected static final String DPID_STR = "dpid";
 	protected static final String PORT_STR = "port";
+	protected static final String COUNT_STR = "count";
 	protected static final String ENABLE_STR = "enable";
 	protected static final String DISABLE_STR = "disable";
 	
@@ -16,6 +17,7 @@ public class SwitchStatisticsWebRoutable implements RestletRoutable {
     public Router getRestlet(Context context) {
         Router router = new Router(context);
         router.attach("/bandwidth/{" + DPID_STR + "}/{" + PORT_STR + "}/json", BandwidthResource.class);
+        router.attach("/flows/{" + DPID_STR + "}/top/{" + COUNT_STR + "}/json", HeavyHitterResource.class);
         router.attach("/config/enable/json", ConfigResource.class);
         router.attach("/config/disable/json", ConfigResource.class);
         return router;
@@ -16,6 +16,7 @@
 
 package net.floodlightcontroller.threadpool;
 
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
@@ -28,4 +29,12 @@ public interface IThreadPoolService extends IFloodlightService {
      * @return
      */
     public ScheduledExecutorService getScheduledExecutor();
+
+    /**
+     * Get the fork-join pool maintained by the ThreadPool provider for
+     * data parallel computations, such as the paths of a new topology.
+     * Its parallelism is the "parallelism" option of the provider.
+     * @return
+     */
+    public ForkJoinPool getForkJoinPool();
 }
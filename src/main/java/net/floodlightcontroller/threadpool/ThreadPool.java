@@ -21,6 +21,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,8 +32,14 @@ import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class ThreadPool implements IThreadPoolService, IFloodlightModule {
+    private static final Logger log = LoggerFactory.getLogger(ThreadPool.class);
+
     protected ScheduledExecutorService executor = null;
+    protected ForkJoinPool forkJoinPool = null;
     
     // IThreadPoolService
 
@@ -39,6 +47,11 @@ public class ThreadPool implements IThreadPoolService, IFloodlightModule {
     public ScheduledExecutorService getScheduledExecutor() {
         return executor;
     }
+
+    @Override
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
     
     // IFloodlightModule
     
@@ -83,6 +96,30 @@ public class ThreadPool implements IThreadPoolService, IFloodlightModule {
             }
         };
         executor = Executors.newScheduledThreadPool(5, f);
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        String option = context.getConfigParams(this).get("parallelism");
+        if (option != null) {
+            try {
+                parallelism = Integer.parseInt(option.trim());
+            } catch (NumberFormatException e) {
+                log.error("Invalid 'parallelism'. Using default {}", parallelism);
+            }
+        }
+        if (parallelism < 1) {
+            log.error("Invalid 'parallelism' {}. Using 1", parallelism);
+            parallelism = 1;
+        }
+        final AtomicInteger workerId = new AtomicInteger();
+        forkJoinPool = new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("ForkJoin-" + workerId.getAndIncrement());
+                return t;
+            }
+        }, null, false);
+        log.info("Fork-join pool parallelism set to {}", parallelism);
     }
 
     @Override
@@ -20,6 +20,7 @@ import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.routing.BroadcastTree;
+import net.floodlightcontroller.routing.IRoutingService.PATH_METRIC;
 import net.floodlightcontroller.routing.Path;
 import net.floodlightcontroller.routing.PathId;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
@@ -34,9 +35,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableSet;
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 /**
@@ -53,8 +57,19 @@ public class TopologyInstance {
     public static final int MAX_PATH_WEIGHT = Integer.MAX_VALUE - MAX_LINK_WEIGHT - 1;
     public static final int PATH_CACHE_SIZE = 1000;
 
+    /* Latency changes up to this percentage (and at least 1 ms) keep the previous link cost */
+    private static final int LATENCY_JITTER_PERCENT = 10;
+
     private static final Logger log = LoggerFactory.getLogger(TopologyInstance.class);
 
+    /*
+     * How the paths are computed: every pair up front, only the pairs affected by the
+     * link changes since the previous instance, or each pair on first use.
+     */
+    public enum PathComputation {
+        EAGER, INCREMENTAL, LAZY
+    }
+
     /* Global: general switch, port, link */
     private Set<DatapathId>                 switches;
     private Map<DatapathId, Set<OFPort>>    portsWithLinks; /* only ports with links */
@@ -83,6 +98,15 @@ public class TopologyInstance {
     private Map<DatapathId, Set<NodePortTuple>> portsBroadcastPerArchipelago; /* broadcast ports in each archipelago ID */
     private Map<PathId, List<Path>>             pathcache; /* contains computed paths ordered best to worst */
 
+    /* Path computation */
+    private PathComputation                 pathComputation;
+    private int                             maxPathsToCompute; /* paths per pair in the pathcache */
+    private Map<Link, Integer>              linkCost; /* cost of each link under the path metric */
+    private Map<DatapathId, Set<Link>>      linkDpidMap; /* links b/t known switches per switch */
+    private long                            pathComputationTimeNs;
+    private int                             pathsComputed;
+    private int                             pathsReused;
+
     protected TopologyInstance(Map<DatapathId, Set<OFPort>> portsWithLinks,
             Set<NodePortTuple> portsBlocked,
             Map<NodePortTuple, Set<Link>> linksNonBcastNonTunnel,
@@ -132,7 +156,15 @@ public class TopologyInstance {
         this.portsBroadcastAll= new HashSet<NodePortTuple>();
         this.portsBroadcastPerSwitch = new HashMap<DatapathId,Set<OFPort>>();
 
-        this.pathcache = new HashMap<PathId, List<Path>>();
+        this.pathComputation = TopologyManager.getPathComputationInternal();
+        this.maxPathsToCompute = TopologyManager.getMaxPathsToComputeInternal();
+        if (pathComputation == PathComputation.LAZY) {
+            this.pathcache = new ConcurrentLinkedHashMap.Builder<PathId, List<Path>>()
+                    .maximumWeightedCapacity(TopologyManager.getPathCacheSizeInternal())
+                    .build();
+        } else {
+            this.pathcache = new HashMap<PathId, List<Path>>();
+        }
 
         this.portsBroadcastPerArchipelago = new HashMap<DatapathId, Set<NodePortTuple>>();
 
@@ -140,6 +172,14 @@ public class TopologyInstance {
     }
 
     protected void compute() {
+        compute(null);
+    }
+
+    /*
+     * Computes the instance, reusing the paths of the previous instance which are
+     * not affected by the link changes unless the path computation is EAGER.
+     */
+    protected void compute(TopologyInstance previous) {
         /*
          * Step 1: Compute clusters ignoring ports with > 2 links and 
          * blocked links.
@@ -163,11 +203,15 @@ public class TopologyInstance {
 
         /*
          * Step 4: Use Yens algorithm to permute through each node combination
-         * within each archipelago and compute multiple paths. The shortest
-         * path located (i.e. first run of dijkstra's algorithm) will be used 
-         * as the broadcast tree for the archipelago.
+         * within each archipelago and compute multiple paths. Pairs whose paths
+         * are still valid in the previous instance keep them, and in LAZY mode
+         * the remaining pairs are computed on first use. The shortest path tree
+         * of each archipelago is used as its broadcast tree.
          */
-        computeOrderedPaths();
+        long start = System.nanoTime();
+        computeOrderedPaths(previous);
+        pathComputationTimeNs = System.nanoTime() - start;
+        computeBroadcastTrees();
 
         /*
          * Step 5: Determine the broadcast ports for each archipelago. These are
@@ -499,11 +543,8 @@ public class TopologyInstance {
 
     private void identifyArchipelagos() {
         // Iterate through each external link and create/merge archipelagos based on the
-        // islands that each link is connected to
-        Cluster srcCluster = null;
-        Cluster dstCluster = null;
-        Archipelago srcArchipelago = null;
-        Archipelago dstArchipelago = null;
+        // islands that each link is connected to. Every cluster of an archipelago maps
+        // to it, so the lookups are constant time and getArchipelago() can use the map.
         Set<Link> links = new HashSet<Link>();
 
         for (Set<Link> linkset : linksExternal.values()) {
@@ -513,33 +554,27 @@ public class TopologyInstance {
 
         /* Base case of 1:1 mapping b/t clusters and archipelagos */
         if (links.isEmpty()) {
-            if (!clusters.isEmpty()) {
-                clusters.forEach(c -> archipelagos.add(new Archipelago().add(c)));
+            for (Cluster c : clusters) {
+                archipelagoFromCluster.put(c, new Archipelago().add(c));
             }
         } else { /* Only for two or more adjacent clusters that form archipelagos */
             for (Link l : links) {
-                for (Cluster c : clusters) {
-                    if (c.getNodes().contains(l.getSrc())) srcCluster = c;
-                    if (c.getNodes().contains(l.getDst())) dstCluster = c;
-                }
-                for (Archipelago a : archipelagos) {
-                    // Is source cluster a part of an existing archipelago?
-                    if (a.isMember(srcCluster)) srcArchipelago = a;
-                    // Is destination cluster a part of an existing archipelago?
-                    if (a.isMember(dstCluster)) dstArchipelago = a;
-                }
+                Cluster srcCluster = clusterFromSwitch.get(l.getSrc());
+                Cluster dstCluster = clusterFromSwitch.get(l.getDst());
+                Archipelago srcArchipelago = archipelagoFromCluster.get(srcCluster);
+                Archipelago dstArchipelago = archipelagoFromCluster.get(dstCluster);
 
                 // Are they both found in an archipelago? If so, then merge the two.
-                if (srcArchipelago != null && dstArchipelago != null && !srcArchipelago.equals(dstArchipelago)) {
+                if (srcArchipelago != null && dstArchipelago != null && srcArchipelago != dstArchipelago) {
                     srcArchipelago.merge(dstArchipelago);
-                    archipelagos.remove(dstArchipelago);
-                    archipelagoFromCluster.put(dstCluster, srcArchipelago);
+                    for (Cluster c : dstArchipelago.getClusters()) {
+                        archipelagoFromCluster.put(c, srcArchipelago);
+                    }
                 }
 
                 // If neither were found in an existing, then form a new archipelago.
                 else if (srcArchipelago == null && dstArchipelago == null) {
                     Archipelago a = new Archipelago().add(srcCluster).add(dstCluster);
-                    archipelagos.add(a);
                     archipelagoFromCluster.put(srcCluster, a);
                     archipelagoFromCluster.put(dstCluster, a);
                 }
@@ -554,13 +589,11 @@ public class TopologyInstance {
                     dstArchipelago.add(srcCluster);
                     archipelagoFromCluster.put(srcCluster, dstArchipelago);
                 }
-
-                srcCluster = null;
-                dstCluster = null;
-                srcArchipelago = null;
-                dstArchipelago = null;
             }
         }
+
+        /* Archipelagos hash on their clusters, so collect them once they are final */
+        archipelagos.addAll(archipelagoFromCluster.values());
     }
 
     /*
@@ -772,30 +805,307 @@ public class TopologyInstance {
     /*
      * Calculates and stores n possible paths  using Yen's algorithm,
      * looping through every switch. These lists of routes are stored 
-     * in the pathcache.
+     * in the pathcache. Paths of the previous instance which avoid the
+     * changed links are reused; in LAZY mode the others are left to
+     * getCachedPaths().
      */
-    private void computeOrderedPaths() {
-        List<Path> paths;
-        PathId pathId;
-        pathcache.clear();
+    private void computeOrderedPaths(TopologyInstance previous) {
+        pathsComputed = 0;
+        pathsReused = 0;
+        linkCost = initLinkCostMap();
+        linkDpidMap = buildLinkDpidMap(switches, portsWithLinks, links);
+
+        Set<NodePortTuple> changedPorts = new HashSet<NodePortTuple>();
+        List<Link> cheaperLinks = new ArrayList<Link>();
+        Set<Archipelago> changedArchipelagos = new HashSet<Archipelago>();
+        List<CheaperLink> bounds = new ArrayList<CheaperLink>();
+        boolean incremental = previous != null && previous.linkCost != null
+                && pathComputation != PathComputation.EAGER
+                && previous.maxPathsToCompute == maxPathsToCompute;
+        if (incremental) {
+            if (TopologyManager.getPathMetricInternal() == PATH_METRIC.LATENCY) {
+                keepJitteredLatencies(previous);
+            }
+            diffLinks(previous, changedPorts, cheaperLinks);
+            if (cheaperLinks.size() > switches.size()) {
+                /* bounding each pair costs more than recomputing it */
+                for (Link l : cheaperLinks) {
+                    Archipelago a = getArchipelago(l.getSrc());
+                    if (a != null) {
+                        changedArchipelagos.add(a);
+                    }
+                }
+            } else {
+                for (Link l : cheaperLinks) {
+                    bounds.add(new CheaperLink(getLinkCost(l),
+                            dijkstra(linkDpidMap, l.getSrc(), linkCost, true),
+                            dijkstra(linkDpidMap, l.getDst(), linkCost, false)));
+                }
+            }
+            log.debug("Changed ports {}, cheaper links {} and archipelagos {}",
+                    new Object[] { changedPorts, cheaperLinks, changedArchipelagos });
+        }
 
+        /* One task per source switch, merged into a table which is only read from now on */
+        ForkJoinPool pool = TopologyManager.getForkJoinPoolInternal();
+        List<ForkJoinTask<SourcePaths>> tasks = new ArrayList<ForkJoinTask<SourcePaths>>();
         for (Archipelago a : archipelagos) { /* for each archipelago */
-            Set<DatapathId> srcSws = a.getSwitches();
-            Set<DatapathId> dstSws = a.getSwitches();
-            log.debug("SRC {}", srcSws);
-            log.debug("DST {}", dstSws);
-
-            for (DatapathId src : srcSws) { /* permute all member switches */
-                for (DatapathId dst : dstSws) {
-                    log.debug("Calling Yens {} {}", src, dst);
-                    paths = yens(src, dst, TopologyManager.getMaxPathsToComputeInternal(),
-                            getArchipelago(src), getArchipelago(dst));
-                    pathId = new PathId(src, dst);
-                    pathcache.put(pathId, paths);
-                    log.debug("Adding paths {}", paths);
+            Set<DatapathId> members = a.getSwitches();
+            TopologyInstance reusable = incremental && !changedArchipelagos.contains(a) ? previous : null;
+            log.debug("SRC/DST {}", members);
+
+            for (DatapathId src : members) { /* permute all member switches */
+                tasks.add(pool.submit(() -> computePathsFrom(src, a, members, reusable, changedPorts, bounds)));
+            }
+        }
+
+        Map<PathId, List<Path>> table = new HashMap<PathId, List<Path>>();
+        for (ForkJoinTask<SourcePaths> task : tasks) {
+            SourcePaths result = task.join();
+            table.putAll(result.paths);
+            pathsComputed += result.computed;
+            pathsReused += result.reused;
+        }
+        if (pathComputation == PathComputation.LAZY) {
+            pathcache.putAll(table);
+        } else {
+            pathcache = Collections.unmodifiableMap(table);
+        }
+    }
+
+    /*
+     * The paths from one switch to the members of its archipelago. Those of the
+     * previous instance are reused if it is given, they avoid the changed ports
+     * and no cheaper link can make a path better than the worst of them.
+     */
+    private SourcePaths computePathsFrom(DatapathId src, Archipelago a, Set<DatapathId> dsts,
+            TopologyInstance previous, Set<NodePortTuple> changedPorts, List<CheaperLink> bounds) {
+        SourcePaths result = new SourcePaths();
+        for (DatapathId dst : dsts) {
+            PathId pathId = new PathId(src, dst);
+            List<Path> paths = null;
+            if (previous != null) {
+                paths = reusePaths(pathId, previous.pathcache.get(pathId), changedPorts, bounds);
+            }
+            if (paths != null) {
+                result.reused++;
+            } else if (pathComputation != PathComputation.LAZY) {
+                log.debug("Calling Yens {} {}", src, dst);
+                paths = yens(src, dst, maxPathsToCompute, a, a);
+                result.computed++;
+            } else {
+                continue;
+            }
+            result.paths.put(pathId, paths);
+            log.debug("Adding paths {}", paths);
+        }
+        return result;
+    }
+
+    private static class SourcePaths {
+        private final Map<PathId, List<Path>> paths = new HashMap<PathId, List<Path>>();
+        private int computed;
+        private int reused;
+    }
+
+    /*
+     * A link which is new or cheaper than in the previous instance, with the cost
+     * to its source and from its destination. No path through it from src to dst
+     * costs less than getCost(src, dst), MAX_PATH_WEIGHT if there is none.
+     */
+    private static class CheaperLink {
+        private final int cost;
+        private final BroadcastTree toSrc;
+        private final BroadcastTree fromDst;
+
+        private CheaperLink(int cost, BroadcastTree toSrc, BroadcastTree fromDst) {
+            this.cost = cost;
+            this.toSrc = toSrc;
+            this.fromDst = fromDst;
+        }
+
+        private long getCost(DatapathId src, DatapathId dst) {
+            int before = toSrc.getCost(src);
+            int after = fromDst.getCost(dst);
+            if (before < 0 || after < 0) {
+                return 0; /* not in the tree, assume it helps */
+            }
+            if (before >= MAX_PATH_WEIGHT || after >= MAX_PATH_WEIGHT) {
+                return MAX_PATH_WEIGHT;
+            }
+            return (long) before + cost + after;
+        }
+    }
+
+    /*
+     * LLDP latencies jitter from one discovery round to the next. A link whose
+     * latency stays within LATENCY_JITTER_PERCENT of its cost in the previous
+     * instance keeps that cost, so jitter neither reorders the paths nor makes
+     * diffLinks() see a changed link, while a slow drift still adds up to a change.
+     */
+    private void keepJitteredLatencies(TopologyInstance previous) {
+        for (Entry<Link, Integer> e : linkCost.entrySet()) {
+            Integer previousCost = previous.linkCost.get(e.getKey());
+            if (previousCost != null && Math.abs(e.getValue() - previousCost)
+                    <= Math.max(1, previousCost * LATENCY_JITTER_PERCENT / 100)) {
+                e.setValue(previousCost);
+            }
+        }
+    }
+
+    /*
+     * Collects the ports of the links which are gone or costlier than in the previous
+     * instance, and the links which are new or cheaper. The best paths which avoid the
+     * former stay the best, while the latter may shorten paths of their archipelago.
+     */
+    private void diffLinks(TopologyInstance previous, Set<NodePortTuple> changedPorts,
+            List<Link> cheaperLinks) {
+        Set<Link> currentLinks = getLinkSet();
+        Set<Link> previousLinks = previous.getLinkSet();
+
+        for (Link l : previousLinks) {
+            if (!currentLinks.contains(l) || getLinkCost(l) > previous.getLinkCost(l)) {
+                changedPorts.add(new NodePortTuple(l.getSrc(), l.getSrcPort()));
+                changedPorts.add(new NodePortTuple(l.getDst(), l.getDstPort()));
+            }
+        }
+        for (Link l : currentLinks) {
+            if (!previousLinks.contains(l) || getLinkCost(l) < previous.getLinkCost(l)) {
+                cheaperLinks.add(l);
+            }
+        }
+    }
+
+    /*
+     * Copies the paths of a pair if none of them traverses a changed port,
+     * refreshing their latencies. Returns null if they must be recomputed,
+     * which is also the case if a path through a cheaper link could cost no
+     * more than the worst of them, or than any path if fewer than
+     * maxPathsToCompute were found. Such a path may be new to the K best or
+     * reorder them; a cached path through the link is at least as costly.
+     */
+    private List<Path> reusePaths(PathId id, List<Path> paths, Set<NodePortTuple> changedPorts,
+            List<CheaperLink> bounds) {
+        if (paths == null) return null;
+
+        List<Path> reused = new ArrayList<Path>(paths.size());
+        long bound = 0;
+        for (Path p : paths) {
+            for (NodePortTuple npt : p.getPath()) {
+                if (changedPorts.contains(npt)) return null;
+            }
+            Path copy = new Path(p.getId(), p.getPath());
+            setPathCosts(copy);
+            copy.setPathIndex(p.getPathIndex());
+            reused.add(copy);
+            bound = Math.max(bound, getPathCost(copy));
+        }
+        if (reused.size() < maxPathsToCompute) {
+            bound = MAX_PATH_WEIGHT - 1;
+        }
+        if (!id.getSrc().equals(id.getDst())) {
+            for (CheaperLink l : bounds) {
+                if (l.getCost(id.getSrc(), id.getDst()) <= bound) return null;
+            }
+        }
+        return reused;
+    }
+
+    /*
+     * The cost of a path under the link costs of this instance, as dijkstra() adds it up
+     */
+    private long getPathCost(Path p) {
+        long cost = 0;
+        List<NodePortTuple> npts = p.getPath();
+        for (int i = 0; i <= npts.size() - 2; i = i + 2) {
+            Link found = null;
+            for (Link l : links.getOrDefault(npts.get(i), Collections.<Link>emptySet())) {
+                if (l.getDst().equals(npts.get(i + 1).getNodeId())
+                        && l.getDstPort().equals(npts.get(i + 1).getPortId())) {
+                    found = l;
                 }
             }
+            cost += found == null ? MAX_LINK_WEIGHT : getLinkCost(found);
+        }
+        return cost;
+    }
+
+    private Set<Link> getLinkSet() {
+        Set<Link> all = new HashSet<Link>();
+        for (Set<Link> s : links.values()) {
+            all.addAll(s);
+        }
+        return all;
+    }
+
+    private int getLinkCost(Link l) {
+        Integer cost = linkCost.get(l);
+        return cost == null ? 1 : cost; /* as in dijkstra() */
+    }
+
+    /*
+     * Roots the broadcast tree of each archipelago at the last of its member
+     * switches, so the tree does not depend on which paths were computed.
+     */
+    private void computeBroadcastTrees() {
+        ForkJoinPool pool = TopologyManager.getForkJoinPoolInternal();
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (Archipelago a : archipelagos) {
+            DatapathId root = getLastSwitch(a);
+            if (root != null) {
+                tasks.add(pool.submit(() -> a.setBroadcastTree(dijkstra(linkDpidMap, root, linkCost, true))));
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private static DatapathId getLastSwitch(Archipelago a) {
+        DatapathId last = null;
+        for (DatapathId sw : a.getSwitches()) {
+            last = sw;
+        }
+        return last;
+    }
+
+    /*
+     * Returns the paths of a pair, computing and caching them in LAZY mode
+     * if both switches are in the same archipelago.
+     */
+    private List<Path> getCachedPaths(PathId id) {
+        List<Path> paths = pathcache.get(id);
+        if (paths == null && pathComputation == PathComputation.LAZY) {
+            Archipelago a = getArchipelago(id.getSrc());
+            if (a != null && a == getArchipelago(id.getDst())) {
+                paths = yens(id.getSrc(), id.getDst(), maxPathsToCompute, a, a);
+                pathcache.put(id, paths);
+            }
         }
+        return paths;
+    }
+
+    public PathComputation getPathComputation() {
+        return pathComputation;
+    }
+
+    /*
+     * Time spent in the path computation of compute(), excluding LAZY pairs computed later
+     */
+    public long getPathComputationTimeNs() {
+        return pathComputationTimeNs;
+    }
+
+    public int getPathsComputed() {
+        return pathsComputed;
+    }
+
+    public int getPathsReused() {
+        return pathsReused;
+    }
+
+    public int getPathCacheSize() {
+        return pathcache.size();
     }
 
     private Path buildPath(PathId id, BroadcastTree tree) {
@@ -900,7 +1210,7 @@ public class TopologyInstance {
      */
     public List<Path> getPathsFast(DatapathId src, DatapathId dst, int k) {
         PathId routeId = new PathId(src, dst);
-        List<Path> routes = pathcache.get(routeId);
+        List<Path> routes = getCachedPaths(routeId);
 
         if (routes == null || k < 1) {
             return ImmutableList.of();
@@ -927,7 +1237,7 @@ public class TopologyInstance {
      */
     public List<Path> getPathsSlow(DatapathId src, DatapathId dst, int k) {
         PathId pathId = new PathId(src, dst);
-        List<Path> paths = pathcache.get(pathId);
+        List<Path> paths = getCachedPaths(pathId);
 
         if (paths == null || k < 1) return ImmutableList.of();
 
@@ -940,12 +1250,8 @@ public class TopologyInstance {
     }
 
     private Archipelago getArchipelago(DatapathId d) {
-        for (Archipelago a : archipelagos) {
-            if (a.getSwitches().contains(d)) {
-                return a;
-            }
-        }
-        return null;
+        Cluster c = clusterFromSwitch.get(d);
+        return c == null ? null : archipelagoFromCluster.get(c);
     }
 
     public void setPathCosts(Path p) {
@@ -980,11 +1286,7 @@ public class TopologyInstance {
         log.debug("Asking for paths from {} to {}", src, dst);
         log.debug("Asking for {} paths", K);
 
-        // Find link costs
-        Map<Link, Integer> linkCost = initLinkCostMap();
-
-        Map<DatapathId, Set<Link>> linkDpidMap = buildLinkDpidMap(switches, portsWithLinks, links);
-
+        // Link costs and the link map are built once per instance in computeOrderedPaths()
         Map<DatapathId, Set<Link>> copyOfLinkDpidMap = new HashMap<DatapathId, Set<Link>>(linkDpidMap);
 
         // A is the list of shortest paths. The number in the list at the end should be less than or equal to K
@@ -1010,8 +1312,6 @@ public class TopologyInstance {
 
         /* Use Dijkstra's to find the shortest path, which will also be the first path in A */
         BroadcastTree bt = dijkstra(copyOfLinkDpidMap, dst, linkCost, true);
-        /* add this initial tree as our archipelago's broadcast tree (aSrc == aDst) */
-        aSrc.setBroadcastTree(bt);
         /* now add the shortest path */
         log.debug("src {} dst {} tree {}", new Object[] {src, dst, bt});
         Path newroute = buildPath(new PathId(src, dst), bt); /* guaranteed to be in same tree */
@@ -1228,8 +1528,9 @@ public class TopologyInstance {
         Path result = null;
 
         try {
-            if (!pathcache.get(id).isEmpty()) {
-                result = pathcache.get(id).get(0);
+            List<Path> paths = getCachedPaths(id);
+            if (!paths.isEmpty()) {
+                result = paths.get(0);
             }
         } catch (Exception e) {
             log.warn("Could not find route from {} to {}. If the path exists, wait for the topology to settle, and it will be detected", srcId, dstId);
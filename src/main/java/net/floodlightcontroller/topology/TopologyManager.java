@@ -37,6 +37,7 @@ import net.floodlightcontroller.routing.IRoutingService.PATH_METRIC;
 import net.floodlightcontroller.routing.web.RoutingWebRoutable;
 import net.floodlightcontroller.statistics.IStatisticsService;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.floodlightcontroller.topology.TopologyInstance.PathComputation;
 import net.floodlightcontroller.topology.web.TopologyWebRoutable;
 import org.projectfloodlight.openflow.protocol.*;
 import org.projectfloodlight.openflow.protocol.action.OFAction;
@@ -52,6 +53,7 @@ import com.google.common.collect.ImmutableSet;
 
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +75,13 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
      */
     private static volatile int maxPathsToCompute = 3;
 
+    /**
+     * How the paths of a new topology instance are computed and, if lazily,
+     * the maximum number of pairs whose paths are kept in memory.
+     */
+    private static volatile PathComputation pathComputation = PathComputation.INCREMENTAL;
+    private static volatile int pathCacheSize = TopologyInstance.PATH_CACHE_SIZE;
+
     /**
      * Role of the controller.
      */
@@ -364,6 +373,22 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
         maxPathsToCompute = max;
     }
 
+    protected static PathComputation getPathComputationInternal() {
+        return pathComputation;
+    }
+
+    protected static int getPathCacheSizeInternal() {
+        return pathCacheSize;
+    }
+
+    /*
+     * The pool of the topology computations, shared with the other modules
+     */
+    protected static ForkJoinPool getForkJoinPoolInternal() {
+        ForkJoinPool pool = threadPoolService != null ? threadPoolService.getForkJoinPool() : null;
+        return pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
     ////////////////////////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////
 
@@ -651,6 +676,26 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
                     }
                 }
                 log.info("Will compute a max of {} paths upon topology updates", maxPathsToCompute);
+
+                String computation = configOptions.get("pathComputation") != null
+                        ? configOptions.get("pathComputation").trim() : null;
+                if (computation != null) {
+                    try {
+                        pathComputation = PathComputation.valueOf(computation.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        log.error("Invalid 'pathComputation'. Using default {}", pathComputation);
+                    }
+                }
+                String cacheSize = configOptions.get("pathCacheSize") != null
+                        ? configOptions.get("pathCacheSize").trim() : null;
+                if (cacheSize != null) {
+                    try {
+                        pathCacheSize = Integer.parseInt(cacheSize);
+                    } catch (NumberFormatException e) {
+                        log.error("Invalid 'pathCacheSize'. Using default {}", pathCacheSize);
+                    }
+                }
+                log.info("Path computation set to {} with a lazy cache of {} pairs", pathComputation, pathCacheSize);
     }
 
     @Override
@@ -1011,7 +1056,10 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
                 allPorts,
                 interClusterLinks);
 
-        nt.compute();
+        nt.compute(currentInstance);
+        log.debug("Computed {} and reused {} paths in {} us ({})", new Object[] {
+                nt.getPathsComputed(), nt.getPathsReused(),
+                TimeUnit.NANOSECONDS.toMicros(nt.getPathComputationTimeNs()), reason });
 
         currentInstance = nt;
 
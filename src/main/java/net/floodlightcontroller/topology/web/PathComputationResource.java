@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2013, Big Switch Networks, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License"); you may
+ *    not use this file except in compliance with the License. You may obtain
+ *    a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ **/
+
+package net.floodlightcontroller.topology.web;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.floodlightcontroller.topology.ITopologyManagerBackend;
+import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.TopologyInstance;
+
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+/**
+ * Returns how the paths of the current topology instance were computed:
+ * the mode, the time spent and the number of pairs computed and reused
+ */
+public class PathComputationResource extends ServerResource {
+    @Get("json")
+    public Map<String, Object> retrieve() {
+        ITopologyManagerBackend topology =
+                (ITopologyManagerBackend)getContext().getAttributes().
+                    get(ITopologyService.class.getCanonicalName());
+
+        TopologyInstance ti = topology.getCurrentTopologyInstance();
+        Map<String, Object> result = new HashMap<String, Object>();
+        result.put("mode", ti.getPathComputation().toString().toLowerCase());
+        result.put("max-paths", topology.getMaxPathsToCompute());
+        result.put("time-us", ti.getPathComputationTimeNs() / 1000);
+        result.put("pairs-computed", ti.getPathsComputed());
+        result.put("pairs-reused", ti.getPathsReused());
+        result.put("pairs-cached", ti.getPathCacheSize());
+        return result;
+    }
+}
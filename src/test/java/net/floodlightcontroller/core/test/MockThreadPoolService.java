@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
@@ -41,6 +42,14 @@ public class MockThreadPoolService implements IFloodlightModule, IThreadPoolServ
         return mockExecutor;
     }
 
+    /**
+     * Return the common pool, the parallel computations are not mocked.
+     */
+    @Override
+    public ForkJoinPool getForkJoinPool() {
+        return ForkJoinPool.commonPool();
+    }
+
     // IFloodlightModule
     
     @Override
@@ -1,6 +1,8 @@
 package net.floodlightcontroller.debugcounter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -78,4 +80,87 @@ public class DebugCounterImplTest {
         assertEquals(ImmutableSet.of(MetaData.WARN, MetaData.DROP),
                      c2.getMetaData());
     }
+
+    @Test
+    public void testStriped() throws Exception {
+        DebugCounterImpl c1 =
+                new StripedDebugCounterImpl("foo", "bar", "The foo bar counter",
+                                            Collections.<MetaData>emptyList());
+        assertEquals(0L, c1.getCounterValue());
+        long created = c1.getLastModified();
+        c1.increment();
+        c1.add(4242);
+        assertEquals(4243L, c1.getCounterValue());
+        try {
+            c1.add(-1);
+            fail("Expected Exception not thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(4243L, c1.getCounterValue());
+
+        Thread.sleep(5);
+        long modified = c1.getLastModified();
+        assertNotEquals(created, modified);
+        /* unchanged value keeps its last-modified time */
+        Thread.sleep(5);
+        assertEquals(modified, c1.getLastModified());
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        c1.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(4243L + 8 * 10000, c1.getCounterValue());
+
+        c1.reset();
+        assertEquals(0L, c1.getCounterValue());
+    }
+
+    @Test
+    public void testLastModified() throws Exception {
+        DebugGaugeImpl gauge =
+                new DebugGaugeImpl("foo", "gauge", "The foo gauge",
+                                   Collections.<MetaData>emptyList());
+        long created = gauge.getLastModified();
+        Thread.sleep(5);
+        gauge.set(42);
+        assertEquals(42L, gauge.getCounterValue());
+        long set = gauge.getLastModified();
+        assertNotEquals(created, set);
+        Thread.sleep(5);
+        gauge.adjust(-2);
+        assertEquals(40L, gauge.getValue());
+        long adjusted = gauge.getLastModified();
+        assertNotEquals(set, adjusted);
+        /* stamped when read, an unchanged value keeps its time */
+        Thread.sleep(5);
+        gauge.set(40);
+        assertEquals(adjusted, gauge.getLastModified());
+
+        DebugHistogramImpl histogram =
+                new DebugHistogramImpl("foo", "histogram", "The foo histogram",
+                                       Collections.<MetaData>emptyList());
+        created = histogram.getLastModified();
+        Thread.sleep(5);
+        histogram.record(7);
+        assertEquals(1L, histogram.getCounterValue());
+        long recorded = histogram.getLastModified();
+        assertNotEquals(created, recorded);
+        Thread.sleep(5);
+        assertEquals(recorded, histogram.getLastModified());
+        /* a histogram only records values, it has no increments */
+        assertFalse(histogram instanceof IDebugCounter);
+        assertFalse(gauge instanceof IDebugCounter);
+    }
 }
@@ -14,6 +14,8 @@ import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterBackend;
+import net.floodlightcontroller.debugcounter.IDebugCounterService.CounterType;
 import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
 
 import com.google.common.collect.Lists;
@@ -541,4 +543,94 @@ public class DebugCounterServiceTest {
         verifyCounters(expectedCounters, counterService.getAllCounterValues());
     }
 
+
+    @Test
+    public void testCounterBackend() {
+        counterService.registerModule("foo");
+        IDebugCounter atomic = counterService.registerCounter("foo", "atomic", "Desc");
+        assertFalse(atomic instanceof StripedDebugCounterImpl);
+        IDebugCounter striped = counterService.registerCounter("foo", "striped", "Desc",
+                                                               CounterBackend.STRIPED,
+                                                               MetaData.WARN);
+        assertTrue(striped instanceof StripedDebugCounterImpl);
+        striped.increment();
+        striped.add(2);
+
+        CounterExpectation ce = CounterExpectation.create()
+                .moduleName("foo").counterHierarchy("striped")
+                .description("Desc").value(3).addMetaData(MetaData.WARN);
+        verifyCounters(Lists.newArrayList(ce),
+                       counterService.getCounterHierarchy("foo", "striped"));
+
+        /* registered counters keep their backend */
+        assertSame(striped, counterService.registerCounter("foo", "striped", "Desc",
+                                                           CounterBackend.ATOMIC,
+                                                           MetaData.WARN));
+        try {
+            counterService.registerCounter("foo", "bar", "Desc", (CounterBackend)null);
+            fail("Expected Exception not thrown");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCounterTypes() throws Exception {
+        counterService.registerModule("foo");
+        IDebugGauge gauge = counterService.registerGauge("foo", "gauge", "Desc");
+        gauge.set(10);
+        gauge.adjust(-3);
+        assertEquals(7L, gauge.getValue());
+
+        IDebugRate rate = counterService.registerRate("foo", "rate", "Desc", 1);
+        rate.mark();
+        rate.mark(9);
+        assertEquals(10L, rate.getCount());
+        Thread.sleep(10);
+        assertTrue(rate.getRate() > 0);
+
+        IDebugHistogram histogram = counterService.registerHistogram("foo", "histogram", "Desc");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100L, histogram.getCount());
+
+        List<DebugCounterResource> counters = counterService.getModuleCounterValues("foo");
+        assertEquals(3, counters.size());
+        DebugCounterResource gaugeResource = counters.get(0);
+        assertEquals("foo/gauge", gaugeResource.getModuleName() + "/" + gaugeResource.getCounterHierarchy());
+        assertEquals(CounterType.GAUGE, gaugeResource.getCounterType());
+        assertEquals(7L, gaugeResource.getCounterValue().longValue());
+        assertTrue(gaugeResource.getCounterDetails().isEmpty());
+        DebugCounterResource histogramResource = counters.get(1);
+        assertEquals(CounterType.HISTOGRAM, histogramResource.getCounterType());
+        assertEquals(100L, histogramResource.getCounterValue().longValue());
+        assertEquals(100L, histogramResource.getCounterDetails().get("max"));
+        DebugCounterResource rateResource = counters.get(2);
+        assertEquals(CounterType.RATE, rateResource.getCounterType());
+        assertEquals(10L, rateResource.getCounterValue().longValue());
+        assertTrue(rateResource.getCounterDetails().containsKey("rate-per-second"));
+
+        /* registering again returns the counter of the same type, reset */
+        assertSame(gauge, counterService.registerGauge("foo", "gauge", "Desc"));
+        assertEquals(0L, gauge.getValue());
+        try {
+            counterService.registerRate("foo", "gauge", "Desc", 1);
+            fail("Expected Exception not thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            counterService.registerCounter("foo", "histogram", "Desc");
+            fail("Expected Exception not thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            counterService.registerRate("foo", "bar", "Desc", 0);
+            fail("Expected Exception not thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpiryWheelTest {
+
+	private static final int SLOTS = 8;
+	private static final long TICK_MILLIS = 5;
+
+	/* element -> ticks at which the handler saw it */
+	private Map<String, List<Long>> seen;
+	/* element -> deadlines the handler returns, NONE once they run out */
+	private Map<String, List<Long>> rearms;
+	private ExpiryWheel<String> wheel;
+
+	@Before
+	public void setUp() {
+		seen = new HashMap<>();
+		rearms = new HashMap<>();
+		wheel = new ExpiryWheel<>(SLOTS, TICK_MILLIS, TimeUnit.MILLISECONDS, (element, tick) -> {
+			seen.computeIfAbsent(element, e -> new ArrayList<>()).add(tick);
+			List<Long> next = rearms.get(element);
+			return (next==null || next.isEmpty()) ? ExpiryWheel.NONE : next.remove(0);
+		});
+	}
+
+	/* advances at least to the tick and returns the tick the wheel has processed */
+	private long advanceTo(long tick) throws InterruptedException {
+		while(wheel.currentTick()<tick) {
+			Thread.sleep(1);
+		}
+		wheel.advance();
+		return wheel.getStatistics().get("tick");
+	}
+
+	@Test
+	public void testExpiryAtDeadline() throws Exception {
+		long now = wheel.currentTick();
+		wheel.schedule("a", now+2);
+		wheel.schedule("b", now+4);
+		assertEquals(2, wheel.size());
+		advanceTo(now+4);
+		assertEquals(1, seen.get("a").size());
+		assertEquals(now+2, seen.get("a").get(0).longValue());
+		assertEquals(now+4, seen.get("b").get(0).longValue());
+		assertEquals(0, wheel.size());
+		assertEquals(2L, wheel.getStatistics().get("expired_total").longValue());
+	}
+
+	@Test
+	public void testWrapAround() throws Exception {
+		long now = wheel.currentTick();
+		int elements = 4*SLOTS;
+		for(int i=1; i<=elements; i++) {
+			wheel.schedule("e" + i, now+i);
+		}
+		/* the first lap leaves the elements of the later laps in their slots */
+		long processed = advanceTo(now+SLOTS);
+		for(int i=1; i<=elements; i++) {
+			assertEquals(now+i<=processed, seen.containsKey("e" + i));
+		}
+		advanceTo(now+elements);
+		for(int i=1; i<=elements; i++) {
+			List<Long> ticks = seen.get("e" + i);
+			assertEquals(1, ticks.size());
+			assertEquals(now+i, ticks.get(0).longValue());
+		}
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testRearm() throws Exception {
+		long now = wheel.currentTick();
+		List<Long> next = new ArrayList<>();
+		next.add(now+1+SLOTS+3);
+		rearms.put("a", next);
+		wheel.schedule("a", now+1);
+		advanceTo(now+1);
+		assertEquals(1, seen.get("a").size());
+		assertEquals(1, wheel.size());
+		/* re-armed more than a lap ahead, so the slot is passed once without it */
+		if(advanceTo(now+1+SLOTS)<now+1+SLOTS+3) {
+			assertEquals(1, seen.get("a").size());
+		}
+		advanceTo(now+1+SLOTS+3);
+		assertEquals(2, seen.get("a").size());
+		assertEquals(now+1+SLOTS+3, seen.get("a").get(1).longValue());
+		assertEquals(0, wheel.size());
+		Map<String, Long> stats = wheel.getStatistics();
+		assertEquals(1L, stats.get("rearmed_total").longValue());
+		assertEquals(1L, stats.get("expired_total").longValue());
+	}
+
+	@Test
+	public void testPastDeadline() throws Exception {
+		long now = wheel.currentTick();
+		advanceTo(now+2);
+		/* a deadline already passed is moved to the next tick */
+		wheel.schedule("late", now);
+		advanceTo(now+3);
+		assertEquals(1, seen.get("late").size());
+		assertTrue(seen.get("late").get(0)>now+2);
+	}
+
+	@Test
+	public void testWrongArguments() {
+		try {
+			new ExpiryWheel<String>(6, 1, TimeUnit.SECONDS, (element, tick) -> ExpiryWheel.NONE);
+			fail("Expected Exception not thrown");
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new ExpiryWheel<String>(SLOTS, 0, TimeUnit.SECONDS, (element, tick) -> ExpiryWheel.NONE);
+			fail("Expected Exception not thrown");
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+public class FlowIndexTest {
+
+	private static final short IDLE_TIMEOUT = 30;
+	private static final int SWITCHES = 100;
+	private static final int GROUPS = 100;
+	private static final int SOURCES = 10;
+
+	private List<IOFSwitch> switches;
+	private FlowIndex index;
+
+	@Before
+	public void setUp() {
+		switches = new ArrayList<>();
+		for(int i=1; i<=SWITCHES; i++) {
+			IOFSwitch sw = createMock(IOFSwitch.class);
+			expect(sw.getId()).andReturn(DatapathId.of(i)).anyTimes();
+			replay(sw);
+			switches.add(sw);
+		}
+		index = new FlowIndex();
+	}
+
+	private static IPv4Address group(int i) {
+		return IPv4Address.of(0xef000000 | i);
+	}
+
+	private static FlowEntry flow(IOFSwitch sw, int group, int srcPort) {
+		return new FlowEntry(sw, group(group), OFPort.of(srcPort), OFPort.of(100), IDLE_TIMEOUT);
+	}
+
+	@Test
+	public void testSeveralTransmittersPerGroup() {
+		IOFSwitch sw = switches.get(0);
+		FlowEntry first = flow(sw, 1, 1);
+		FlowEntry second = flow(sw, 1, 2);
+		assertTrue(index.put(first));
+		assertTrue(index.put(second));
+		assertFalse(index.put(flow(sw, 1, 1)));
+		assertSame(first, index.get(sw.getId(), group(1), OFPort.of(1)));
+		assertSame(second, index.get(sw.getId(), group(1), OFPort.of(2)));
+		assertNull(index.get(sw.getId(), group(2), OFPort.of(1)));
+		assertEquals(2, index.get(sw.getId(), group(1)).size());
+		assertEquals(2, index.size());
+
+		assertTrue(index.remove(first));
+		assertFalse(index.remove(first));
+		assertNull(index.get(sw.getId(), group(1), OFPort.of(1)));
+		assertSame(second, index.get(sw.getId(), group(1), OFPort.of(2)));
+		assertTrue(index.remove(second));
+		assertTrue(index.get(sw.getId(), group(1)).isEmpty());
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testGroupsOfSwitch() {
+		IOFSwitch sw = switches.get(0);
+		index.put(flow(sw, 1, 1));
+		index.put(flow(sw, 1, 2));
+		index.put(flow(sw, 2, 1));
+		index.put(flow(switches.get(1), 3, 1));
+		List<IPv4Address> groups = index.getGroups(sw.getId());
+		assertEquals(2, groups.size());
+		assertTrue(groups.contains(group(1)));
+		assertTrue(groups.contains(group(2)));
+		assertTrue(index.getGroups(switches.get(2).getId()).isEmpty());
+	}
+
+	@Test
+	public void testEquality() {
+		IOFSwitch sw = switches.get(0);
+		assertEquals(flow(sw, 1, 1), flow(sw, 1, 1));
+		assertEquals(flow(sw, 1, 1).hashCode(), flow(sw, 1, 1).hashCode());
+		assertNotEquals(flow(sw, 1, 1), flow(sw, 1, 2));
+		assertNotEquals(flow(sw, 1, 1), flow(sw, 2, 1));
+		assertNotEquals(flow(sw, 1, 1), flow(switches.get(1), 1, 1));
+	}
+
+	@Test
+	public void testHundredThousandFlows() {
+		for(IOFSwitch sw : switches) {
+			for(int g=0; g<GROUPS; g++) {
+				for(int p=1; p<=SOURCES; p++) {
+					assertTrue(index.put(flow(sw, g, p)));
+				}
+			}
+		}
+		assertEquals(SWITCHES*GROUPS*SOURCES, index.size());
+		for(IOFSwitch sw : switches) {
+			for(int g=0; g<GROUPS; g++) {
+				assertEquals(SOURCES, index.get(sw.getId(), group(g)).size());
+				for(int p=1; p<=SOURCES; p++) {
+					FlowEntry flow = index.get(sw.getId(), group(g), OFPort.of(p));
+					assertEquals(flow(sw, g, p), flow);
+					if((g+p)%2==0) {
+						assertTrue(index.remove(flow));
+					}
+				}
+			}
+		}
+		assertEquals(SWITCHES*GROUPS*SOURCES/2, index.size());
+		for(IOFSwitch sw : switches) {
+			for(int g=0; g<GROUPS; g++) {
+				for(int p=1; p<=SOURCES; p++) {
+					assertEquals((g+p)%2!=0, index.get(sw.getId(), group(g), OFPort.of(p))!=null);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIntObjectMap() {
+		IntObjectMap<Integer> map = new IntObjectMap<>();
+		Map<Integer, Integer> reference = new HashMap<>();
+		Random random = new Random(1);
+		for(int i=0; i<100000; i++) {
+			int key = random.nextInt(1000) - 500;
+			if(random.nextBoolean()) {
+				assertEquals(reference.put(key, i), map.put(key, i));
+			} else {
+				assertEquals(reference.remove(key), map.remove(key));
+			}
+			assertEquals(reference.size(), map.size());
+		}
+		for(int key=-500; key<500; key++) {
+			assertEquals(reference.get(key), map.get(key));
+		}
+		assertEquals(reference.keySet(), new HashSet<>(map.keys()));
+	}
+
+}
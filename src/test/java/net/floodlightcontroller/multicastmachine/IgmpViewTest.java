@@ -0,0 +1,232 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class IgmpViewTest {
+
+	private static final int GROUP = 0xef010101;
+	private static final int OTHER_GROUP = 0xef020202;
+	private static final int SOURCE_1 = 0x0a000001;
+	private static final int SOURCE_2 = 0x0a000002;
+
+	private IgmpView view;
+
+	@Before
+	public void setUp() {
+		view = new IgmpView();
+	}
+
+	/* writes the internet checksum of the message into bytes 2-3 */
+	private static byte[] withChecksum(byte[] message) {
+		long sum = 0;
+		for(int i=0; i<message.length; i+=2) {
+			sum += ((message[i] & 0xff) << 8) | (i+1<message.length ? message[i+1] & 0xff : 0);
+		}
+		while((sum >> 16)!=0) {
+			sum = (sum & 0xffff) + (sum >> 16);
+		}
+		int checksum = (int) ~sum & 0xffff;
+		message[2] = (byte) (checksum >> 8);
+		message[3] = (byte) checksum;
+		return message;
+	}
+
+	private static byte[] v2Message(int type, int group) {
+		return withChecksum(ByteBuffer.allocate(IgmpView.HEADER_SIZE)
+				.put((byte) type).put((byte) 100).putShort((short) 0).putInt(group).array());
+	}
+
+	/* v3 report: an IS_EXCLUDE record without sources and an ALLOW record with aux data */
+	private static byte[] v3Report() {
+		return withChecksum(ByteBuffer.allocate(IgmpView.HEADER_SIZE + 2*IgmpView.RECORD_HEADER_SIZE + 4 + 8)
+				.put((byte) IgmpView.TYPE_V3_REPORT).put((byte) 0).putShort((short) 0)
+				.putShort((short) 0).putShort((short) 2)
+				.put((byte) IgmpView.RECORD_MODE_IS_EXCLUDE).put((byte) 0).putShort((short) 0).putInt(GROUP)
+				.put((byte) IgmpView.RECORD_ALLOW_NEW_SOURCES).put((byte) 1).putShort((short) 2).putInt(OTHER_GROUP)
+				.putInt(SOURCE_1).putInt(SOURCE_2)
+				.putInt(0xdeadbeef)
+				.array());
+	}
+
+	@Test
+	public void testV2Messages() {
+		view.wrap(v2Message(IgmpView.TYPE_V2_REPORT, GROUP));
+		assertTrue(view.isValid());
+		assertTrue(view.testChecksum());
+		assertEquals(IgmpView.TYPE_V2_REPORT, view.getType());
+		assertEquals(100, view.getMaxResponseCode());
+		assertEquals(GROUP, view.getGroupAddress());
+		assertFalse(view.isV3Query());
+
+		/* the view is re-wrapped for the next packet */
+		view.wrap(v2Message(IgmpView.TYPE_LEAVE, OTHER_GROUP));
+		assertTrue(view.isValid());
+		assertEquals(IgmpView.TYPE_LEAVE, view.getType());
+		assertEquals(OTHER_GROUP, view.getGroupAddress());
+
+		byte[] corrupted = v2Message(IgmpView.TYPE_V2_REPORT, GROUP);
+		corrupted[7] ^= 1;
+		view.wrap(corrupted);
+		assertTrue(view.isValid());
+		assertFalse(view.testChecksum());
+	}
+
+	@Test
+	public void testTooShort() {
+		byte[] message = v2Message(IgmpView.TYPE_V2_REPORT, GROUP);
+		view.wrap(message, 0, IgmpView.HEADER_SIZE-1);
+		assertFalse(view.isValid());
+		view.wrap(new byte[0]);
+		assertFalse(view.isValid());
+	}
+
+	@Test
+	public void testV3Report() {
+		view.wrap(v3Report());
+		assertTrue(view.isValid());
+		assertTrue(view.testChecksum());
+		assertEquals(IgmpView.TYPE_V3_REPORT, view.getType());
+		assertEquals(2, view.getNumberOfRecords());
+
+		int record = view.firstRecord();
+		assertEquals(IgmpView.RECORD_MODE_IS_EXCLUDE, view.getRecordType(record));
+		assertEquals(GROUP, view.getRecordGroup(record));
+		assertEquals(0, view.getRecordSourceCount(record));
+
+		record = view.nextRecord(record);
+		assertEquals(IgmpView.RECORD_ALLOW_NEW_SOURCES, view.getRecordType(record));
+		assertEquals(OTHER_GROUP, view.getRecordGroup(record));
+		assertEquals(1, view.getRecordAuxLength(record));
+		assertEquals(2, view.getRecordSourceCount(record));
+		assertEquals(SOURCE_1, view.getRecordSource(record, 0));
+		assertEquals(SOURCE_2, view.getRecordSource(record, 1));
+		/* the aux data follows the sources and is skipped */
+		assertEquals(view.getLength(), view.nextRecord(record));
+	}
+
+	@Test
+	public void testTruncatedV3Report() {
+		byte[] message = v3Report();
+		/* cut inside the header of the second record */
+		view.wrap(Arrays.copyOf(message, IgmpView.HEADER_SIZE + IgmpView.RECORD_HEADER_SIZE + 4));
+		assertFalse(view.isValid());
+		/* cut inside the aux data of the second record */
+		view.wrap(Arrays.copyOf(message, message.length-1));
+		assertFalse(view.isValid());
+		/* cut after the first record */
+		view.wrap(Arrays.copyOf(message, IgmpView.HEADER_SIZE + IgmpView.RECORD_HEADER_SIZE));
+		assertFalse(view.isValid());
+		view.wrap(message);
+		assertTrue(view.isValid());
+	}
+
+	@Test
+	public void testMalformedV3Report() {
+		/* more records than the message holds */
+		byte[] message = v3Report();
+		message[7] = 3;
+		view.wrap(message);
+		assertFalse(view.isValid());
+
+		/* a source count running past the end of the message */
+		message = v3Report();
+		message[IgmpView.HEADER_SIZE+2] = (byte) 0xff;
+		message[IgmpView.HEADER_SIZE+3] = (byte) 0xff;
+		view.wrap(message);
+		assertFalse(view.isValid());
+
+		/* an aux data length running past the end of the message */
+		message = v3Report();
+		message[IgmpView.HEADER_SIZE+IgmpView.RECORD_HEADER_SIZE+1] = (byte) 0xff;
+		view.wrap(message);
+		assertFalse(view.isValid());
+
+		/* no records at all is a valid, empty report */
+		message = v3Report();
+		message[7] = 0;
+		view.wrap(message);
+		assertTrue(view.isValid());
+		assertEquals(0, view.getNumberOfRecords());
+	}
+
+	@Test
+	public void testV3Query() {
+		byte[] message = withChecksum(ByteBuffer.allocate(IgmpView.V3_QUERY_HEADER_SIZE + 8)
+				.put((byte) IgmpView.TYPE_QUERY).put((byte) 100).putShort((short) 0).putInt(GROUP)
+				.put((byte) 0x0a).put((byte) 125).putShort((short) 2)
+				.putInt(SOURCE_1).putInt(SOURCE_2)
+				.array());
+		view.wrap(message);
+		assertTrue(view.isV3Query());
+		assertTrue(view.isValid());
+		assertTrue(view.testChecksum());
+		assertEquals(2, view.getQueryRobustness());
+		assertTrue(view.getQuerySuppressFlag());
+		assertEquals(125, view.getQueryIntervalCode());
+		assertEquals(2, view.getQuerySourceCount());
+		assertEquals(SOURCE_1, view.getQuerySource(0));
+		assertEquals(SOURCE_2, view.getQuerySource(1));
+
+		/* a source count running past the end of the message */
+		view.wrap(message, 0, message.length-4);
+		assertFalse(view.isValid());
+
+		/* a v2 query is valid without the v3 header */
+		view.wrap(v2Message(IgmpView.TYPE_QUERY, 0));
+		assertFalse(view.isV3Query());
+		assertTrue(view.isValid());
+	}
+
+	@Test
+	public void testWrapBounds() {
+		byte[] message = v2Message(IgmpView.TYPE_V2_REPORT, GROUP);
+		byte[] padded = new byte[message.length+6];
+		System.arraycopy(message, 0, padded, 4, message.length);
+		view.wrap(padded, 4, message.length);
+		assertTrue(view.isValid());
+		assertTrue(view.testChecksum());
+		assertEquals(GROUP, view.getGroupAddress());
+
+		try {
+			view.wrap(padded, 4, padded.length);
+			fail("Expected Exception not thrown");
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			view.wrap(padded, -1, message.length);
+			fail("Expected Exception not thrown");
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testByteBuf() {
+		byte[] message = v3Report();
+		ByteBuf direct = Unpooled.directBuffer(message.length+2);
+		direct.writeShort(0);
+		direct.writeBytes(message);
+		direct.readShort();
+		view.wrap(direct);
+		assertTrue(view.isValid());
+		assertTrue(view.testChecksum());
+		assertEquals(2, view.getNumberOfRecords());
+		assertEquals(OTHER_GROUP, view.getRecordGroup(view.nextRecord(view.firstRecord())));
+
+		view.wrap(Unpooled.wrappedBuffer(message));
+		assertTrue(view.isValid());
+		assertEquals(GROUP, view.getRecordGroup(view.firstRecord()));
+		direct.release();
+	}
+
+}
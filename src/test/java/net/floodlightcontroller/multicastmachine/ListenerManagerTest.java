@@ -0,0 +1,135 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.multicastmachine.SourceFilter.Mode;
+
+/*
+ * Two switches linked by port 10 of A and port 20 of B, each with a transmitter on port 1 (source
+ * SA on A, SB on B) and a listener on port 2 accepting only the source of the other switch.
+ */
+public class ListenerManagerTest {
+
+	private static final IPv4Address GROUP = IPv4Address.of("239.1.1.1");
+	private static final IPv4Address SA = IPv4Address.of("10.0.0.1");
+	private static final IPv4Address SB = IPv4Address.of("10.0.0.2");
+	private static final OFPort TRANSMITTER = OFPort.of(1);
+	private static final OFPort LISTENER = OFPort.of(2);
+	private static final OFPort A_TO_B = OFPort.of(10);
+	private static final OFPort B_TO_A = OFPort.of(20);
+
+	private IOFSwitch swA;
+	private IOFSwitch swB;
+
+	@Before
+	public void setUp() {
+		swA = createMock(IOFSwitch.class);
+		expect(swA.getId()).andReturn(DatapathId.of(1)).anyTimes();
+		swB = createMock(IOFSwitch.class);
+		expect(swB.getId()).andReturn(DatapathId.of(2)).anyTimes();
+		replay(swA, swB);
+	}
+
+	private static HostEntry listener(IOFSwitch sw, OFPort port, int mac, Mode mode, IPv4Address... sources) {
+		HostEntry host = new HostEntry(sw, port, MacAddress.of(mac), IPv4Address.of(0x0a000100 | mac), GROUP);
+		host.setFilter(SourceFilter.of(mode, Arrays.asList(sources)));
+		return host;
+	}
+
+	private static Set<OFPort> ports(OFPort... ports) {
+		return new HashSet<>(Arrays.asList(ports));
+	}
+
+	private static Set<OFPort> flow(Map<MembershipKey, Set<OFPort>> flows, IOFSwitch sw, OFPort inPort,
+			IPv4Address source) {
+		Set<OFPort> ports = flows.get(new MembershipKey(sw.getId(), inPort, null, GROUP, source));
+		assertNotNull(ports);
+		return new HashSet<>(ports);
+	}
+
+	private static void assertNoLoop(Map<MembershipKey, Set<OFPort>> flows, OFPort treePort) {
+		for(Map.Entry<MembershipKey, Set<OFPort>> entry : flows.entrySet()) {
+			assertNotNull(entry.getKey().getPort());
+			if(entry.getKey().getPort().equals(treePort)) {
+				assertFalse(entry.getValue().contains(treePort));
+			}
+		}
+	}
+
+	@Test
+	public void testTwoSwitches() {
+		/* (*,G) flows: the transmitter of each switch to the tree, nothing from the tree */
+		Map<OFPort, List<OFPort>> inPortsA = new HashMap<>();
+		inPortsA.put(TRANSMITTER, Arrays.asList(A_TO_B));
+		inPortsA.put(A_TO_B, new ArrayList<>());
+		Map<OFPort, List<OFPort>> inPortsB = new HashMap<>();
+		inPortsB.put(TRANSMITTER, Arrays.asList(B_TO_A));
+		inPortsB.put(B_TO_A, new ArrayList<>());
+
+		Map<MembershipKey, Set<OFPort>> flowsA = ListenerManager.getSourceFlows(swA.getId(), GROUP,
+				Arrays.asList(listener(swA, LISTENER, 1, Mode.INCLUDE, SB)), inPortsA);
+		Map<MembershipKey, Set<OFPort>> flowsB = ListenerManager.getSourceFlows(swB.getId(), GROUP,
+				Arrays.asList(listener(swB, LISTENER, 2, Mode.INCLUDE, SA)), inPortsB);
+
+		assertEquals(2, flowsA.size());
+		/* SB from the tree reaches the listener only, SB from the transmitter port goes on to B */
+		assertEquals(ports(LISTENER), flow(flowsA, swA, A_TO_B, SB));
+		assertEquals(ports(A_TO_B, LISTENER), flow(flowsA, swA, TRANSMITTER, SB));
+		assertNoLoop(flowsA, A_TO_B);
+
+		assertEquals(2, flowsB.size());
+		assertEquals(ports(LISTENER), flow(flowsB, swB, B_TO_A, SA));
+		assertEquals(ports(B_TO_A, LISTENER), flow(flowsB, swB, TRANSMITTER, SA));
+		assertNoLoop(flowsB, B_TO_A);
+	}
+
+	@Test
+	public void testExcludeListener() {
+		/* port 3 of A excludes SB, so the (*,G) flows of A also forward to it */
+		OFPort exclude = OFPort.of(3);
+		Map<OFPort, List<OFPort>> inPorts = new HashMap<>();
+		inPorts.put(TRANSMITTER, Arrays.asList(exclude, A_TO_B));
+		inPorts.put(A_TO_B, Arrays.asList(exclude));
+		List<HostEntry> hosts = Arrays.asList(listener(swA, LISTENER, 1, Mode.INCLUDE, SB),
+				listener(swA, exclude, 3, Mode.EXCLUDE, SB));
+
+		Map<MembershipKey, Set<OFPort>> flows = ListenerManager.getSourceFlows(swA.getId(), GROUP, hosts, inPorts);
+		assertEquals(2, flows.size());
+		assertEquals(ports(LISTENER), flow(flows, swA, A_TO_B, SB));
+		assertEquals(ports(A_TO_B, LISTENER), flow(flows, swA, TRANSMITTER, SB));
+		assertNoLoop(flows, A_TO_B);
+	}
+
+	@Test
+	public void testDropRule() {
+		/* a source nobody on the switch accepts is dropped on the listener side of the tree */
+		Map<OFPort, List<OFPort>> inPorts = new HashMap<>();
+		inPorts.put(A_TO_B, new ArrayList<>());
+		Map<MembershipKey, Set<OFPort>> flows = ListenerManager.getSourceFlows(swA.getId(), GROUP,
+				Arrays.asList(listener(swA, LISTENER, 1, Mode.EXCLUDE, SB)), inPorts);
+		assertEquals(1, flows.size());
+		assertTrue(flow(flows, swA, A_TO_B, SB).isEmpty());
+
+		/* no in_port, no (S,G) flow */
+		assertTrue(ListenerManager.getSourceFlows(swA.getId(), GROUP,
+				Arrays.asList(listener(swA, LISTENER, 1, Mode.EXCLUDE, SB)), new HashMap<>()).isEmpty());
+	}
+
+}
@@ -0,0 +1,193 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+public class MembershipTableTest {
+
+	private static final IPv4Address SRC_IP = IPv4Address.of("10.0.0.1");
+
+	private IOFSwitch sw1;
+	private IOFSwitch sw2;
+	private MembershipTable table;
+
+	@Before
+	public void setUp() {
+		sw1 = createMock(IOFSwitch.class);
+		expect(sw1.getId()).andReturn(DatapathId.of(1)).anyTimes();
+		sw2 = createMock(IOFSwitch.class);
+		expect(sw2.getId()).andReturn(DatapathId.of(2)).anyTimes();
+		replay(sw1, sw2);
+		table = new MembershipTable();
+	}
+
+	private static IPv4Address group(int i) {
+		return IPv4Address.of(0xef000000 | i);
+	}
+
+	private static HostEntry host(IOFSwitch sw, int port, int mac, int group) {
+		return new HostEntry(sw, OFPort.of(port), MacAddress.of(mac), SRC_IP, group(group));
+	}
+
+	private static List<HostEntry> list(Iterator<HostEntry> iter) {
+		List<HostEntry> hosts = new ArrayList<>();
+		iter.forEachRemaining(hosts::add);
+		return hosts;
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		HostEntry entry = host(sw1, 1, 1, 1);
+		assertTrue(table.put(entry));
+		assertFalse(table.put(host(sw1, 1, 1, 1)));
+		assertSame(entry, table.get(new MembershipKey(sw1.getId(), OFPort.of(1), MacAddress.of(1), group(1))));
+		assertNull(table.get(new MembershipKey(sw1.getId(), OFPort.of(1), MacAddress.of(2), group(1))));
+		assertEquals(1, table.size());
+
+		assertSame(entry, table.remove(entry.getKey()));
+		assertNull(table.remove(entry.getKey()));
+		assertNull(table.get(entry.getKey()));
+		assertEquals(0, table.size());
+		assertTrue(table.getPorts(sw1.getId(), group(1)).isEmpty());
+		assertTrue(table.getHostsByGroup(group(1)).isEmpty());
+		assertTrue(table.getSummaries(null).isEmpty());
+	}
+
+	@Test
+	public void testPortCounts() {
+		/* two hosts behind one port, the port stays until the last one leaves */
+		HostEntry first = host(sw1, 1, 1, 1);
+		HostEntry second = host(sw1, 1, 2, 1);
+		table.put(first);
+		table.put(second);
+		table.put(host(sw1, 2, 3, 1));
+		table.put(host(sw1, 3, 4, 2));
+		assertEquals(new HashSet<>(Arrays.asList(OFPort.of(1), OFPort.of(2))),
+				new HashSet<>(table.getPorts(sw1.getId(), group(1))));
+		assertTrue(table.containsPort(sw1.getId(), group(1), OFPort.of(1)));
+		assertFalse(table.containsPort(sw1.getId(), group(1), OFPort.of(3)));
+		assertFalse(table.containsPort(sw2.getId(), group(1), OFPort.of(1)));
+
+		table.remove(first.getKey());
+		assertTrue(table.containsPort(sw1.getId(), group(1), OFPort.of(1)));
+		table.remove(second.getKey());
+		assertFalse(table.containsPort(sw1.getId(), group(1), OFPort.of(1)));
+		assertEquals(1, table.getPorts(sw1.getId(), group(1)).size());
+	}
+
+	@Test
+	public void testHostsByGroup() {
+		table.put(host(sw1, 1, 1, 1));
+		table.put(host(sw2, 1, 2, 1));
+		table.put(host(sw1, 2, 3, 2));
+		assertEquals(2, table.getHostsByGroup(group(1)).size());
+		assertEquals(1, table.getHostsByGroup(group(2)).size());
+		assertTrue(table.getHostsByGroup(group(3)).isEmpty());
+		try {
+			table.getHostsByGroup(group(1)).clear();
+			fail("Expected Exception not thrown");
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSummaries() {
+		table.put(host(sw1, 1, 1, 1));
+		table.put(host(sw1, 1, 2, 1));
+		table.put(host(sw1, 2, 3, 1));
+		table.put(host(sw2, 1, 4, 1));
+		table.put(host(sw2, 1, 5, 2));
+		List<GroupSummary> summaries = table.getSummaries(group(1));
+		assertEquals(1, summaries.size());
+		GroupSummary summary = summaries.get(0);
+		assertEquals(4, summary.getMembers());
+		assertEquals(3, summary.getPorts());
+		assertEquals(Integer.valueOf(2), summary.getSwitches().get(sw1.getId().toString()));
+		assertEquals(Integer.valueOf(1), summary.getSwitches().get(sw2.getId().toString()));
+		assertEquals(2, table.getSummaries(null).size());
+
+		table.remove(host(sw1, 1, 1, 1).getKey());
+		summary = table.getSummaries(group(1)).get(0);
+		assertEquals(3, summary.getMembers());
+		assertEquals(3, summary.getPorts());
+		table.remove(host(sw1, 2, 3, 1).getKey());
+		summary = table.getSummaries(group(1)).get(0);
+		assertEquals(2, summary.getPorts());
+		assertEquals(Integer.valueOf(1), summary.getSwitches().get(sw1.getId().toString()));
+
+		table.remove(host(sw1, 1, 2, 1).getKey());
+		table.remove(host(sw2, 1, 4, 1).getKey());
+		assertTrue(table.getSummaries(group(1)).isEmpty());
+		assertEquals(1, table.getSummaries(null).size());
+	}
+
+	@Test
+	public void testQuery() {
+		for(int port=1; port<=3; port++) {
+			for(int g=1; g<=2; g++) {
+				table.put(host(sw1, port, port*10+g, g));
+				table.put(host(sw2, port, port*10+g, g));
+			}
+		}
+		assertEquals(12, list(table.query(null, null, null, null)).size());
+		assertEquals(6, list(table.query(group(1), null, null, null)).size());
+		assertEquals(6, list(table.query(null, sw1.getId(), null, null)).size());
+		List<HostEntry> hosts = list(table.query(null, sw2.getId(), OFPort.of(2), null));
+		assertEquals(2, hosts.size());
+		for(HostEntry host : hosts) {
+			assertEquals(sw2.getId(), host.getKey().getSwitchId());
+			assertEquals(OFPort.of(2), host.getKey().getPort());
+		}
+		hosts = list(table.query(group(2), null, OFPort.of(3), null));
+		assertEquals(2, hosts.size());
+		assertTrue(list(table.query(group(3), null, null, null)).isEmpty());
+	}
+
+	@Test
+	public void testQueryPages() {
+		for(int port=1; port<=5; port++) {
+			table.put(host(sw1, port, port, 1));
+			table.put(host(sw2, port, port, 1));
+		}
+		/* pages of three hosts, each starting after the last key of the previous one */
+		List<HostEntry> all = new ArrayList<>();
+		MembershipKey after = null;
+		while(true) {
+			Iterator<HostEntry> iter = table.query(null, null, null, after);
+			List<HostEntry> page = new ArrayList<>();
+			while(iter.hasNext() && page.size()<3) {
+				page.add(iter.next());
+			}
+			if(page.isEmpty()) {
+				break;
+			}
+			all.addAll(page);
+			after = page.get(page.size()-1).getKey();
+		}
+		assertEquals(10, all.size());
+		for(int i=1; i<all.size(); i++) {
+			assertTrue(MembershipKey.ORDER.compare(all.get(i-1).getKey(), all.get(i).getKey())<0);
+		}
+		/* a page of one switch ends at the end of its range */
+		MembershipKey middle = all.get(2).getKey();
+		List<HostEntry> rest = list(table.query(null, middle.getSwitchId(), null, middle));
+		assertEquals(2, rest.size());
+	}
+
+}
@@ -0,0 +1,51 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFlowMod;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+public class MulticastMachineTest {
+
+	private static final IPv4Address GROUP = IPv4Address.of("239.1.1.1");
+	private static final IPv4Address SOURCE = IPv4Address.of("10.0.0.1");
+	private static final OFPort PORT = OFPort.of(1);
+
+	private IOFSwitch sw;
+
+	@Before
+	public void setUp() {
+		sw = createMock(IOFSwitch.class);
+		expect(sw.getId()).andReturn(DatapathId.of(1)).anyTimes();
+		expect(sw.getOFFactory()).andReturn(OFFactories.getFactory(OFVersion.OF_13)).anyTimes();
+		replay(sw);
+	}
+
+	@Test
+	public void testIgmpPuntPriority() {
+		/* an IGMP report or leave sent to the group matches the flows of the group as well */
+		OFFlowMod igmp = (OFFlowMod) MulticastMachine.buildDefaultEntryIgmp(sw);
+		assertEquals(IpProtocol.IGMP, igmp.getMatch().get(MatchField.IP_PROTO));
+
+		OFFlowMod drop = (OFFlowMod) new DropFlow(sw, GROUP, PORT).buildPendingMessage();
+		OFFlowMod flow = new FlowEntry(sw, GROUP, PORT, OFPort.of(2), (short) 180).buildPendingMessage();
+		OFFlowMod source = new FlowEntry(sw, GROUP, PORT, SOURCE, (short) 0).buildPendingMessage();
+		assertEquals(GROUP, drop.getMatch().get(MatchField.IPV4_DST));
+		assertEquals(SOURCE, source.getMatch().get(MatchField.IPV4_SRC));
+		assertTrue(igmp.getPriority()>drop.getPriority());
+		assertTrue(igmp.getPriority()>flow.getPriority());
+		assertTrue(igmp.getPriority()>source.getPriority());
+	}
+
+}
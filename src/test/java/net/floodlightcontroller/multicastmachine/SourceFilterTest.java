@@ -0,0 +1,115 @@
+package net.floodlightcontroller.multicastmachine;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import net.floodlightcontroller.multicastmachine.SourceFilter.Mode;
+
+public class SourceFilterTest {
+
+	private static final IPv4Address S1 = IPv4Address.of("10.0.0.1");
+	private static final IPv4Address S2 = IPv4Address.of("10.0.0.2");
+	private static final IPv4Address S3 = IPv4Address.of("10.0.0.3");
+
+	private static List<IPv4Address> sources(IPv4Address... sources) {
+		return Arrays.asList(sources);
+	}
+
+	private static SourceFilter include(IPv4Address... sources) {
+		return SourceFilter.of(Mode.INCLUDE, sources(sources));
+	}
+
+	private static SourceFilter exclude(IPv4Address... sources) {
+		return SourceFilter.of(Mode.EXCLUDE, sources(sources));
+	}
+
+	@Test
+	public void testAnyAndNone() {
+		assertSame(SourceFilter.ANY, exclude());
+		assertSame(SourceFilter.NONE, include());
+		assertTrue(SourceFilter.ANY.isAny());
+		assertFalse(SourceFilter.ANY.isNone());
+		assertTrue(SourceFilter.NONE.isNone());
+		assertFalse(SourceFilter.NONE.isAny());
+		assertTrue(SourceFilter.ANY.accepts(S1));
+		assertFalse(SourceFilter.NONE.accepts(S1));
+	}
+
+	@Test
+	public void testAccepts() {
+		SourceFilter include = include(S1, S2);
+		assertTrue(include.accepts(S1));
+		assertTrue(include.accepts(S2));
+		assertFalse(include.accepts(S3));
+		SourceFilter exclude = exclude(S1, S2);
+		assertFalse(exclude.accepts(S1));
+		assertFalse(exclude.accepts(S2));
+		assertTrue(exclude.accepts(S3));
+	}
+
+	@Test
+	public void testModeRecords() {
+		/* current-state and filter-mode-change records replace the filter */
+		assertEquals(include(S1), exclude(S2).apply(IgmpView.RECORD_MODE_IS_INCLUDE, sources(S1)));
+		assertEquals(include(S1), SourceFilter.ANY.apply(IgmpView.RECORD_CHANGE_TO_INCLUDE, sources(S1)));
+		assertEquals(exclude(S2), include(S1).apply(IgmpView.RECORD_MODE_IS_EXCLUDE, sources(S2)));
+		assertEquals(exclude(S2), SourceFilter.NONE.apply(IgmpView.RECORD_CHANGE_TO_EXCLUDE, sources(S2)));
+		/* TO_IN {} is a leave, TO_EX {} an any-source join */
+		assertTrue(include(S1).apply(IgmpView.RECORD_CHANGE_TO_INCLUDE, sources()).isNone());
+		assertTrue(SourceFilter.NONE.apply(IgmpView.RECORD_CHANGE_TO_EXCLUDE, sources()).isAny());
+	}
+
+	@Test
+	public void testIncludeMerge() {
+		/* INCLUDE (A) + ALLOW (B) = INCLUDE (A+B), INCLUDE (A) + BLOCK (B) = INCLUDE (A-B) */
+		SourceFilter filter = include(S1);
+		filter = filter.apply(IgmpView.RECORD_ALLOW_NEW_SOURCES, sources(S2, S3));
+		assertEquals(include(S1, S2, S3), filter);
+		filter = filter.apply(IgmpView.RECORD_BLOCK_OLD_SOURCES, sources(S1, S2));
+		assertEquals(include(S3), filter);
+		filter = filter.apply(IgmpView.RECORD_BLOCK_OLD_SOURCES, sources(S3));
+		assertTrue(filter.isNone());
+	}
+
+	@Test
+	public void testExcludeMerge() {
+		/* EXCLUDE (A) + ALLOW (B) = EXCLUDE (A-B), EXCLUDE (A) + BLOCK (B) = EXCLUDE (A+B) */
+		SourceFilter filter = exclude(S1, S2);
+		filter = filter.apply(IgmpView.RECORD_ALLOW_NEW_SOURCES, sources(S1));
+		assertEquals(exclude(S2), filter);
+		filter = filter.apply(IgmpView.RECORD_BLOCK_OLD_SOURCES, sources(S3));
+		assertEquals(exclude(S2, S3), filter);
+		filter = filter.apply(IgmpView.RECORD_ALLOW_NEW_SOURCES, sources(S2, S3));
+		assertTrue(filter.isAny());
+	}
+
+	@Test
+	public void testImmutable() {
+		SourceFilter filter = include(S1);
+		filter.apply(IgmpView.RECORD_ALLOW_NEW_SOURCES, sources(S2));
+		assertEquals(include(S1), filter);
+		try {
+			filter.getSources().add(S2);
+			fail("Expected Exception not thrown");
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+		/* an unknown record type leaves the filter as it is */
+		assertSame(filter, filter.apply(0, Collections.singletonList(S2)));
+	}
+
+	@Test
+	public void testEquality() {
+		assertEquals(include(S1, S2), include(S2, S1));
+		assertEquals(include(S1, S2).hashCode(), include(S2, S1).hashCode());
+		assertNotEquals(include(S1), exclude(S1));
+		assertNotEquals(include(S1), include(S1, S2));
+	}
+
+}
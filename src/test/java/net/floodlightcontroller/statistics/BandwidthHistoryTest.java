@@ -0,0 +1,146 @@
+package net.floodlightcontroller.statistics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.statistics.BandwidthHistory.Direction;
+
+public class BandwidthHistoryTest {
+
+	private static final int CAPACITY = 4;
+	private static final long SPEED = 1000000000L;
+
+	private BandwidthHistory history;
+
+	@Before
+	public void setUp() {
+		history = new BandwidthHistory(CAPACITY);
+	}
+
+	/* one sample per second: RX 8, 16, 24 kbit/s, TX a steady 4 kbit/s */
+	private void recordSeries() {
+		history.record(0, 0, 0, SPEED);
+		history.record(1000, 1000, 500, SPEED);
+		history.record(2000, 3000, 1000, SPEED);
+		history.record(3000, 6000, 1500, SPEED);
+	}
+
+	@Test
+	public void testFewerThanTwoSamples() {
+		assertEquals(-1, history.getRate(Direction.RX, 1000));
+		assertEquals(-1, history.getEwma(Direction.RX, 1000));
+		assertEquals(-1, history.getPercentile(Direction.RX, 1000, 50));
+		assertNull(history.getLatest(DatapathId.of(1), OFPort.of(1)));
+
+		history.record(0, 1000, 1000, SPEED);
+		assertEquals(1, history.getCount());
+		assertEquals(-1, history.getRate(Direction.RX, 1000));
+		assertEquals(-1, history.getRate(Direction.TX, 1000));
+		assertEquals(-1, history.getEwma(Direction.TX, 1000));
+		assertEquals(-1, history.getPercentile(Direction.TX, 1000, 50));
+		assertNull(history.getLatest(DatapathId.of(1), OFPort.of(1)));
+	}
+
+	@Test
+	public void testRate() {
+		recordSeries();
+		assertEquals(24000, history.getRate(Direction.RX, 1000));
+		assertEquals(16000, history.getRate(Direction.RX, 3000));
+		assertEquals(4000, history.getRate(Direction.TX, 2000));
+
+		SwitchPortBandwidth latest = history.getLatest(DatapathId.of(1), OFPort.of(2));
+		assertEquals(24000, latest.getBitsPerSecondRx().getValue());
+		assertEquals(4000, latest.getBitsPerSecondTx().getValue());
+		assertEquals(SPEED, latest.getLinkSpeedBitsPerSec().getValue());
+		assertEquals(3000, latest.getUpdateTime());
+	}
+
+	@Test
+	public void testWindowLongerThanHistory() {
+		recordSeries();
+		/* the oldest sample kept bounds the window */
+		assertEquals(16000, history.getRate(Direction.RX, 10000));
+		assertEquals(4000, history.getRate(Direction.TX, 10000));
+	}
+
+	@Test
+	public void testWrapAround() {
+		recordSeries();
+		history.record(4000, 10000, 2000, SPEED);
+		assertEquals(CAPACITY, history.getCount());
+		assertEquals(CAPACITY, history.getCapacity());
+		/* the sample at 0 is overwritten, the oldest one kept is at 1000 */
+		assertEquals(24000, history.getRate(Direction.RX, 10000));
+		assertEquals(32000, history.getRate(Direction.RX, 1000));
+		assertEquals(4000, history.getRate(Direction.TX, 10000));
+
+		for (int i = 5; i < 3 * CAPACITY; i++) {
+			history.record(i * 1000, 10000 + (i - 4) * 1000, 2000, SPEED);
+		}
+		assertEquals(CAPACITY, history.getCount());
+		assertEquals(8000, history.getRate(Direction.RX, 10000));
+		assertEquals(0, history.getRate(Direction.TX, 10000));
+	}
+
+	@Test
+	public void testCounterReset() {
+		recordSeries();
+		/* a counter below the previous one was reset by the switch and counts from zero */
+		history.record(4000, 500, 1500, SPEED);
+		assertEquals(4000, history.getRate(Direction.RX, 1000));
+		assertEquals(0, history.getRate(Direction.TX, 1000));
+		assertEquals(4000, history.getLatest(DatapathId.of(1), OFPort.of(1)).getBitsPerSecondRx().getValue());
+		/* 3000 + 500 bytes over the last two seconds */
+		assertEquals(14000, history.getRate(Direction.RX, 2000));
+	}
+
+	@Test
+	public void testEwma() {
+		recordSeries();
+		/* a steady rate is its own average */
+		assertEquals(4000, history.getEwma(Direction.TX, 1000));
+		/* samples one time constant apart weigh 1 - 1/e */
+		double weight = 1 - Math.exp(-1);
+		double expected = 8000;
+		expected += weight * (16000 - expected);
+		expected += weight * (24000 - expected);
+		assertEquals((long) expected, history.getEwma(Direction.RX, 1000));
+		/* a long time constant stays close to the first rate */
+		assertTrue(history.getEwma(Direction.RX, 1000000) < 8100);
+		assertEquals(-1, history.getEwma(Direction.RX, 0));
+	}
+
+	@Test
+	public void testPercentile() {
+		recordSeries();
+		/* rates of the window: 8000, 16000, 24000 */
+		assertEquals(8000, history.getPercentile(Direction.RX, 10000, 0));
+		assertEquals(16000, history.getPercentile(Direction.RX, 10000, 50));
+		assertEquals(24000, history.getPercentile(Direction.RX, 10000, 100));
+		/* the last 1.5 s hold the rates 16000 and 24000 */
+		assertEquals(16000, history.getPercentile(Direction.RX, 1500, 50));
+		assertEquals(24000, history.getPercentile(Direction.RX, 1500, 90));
+		assertEquals(4000, history.getPercentile(Direction.TX, 10000, 99));
+
+		try {
+			history.getPercentile(Direction.RX, 1000, 101);
+			fail("Expected Exception not thrown");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCapacity() {
+		try {
+			new BandwidthHistory(1);
+			fail("Expected Exception not thrown");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package net.floodlightcontroller.statistics;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFBucketCounter;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
+import org.projectfloodlight.openflow.protocol.OFGroupStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFGroupStatsReply;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFGroup;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.TableId;
+import org.projectfloodlight.openflow.types.U64;
+
+public class FlowStatsStoreTest {
+
+	private static final OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+	private static final DatapathId SW1 = DatapathId.of(1);
+	private static final DatapathId SW2 = DatapathId.of(2);
+	private static final long APP = 10;
+	private static final long OTHER_APP = 20;
+
+	private FlowStatsStore store;
+
+	@Before
+	public void setUp() {
+		store = new FlowStatsStore();
+	}
+
+	private static long cookie(long app) {
+		return (app << 52) | 1;
+	}
+
+	private static OFFlowStatsEntry flow(long cookie, int inPort, long durationMs, long packets, long bytes) {
+		return factory.buildFlowStatsEntry()
+				.setTableId(TableId.of(0))
+				.setPriority(20)
+				.setCookie(U64.of(cookie))
+				.setMatch(factory.buildMatch().setExact(MatchField.IN_PORT, OFPort.of(inPort)).build())
+				.setDurationSec(durationMs / 1000)
+				.setDurationNsec((durationMs % 1000) * 1000000)
+				.setPacketCount(U64.of(packets))
+				.setByteCount(U64.of(bytes))
+				.build();
+	}
+
+	private static OFFlowStatsReply flows(OFFlowStatsEntry... entries) {
+		return factory.buildFlowStatsReply().setEntries(Arrays.asList(entries)).build();
+	}
+
+	private static OFGroupStatsEntry group(int group, long packets, long bytes) {
+		return factory.buildGroupStatsEntry()
+				.setGroup(OFGroup.of(group))
+				.setRefCount(1)
+				.setPacketCount(U64.of(packets))
+				.setByteCount(U64.of(bytes))
+				.setDurationSec(0)
+				.setDurationNsec(0)
+				.setBucketStats(Collections.<OFBucketCounter>emptyList())
+				.build();
+	}
+
+	private static OFGroupStatsReply groups(OFGroupStatsEntry... entries) {
+		return factory.buildGroupStatsReply().setEntries(Arrays.asList(entries)).build();
+	}
+
+	/* the single flow of the switch with the in_port */
+	private FlowStatsDelta get(DatapathId d, int inPort) {
+		FlowStatsDelta found = null;
+		for (FlowStatsDelta f : store.getFlows(d)) {
+			if (f.getMatch().get(MatchField.IN_PORT).equals(OFPort.of(inPort))) {
+				assertNull(found);
+				found = f;
+			}
+		}
+		return found;
+	}
+
+	private static List<Long> rates(List<FlowStatsDelta> flows) {
+		List<Long> rates = new ArrayList<Long>();
+		for (FlowStatsDelta f : flows) {
+			rates.add(f.getBitsPerSecond());
+		}
+		return rates;
+	}
+
+	@Test
+	public void testDelta() {
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 10000, 10, 1000)), FlowStatsStore.ALL_APPS, 1000);
+		FlowStatsDelta f = get(SW1, 1);
+		/* first seen: the counters since the installation, over the duration */
+		assertTrue(f.isFirstSeen());
+		assertEquals(10, f.getPacketDelta());
+		assertEquals(1000, f.getByteDelta());
+		assertEquals(10000, f.getInterval());
+		assertEquals(800, f.getBitsPerSecond());
+
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 11000, 30, 3000)), FlowStatsStore.ALL_APPS, 2000);
+		f = get(SW1, 1);
+		assertFalse(f.isFirstSeen());
+		assertEquals(30, f.getPacketCount());
+		assertEquals(3000, f.getByteCount());
+		assertEquals(20, f.getPacketDelta());
+		assertEquals(2000, f.getByteDelta());
+		assertEquals(1000, f.getInterval());
+		assertEquals(11000, f.getDuration());
+		assertEquals(2000, f.getUpdateTime());
+		assertEquals(16000, f.getBitsPerSecond());
+		assertEquals(20, f.getPacketsPerSecond());
+	}
+
+	@Test
+	public void testReinstall() {
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 10000, 10, 1000)), FlowStatsStore.ALL_APPS, 1000);
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 11000, 30, 3000)), FlowStatsStore.ALL_APPS, 2000);
+		/* the duration went backwards: the flow was reinstalled and counts from 0 again */
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 500, 5, 500)), FlowStatsStore.ALL_APPS, 3000);
+		FlowStatsDelta f = get(SW1, 1);
+		assertTrue(f.isFirstSeen());
+		assertEquals(5, f.getPacketDelta());
+		assertEquals(500, f.getByteDelta());
+		assertEquals(500, f.getInterval());
+
+		/* a counter below the previous one, with a longer duration, is a reinstall as well */
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 1500, 2, 200)), FlowStatsStore.ALL_APPS, 4000);
+		f = get(SW1, 1);
+		assertTrue(f.isFirstSeen());
+		assertEquals(200, f.getByteDelta());
+		assertEquals(1500, f.getInterval());
+
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 2500, 4, 400)), FlowStatsStore.ALL_APPS, 5000);
+		f = get(SW1, 1);
+		assertFalse(f.isFirstSeen());
+		assertEquals(200, f.getByteDelta());
+		assertEquals(1000, f.getInterval());
+	}
+
+	@Test
+	public void testAppFilter() {
+		OFFlowStatsReply reply = flows(flow(cookie(APP), 1, 1000, 1, 100), flow(cookie(OTHER_APP), 2, 1000, 1, 100));
+		store.recordFlows(SW1, reply, APP, 1000);
+		assertEquals(1, store.getFlows(SW1).size());
+		assertNotNull(get(SW1, 1));
+		assertNull(get(SW1, 2));
+
+		store.recordFlows(SW2, reply, FlowStatsStore.ALL_APPS, 1000);
+		assertEquals(2, store.getFlows(SW2).size());
+	}
+
+	@Test
+	public void testRemoveFlowsBefore() {
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 1000, 1, 100), flow(cookie(APP), 2, 1000, 1, 100),
+				flow(cookie(OTHER_APP), 3, 1000, 1, 100)), FlowStatsStore.ALL_APPS, 1000);
+		assertEquals(3, store.getFlows(SW1).size());
+
+		/* a complete poll of the app at 2000 reports the flow of port 1 only */
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 2000, 2, 200)), APP, 2000);
+		store.removeFlowsBefore(SW1, APP, 2000);
+		assertEquals(2, store.getFlows(SW1).size());
+		assertNotNull(get(SW1, 1));
+		assertNull(get(SW1, 2));
+		/* the flow of the other app was not polled and stays */
+		assertNotNull(get(SW1, 3));
+
+		store.removeFlowsBefore(SW1, FlowStatsStore.ALL_APPS, 2000);
+		assertEquals(1, store.getFlows(SW1).size());
+		assertNotNull(get(SW1, 1));
+
+		/* a switch never polled has nothing to remove */
+		store.removeFlowsBefore(SW2, FlowStatsStore.ALL_APPS, 2000);
+		assertTrue(store.getFlows(SW2).isEmpty());
+	}
+
+	@Test
+	public void testGroups() {
+		store.recordGroups(SW1, groups(group(1, 10, 1000), group(2, 10, 1000)), 1000);
+		assertEquals(2, store.getGroups(SW1).size());
+		for (GroupStatsDelta g : store.getGroups(SW1)) {
+			assertEquals(-1, g.getByteDelta());
+		}
+
+		store.recordGroups(SW1, groups(group(1, 30, 3000)), 2000);
+		store.removeGroupsBefore(SW1, 2000);
+		assertEquals(1, store.getGroups(SW1).size());
+		GroupStatsDelta g = store.getGroups(SW1).iterator().next();
+		assertEquals(OFGroup.of(1), g.getGroup());
+		assertEquals(20, g.getPacketDelta());
+		assertEquals(2000, g.getByteDelta());
+		assertEquals(1000, g.getInterval());
+	}
+
+	@Test
+	public void testHeavyHitters() {
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 1000, 0, 0), flow(cookie(APP), 2, 1000, 0, 0),
+				flow(cookie(APP), 3, 1000, 0, 0)), FlowStatsStore.ALL_APPS, 1000);
+		store.recordFlows(SW2, flows(flow(cookie(APP), 1, 1000, 0, 0)), FlowStatsStore.ALL_APPS, 1000);
+		/* only first seen flows, no delta between two polls yet */
+		assertTrue(store.getHeavyHitters(null, 10).isEmpty());
+
+		/* 8, 16 and 24 kbit/s on the first switch, 32 kbit/s on the second */
+		store.recordFlows(SW1, flows(flow(cookie(APP), 1, 2000, 1, 1000), flow(cookie(APP), 2, 2000, 2, 2000),
+				flow(cookie(APP), 3, 2000, 3, 3000)), FlowStatsStore.ALL_APPS, 2000);
+		store.recordFlows(SW2, flows(flow(cookie(APP), 1, 2000, 4, 4000),
+				/* installed just before the poll: left out until its next poll */
+				flow(cookie(APP), 2, 0, 1000000, Long.MAX_VALUE / 1000)), FlowStatsStore.ALL_APPS, 2000);
+
+		assertEquals(Arrays.asList(32000L, 24000L), rates(store.getHeavyHitters(null, 2)));
+		assertEquals(Arrays.asList(32000L, 24000L, 16000L, 8000L), rates(store.getHeavyHitters(null, 10)));
+		assertEquals(Arrays.asList(24000L, 16000L, 8000L), rates(store.getHeavyHitters(SW1, 5)));
+		assertEquals(Arrays.asList(24000L), rates(store.getHeavyHitters(SW1, 1)));
+		assertEquals(Arrays.asList(32000L), rates(store.getHeavyHitters(SW2, 5)));
+		assertTrue(store.getHeavyHitters(DatapathId.of(3), 5).isEmpty());
+		assertTrue(store.getHeavyHitters(null, 0).isEmpty());
+		try {
+			store.getHeavyHitters(null, -1);
+			fail("Expected Exception not thrown");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
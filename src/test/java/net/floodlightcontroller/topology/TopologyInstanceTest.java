@@ -18,6 +18,7 @@ package net.floodlightcontroller.topology;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -933,4 +934,60 @@ public class TopologyInstanceTest {
         }
         verifyRoute(r10, r10.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIncrementalPathComputation() throws Exception {
+        Integer k = 7;
+        DatapathId one = DatapathId.of(1);
+        DatapathId two = DatapathId.of(2);
+        DatapathId three = DatapathId.of(3);
+        DatapathId six = DatapathId.of(6);
+        NodePortTuple four4 = new NodePortTuple(DatapathId.of(4), OFPort.of(4));
+
+        /* Same topology as the second one of testgetPathsFast() */
+        int [][] linkArray = {
+                {1, 1, 2, 1, DIRECT_LINK},
+                {1, 2, 4, 1, DIRECT_LINK},
+                {2, 2, 3, 1, DIRECT_LINK},
+                {3, 3, 5, 2, DIRECT_LINK},
+                {3, 4, 6, 2, DIRECT_LINK},
+                {4, 2, 2, 3, DIRECT_LINK},
+                {4, 3, 3, 2, DIRECT_LINK},
+                {4, 4, 5, 1, DIRECT_LINK},
+                {5, 3, 6, 1, DIRECT_LINK},
+        };
+        int [] lat = {3,2,4,2,1,1,2,3,2};
+
+        topologyManager.clearCurrentTopology();
+        topologyManager.setPathMetric(HOPCOUNT);
+        configureTopology(linkArray, lat);
+        List<Path> all = routingManager.getPathsFast(one, six, k);
+        List<Path> twoToThree = routingManager.getPathsFast(two, three, k);
+        boolean throughFour4 = false;
+        for (Path p : all) {
+            throughFour4 |= p.getPath().contains(four4);
+        }
+        assertTrue(throughFour4);
+
+        /* Only the pairs with a path through 4/4 -> 5/1 are recomputed */
+        topologyManager.removeLink(DatapathId.of(4), OFPort.of(4), DatapathId.of(5), OFPort.of(1));
+        topologyManager.createNewInstance();
+        TopologyInstance ti = topologyManager.getCurrentInstance();
+        assertTrue(ti.getPathsReused() > 0);
+        assertTrue(ti.getPathsComputed() > 0);
+        assertEquals(twoToThree, routingManager.getPathsFast(two, three, k));
+        List<Path> reduced = routingManager.getPathsFast(one, six, k);
+        assertFalse(reduced.isEmpty());
+        for (Path p : reduced) {
+            assertFalse(p.getPath().contains(four4));
+        }
+
+        /* A new link may shorten any path of its archipelago */
+        topologyManager.addOrUpdateLink(DatapathId.of(4), OFPort.of(4), DatapathId.of(5), OFPort.of(1),
+                U64.of(3), ILinkDiscovery.LinkType.DIRECT_LINK);
+        topologyManager.createNewInstance();
+        ti = topologyManager.getCurrentInstance();
+        assertEquals(0, ti.getPathsReused());
+        assertEquals(new HashSet<Path>(all), new HashSet<Path>(routingManager.getPathsFast(one, six, k)));
+    }
+}
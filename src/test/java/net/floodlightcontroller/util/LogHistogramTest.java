@@ -0,0 +1,70 @@
+package net.floodlightcontroller.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogHistogramTest {
+    private LogHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LogHistogram();
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < 1 << 20; v++) {
+            int bucket = LogHistogram.bucketOf(v);
+            assertTrue(LogHistogram.lowerBoundOf(bucket) <= v);
+            assertTrue(LogHistogram.upperBoundOf(bucket) >= v);
+        }
+        assertEquals(LogHistogram.bucketOf(0), LogHistogram.bucketOf(-5));
+        assertEquals(Long.MAX_VALUE, LogHistogram.upperBoundOf(LogHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getStdDev());
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getMean());
+        assertEquals(1000, histogram.getMax());
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.125);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        assertEquals(1000, histogram.getPercentile(100));
+        assertEquals(1, histogram.getMin());
+        assertEquals(500500, histogram.getSum());
+        long stdDev = histogram.getStdDev();
+        assertTrue(stdDev >= 288 * 0.875 && stdDev <= 288 * 1.125);
+    }
+
+    @Test
+    public void testAddAndReset() {
+        LogHistogram other = new LogHistogram();
+        histogram.record(10);
+        other.record(20);
+        other.record(3000);
+        histogram.add(other);
+        assertEquals(3, histogram.getCount());
+        assertEquals(3000, histogram.getMax());
+        assertEquals(3000, (long) histogram.getSummary().get("max"));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}